@@ -0,0 +1,92 @@
+package apoc;
+
+import apoc.agg.ApproxDistinct;
+import apoc.agg.Median;
+import apoc.agg.Percentiles;
+import apoc.agg.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Simulates a group-by over many small groups, where the per group accumulator state dominates the heap.
+ * Run with the gc profiler (-prof gc) to compare the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class AggregationBenchmarks {
+
+    private static final List<Double> PERCENTILES = asList(0.5D, 0.75D, 0.9D, 0.95D, 0.99D);
+
+    @Param({"10", "1000"})
+    public int groupSize;
+
+    @Param({"false", "true"})
+    public boolean doubles;
+
+    public int groups = 1_000;
+
+    private Number[] values;
+
+    @Setup
+    public void setup() {
+        values = new Number[groupSize];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < groupSize; i++) {
+            values[i] = doubles ? (Number) (random.nextDouble() * 1000) : (Number) random.nextLong(1_000_000);
+        }
+    }
+
+    @Benchmark
+    public void percentiles(Blackhole bh) {
+        Percentiles.PercentilesFunction[] functions = new Percentiles.PercentilesFunction[groups];
+        for (int g = 0; g < groups; g++) {
+            functions[g] = new Percentiles.PercentilesFunction();
+            for (Number value : values) functions[g].aggregate(value, PERCENTILES);
+        }
+        for (Percentiles.PercentilesFunction function : functions) bh.consume(function.result());
+    }
+
+    @Benchmark
+    public void statistics(Blackhole bh) {
+        Statistics.StatisticsFunction[] functions = new Statistics.StatisticsFunction[groups];
+        for (int g = 0; g < groups; g++) {
+            functions[g] = new Statistics.StatisticsFunction();
+            for (Number value : values) functions[g].aggregate(value, PERCENTILES);
+        }
+        for (Statistics.StatisticsFunction function : functions) bh.consume(function.result());
+    }
+
+    @Benchmark
+    public void median(Blackhole bh) {
+        Median.MedianFunction[] functions = new Median.MedianFunction[groups];
+        for (int g = 0; g < groups; g++) {
+            functions[g] = new Median.MedianFunction();
+            for (Number value : values) functions[g].aggregate(value, -1);
+        }
+        for (Median.MedianFunction function : functions) bh.consume(function.result());
+    }
+
+    @Benchmark
+    public void boundedMedian(Blackhole bh) {
+        Median.MedianFunction[] functions = new Median.MedianFunction[groups];
+        for (int g = 0; g < groups; g++) {
+            functions[g] = new Median.MedianFunction();
+            for (Number value : values) functions[g].aggregate(value, 100);
+        }
+        for (Median.MedianFunction function : functions) bh.consume(function.result());
+    }
+
+    @Benchmark
+    public void approxDistinct(Blackhole bh) {
+        ApproxDistinct.ApproxDistinctFunction function = new ApproxDistinct.ApproxDistinctFunction();
+        for (int g = 0; g < groups; g++) {
+            for (Number value : values) function.aggregate(value, 14);
+        }
+        bh.consume(function.result());
+    }
+}
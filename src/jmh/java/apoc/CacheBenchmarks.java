@@ -0,0 +1,69 @@
+package apoc;
+
+import apoc.cache.BoundedCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.MapUtil.map;
+
+/**
+ * Concurrent reads and writes of the storage of apoc.static and apoc.dynamic, with the ConcurrentHashMap that
+ * apoc.dynamic used before, and the BoundedCache unbounded and bounded to half of the keys, so that it evicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class CacheBenchmarks {
+
+    private static final int KEYS = 100_000;
+
+    @Param({"concurrentHashMap", "boundedCache", "boundedCacheEvicting"})
+    public String storage;
+
+    private String[] keys;
+    private Map<String, Object> map;
+    private BoundedCache<String> cache;
+
+    @Setup
+    public void setup() {
+        ApocConfiguration.addToConfig(map("cache.benchmark.maxEntries", storage.equals("boundedCacheEvicting") ? String.valueOf(KEYS / 2) : "0"));
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) keys[i] = "key" + i;
+        map = new ConcurrentHashMap<>();
+        cache = new BoundedCache<>("cache.benchmark");
+        for (int i = 0; i < KEYS; i++) put(keys[i], (long) i);
+    }
+
+    private void put(String key, Object value) {
+        if (storage.equals("concurrentHashMap")) map.put(key, value);
+        else cache.put(key, value, 0);
+    }
+
+    private Object get(String key) {
+        return storage.equals("concurrentHashMap") ? map.get(key) : cache.get(key);
+    }
+
+    @Benchmark
+    public Object read() {
+        return get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    /**
+     * 90% reads and 10% writes.
+     */
+    @Benchmark
+    public Object readWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(KEYS)];
+        if (random.nextInt(10) == 0) {
+            put(key, key);
+            return key;
+        }
+        return get(key);
+    }
+}
@@ -0,0 +1,55 @@
+package apoc;
+
+import apoc.index.IndexUpdateTransactionEventHandler;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.Map;
+
+/**
+ * Async auto indexing of a fixed set of nodes whose indexed property is updated over and over again,
+ * with and without coalescing the updates of a batch.
+ */
+public class ChurnIndexingGraphDatabaseState extends SyncIndexingGraphDatabaseState {
+
+    static final int NODES = 1000;
+
+    @Param({"true", "false"})
+    public String coalesce;
+
+    private long[] nodeIds = new long[NODES];
+
+    @Override
+    public Map<String, String> getGraphDatabaseConfig() {
+        return MapUtil.genericMap("apoc.autoIndex.enabled", "true",
+                "apoc.autoIndex.async", "true",
+                "apoc.autoIndex.async_coalesce", coalesce,
+                "apoc.autoIndex.configUpdateInterval", "-1");
+    }
+
+    @Override
+    void setupGraphDatabase(GraphDatabaseService graphDatabaseService) {
+        super.setupGraphDatabase(graphDatabaseService);
+        try (Transaction tx = graphDatabaseService.beginTx()) {
+            for (int i = 0; i < NODES; i++) {
+                nodeIds[i] = graphDatabaseService.createNode(Label.label("Person")).getId();
+            }
+            tx.success();
+        }
+        getIndexUpdateHandler().forceTxRollover();
+    }
+
+    public long[] getNodeIds() {
+        return nodeIds;
+    }
+
+    public IndexUpdateTransactionEventHandler getIndexUpdateHandler() {
+        return ((GraphDatabaseAPI) getGraphDatabaseService()).getDependencyResolver()
+                .resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class)
+                .getIndexUpdateLifeCycle().getIndexUpdateTransactionEventHandler();
+    }
+}
@@ -0,0 +1,71 @@
+package apoc;
+
+import apoc.load.LoadCsv;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.MapUtil.map;
+
+/**
+ * Loads a generated csv file with quoted fields, which contain separators, quotes and line breaks, sequentially and
+ * in parallel ranges. The throughput is reported in rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvLoadBenchmarks {
+
+    private static final int ROWS = 200_000;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    private GraphDatabaseService db;
+    private File file;
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig("apoc.import.file.enabled", "true")
+                .newGraphDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(LoadCsv.class, true);
+        file = File.createTempFile("benchmark", ".csv");
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("id,name,score,text\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(i + ",\"name \"\"" + i + "\"\"\"," + (i * 0.5) + ",\"first line, " + i + "\nsecond line\"\n");
+            }
+        }
+        params = map("url", file.toURI().toString(), "parallel", parallel, "ordered", ordered);
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+        file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long loadCsv() {
+        try (Result result = db.execute("CALL apoc.load.csv({url}, {parallel: {parallel}, ordered: {ordered}, " +
+                "mapping: {id: {type: 'int'}, score: {type: 'float'}}}) YIELD map RETURN count(*) AS count", params)) {
+            return (Long) result.next().get("count");
+        }
+    }
+}
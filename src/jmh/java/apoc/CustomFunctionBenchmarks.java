@@ -0,0 +1,56 @@
+package apoc;
+
+import apoc.custom.CypherProcedures;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls a trivial custom function once per row of `UNWIND range(1, 1e6)`, and the same expression inline for
+ * comparison. The score is the time of all calls, divided by the calls it is the latency per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CustomFunctionBenchmarks {
+
+    @Param({"1000000"})
+    public int calls;
+
+    private GraphDatabaseService db;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(CypherProcedures.class, true);
+        db.execute("CALL apoc.custom.asFunction('inc', 'RETURN $x + 1 AS value', 'long', [['x', 'long']], true)").close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public Object customFunction() {
+        try (Result result = db.execute("UNWIND range(1, toInteger($calls)) AS i RETURN sum(custom.inc(i)) AS sum", Collections.singletonMap("calls", calls))) {
+            return Iterators.single(result).get("sum");
+        }
+    }
+
+    @Benchmark
+    public Object inline() {
+        try (Result result = db.execute("UNWIND range(1, toInteger($calls)) AS i RETURN sum(i + 1) AS sum", Collections.singletonMap("calls", calls))) {
+            return Iterators.single(result).get("sum");
+        }
+    }
+}
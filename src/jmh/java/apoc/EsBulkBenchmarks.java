@@ -0,0 +1,85 @@
+package apoc;
+
+import apoc.es.ElasticSearch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static apoc.util.MapUtil.map;
+
+/**
+ * Indexes documents into a local http stub of elastic search, one apoc.es.put per document and with apoc.es.bulk.
+ * The throughput is reported in documents per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EsBulkBenchmarks {
+
+    private static final int DOCUMENTS = 2_000;
+
+    private GraphDatabaseService db;
+    private HttpServer server;
+    private Map<String, Object> params;
+
+    @Setup
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", EsBulkBenchmarks::respond);
+        server.start();
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(ElasticSearch.class, true);
+        List<Map<String, Object>> documents = IntStream.range(0, DOCUMENTS)
+                .mapToObj(i -> map("id", i, "name", "document " + i, "score", i * 0.5))
+                .collect(Collectors.toList());
+        params = map("host", "localhost:" + server.getAddress().getPort(), "documents", documents);
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        byte[] bytes = "{\"took\":1,\"errors\":false,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public long putPerDocument() {
+        try (Result result = db.execute("UNWIND {documents} AS document " +
+                "CALL apoc.es.put({host}, 'test', 'doc', toString(document.id), null, document) YIELD value RETURN count(*) AS count", params)) {
+            return (Long) result.next().get("count");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public long bulk() {
+        try (Result result = db.execute("CALL apoc.es.bulk({host}, 'test', 'doc', {documents}, {idField: 'id'}) YIELD value RETURN value.count AS count", params)) {
+            return (Long) result.next().get("count");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package apoc;
+
+import apoc.spatial.Geocode;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static apoc.util.MapUtil.map;
+
+/**
+ * Geocodes a workload of 2000 addresses, of which 200 are distinct, with a local provider that takes 2 ms per request
+ * and is throttled to one request per ms: one geocodeOnce per address without and with the cache, and geocodeBatch.
+ * The cache starts empty in each invocation, the requests to the provider per invocation are printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class GeocodeBenchmarks {
+
+    private static final int ADDRESSES = 2000;
+    private static final int DISTINCT = 200;
+
+    public static class SlowSupplier implements Geocode.GeocodeSupplier {
+        static final AtomicLong requests = new AtomicLong();
+
+        public SlowSupplier(Map<String, Object> config) {
+        }
+
+        @Override
+        public Stream<Geocode.GeoCodeResult> geocode(String address, long maxResults) {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Stream.of(new Geocode.GeoCodeResult((double) address.length(), 0d, address, map()));
+        }
+
+        @Override
+        public Stream<Geocode.GeoCodeResult> reverseGeocode(Double latitude, Double longitude) {
+            return Stream.empty();
+        }
+    }
+
+    private GraphDatabaseService db;
+    private List<String> addresses;
+    private File dir;
+    private long invocations;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(Geocode.class, true);
+        dir = Files.createTempDirectory("geocode").toFile();
+        ApocConfiguration.addToConfig(map(Geocode.PREFIX + ".provider", SlowSupplier.class.getName(),
+                Geocode.PREFIX + "." + SlowSupplier.class.getName() + ".throttle", "1",
+                Geocode.PREFIX + ".cache.file", new File(dir, "geocode.cache").getPath()));
+        addresses = new ArrayList<>(ADDRESSES);
+        for (int i = 0; i < ADDRESSES; i++) addresses.add((i % DISTINCT) + " Rue Paul Bellamy, Nantes");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        ApocConfiguration.addToConfig(map(Geocode.PREFIX + ".cache.enabled", "true"));
+        db.execute("CALL apoc.spatial.clearGeocodeCache()").close();
+        invocations++;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRequests() {
+        System.out.println("requests per invocation: " + SlowSupplier.requests.getAndSet(0) / invocations);
+        invocations = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+        new File(dir, "geocode.cache").delete();
+        dir.delete();
+    }
+
+    private long count(String statement) {
+        try (Result result = db.execute(statement, map("addresses", addresses))) {
+            return Iterators.count(result);
+        }
+    }
+
+    @Benchmark
+    public long geocodeOnceUncached() {
+        ApocConfiguration.addToConfig(map(Geocode.PREFIX + ".cache.enabled", "false"));
+        return count("UNWIND $addresses AS address CALL apoc.spatial.geocodeOnce(address) YIELD location RETURN location");
+    }
+
+    @Benchmark
+    public long geocodeOnceCached() {
+        return count("UNWIND $addresses AS address CALL apoc.spatial.geocodeOnce(address) YIELD location RETURN location");
+    }
+
+    @Benchmark
+    public long geocodeBatch() {
+        return count("CALL apoc.spatial.geocodeBatch($addresses) YIELD location RETURN location");
+    }
+}
@@ -28,6 +28,22 @@ public class IndexUpdateBenchmarks {
         populateDb( state, 10000 );
     }
 
+    @Benchmark
+    public void update100kIndexedAsyncProperties(ChurnIndexingGraphDatabaseState state) {
+        final GraphDatabaseService db = state.getGraphDatabaseService();
+        final long[] nodeIds = state.getNodeIds();
+        // many small transactions that update the same few nodes again and again
+        for (int t = 0; t < 1000; t++) {
+            try (Transaction tx = db.beginTx()) {
+                for (int i = 0; i < 100; i++) {
+                    db.getNodeById(nodeIds[(t * 7 + i) % nodeIds.length]).setProperty("name", "myname_" + t);
+                }
+                tx.success();
+            }
+        }
+        state.getIndexUpdateHandler().forceTxRollover();
+    }
+
     private void populateDb( GraphDatabaseState state, int numberOfNodes )
     {
         final GraphDatabaseService db = state.getGraphDatabaseService();
@@ -0,0 +1,84 @@
+package apoc;
+
+import apoc.load.Jdbc;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.Util.map;
+
+/**
+ * Updates the rows of a table of an embedded in-memory Derby database from UNWIND, once with one jdbcUpdate call per
+ * row with and without the connection pool and once with jdbcUpdateBatch. The scores are rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JdbcBenchmarks {
+
+    private static final String URL = "jdbc:derby:memory:apocbench";
+    private static final int ROWS = 2000;
+
+    @Param({"perRow", "perRowPooled", "batch"})
+    public String mode;
+
+    private GraphDatabaseService db;
+    private Connection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(Jdbc.class, true);
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        connection = DriverManager.getConnection(URL + ";create=true");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE ITEM (ID INT PRIMARY KEY, NAME VARCHAR(50))");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO ITEM VALUES (?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "item");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        db.shutdown();
+        connection.close();
+        try {
+            DriverManager.getConnection(URL + ";drop=true");
+        } catch (SQLException e) {
+            // dropping a Derby database always raises an exception
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void updateRows() {
+        String query;
+        switch (mode) {
+            case "perRow":
+                query = "UNWIND range(0, {rows} - 1) AS i CALL apoc.load.jdbcUpdate({url}, 'UPDATE ITEM SET NAME = ? WHERE ID = ?', ['item-' + i, i], {pool:false}) YIELD row RETURN count(*)";
+                break;
+            case "perRowPooled":
+                query = "UNWIND range(0, {rows} - 1) AS i CALL apoc.load.jdbcUpdate({url}, 'UPDATE ITEM SET NAME = ? WHERE ID = ?', ['item-' + i, i]) YIELD row RETURN count(*)";
+                break;
+            default:
+                query = "UNWIND range(0, {rows} - 1) AS i WITH collect(['item-' + i, i]) AS params " +
+                        "CALL apoc.load.jdbcUpdateBatch({url}, 'UPDATE ITEM SET NAME = ? WHERE ID = ?', params) YIELD row RETURN count(*)";
+        }
+        db.execute(query, map("rows", ROWS, "url", URL)).close();
+    }
+}
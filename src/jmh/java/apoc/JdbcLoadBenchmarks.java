@@ -0,0 +1,79 @@
+package apoc;
+
+import apoc.load.Jdbc;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.Util.map;
+
+/**
+ * Reads all rows of a table of an embedded in-memory Derby database with apoc.load.jdbc, in one result set or in
+ * ranges of the id column read concurrently. The scores are rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JdbcLoadBenchmarks {
+
+    private static final String URL = "jdbc:derby:memory:apocloadbench";
+    private static final int ROWS = 200_000;
+
+    @Param({"0", "4"})
+    public int partitions;
+
+    private GraphDatabaseService db;
+    private Connection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(Jdbc.class, true);
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        connection = DriverManager.getConnection(URL + ";create=true");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE ITEM (ID INT PRIMARY KEY, NAME VARCHAR(50), PRICE DOUBLE, CREATED TIMESTAMP)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO ITEM VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "item-" + i);
+                insert.setDouble(3, i / 100d);
+                insert.setTimestamp(4, new java.sql.Timestamp(1_500_000_000_000L + i * 1000L));
+                insert.addBatch();
+                if (i % 10_000 == 0) insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        db.shutdown();
+        connection.close();
+        try {
+            DriverManager.getConnection(URL + ";drop=true");
+        } catch (SQLException e) {
+            // dropping a Derby database always raises an exception
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long loadRows() {
+        String config = partitions == 0 ? "{}" : "{partitionBy:'ID', partitions:" + partitions + "}";
+        try (Result result = db.execute("CALL apoc.load.jdbc({url}, 'ITEM', [], " + config + ") YIELD row RETURN count(*) AS count", map("url", URL))) {
+            return (Long) result.next().get("count");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package apoc;
+
+import apoc.neighbors.Neighbors;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.Util.map;
+
+/**
+ * Expands the neighborhood of a node in a power-law graph generated by preferential attachment (Barabasi-Albert),
+ * so that a few hubs are reached within the first hops and the frontier grows to most of the graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NeighborsBenchmarks {
+
+    private static final RelationshipType LINKS = RelationshipType.withName("LINKS");
+
+    @Param({"200000"})
+    public int nodes;
+
+    @Param({"3"})
+    public int edgesPerNode;
+
+    @Param({"2", "4", "6"})
+    public long distance;
+
+    private GraphDatabaseService db;
+    private long startNodeId;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(GraphDatabaseSettings.procedure_unrestricted, "apoc.*")
+                .setConfig(GraphDatabaseSettings.pagecache_memory, "512m")
+                .newGraphDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(Neighbors.class, true);
+
+        Random random = new Random(42);
+        long[] ids = new long[nodes];
+        // every relationship adds both of its nodes, so picking a random entry picks a node proportional to its degree
+        long[] endpoints = new long[nodes * edgesPerNode * 2];
+        int endpointCount = 0;
+        Transaction tx = db.beginTx();
+        try {
+            for (int i = 0; i < nodes; i++) {
+                Node node = db.createNode(Label.label("Node"));
+                ids[i] = node.getId();
+                for (int e = 0; e < Math.min(i, edgesPerNode); e++) {
+                    long target = endpointCount == 0 ? ids[0] : endpoints[random.nextInt(endpointCount)];
+                    node.createRelationshipTo(db.getNodeById(target), LINKS);
+                    endpoints[endpointCount++] = node.getId();
+                    endpoints[endpointCount++] = target;
+                }
+                if (i % 10_000 == 0) {
+                    tx.success();
+                    tx.close();
+                    tx = db.beginTx();
+                }
+            }
+            tx.success();
+        } finally {
+            tx.close();
+        }
+        startNodeId = ids[nodes - 1];
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public Object tohopCount() {
+        return single("MATCH (n) WHERE id(n) = $id CALL apoc.neighbors.tohop.count(n, 'LINKS', $distance) YIELD value RETURN value");
+    }
+
+    @Benchmark
+    public Object byhopCount() {
+        return single("MATCH (n) WHERE id(n) = $id CALL apoc.neighbors.byhop.count(n, 'LINKS', $distance) YIELD value RETURN value");
+    }
+
+    private Object single(String query) {
+        try (Result result = db.execute(query, map("id", startNodeId, "distance", distance))) {
+            return result.next().get("value");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package apoc;
+
+import apoc.path.RelationshipSequenceExpander;
+import apoc.path.RelationshipTypeAndDirections;
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.traversal.BranchState;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.helpers.collection.NestingIterator;
+import org.neo4j.helpers.collection.Pair;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traverses a dense synthetic graph with the cursor based {@link RelationshipSequenceExpander} and with an expander
+ * that materializes the relationships through the core API per expansion, as the expander did before.
+ * Run with the gc profiler (-prof gc) to compare the allocated bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathExpanderBenchmarks {
+
+    private static final String PATTERN = "A>|<B";
+
+    @Param({"2000"})
+    public int nodes;
+
+    @Param({"100"})
+    public int degree;
+
+    @Param({"core", "cursor"})
+    public String expander;
+
+    @Param({"NODE_GLOBAL", "RELATIONSHIP_PATH"})
+    public String uniqueness;
+
+    private GraphDatabaseService db;
+    private long startNodeId;
+
+    @Setup
+    public void setup() {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(GraphDatabaseSettings.pagecache_memory, "512m")
+                .newGraphDatabase();
+        Random random = new Random(42);
+        RelationshipType[] types = {RelationshipType.withName("A"), RelationshipType.withName("B"), RelationshipType.withName("C")};
+        try (Transaction tx = db.beginTx()) {
+            Node[] all = new Node[nodes];
+            for (int i = 0; i < nodes; i++) {
+                all[i] = db.createNode();
+            }
+            for (Node node : all) {
+                for (int r = 0; r < degree / 2; r++) {
+                    node.createRelationshipTo(all[random.nextInt(nodes)], types[random.nextInt(types.length)]);
+                }
+            }
+            startNodeId = all[0].getId();
+            tx.success();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public long traverse() {
+        PathExpander pathExpander = "core".equals(expander) ? new CoreApiExpander(PATTERN) : new RelationshipSequenceExpander(PATTERN, true);
+        try (Transaction tx = db.beginTx()) {
+            long count = 0;
+            for (Path path : db.traversalDescription()
+                    .breadthFirst()
+                    .expand(pathExpander)
+                    .evaluator(Evaluators.toDepth(3))
+                    .uniqueness(Uniqueness.valueOf(uniqueness))
+                    .traverse(db.getNodeById(startNodeId))) {
+                count += path.length();
+            }
+            tx.success();
+            return count;
+        }
+    }
+
+    /**
+     * Expands each type and direction through the core API and collects the relationships into a list.
+     */
+    static class CoreApiExpander implements PathExpander {
+        private final List<Pair<RelationshipType, Direction>> rels;
+
+        CoreApiExpander(String pattern) {
+            this.rels = RelationshipTypeAndDirections.parse(pattern);
+        }
+
+        @Override
+        public Iterable<Relationship> expand(Path path, BranchState state) {
+            Node node = path.endNode();
+            return Iterators.asList(new NestingIterator<Relationship, Pair<RelationshipType, Direction>>(rels.iterator()) {
+                @Override
+                protected Iterator<Relationship> createNestedIterator(Pair<RelationshipType, Direction> entry) {
+                    RelationshipType type = entry.first();
+                    Direction dir = entry.other();
+                    if (type != null) {
+                        return ((dir == Direction.BOTH) ? node.getRelationships(type) : node.getRelationships(type, dir)).iterator();
+                    } else {
+                        return ((dir == Direction.BOTH) ? node.getRelationships() : node.getRelationships(dir)).iterator();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public PathExpander reverse() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
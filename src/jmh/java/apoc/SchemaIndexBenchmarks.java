@@ -0,0 +1,92 @@
+package apoc;
+
+import apoc.index.SchemaIndex;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerates the distinct values of an indexed property of a generated label, every value is used by two nodes.
+ * Compares the distinct values procedures with the equivalent aggregation in Cypher, for all values and for the
+ * first values of a prefix. With the default 10000 values the results of the procedure come from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchemaIndexBenchmarks {
+
+    @Param({"10000", "1000000"})
+    public int values;
+
+    @Param({"cypher", "procedure"})
+    public String implementation;
+
+    private GraphDatabaseService db;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(GraphDatabaseSettings.pagecache_memory, "512m")
+                .setConfig("apoc.schema.distinct.cache.enabled", "true")
+                .newGraphDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(SchemaIndex.class, true);
+        db.execute("CREATE INDEX ON :Item(code)").close();
+        Label label = Label.label("Item");
+        Transaction tx = db.beginTx();
+        try {
+            for (int i = 0; i < values * 2; i++) {
+                db.createNode(label).setProperty("code", "code-" + (i % values));
+                if (i % 50_000 == 0) {
+                    tx.success();
+                    tx.close();
+                    tx = db.beginTx();
+                }
+            }
+            tx.success();
+        } finally {
+            tx.close();
+        }
+        try (Transaction t = db.beginTx()) {
+            db.schema().awaitIndexesOnline(10, TimeUnit.MINUTES);
+            t.success();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public long distinctCount() {
+        return count("cypher".equals(implementation)
+                ? "MATCH (n:Item) RETURN n.code AS value, count(*) AS count"
+                : "CALL apoc.schema.properties.distinctCount('Item', 'code')");
+    }
+
+    @Benchmark
+    public long distinctPrefixLimit() {
+        return count("cypher".equals(implementation)
+                ? "MATCH (n:Item) WHERE n.code STARTS WITH 'code-1' RETURN DISTINCT n.code AS value LIMIT 100"
+                : "CALL apoc.schema.properties.distinct('Item', 'code', {prefix:'code-1', limit:100})");
+    }
+
+    private long count(String query) {
+        try (Result result = db.execute(query)) {
+            long count = 0;
+            while (result.hasNext()) {
+                result.next();
+                count++;
+            }
+            return count;
+        }
+    }
+}
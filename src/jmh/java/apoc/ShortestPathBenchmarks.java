@@ -0,0 +1,119 @@
+package apoc;
+
+import apoc.algo.BidirectionalShortestPath;
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PathExpanders;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds shortest paths between random node pairs of a road-like grid, the nodes have coordinates and each street
+ * is at least as long as the straight line between its crossings, with a few fast diagonals.
+ * Compares the graph-algo Dijkstra and A* the procedures used before with the bidirectional search, the sample
+ * time mode reports the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShortestPathBenchmarks {
+
+    private static final RelationshipType ROAD = RelationshipType.withName("ROAD");
+    private static final int PAIRS = 256;
+
+    @Param({"300"})
+    public int size;
+
+    @Param({"dijkstra", "aStar"})
+    public String algorithm;
+
+    @Param({"graphalgo", "bidirectional"})
+    public String implementation;
+
+    private GraphDatabaseService db;
+    private long[] from = new long[PAIRS];
+    private long[] to = new long[PAIRS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(GraphDatabaseSettings.pagecache_memory, "512m")
+                .newGraphDatabase();
+        Random random = new Random(42);
+        long[] ids = new long[size * size];
+        Transaction tx = db.beginTx();
+        try {
+            Node[] row = new Node[size];
+            Node[] previousRow = null;
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    Node node = db.createNode();
+                    node.setProperty("lat", 50 + y * 0.01);
+                    node.setProperty("lon", 10 + x * 0.01);
+                    ids[y * size + x] = node.getId();
+                    // grid neighbours are at most 1.2km apart, the diagonals 1.4km
+                    if (x > 0) road(row[x - 1], node, 1200 + random.nextInt(1200));
+                    if (previousRow != null) road(previousRow[x], node, 1200 + random.nextInt(1200));
+                    if (previousRow != null && x > 0 && random.nextInt(10) == 0) road(previousRow[x - 1], node, 1500);
+                    row[x] = node;
+                }
+                previousRow = row.clone();
+                if (y % 50 == 0) {
+                    tx.success();
+                    tx.close();
+                    tx = db.beginTx();
+                }
+            }
+            tx.success();
+        } finally {
+            tx.close();
+        }
+        for (int i = 0; i < PAIRS; i++) {
+            from[i] = ids[random.nextInt(ids.length)];
+            to[i] = ids[random.nextInt(ids.length)];
+        }
+    }
+
+    private static void road(Node a, Node b, double dist) {
+        a.createRelationshipTo(b, ROAD).setProperty("dist", dist);
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public double shortestPath() {
+        int pair = next++ % PAIRS;
+        try (Transaction tx = db.beginTx()) {
+            Node start = db.getNodeById(from[pair]);
+            Node end = db.getNodeById(to[pair]);
+            WeightedPath path;
+            if ("graphalgo".equals(implementation)) {
+                PathFinder<WeightedPath> finder = "aStar".equals(algorithm)
+                        ? GraphAlgoFactory.aStar(PathExpanders.allTypesAndDirections(),
+                                CommonEvaluators.doubleCostEvaluator("dist"), CommonEvaluators.geoEstimateEvaluator("lat", "lon"))
+                        : GraphAlgoFactory.dijkstra(PathExpanders.allTypesAndDirections(), "dist", 1);
+                path = finder.findSinglePath(start, end);
+            } else {
+                BidirectionalShortestPath finder = new BidirectionalShortestPath(db, "ROAD", "dist", null);
+                if ("aStar".equals(algorithm)) finder.withGeoEstimate("lat", "lon");
+                path = finder.find(start, end);
+            }
+            tx.success();
+            return path.weight();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package apoc;
+
+import apoc.uuid.Uuid;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commits transactions that create nodes with one of many labels that have a uuid handler installed, each label
+ * with its unique constraint. The sample time mode reports the latency percentiles of the commits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UuidBenchmarks {
+
+    private static final int NODES_PER_TX = 1000;
+
+    @Param({"20"})
+    public int labels;
+
+    @Param({"random", "thread_local_random", "time_ordered"})
+    public String generator;
+
+    private GraphDatabaseService db;
+    private Label[] nodeLabels;
+
+    @Setup
+    public void setup() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(GraphDatabaseSettings.pagecache_memory, "512m")
+                .setConfig("apoc.uuid.enabled", "true")
+                .setConfig("apoc.uuid.generator", generator)
+                .newGraphDatabase();
+        ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(Procedures.class).registerProcedure(Uuid.class, true);
+        nodeLabels = new Label[labels];
+        for (int i = 0; i < labels; i++) {
+            nodeLabels[i] = Label.label("Label" + i);
+            db.execute("CREATE CONSTRAINT ON (n:Label" + i + ") ASSERT n.uuid IS UNIQUE").close();
+            db.execute("CALL apoc.uuid.install('Label" + i + "', {addToExistingNodes: false})").close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public void createNodes() {
+        try (Transaction tx = db.beginTx()) {
+            for (int i = 0; i < NODES_PER_TX; i++) {
+                db.createNode(nodeLabels[i % labels]).setProperty("name", "node-" + i);
+            }
+            tx.success();
+        }
+    }
+}
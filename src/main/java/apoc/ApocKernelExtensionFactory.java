@@ -2,12 +2,15 @@ package apoc;
 
 import apoc.custom.CypherProcedures;
 import apoc.cypher.CypherInitializer;
+import apoc.cypher.QueryCache;
 import apoc.broker.BrokerIntegration;
+import apoc.index.DistinctValuesCache;
 import apoc.index.IndexUpdateTransactionEventHandler;
 import apoc.trigger.Trigger;
 import apoc.ttl.TTLLifeCycle;
 import apoc.util.ApocUrlStreamHandlerFactory;
 import apoc.uuid.Uuid;
+import apoc.warmup.WarmupProfile;
 import org.neo4j.kernel.AvailabilityGuard;
 import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.impl.logging.LogService;
@@ -65,6 +68,8 @@ public class ApocKernelExtensionFactory extends KernelExtensionFactory<ApocKerne
         private Uuid.UuidLifeCycle uuidLifeCycle;
 
         private IndexUpdateTransactionEventHandler.LifeCycle indexUpdateLifeCycle;
+        private DistinctValuesCache.LifeCycle distinctValuesCacheLifeCycle;
+        private QueryCache.LifeCycle queryCacheLifeCycle;
         private CypherProcedures.CustomProcedureStorage customProcedureStorage;
 
         public ApocLifecycle(LogService log, GraphDatabaseAPI db, Dependencies dependencies) {
@@ -78,6 +83,18 @@ public class ApocKernelExtensionFactory extends KernelExtensionFactory<ApocKerne
             return indexUpdateLifeCycle;
         }
 
+        public DistinctValuesCache.LifeCycle getDistinctValuesCacheLifeCycle() {
+            return distinctValuesCacheLifeCycle;
+        }
+
+        public QueryCache.LifeCycle getQueryCacheLifeCycle() {
+            return queryCacheLifeCycle;
+        }
+
+        public TTLLifeCycle getTtlLifeCycle() {
+            return ttlLifeCycle;
+        }
+
         @Override
         public void start() throws Throwable {
             ApocConfiguration.initialize(db);
@@ -94,6 +111,10 @@ public class ApocKernelExtensionFactory extends KernelExtensionFactory<ApocKerne
             triggerLifeCycle.start();
             indexUpdateLifeCycle = new IndexUpdateTransactionEventHandler.LifeCycle(db, log.getUserLog(Procedures.class));
             indexUpdateLifeCycle.start();
+            distinctValuesCacheLifeCycle = new DistinctValuesCache.LifeCycle(db, log.getUserLog(DistinctValuesCache.class));
+            distinctValuesCacheLifeCycle.start();
+            queryCacheLifeCycle = new QueryCache.LifeCycle(db);
+            queryCacheLifeCycle.start();
             brokerLifeCycle = new BrokerIntegration.BrokerLifeCycle(db, log.getUserLog(BrokerIntegration.class));
             brokerLifeCycle .start();
 
@@ -101,6 +122,7 @@ public class ApocKernelExtensionFactory extends KernelExtensionFactory<ApocKerne
             AvailabilityGuard availabilityGuard = dependencies.availabilityGuard();
             availabilityGuard.addListener(customProcedureStorage);
             availabilityGuard.addListener(new CypherInitializer(db, log.getUserLog(CypherInitializer.class)));
+            availabilityGuard.addListener(new WarmupProfile(db, log.getUserLog(WarmupProfile.class)));
         }
 
         public void registerCustomProcedures() {
@@ -131,6 +153,22 @@ public class ApocKernelExtensionFactory extends KernelExtensionFactory<ApocKerne
                 }
             }
 
+            if (distinctValuesCacheLifeCycle != null) {
+                try {
+                    distinctValuesCacheLifeCycle.stop();
+                } catch (Exception e) {
+                    userLog.warn("Error stopping distinct values cache", e);
+                }
+            }
+
+            if (queryCacheLifeCycle != null) {
+                try {
+                    queryCacheLifeCycle.stop();
+                } catch (Exception e) {
+                    userLog.warn("Error stopping query cache", e);
+                }
+            }
+
             if (uuidLifeCycle !=null) {
                 try {
                     uuidLifeCycle.stop();
@@ -28,20 +28,23 @@ public class Pools {
     static final String CONFIG_JOBS_SCHEDULED_NUM_THREADS = "jobs.scheduled.num_threads";
     static final String CONFIG_JOBS_POOL_NUM_THREADS = "jobs.pool.num_threads";
     static final String CONFIG_BROKERS_NUM_THREADS = "brokers.num_threads";
+    static final String CONFIG_WARMUP_NUM_THREADS = "warmup.num_threads";
     static final String CONFIG_DEBUG_LOG_THREADS = "jobs.debug.logs";
 
     public final static int DEFAULT_SCHEDULED_THREADS = Runtime.getRuntime().availableProcessors() / 4;
     public final static int DEFAULT_POOL_THREADS = Runtime.getRuntime().availableProcessors() * 2;
     public final static int DEFAULT_BROKERS_THREADS = Runtime.getRuntime().availableProcessors();
+    public final static int DEFAULT_WARMUP_THREADS = Runtime.getRuntime().availableProcessors();
 
     public final static ExecutorService SINGLE = createSinglePool();
     public final static ExecutorService DEFAULT = createDefaultPool();
     public final static ScheduledExecutorService SCHEDULED = createScheduledPool();
     public final static ExecutorService BROKER = createBrokerPool();
+    public final static ExecutorService WARMUP = createWarmupPool();
     public static JobScheduler ONGDB_SCHEDULER = null;
 
     static {
-        for (ExecutorService service : Arrays.asList(SINGLE, DEFAULT, SCHEDULED, BROKER)) {
+        for (ExecutorService service : Arrays.asList(SINGLE, DEFAULT, SCHEDULED, BROKER, WARMUP)) {
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 try {
                     service.shutdown();
@@ -107,6 +110,11 @@ public class Pools {
         return Math.max(1, maxThreads == null ? DEFAULT_BROKERS_THREADS : maxThreads);
     }
 
+    public static int getNoThreadsInWarmupPool() {
+        Integer maxThreads = Util.toInteger(ApocConfiguration.get(CONFIG_WARMUP_NUM_THREADS, DEFAULT_WARMUP_THREADS));
+        return Math.max(1, maxThreads == null ? DEFAULT_WARMUP_THREADS : maxThreads);
+    }
+
     private static ExecutorService createSinglePool() {
         return new ThreadPoolExecutorLogger(1, 1,
                         0L, TimeUnit.MILLISECONDS,
@@ -124,6 +132,14 @@ public class Pools {
                 new CallerBlocksPolicy(), "BROKER", threadPoolDebug() );
     }
 
+    private static ExecutorService createWarmupPool() {
+        // all threads stay up, so that reading pages isn't limited to the core threads while the queue fills up
+        int threads = getNoThreadsInWarmupPool();
+        int queueSize = threads * 25;
+        return new ThreadPoolExecutorLogger(threads, threads, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                new CallerBlocksPolicy(), "WARMUP", threadPoolDebug() );
+    }
+
     public static <T> Future<Void> processBatch(List<T> batch, GraphDatabaseService db, Consumer<T> action) {
         return DEFAULT.submit((Callable<Void>) () -> {
                 try (Transaction tx = db.beginTx()) {
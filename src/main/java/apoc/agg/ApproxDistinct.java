@@ -0,0 +1,129 @@
+package apoc.agg;
+
+import org.neo4j.graphdb.Entity;
+import org.neo4j.procedure.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+public class ApproxDistinct {
+    @UserAggregationFunction("apoc.agg.approxDistinct")
+    @Description("apoc.agg.approxDistinct(value, precision = 14) - returns the approximate number of distinct non-null values, using a HyperLogLog with 2^precision registers (precision 4..16)")
+    public ApproxDistinctFunction approxDistinct() {
+        return new ApproxDistinctFunction();
+    }
+
+    public static class ApproxDistinctFunction {
+        private HyperLogLog hll;
+
+        @UserAggregationUpdate
+        public void aggregate(@Name("value") Object value, @Name(value = "precision", defaultValue = "14") long precision) {
+            if (value == null) return;
+            if (hll == null) {
+                hll = new HyperLogLog((int) precision);
+            }
+            hll.add(hash(value));
+        }
+
+        @UserAggregationResult
+        public long result() {
+            return hll == null ? 0 : hll.cardinality();
+        }
+    }
+
+    /**
+     * 64 bit hash of a value, integral floating point numbers hash like the same integer, as distinct in cypher treats them as equal
+     */
+    static long hash(Object value) {
+        if (value instanceof Entity) {
+            return mix(((Entity) value).getId()) ^ (value.getClass().getName().hashCode());
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (value instanceof Double || value instanceof Float) {
+                double d = number.doubleValue();
+                if (d != Math.rint(d) || Double.isInfinite(d)) {
+                    return mix(Double.doubleToLongBits(d));
+                }
+            }
+            return mix(number.longValue());
+        }
+        if (value instanceof String) {
+            return hash((String) value);
+        }
+        if (value instanceof List || value instanceof Map) {
+            return hash(String.valueOf(value)) ^ value.getClass().getName().hashCode();
+        }
+        return hash(value.getClass().getName() + value);
+    }
+
+    private static long hash(String value) {
+        // FNV-1a over the utf-8 bytes, finalized with the murmur3 mixer for a good bit distribution
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * HyperLogLog cardinality estimator (Flajolet et al.) with linear counting for small cardinalities.
+     * Uses one byte per register, so memory is fixed at 2^precision bytes.
+     */
+    static class HyperLogLog {
+        private final int precision;
+        private final byte[] registers;
+
+        HyperLogLog(int precision) {
+            if (precision < 4 || precision > 16) {
+                throw new IllegalArgumentException("precision has to be between 4 and 16 but was " + precision);
+            }
+            this.precision = precision;
+            this.registers = new byte[1 << precision];
+        }
+
+        void add(long hash) {
+            int index = (int) (hash >>> (64 - precision));
+            // leading zeros of the remaining bits + 1, the sentinel bit bounds the value for all zero hashes
+            int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+        }
+
+        long cardinality() {
+            int m = registers.length;
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0d / (1L << register);
+                if (register == 0) zeros++;
+            }
+            double estimate = alpha(m) * m * m / sum;
+            if (estimate <= 2.5d * m && zeros > 0) {
+                estimate = m * Math.log((double) m / zeros);
+            }
+            return Math.round(estimate);
+        }
+
+        private static double alpha(int m) {
+            switch (m) {
+                case 16: return 0.673d;
+                case 32: return 0.697d;
+                case 64: return 0.709d;
+                default: return 0.7213d / (1 + 1.079d / m);
+            }
+        }
+    }
+}
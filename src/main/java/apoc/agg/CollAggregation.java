@@ -3,6 +3,7 @@ package apoc.agg;
 import org.neo4j.procedure.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,7 +38,7 @@ public class CollAggregation {
     public static class NthFunction {
 
         private Object value;
-        private int index;
+        private long index;
 
         @UserAggregationUpdate
         public void nth(@Name("value") Object value, @Name("value") long target) {
@@ -56,13 +57,15 @@ public class CollAggregation {
 
     public static class SliceFunction {
 
-        private List<Object> values = new ArrayList<>();
-        private int index;
+        // only allocated for the first value in the slice, at most for its length
+        private List<Object> values;
+        private long index;
 
         @UserAggregationUpdate
         public void nth(@Name("value") Object value, @Name(value = "from", defaultValue = "0") long from, @Name(value = "to", defaultValue = "-1") long len) {
             if (value != null) {
                 if (index >= from && (len == -1 || index < from + len)) {
+                    if (values == null) values = new ArrayList<>(len == -1 ? 10 : (int) Math.min(len, 10));
                     this.values.add(value);
                 }
                 index++;
@@ -71,7 +74,7 @@ public class CollAggregation {
 
         @UserAggregationResult
         public List<Object> result() {
-            return values;
+            return values == null ? Collections.emptyList() : values;
         }
     }
 
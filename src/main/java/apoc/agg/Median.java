@@ -3,8 +3,7 @@ package apoc.agg;
 import org.neo4j.procedure.*;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -13,31 +12,113 @@ import java.util.List;
  */
 public class Median {
     @UserAggregationFunction("apoc.agg.median")
-    @Description("apoc.agg.median(number) - returns median for non-null numeric values")
+    @Description("apoc.agg.median(number, maxValues = -1) - returns median for non-null numeric values, exact for up to maxValues values and approximated in memory for about maxValues * log2(count / maxValues) values beyond, -1 for no bound")
     public MedianFunction median() {
         return new MedianFunction();
     }
 
 
     public static class MedianFunction {
-        private List<Double> values = new ArrayList<>();
+        private double[] values = new double[8];
+        private int size;
+        private Compactor compactor;
 
         @UserAggregationUpdate
-        public void aggregate(@Name("value") Object value) {
+        public void aggregate(@Name("value") Object value, @Name(value = "maxValues", defaultValue = "-1") long maxValues) {
             if (value instanceof Number) {
-                values.add(((Number)value).doubleValue());
+                double number = ((Number)value).doubleValue();
+                if (compactor != null) {
+                    compactor.add(number);
+                    return;
+                }
+                if (size == values.length) {
+                    if (maxValues > 0 && size >= maxValues) {
+                        compactor = new Compactor(values, size);
+                        values = null;
+                        compactor.add(number);
+                        return;
+                    }
+                    values = Arrays.copyOf(values, maxValues > 0 ? (int) Math.min(size * 2L, maxValues) : size * 2);
+                }
+                values[size++] = number;
             }
         }
 
         @UserAggregationResult
         public Object result() {
-            if (values.isEmpty()) return null;
-            Collections.sort(values);
-            int size = values.size();
+            if (compactor != null) return compactor.median();
+            if (size == 0) return null;
+            Arrays.sort(values, 0, size);
             if (size % 2 == 1) {
-                return values.get(size /2);
+                return values[size /2];
             } else {
-                return (values.get(size /2-1) + values.get(size /2)) / 2D;
+                return (values[size /2-1] + values[size /2]) / 2D;
+            }
+        }
+    }
+
+    /**
+     * Quantile sketch of levels of at most k values, a value on level h stands for 2^h values.
+     * A full level is sorted and every other value, starting alternately with the first and the second, is moved up
+     * one level, so memory stays at k values per level while the rank error of the median grows with the number of
+     * compactions, about log2(n / k) / k of the count n.
+     */
+    static class Compactor {
+        private final int k;
+        private final List<double[]> levels = new ArrayList<>();
+        private int[] sizes = new int[4];
+        private boolean odd;
+
+        Compactor(double[] values, int size) {
+            this.k = size;
+            levels.add(values);
+            sizes[0] = size;
+            compact(0);
+        }
+
+        void add(double value) {
+            if (sizes[0] == k) compact(0);
+            levels.get(0)[sizes[0]++] = value;
+        }
+
+        private void compact(int level) {
+            if (level + 1 == levels.size()) {
+                levels.add(new double[k]);
+                if (levels.size() > sizes.length) sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            double[] values = levels.get(level);
+            int size = sizes[level];
+            Arrays.sort(values, 0, size);
+            for (int i = odd ? 1 : 0; i < size; i += 2) {
+                if (sizes[level + 1] == k) compact(level + 1);
+                levels.get(level + 1)[sizes[level + 1]++] = values[i];
+            }
+            odd = !odd;
+            sizes[level] = 0;
+        }
+
+        /**
+         * @return the smallest value whose weighted rank reaches half of the count
+         */
+        double median() {
+            long total = 0;
+            int[] positions = new int[levels.size()];
+            for (int level = 0; level < levels.size(); level++) {
+                Arrays.sort(levels.get(level), 0, sizes[level]);
+                total += (long) sizes[level] << level;
+            }
+            long rank = 0;
+            while (true) {
+                // merge the sorted levels, taking the smallest value next
+                int min = -1;
+                for (int level = 0; level < levels.size(); level++) {
+                    if (positions[level] < sizes[level] && (min == -1 || levels.get(level)[positions[level]] < levels.get(min)[positions[min]])) {
+                        min = level;
+                    }
+                }
+                double value = levels.get(min)[positions[min]++];
+                rank += 1L << min;
+                if (rank * 2 >= total) return value;
             }
         }
     }
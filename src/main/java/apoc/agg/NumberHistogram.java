@@ -0,0 +1,99 @@
+package apoc.agg;
+
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramUtil;
+
+import java.util.Arrays;
+
+/**
+ * Histogram accumulator for numeric aggregations.
+ * A histogram costs a few kilobytes even when empty, so the first values are buffered in a primitive array and only
+ * replayed into the histogram when the buffer is full or the result is requested. The replay records the values in
+ * their original order, so the results are the same as recording into the histogram directly.
+ * Integral values are recorded into a {@link Histogram}, once the first floating point value arrives it is converted
+ * into a {@link DoubleHistogram}.
+ */
+class NumberHistogram {
+    static final int MAX_BUFFER_SIZE = 256;
+
+    // integral values are stored as is, values from the first floating point value on as raw double bits
+    private long[] buffer = new long[8];
+    private int size;
+    private int firstDouble = -1;
+
+    private Histogram values;
+    private DoubleHistogram doubles;
+
+    public void record(Number value) {
+        boolean isDouble = value instanceof Double || value instanceof Float;
+        if (buffer == null) {
+            recordHistogram(value, isDouble);
+            return;
+        }
+        if (size == buffer.length) {
+            if (size == MAX_BUFFER_SIZE) {
+                replay();
+                recordHistogram(value, isDouble);
+                return;
+            }
+            buffer = Arrays.copyOf(buffer, size * 2);
+        }
+        if (firstDouble == -1 && isDouble) firstDouble = size;
+        buffer[size++] = firstDouble == -1 ? value.longValue() : Double.doubleToRawLongBits(value.doubleValue());
+    }
+
+    private void recordHistogram(Number value, boolean isDouble) {
+        if (doubles != null) {
+            doubles.recordValue(value.doubleValue());
+        } else if (isDouble) {
+            this.doubles = HistogramUtil.toDoubleHistogram(values, 5);
+            doubles.recordValue(value.doubleValue());
+            values = null;
+        } else {
+            values.recordValue(value.longValue());
+        }
+    }
+
+    private void replay() {
+        values = new Histogram(3);
+        for (int i = 0; i < size; i++) {
+            if (firstDouble == -1 || i < firstDouble) {
+                values.recordValue(buffer[i]);
+            } else {
+                recordHistogram(Double.longBitsToDouble(buffer[i]), true);
+            }
+        }
+        buffer = null;
+    }
+
+    /**
+     * @return the histogram for integral values or null if floating point values were recorded
+     */
+    public Histogram histogram() {
+        if (buffer != null) replay();
+        return values;
+    }
+
+    /**
+     * @return the histogram for floating point values or null if only integral values were recorded
+     */
+    public DoubleHistogram doubleHistogram() {
+        if (buffer != null) replay();
+        return doubles;
+    }
+
+    /**
+     * frees the histograms after the result was computed, no values can be recorded afterwards
+     */
+    public void release() {
+        values = null;
+        doubles = null;
+        buffer = null;
+    }
+
+    public long getTotalCount() {
+        Histogram values = histogram();
+        return values != null ? values.getTotalCount() : doubles.getTotalCount();
+    }
+}
@@ -2,7 +2,6 @@ package apoc.agg;
 
 import org.HdrHistogram.DoubleHistogram;
 import org.HdrHistogram.Histogram;
-import org.HdrHistogram.HistogramUtil;
 import org.neo4j.procedure.*;
 
 import java.util.ArrayList;
@@ -24,29 +23,22 @@ public class Percentiles {
 
     public static class PercentilesFunction {
 
-        private Histogram values = new Histogram(3);
-        private DoubleHistogram doubles;
+        private final NumberHistogram histogram = new NumberHistogram();
         private List<Double> percentiles = asList(0.5D,0.75D,0.9D,0.95D,0.9D,0.99D);
 
         @UserAggregationUpdate
         public void aggregate(@Name("value") Number value, @Name(value = "percentiles", defaultValue = "[0.5,0.75,0.9,0.95,0.99]") List<Double> percentiles) {
             if (value != null) {
-                if (doubles!=null) {
-                    doubles.recordValue(value.doubleValue());
-                } else if (value instanceof Double || value instanceof Float) {
-                    this.doubles = HistogramUtil.toDoubleHistogram(values, 5);
-                    doubles.recordValue(value.doubleValue());
-                    values = null;
-                } else {
-                    values.recordValue(value.longValue());
-                }
+                histogram.record(value);
             }
             this.percentiles = percentiles;
         }
 
         @UserAggregationResult
         public List<Number> result() {
-            long totalCount = values != null ? values.getTotalCount() : doubles.getTotalCount();
+            Histogram values = histogram.histogram();
+            DoubleHistogram doubles = histogram.doubleHistogram();
+            long totalCount = histogram.getTotalCount();
             boolean empty = totalCount == 0;
             List<Number> result = new ArrayList<>(percentiles.size());
             for (Double percentile : percentiles) {
@@ -60,6 +52,7 @@ public class Percentiles {
                     }
                 }
             }
+            histogram.release();
             return result;
         }
     }
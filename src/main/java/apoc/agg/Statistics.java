@@ -2,7 +2,6 @@ package apoc.agg;
 
 import org.HdrHistogram.DoubleHistogram;
 import org.HdrHistogram.Histogram;
-import org.HdrHistogram.HistogramUtil;
 import org.neo4j.procedure.*;
 
 import java.util.ArrayList;
@@ -26,29 +25,22 @@ public class Statistics {
 
     public static class StatisticsFunction {
 
-        private Histogram values = new Histogram(3);
-        private DoubleHistogram doubles;
+        private final NumberHistogram histogram = new NumberHistogram();
         private List<Double> percentiles = asList(0.5D,0.75D,0.9D,0.95D,0.9D,0.99D);
 
         @UserAggregationUpdate
         public void aggregate(@Name("value") Number value, @Name(value = "percentiles", defaultValue = "[0.5,0.75,0.9,0.95,0.99]") List<Double> percentiles) {
             if (value != null) {
-                if (doubles!=null) {
-                    doubles.recordValue(value.doubleValue());
-                } else if (value instanceof Double || value instanceof Float) {
-                    this.doubles = HistogramUtil.toDoubleHistogram(values, 5);
-                    doubles.recordValue(value.doubleValue());
-                    values = null;
-                } else {
-                    values.recordValue(value.longValue());
-                }
+                histogram.record(value);
             }
             this.percentiles = percentiles;
         }
 
         @UserAggregationResult
         public Map<String,Number> result() {
-            long totalCount = values != null ? values.getTotalCount() : doubles.getTotalCount();
+            Histogram values = histogram.histogram();
+            DoubleHistogram doubles = histogram.doubleHistogram();
+            long totalCount = histogram.getTotalCount();
             boolean empty = totalCount == 0;
             Map<String,Number> result = new LinkedHashMap<>(percentiles.size()+6);
             result.put("min",values != null ? (Number)values.getMinValue() : (Number)doubles.getMinValue());
@@ -67,6 +59,7 @@ public class Statistics {
                     }
                 }
             }
+            histogram.release();
             return result;
         }
     }
@@ -0,0 +1,438 @@
+package apoc.algo;
+
+import apoc.util.Util;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.collection.primitive.PrimitiveLongLongMap;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphalgo.impl.util.PathImpl;
+import org.neo4j.graphalgo.impl.util.WeightedPathImpl;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.helpers.collection.Pair;
+import org.neo4j.internal.kernel.api.CursorFactory;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.PropertyCursor;
+import org.neo4j.internal.kernel.api.Read;
+import org.neo4j.internal.kernel.api.RelationshipGroupCursor;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.EmbeddedProxySPI;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.values.storable.Value;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static apoc.path.RelationshipTypeAndDirections.parse;
+
+/**
+ * Bidirectional Dijkstra and A* between two nodes on kernel cursors.
+ * Each side of the search keeps its tentative distances in primitive arrays, indexed by the order in which the nodes
+ * were reached, and an indexed binary heap over these indexes. The side with the smaller heap is advanced, the search
+ * stops once the smallest keys of both heaps add up to at least the cost of the best path seen so far.
+ * The weight of every relationship is read only once and cached for the other side and the resulting path.
+ * A* uses the average of the estimates to the end node and from the start node as potential of a node. The reduced
+ * weights stay non-negative as long as the estimate is consistent, i.e. no relationship is cheaper than the straight
+ * line distance between its nodes.
+ */
+public class BidirectionalShortestPath {
+
+    private static final double EARTH_RADIUS = 6371 * 1000; // meters, as in the graph-algo geo estimate
+
+    private final GraphDatabaseAPI api;
+    private final KernelTransaction ktx;
+    private final Read read;
+    private final String weightPropertyName;
+    private final int weightKey;
+    private final Double defaultWeight;
+    // the relationship types followed outgoing / incoming when searching from the start node
+    private final TypeSelection outgoing = new TypeSelection();
+    private final TypeSelection incoming = new TypeSelection();
+    private final PrimitiveLongLongMap weights = Primitive.longLongMap();
+
+    private String latPropertyName;
+    private String lonPropertyName;
+    private int latKey = TokenRead.NO_TOKEN;
+    private int lonKey = TokenRead.NO_TOKEN;
+    private double[] startPoint;
+    private double[] endPoint;
+
+    // the cost of the cheapest path found so far and the node where its two halves meet
+    private double best;
+    private long meetingNode;
+
+    private NodeCursor node;
+    private RelationshipGroupCursor group;
+    private RelationshipTraversalCursor traversal;
+    private PropertyCursor properties;
+    private NodeCursor coordinateNode;
+
+    /**
+     * @param defaultWeight used for relationships without the weight property, if null these relationships fail the search
+     */
+    public BidirectionalShortestPath(GraphDatabaseService db, String relTypesAndDirs, String weightPropertyName, Double defaultWeight) {
+        this.api = (GraphDatabaseAPI) db;
+        this.ktx = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        this.read = ktx.dataRead();
+        this.weightPropertyName = weightPropertyName;
+        this.weightKey = ktx.tokenRead().propertyKey(weightPropertyName);
+        this.defaultWeight = defaultWeight;
+        TokenRead tokenRead = ktx.tokenRead();
+        for (Pair<RelationshipType, Direction> pair : parse(relTypesAndDirs)) {
+            int type;
+            if (pair.first() == null) {
+                type = Read.ANY_RELATIONSHIP_TYPE;
+            } else {
+                type = tokenRead.relationshipType(pair.first().name());
+                if (type == TokenRead.NO_TOKEN) continue;
+            }
+            if (pair.other() != Direction.INCOMING) outgoing.add(type);
+            if (pair.other() != Direction.OUTGOING) incoming.add(type);
+        }
+    }
+
+    /**
+     * Turns the search into A*, estimating the remaining cost by the straight line distance in meters between the
+     * latitude / longitude of the nodes, as the geo estimate of graph-algo does.
+     */
+    public BidirectionalShortestPath withGeoEstimate(String latPropertyName, String lonPropertyName) {
+        this.latPropertyName = latPropertyName;
+        this.lonPropertyName = lonPropertyName;
+        this.latKey = ktx.tokenRead().propertyKey(latPropertyName);
+        this.lonKey = ktx.tokenRead().propertyKey(lonPropertyName);
+        return this;
+    }
+
+    /**
+     * @return the cheapest path from start to end node or null if they are not connected
+     */
+    public WeightedPath find(Node start, Node end) {
+        CursorFactory cursors = ktx.cursors();
+        try (NodeCursor node = cursors.allocateNodeCursor();
+             RelationshipGroupCursor group = cursors.allocateRelationshipGroupCursor();
+             RelationshipTraversalCursor traversal = cursors.allocateRelationshipTraversalCursor();
+             PropertyCursor properties = cursors.allocatePropertyCursor();
+             NodeCursor coordinateNode = cursors.allocateNodeCursor()) {
+            this.node = node;
+            this.group = group;
+            this.traversal = traversal;
+            this.properties = properties;
+            this.coordinateNode = coordinateNode;
+            return search(start, end);
+        } finally {
+            this.node = null;
+            this.group = null;
+            this.traversal = null;
+            this.properties = null;
+            this.coordinateNode = null;
+        }
+    }
+
+    private WeightedPath search(Node start, Node end) {
+        long startId = start.getId();
+        long endId = end.getId();
+        if (latPropertyName != null) {
+            startPoint = point(startId);
+            endPoint = point(endId);
+        }
+        Side forward = new Side(true);
+        Side backward = new Side(false);
+        forward.other = backward;
+        backward.other = forward;
+        forward.reach(startId, 0, -1, -1);
+        backward.reach(endId, 0, -1, -1);
+
+        best = startId == endId ? 0 : Double.POSITIVE_INFINITY;
+        meetingNode = startId == endId ? startId : -1;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if (forward.minKey() + backward.minKey() >= best) break;
+            Side side = forward.heapSize <= backward.heapSize ? forward : backward;
+            int index = side.poll();
+            long nodeId = side.nodes[index];
+            double distance = side.distances[index];
+
+            read.singleNode(nodeId, node);
+            if (!node.next()) continue;
+            TypeSelection out = side.forward ? outgoing : incoming;
+            TypeSelection in = side.forward ? incoming : outgoing;
+            if (node.isDense()) {
+                node.relationships(group);
+                while (group.next()) {
+                    int type = group.type();
+                    boolean followOut = out.contains(type);
+                    boolean followIn = in.contains(type);
+                    if (followOut) {
+                        group.outgoing(traversal);
+                        while (traversal.next()) side.relax(nodeId, distance);
+                    }
+                    if (followIn) {
+                        group.incoming(traversal);
+                        while (traversal.next()) side.relax(nodeId, distance);
+                    }
+                    if (followOut || followIn) {
+                        group.loops(traversal);
+                        while (traversal.next()) side.relax(nodeId, distance);
+                    }
+                }
+            } else {
+                node.allRelationships(traversal);
+                while (traversal.next()) {
+                    int type = traversal.type();
+                    if ((traversal.sourceNodeReference() == nodeId && out.contains(type))
+                            || (traversal.targetNodeReference() == nodeId && in.contains(type))) {
+                        side.relax(nodeId, distance);
+                    }
+                }
+            }
+        }
+        return meetingNode == -1 ? null : toPath(forward, backward, startId, meetingNode);
+    }
+
+    private WeightedPath toPath(Side forward, Side backward, long startId, long meetingNode) {
+        EmbeddedProxySPI proxySpi = api.getDependencyResolver().resolveDependency(EmbeddedProxySPI.class);
+        long[] relationships = new long[16];
+        int count = 0;
+        for (int index = forward.indexOf(meetingNode); forward.parents[index] != -1; index = forward.indexOf(forward.parentNodes[index])) {
+            if (count == relationships.length) relationships = Arrays.copyOf(relationships, count * 2);
+            relationships[count++] = forward.parents[index];
+        }
+        PathImpl.Builder builder = new PathImpl.Builder(proxySpi.newNodeProxy(startId));
+        double weight = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            builder = builder.push(proxySpi.newRelationshipProxy(relationships[i]));
+            weight += cachedWeight(relationships[i]);
+        }
+        for (int index = backward.indexOf(meetingNode); backward.parents[index] != -1; index = backward.indexOf(backward.parentNodes[index])) {
+            builder = builder.push(proxySpi.newRelationshipProxy(backward.parents[index]));
+            weight += cachedWeight(backward.parents[index]);
+        }
+        // summed up in path order, like the weight of the graph-algo paths
+        return new WeightedPathImpl(weight, builder.build());
+    }
+
+    private double weight() {
+        long relationshipId = traversal.relationshipReference();
+        long bits = weights.get(relationshipId);
+        if (bits != -1 || weights.containsKey(relationshipId)) {
+            return Double.longBitsToDouble(bits);
+        }
+        Double weight = null;
+        if (weightKey != TokenRead.NO_TOKEN) {
+            traversal.properties(properties);
+            while (properties.next()) {
+                if (properties.propertyKey() == weightKey) {
+                    weight = Util.toDouble(properties.propertyValue().asObject());
+                    break;
+                }
+            }
+        }
+        if (weight == null) {
+            if (defaultWeight == null) {
+                throw new NotFoundException(String.format("No such property '%s' on relationship %d", weightPropertyName, relationshipId));
+            }
+            weight = defaultWeight;
+        }
+        weights.put(relationshipId, Double.doubleToRawLongBits(weight));
+        return weight;
+    }
+
+    private double cachedWeight(long relationshipId) {
+        return Double.longBitsToDouble(weights.get(relationshipId));
+    }
+
+    /**
+     * @return the potential of the node for the forward search, the backward search uses the negated value
+     */
+    private double potential(long nodeId) {
+        if (latPropertyName == null) return 0;
+        double[] point = point(nodeId);
+        return (distance(point, endPoint) - distance(startPoint, point)) / 2;
+    }
+
+    private double[] point(long nodeId) {
+        read.singleNode(nodeId, coordinateNode);
+        if (!coordinateNode.next()) throw new NotFoundException("Node " + nodeId + " not found");
+        Double lat = null;
+        Double lon = null;
+        coordinateNode.properties(properties);
+        while (properties.next()) {
+            int key = properties.propertyKey();
+            if (key == latKey) lat = toDouble(properties.propertyValue());
+            else if (key == lonKey) lon = toDouble(properties.propertyValue());
+        }
+        if (lat == null) throw new NotFoundException(String.format("No such property '%s' on node %d", latPropertyName, nodeId));
+        if (lon == null) throw new NotFoundException(String.format("No such property '%s' on node %d", lonPropertyName, nodeId));
+        double latitude = Math.toRadians(lat);
+        double longitude = Math.toRadians(lon);
+        return new double[]{
+                EARTH_RADIUS * Math.cos(latitude) * Math.cos(longitude),
+                EARTH_RADIUS * Math.cos(latitude) * Math.sin(longitude),
+                EARTH_RADIUS * Math.sin(latitude)};
+    }
+
+    private static Double toDouble(Value value) {
+        return Util.toDouble(value.asObject());
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double x = a[0] - b[0];
+        double y = a[1] - b[1];
+        double z = a[2] - b[2];
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * One direction of the search. Nodes get a dense index when they are reached, all state is kept in arrays by that
+     * index, the heap holds the indexes of the reached but not yet settled nodes ordered by distance plus potential.
+     */
+    private class Side {
+        private static final int SETTLED = -1;
+
+        final boolean forward;
+        Side other;
+        private final PrimitiveLongIntMap indexes = Primitive.longIntMap();
+        long[] nodes = new long[64];
+        double[] distances = new double[64];
+        private double[] keys = new double[64];
+        long[] parents = new long[64];
+        long[] parentNodes = new long[64];
+        private int[] heapPositions = new int[64];
+        private int[] heap = new int[64];
+        private int size;
+        int heapSize;
+
+        Side(boolean forward) {
+            this.forward = forward;
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        double minKey() {
+            return keys[heap[0]];
+        }
+
+        int indexOf(long nodeId) {
+            return indexes.get(nodeId);
+        }
+
+        /**
+         * Relaxes the relationship the traversal cursor is positioned on, a path is found as soon as its other node
+         * was also reached from the other side.
+         */
+        void relax(long nodeId, double distance) {
+            long neighbour = traversal.neighbourNodeReference();
+            int index = indexes.get(neighbour);
+            if (index != -1 && heapPositions[index] == SETTLED) return;
+            double newDistance = distance + weight();
+            if (index == -1) {
+                reach(neighbour, newDistance, traversal.relationshipReference(), nodeId);
+            } else if (newDistance < distances[index]) {
+                keys[index] -= distances[index] - newDistance;
+                distances[index] = newDistance;
+                parents[index] = traversal.relationshipReference();
+                parentNodes[index] = nodeId;
+                siftUp(heapPositions[index]);
+            } else {
+                return;
+            }
+            int otherIndex = other.indexOf(neighbour);
+            if (otherIndex != -1 && newDistance + other.distances[otherIndex] < best) {
+                best = newDistance + other.distances[otherIndex];
+                meetingNode = neighbour;
+            }
+        }
+
+        void reach(long nodeId, double distance, long parent, long parentNode) {
+            if (size == nodes.length) grow();
+            int index = size++;
+            indexes.put(nodeId, index);
+            nodes[index] = nodeId;
+            distances[index] = distance;
+            double potential = potential(nodeId);
+            keys[index] = distance + (forward ? potential : -potential);
+            parents[index] = parent;
+            parentNodes[index] = parentNode;
+            heap[heapSize] = index;
+            heapPositions[index] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        int poll() {
+            int index = heap[0];
+            heapPositions[index] = SETTLED;
+            if (--heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapPositions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return index;
+        }
+
+        private void siftUp(int position) {
+            int index = heap[position];
+            double key = keys[index];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[heap[parent]] <= key) break;
+                heap[position] = heap[parent];
+                heapPositions[heap[position]] = position;
+                position = parent;
+            }
+            heap[position] = index;
+            heapPositions[index] = position;
+        }
+
+        private void siftDown(int position) {
+            int index = heap[position];
+            double key = keys[index];
+            int half = heapSize >>> 1;
+            while (position < half) {
+                int child = 2 * position + 1;
+                int right = child + 1;
+                if (right < heapSize && keys[heap[right]] < keys[heap[child]]) child = right;
+                if (key <= keys[heap[child]]) break;
+                heap[position] = heap[child];
+                heapPositions[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = index;
+            heapPositions[index] = position;
+        }
+
+        private void grow() {
+            int capacity = nodes.length * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            parentNodes = Arrays.copyOf(parentNodes, capacity);
+            heapPositions = Arrays.copyOf(heapPositions, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+        }
+    }
+
+    /**
+     * The relationship types selected for one direction, either all or a set of type tokens.
+     */
+    private static class TypeSelection {
+        private boolean all;
+        private final BitSet types = new BitSet();
+
+        void add(int type) {
+            if (type == Read.ANY_RELATIONSHIP_TYPE) all = true;
+            else types.set(type);
+        }
+
+        boolean contains(int type) {
+            return all || types.get(type);
+        }
+    }
+}
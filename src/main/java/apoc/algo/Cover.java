@@ -1,50 +1,216 @@
 package apoc.algo;
 
+import apoc.Pools;
 import apoc.result.RelationshipResult;
 import apoc.util.Util;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.internal.kernel.api.CursorFactory;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.Read;
+import org.neo4j.internal.kernel.api.RelationshipGroupCursor;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.EmbeddedProxySPI;
+import org.neo4j.kernel.impl.core.NodeProxy;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class Cover {
 
+    static final int BATCH_SIZE = 10_000;
+
     @Context
     public GraphDatabaseService db;
 
     @Procedure
     @Description("apoc.algo.cover(nodes) yield rel - returns all relationships between this set of nodes")
     public Stream<RelationshipResult> cover(@Name("nodes") Object nodes) {
-        Set<Node> nodeSet = Util.nodeStream(db, nodes).collect(Collectors.toSet());
-        /*return nodeSet.parallelStream()
-                .flatMap(n ->
-                        Util.inTx(db,() ->
-                        StreamSupport.stream(n.getRelationships(Direction.OUTGOING)
-                                .spliterator(),false)
-                                .filter(r -> nodeSet.contains(r.getEndNode()))
-                                .map(RelationshipResult::new)));*/
-        // NB prallel approach doesn't work in 3.4 (see SubgraphTest.testSubgraphAllShouldContainExpectedNodesAndRels
-        // so falling back to single threaded
-        // TODO: consider using multithreading and maybe kernel API here
-        return coverNodes(nodeSet).map(RelationshipResult::new);
+        Roaring64NavigableMap nodeIds = new Roaring64NavigableMap();
+        Util.nodeStream(db, nodes).forEach(node -> nodeIds.addLong(node.getId()));
+        return coverNodes(db, nodeIds).map(RelationshipResult::new);
     }
 
-    // non-parallelized utility method for use by other procedures
+    // utility method for use by other procedures
     public static Stream<Relationship> coverNodes(Collection<Node> nodes) {
-        return nodes.stream()
+        if (nodes.isEmpty()) return Stream.empty();
+        Roaring64NavigableMap nodeIds = new Roaring64NavigableMap();
+        for (Node node : nodes) {
+            if (!(node instanceof NodeProxy)) return coverVirtualNodes(nodes);
+            nodeIds.addLong(node.getId());
+        }
+        return coverNodes(nodes.iterator().next().getGraphDatabase(), nodeIds);
+    }
+
+    private static Stream<Relationship> coverVirtualNodes(Collection<Node> nodes) {
+        Set<Node> nodeSet = new HashSet<>(nodes);
+        return nodeSet.stream()
                 .flatMap(n ->
                         StreamSupport.stream(n.getRelationships(Direction.OUTGOING)
                                 .spliterator(),false)
-                                .filter(r -> nodes.contains(r.getEndNode())));
+                                .filter(r -> nodeSet.contains(r.getEndNode())));
+    }
+
+    /**
+     * Returns all relationships between the given nodes. Large node sets are split into batches that are covered in
+     * parallel on the default pool with kernel cursors, each batch only collects relationship ids.
+     * If the current transaction has uncommitted changes everything is covered in the current transaction, as the
+     * other transactions wouldn't see the changes.
+     */
+    public static Stream<Relationship> coverNodes(GraphDatabaseService db, Roaring64NavigableMap nodeIds) {
+        GraphDatabaseAPI api = (GraphDatabaseAPI) db;
+        ThreadToStatementContextBridge bridge = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        EmbeddedProxySPI proxySpi = api.getDependencyResolver().resolveDependency(EmbeddedProxySPI.class);
+        KernelTransaction ktx = bridge.getKernelTransactionBoundToThisThread(true);
+
+        List<RelationshipIds> batches = new ArrayList<>();
+        boolean hasChanges = ktx instanceof TxStateHolder && ((TxStateHolder) ktx).hasTxStateWithChanges();
+        if (nodeIds.getLongCardinality() <= BATCH_SIZE || hasChanges) {
+            batches.add(cover(ktx, nodeIds.getLongIterator(), Long.MAX_VALUE, nodeIds));
+        } else {
+            List<Future<RelationshipIds>> futures = new ArrayList<>();
+            LongIterator it = nodeIds.getLongIterator();
+            while (it.hasNext()) {
+                long[] batch = take(it);
+                futures.add(Util.inTxFuture(Pools.DEFAULT, db, () -> {
+                    KernelTransaction workerTx = bridge.getKernelTransactionBoundToThisThread(true);
+                    try (Statement ignore = workerTx.acquireStatement()) {
+                        return cover(workerTx, new ArrayLongIterator(batch), batch.length, nodeIds);
+                    }
+                }));
+            }
+            for (Future<RelationshipIds> future : futures) {
+                try {
+                    batches.add(future.get());
+                } catch (Exception e) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw new RuntimeException("Error covering nodes: " + e.getMessage(), e);
+                }
+            }
+        }
+        return batches.stream().flatMap(batch -> batch.relationships(proxySpi));
+    }
+
+    /**
+     * Collects the outgoing relationships (including loops) of the nodes whose end node is also in the node set.
+     */
+    private static RelationshipIds cover(KernelTransaction ktx, LongIterator nodes, long count, Roaring64NavigableMap nodeIds) {
+        RelationshipIds result = new RelationshipIds();
+        CursorFactory cursors = ktx.cursors();
+        Read read = ktx.dataRead();
+        try (NodeCursor node = cursors.allocateNodeCursor();
+             RelationshipGroupCursor group = cursors.allocateRelationshipGroupCursor();
+             RelationshipTraversalCursor traversal = cursors.allocateRelationshipTraversalCursor()) {
+            for (long i = 0; i < count && nodes.hasNext(); i++) {
+                long nodeId = nodes.next();
+                read.singleNode(nodeId, node);
+                if (!node.next()) continue;
+                if (node.isDense()) {
+                    node.relationships(group);
+                    while (group.next()) {
+                        group.outgoing(traversal);
+                        addRelationships(traversal, nodeId, nodeIds, result);
+                        group.loops(traversal);
+                        addRelationships(traversal, nodeId, nodeIds, result);
+                    }
+                } else {
+                    node.allRelationships(traversal);
+                    addRelationships(traversal, nodeId, nodeIds, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addRelationships(RelationshipTraversalCursor traversal, long nodeId, Roaring64NavigableMap nodeIds, RelationshipIds result) {
+        while (traversal.next()) {
+            if (traversal.sourceNodeReference() != nodeId) continue;
+            long endNodeId = traversal.targetNodeReference();
+            if (nodeIds.contains(endNodeId)) {
+                result.add(traversal.relationshipReference(), nodeId, traversal.type(), endNodeId);
+            }
+        }
+    }
+
+    private static long[] take(LongIterator it) {
+        long[] batch = new long[BATCH_SIZE];
+        int size = 0;
+        while (size < BATCH_SIZE && it.hasNext()) {
+            batch[size++] = it.next();
+        }
+        return size == BATCH_SIZE ? batch : Arrays.copyOf(batch, size);
+    }
+
+    private static class ArrayLongIterator implements LongIterator {
+        private final long[] values;
+        private int index;
+
+        ArrayLongIterator(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < values.length;
+        }
+
+        @Override
+        public long next() {
+            return values[index++];
+        }
+
+        @Override
+        public LongIterator clone() {
+            ArrayLongIterator clone = new ArrayLongIterator(values);
+            clone.index = index;
+            return clone;
+        }
+    }
+
+    /**
+     * Relationship ids, start and end node ids and type tokens, turned into relationships only when streamed.
+     */
+    private static class RelationshipIds {
+        // relationship id, start node id and end node id per relationship
+        private long[] ids = new long[16 * 3];
+        private int[] types = new int[16];
+        private int size;
+
+        void add(long id, long startNodeId, int type, long endNodeId) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                ids = Arrays.copyOf(ids, size * 2 * 3);
+            }
+            int offset = size * 3;
+            ids[offset] = id;
+            ids[offset + 1] = startNodeId;
+            ids[offset + 2] = endNodeId;
+            types[size++] = type;
+        }
+
+        Stream<Relationship> relationships(EmbeddedProxySPI proxySpi) {
+            return IntStream.range(0, size).mapToObj(i -> proxySpi.newRelationshipProxy(ids[i * 3], ids[i * 3 + 1], types[i], ids[i * 3 + 2]));
+        }
     }
 }
@@ -5,7 +5,6 @@ import apoc.path.RelationshipTypeAndDirections;
 import apoc.result.PathResult;
 import apoc.result.WeightedPathResult;
 import apoc.util.Util;
-import org.neo4j.graphalgo.CommonEvaluators;
 import org.neo4j.graphalgo.GraphAlgoFactory;
 import org.neo4j.graphalgo.PathFinder;
 import org.neo4j.graphalgo.WeightedPath;
@@ -17,8 +16,8 @@ import org.neo4j.procedure.Procedure;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 public class PathFinding {
 
@@ -36,11 +35,10 @@ public class PathFinding {
             @Name("latPropertyName") String latPropertyName,
             @Name("lonPropertyName") String lonPropertyName) {
 
-        PathFinder<WeightedPath> algo = GraphAlgoFactory.aStar(
-                buildPathExpander(relTypesAndDirs),
-                CommonEvaluators.doubleCostEvaluator(weightPropertyName),
-                CommonEvaluators.geoEstimateEvaluator(latPropertyName, lonPropertyName));
-        return WeightedPathResult.streamWeightedPathResult(startNode, endNode, algo);
+        WeightedPath path = new BidirectionalShortestPath(db, relTypesAndDirs, weightPropertyName, null)
+                .withGeoEstimate(latPropertyName, lonPropertyName)
+                .find(startNode, endNode);
+        return streamWeightedPathResult(path);
     }
 
     @Procedure
@@ -58,11 +56,10 @@ public class PathFinding {
         String latPropertyName = config.getOrDefault("y", "latitude").toString();
         String lonPropertyName = config.getOrDefault("x", "longitude").toString();
 
-        PathFinder<WeightedPath> algo = GraphAlgoFactory.aStar(
-                buildPathExpander(relTypesAndDirs),
-                CommonEvaluators.doubleCostEvaluator(relationshipCostPropertyKey, defaultCost),
-                CommonEvaluators.geoEstimateEvaluator(latPropertyName, lonPropertyName));
-        return WeightedPathResult.streamWeightedPathResult(startNode, endNode, algo);
+        WeightedPath path = new BidirectionalShortestPath(db, relTypesAndDirs, relationshipCostPropertyKey, defaultCost)
+                .withGeoEstimate(latPropertyName, lonPropertyName)
+                .find(startNode, endNode);
+        return streamWeightedPathResult(path);
     }
 
     @Procedure
@@ -76,6 +73,11 @@ public class PathFinding {
             @Name(value = "defaultWeight", defaultValue = "NaN") double defaultWeight,
             @Name(value = "numberOfWantedPaths", defaultValue = "1") long numberOfWantedPaths) {
 
+        if (numberOfWantedPaths == 1) {
+            WeightedPath path = new BidirectionalShortestPath(db, relTypesAndDirs, weightPropertyName, defaultWeight)
+                    .find(startNode, endNode);
+            return streamWeightedPathResult(path);
+        }
         PathFinder<WeightedPath> algo = GraphAlgoFactory.dijkstra(
                 buildPathExpander(relTypesAndDirs),
                 (relationship, direction) -> Util.toDouble(relationship.getProperty(weightPropertyName, defaultWeight)),
@@ -85,20 +87,22 @@ public class PathFinding {
     }
 
     @Procedure
-    @Description("apoc.algo.allSimplePaths(startNode, endNode, 'KNOWS|<WORKS_WITH|IS_MANAGER_OF>', 5) YIELD path, " +
-            "weight - run allSimplePaths with relationships given and maxNodes")
+    @Description("apoc.algo.allSimplePaths(startNode, endNode, 'KNOWS|<WORKS_WITH|IS_MANAGER_OF>', 5, {limit:100, timeout:10, parallel:false}) YIELD path, " +
+            "weight - run allSimplePaths with relationships given and maxNodes, optionally with a limit of paths, a timeout in seconds and in parallel")
     public Stream<PathResult> allSimplePaths(
             @Name("startNode") Node startNode,
             @Name("endNode") Node endNode,
             @Name("relationshipTypesAndDirections") String relTypesAndDirs,
-            @Name("maxNodes") long maxNodes) {
+            @Name("maxNodes") long maxNodes,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
 
-        PathFinder<Path> algo = GraphAlgoFactory.allSimplePaths(
-                buildPathExpander(relTypesAndDirs),
-                (int) maxNodes
-        );
-        Iterable<Path> allPaths = algo.findAllPaths(startNode, endNode);
-        return StreamSupport.stream(allPaths.spliterator(), false)
+        config = config == null ? Collections.emptyMap() : config;
+        long limit = Util.toLong(config.getOrDefault("limit", 0));
+        long timeout = Util.toLong(config.getOrDefault("timeout", 0));
+        boolean parallel = Util.toBoolean(config.get("parallel"));
+
+        return new SimplePaths(db, buildPathExpander(relTypesAndDirs), (int) maxNodes, limit, TimeUnit.SECONDS.toMillis(timeout))
+                .stream(startNode, endNode, parallel)
                 .map(PathResult::new);
     }
 
@@ -121,6 +125,10 @@ public class PathFinding {
         return WeightedPathResult.streamWeightedPathResult(startNode, endNode, algo);
     }
 
+    private Stream<WeightedPathResult> streamWeightedPathResult(WeightedPath path) {
+        return path == null ? Stream.empty() : Stream.of(new WeightedPathResult(path));
+    }
+
     private PathExpander<Object> buildPathExpander(String relationshipsAndDirections) {
         PathExpanderBuilder builder = PathExpanderBuilder.empty();
         for (Pair<RelationshipType, Direction> pair : RelationshipTypeAndDirections
@@ -0,0 +1,249 @@
+package apoc.algo;
+
+import apoc.Pools;
+import apoc.util.Util;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.graphalgo.impl.util.PathImpl;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PathExpander;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.traversal.BranchState;
+import org.neo4j.graphdb.traversal.Paths;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily enumerates the simple paths between two nodes depth first, only the current path is kept in memory.
+ * In parallel mode the relationships of the start node are handed out to workers of the default pool, which
+ * enumerate the paths through them and pass them through a bounded queue, so that they never run ahead of the
+ * consumer by more than the queue size.
+ */
+class SimplePaths {
+    static final int QUEUE_SIZE = 1000;
+    private static final Object END = new Object();
+
+    private final GraphDatabaseService db;
+    private final PathExpander expander;
+    private final int maxDepth;
+    private final long limit;
+    private final long deadline;
+
+    /**
+     * @param limit the maximum number of paths, 0 for all paths
+     * @param timeout in milliseconds after which no more paths are enumerated, 0 for no timeout
+     */
+    SimplePaths(GraphDatabaseService db, PathExpander expander, int maxDepth, long limit, long timeout) {
+        this.db = db;
+        this.expander = expander;
+        this.maxDepth = maxDepth;
+        this.limit = limit > 0 ? limit : Long.MAX_VALUE;
+        this.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+    }
+
+    Stream<Path> stream(Node start, Node end, boolean parallel) {
+        if (!parallel || start.equals(end) || maxDepth < 1 || hasChanges()) {
+            return stream(new Enumeration(start, null, end));
+        }
+        ConcurrentLinkedQueue<Relationship> branches = new ConcurrentLinkedQueue<>();
+        expand(start).forEachRemaining(branches::add);
+        int workers = Math.min(branches.size(), Pools.DEFAULT_POOL_THREADS / 2 + 1);
+        if (workers < 2) {
+            return stream(new Enumeration(start, null, end));
+        }
+        ParallelEnumeration enumeration = new ParallelEnumeration(start, end, branches, workers);
+        return stream(enumeration).onClose(enumeration::cancel);
+    }
+
+    private Stream<Path> stream(Iterator<Path> paths) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(paths, Spliterator.NONNULL), false).limit(limit);
+    }
+
+    private boolean hasChanges() {
+        KernelTransaction ktx = ((GraphDatabaseAPI) db).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        // other transactions can't see the changes of the current one
+        return ktx instanceof TxStateHolder && ((TxStateHolder) ktx).hasTxStateWithChanges();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<Relationship> expand(Node node) {
+        return expander.expand(Paths.singleNodePath(node), BranchState.NO_STATE).iterator();
+    }
+
+    private boolean timedOut() {
+        return System.currentTimeMillis() > deadline;
+    }
+
+    /**
+     * Depth first enumeration with one relationship iterator per depth, optionally starting with a given
+     * relationship of the start node.
+     */
+    private class Enumeration extends PrefetchingIterator<Path> {
+        private final Node end;
+        private final Node[] nodes = new Node[maxDepth + 1];
+        private final Relationship[] relationships = new Relationship[maxDepth];
+        private final Iterator<Relationship>[] expansions;
+        private final PrimitiveLongSet onPath = Primitive.longSet();
+        private final int baseDepth;
+        private int depth;
+        private Path single;
+
+        @SuppressWarnings("unchecked")
+        Enumeration(Node start, Relationship first, Node end) {
+            this.end = end;
+            this.expansions = new Iterator[maxDepth + 1];
+            nodes[0] = start;
+            onPath.add(start.getId());
+            if (start.equals(end)) {
+                single = Paths.singleNodePath(start);
+                depth = -1;
+            } else if (first != null) {
+                Node other = first.getOtherNode(start);
+                relationships[0] = first;
+                if (other.equals(end)) {
+                    single = toPath(1);
+                    depth = -1;
+                } else if (other.equals(start)) {
+                    depth = -1;
+                } else {
+                    nodes[1] = other;
+                    onPath.add(other.getId());
+                    depth = 1;
+                }
+            }
+            this.baseDepth = first == null ? 0 : 1;
+        }
+
+        @Override
+        protected Path fetchNextOrNull() {
+            if (single != null) {
+                Path path = single;
+                single = null;
+                return path;
+            }
+            while (depth >= baseDepth) {
+                if (timedOut()) return null;
+                if (expansions[depth] == null) {
+                    expansions[depth] = depth < maxDepth ? expand(nodes[depth]) : Collections.emptyIterator();
+                }
+                Iterator<Relationship> expansion = expansions[depth];
+                if (expansion.hasNext()) {
+                    Relationship relationship = expansion.next();
+                    Node other = relationship.getOtherNode(nodes[depth]);
+                    if (onPath.contains(other.getId())) continue;
+                    relationships[depth] = relationship;
+                    if (other.equals(end)) {
+                        return toPath(depth + 1);
+                    }
+                    depth++;
+                    nodes[depth] = other;
+                    onPath.add(other.getId());
+                } else {
+                    expansions[depth] = null;
+                    onPath.remove(nodes[depth].getId());
+                    depth--;
+                }
+            }
+            return null;
+        }
+
+        private Path toPath(int length) {
+            PathImpl.Builder builder = new PathImpl.Builder(nodes[0]);
+            for (int i = 0; i < length; i++) {
+                builder = builder.push(relationships[i]);
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Takes the paths the workers put into the queue until all workers are done.
+     */
+    private class ParallelEnumeration extends PrefetchingIterator<Path> {
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final List<Future<Void>> futures = new ArrayList<>();
+        private volatile boolean cancelled;
+        private int running;
+        private long returned;
+
+        ParallelEnumeration(Node start, Node end, ConcurrentLinkedQueue<Relationship> branches, int workers) {
+            this.running = workers;
+            for (int i = 0; i < workers; i++) {
+                futures.add(Util.inTxFuture(Pools.DEFAULT, db, () -> {
+                    try {
+                        Relationship branch;
+                        while (!cancelled && (branch = branches.poll()) != null) {
+                            Enumeration enumeration = new Enumeration(start, branch, end);
+                            while (!cancelled && enumeration.hasNext()) {
+                                put(enumeration.next());
+                            }
+                        }
+                    } finally {
+                        put(END);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        private void put(Object value) throws InterruptedException {
+            while (!queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                if (cancelled) return;
+            }
+        }
+
+        @Override
+        protected Path fetchNextOrNull() {
+            try {
+                while (running > 0) {
+                    Object value = queue.take();
+                    if (value == END) {
+                        running--;
+                    } else {
+                        // the workers don't have to wait for a consumer that won't take any more paths
+                        if (++returned == limit) cancel();
+                        return (Path) value;
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while enumerating paths", e);
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException("Error enumerating paths: " + e.getMessage(), e);
+                }
+            }
+            return null;
+        }
+
+        void cancel() {
+            cancelled = true;
+            // unblocks the workers waiting for space, their end markers are dropped
+            queue.clear();
+        }
+    }
+}
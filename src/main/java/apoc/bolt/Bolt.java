@@ -49,17 +49,31 @@ public class Bolt {
         boolean addStatistics = (boolean) config.getOrDefault("statistics", false);
         boolean readOnly = (boolean) config.getOrDefault("readOnly", true);
 
-        Config driverConfig = toDriverConfig(config.getOrDefault("driverConfig", map()));
+        Map<String, Object> driverConfigMap = (Map<String, Object>) config.getOrDefault("driverConfig", map());
         UriResolver uri = new UriResolver(url, "bolt");
         uri.initialize();
 
-        try (Driver driver = GraphDatabase.driver(uri.getConfiguredUri(), uri.getToken(), driverConfig);
-             Session session = driver.session()) {
-            if (addStatistics)
+        Driver driver = acquireDriver(uri, driverConfigMap);
+        Session session;
+        try {
+            session = driver.session(readOnly ? AccessMode.READ : AccessMode.WRITE);
+        } catch (Exception e) {
+            BoltDriverCache.release(uri.getConfiguredUri(), driverConfigMap);
+            throw new RuntimeException("It's not possible to create a connection due to: " + e.getMessage());
+        }
+        if (addStatistics) {
+            try {
                 return Stream.of(new RowResult(toMap(runStatement(statement, session, params, readOnly).summary().counters())));
-            else
-                return getRowResultStream(virtual, session, params, statement, readOnly);
+            } catch (Exception e) {
+                throw new RuntimeException("It's not possible to create a connection due to: " + e.getMessage());
+            } finally {
+                close(uri, driverConfigMap, session, null);
+            }
+        }
+        try {
+            return getRowResultStream(virtual, uri, driverConfigMap, session, params, statement);
         } catch (Exception e) {
+            close(uri, driverConfigMap, session, null);
             throw new RuntimeException("It's not possible to create a connection due to: " + e.getMessage());
         }
     }
@@ -72,14 +86,82 @@ public class Bolt {
         return load(url, statement, params, configuration);
     }
 
+    @Procedure()
+    @Description("apoc.bolt.executeBatch(url-or-key, kernelTransaction, [params], config) - runs the statement for each of the params in one remote transaction, returns the summed up statistics")
+    public Stream<RowResult> executeBatch(@Name("url") String url, @Name("kernelTransaction") String statement, @Name("params") List<Map<String, Object>> params, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws URISyntaxException {
+        if (config == null) config = Collections.emptyMap();
+        Map<String, Object> driverConfigMap = (Map<String, Object>) config.getOrDefault("driverConfig", map());
+        UriResolver uri = new UriResolver(url, "bolt");
+        uri.initialize();
+
+        Driver driver = acquireDriver(uri, driverConfigMap);
+        try (Session session = driver.session(AccessMode.WRITE)) {
+            Map<String, Object> statistics = session.writeTransaction((Transaction tx) -> {
+                // the statements are sent without waiting for each other's results
+                List<StatementResult> results = new ArrayList<>(params.size());
+                for (Map<String, Object> batchParams : params) {
+                    results.add(tx.run(statement, batchParams == null ? Collections.emptyMap() : batchParams));
+                }
+                Map<String, Object> sum = new LinkedHashMap<>();
+                for (StatementResult result : results) {
+                    toMap(result.consume().counters()).forEach((key, value) -> sum.merge(key, value, (a, b) -> (Integer) a + (Integer) b));
+                }
+                return sum;
+            });
+            statistics.put("count", params.size());
+            return Stream.of(new RowResult(statistics));
+        } catch (Exception e) {
+            throw new RuntimeException("It's not possible to execute the batch due to: " + e.getMessage(), e);
+        } finally {
+            BoltDriverCache.release(uri.getConfiguredUri(), driverConfigMap);
+        }
+    }
+
+    private Driver acquireDriver(UriResolver uri, Map<String, Object> driverConfigMap) {
+        try {
+            return BoltDriverCache.acquire(uri.getConfiguredUri(), uri.getToken(), driverConfigMap, toDriverConfig(driverConfigMap));
+        } catch (Exception e) {
+            throw new RuntimeException("It's not possible to create a connection due to: " + e.getMessage());
+        }
+    }
+
+    private static void close(UriResolver uri, Map<String, Object> driverConfigMap, Session session, Transaction tx) {
+        try {
+            if (tx != null) {
+                tx.success();
+                tx.close();
+            }
+        } finally {
+            try {
+                if (session != null) session.close();
+            } finally {
+                BoltDriverCache.release(uri.getConfiguredUri(), driverConfigMap);
+            }
+        }
+    }
+
     private StatementResult runStatement(@Name("kernelTransaction") String statement, Session session, Map<String, Object> finalParams, boolean read) {
         if (read) return session.readTransaction((Transaction tx) -> tx.run(statement, finalParams));
         else return session.writeTransaction((Transaction tx) -> tx.run(statement, finalParams));
     }
 
-    private Stream<RowResult> getRowResultStream(boolean virtual, Session session, Map<String, Object> params, String statement, boolean read) {
+    /**
+     * Streams the records of the remote result as they are consumed, the transaction is committed and the session and
+     * driver are released when the stream is closed.
+     */
+    private Stream<RowResult> getRowResultStream(boolean virtual, UriResolver uri, Map<String, Object> driverConfigMap, Session session, Map<String, Object> params, String statement) {
         Map<Long, Object> nodesCache = new HashMap<>();
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(runStatement(statement, session, params, read), 0), true)
+        Transaction tx = session.beginTransaction();
+        StatementResult result;
+        try {
+            result = tx.run(statement, params);
+        } catch (Exception e) {
+            tx.failure();
+            tx.close();
+            throw e;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(result, 0), false)
+                .onClose(() -> close(uri, driverConfigMap, session, tx))
                 .map(record -> new RowResult(record.asMap(value -> {
                     Object entity = value.asObject();
                     if (entity instanceof Node) return toNode(entity, virtual, nodesCache);
@@ -152,13 +234,15 @@ public class Bolt {
         Long routingFailureLimit = (Long) driverConfMap.getOrDefault("routingFailureLimit", 1L);
         Long routingRetryDelayMillis = (Long) driverConfMap.getOrDefault("routingRetryDelayMillis", 5000L);
         Long connectionTimeoutMillis = (Long) driverConfMap.getOrDefault("connectionTimeoutMillis", 5000L);
+        Long maxConnectionPoolSize = (Long) driverConfMap.getOrDefault("maxConnectionPoolSize", 100L);
         Long maxRetryTimeMs = (Long) driverConfMap.getOrDefault("maxRetryTimeMs", 30000L);
         Config.ConfigBuilder config = Config.build();
         config.withLogging(new JULogging(Level.parse(logging)));
         if(!encryption) config.withoutEncryption();
         config.withTrustStrategy(Config.TrustStrategy.trustAllCertificates());
-        if(!logLeakedSessions) config.withoutEncryption();
+        if(logLeakedSessions) config.withLeakedSessionsLogging();
         config.withMaxIdleSessions(maxIdleConnectionPoolSize.intValue());
+        config.withMaxConnectionPoolSize(maxConnectionPoolSize.intValue());
         config.withConnectionLivenessCheckTimeout(idleTimeBeforeConnectionTest, TimeUnit.MILLISECONDS);
         config.withRoutingFailureLimit(routingFailureLimit.intValue());
         config.withConnectionTimeout(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
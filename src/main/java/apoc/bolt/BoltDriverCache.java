@@ -0,0 +1,76 @@
+package apoc.bolt;
+
+import apoc.util.ClientCache;
+import org.neo4j.driver.v1.AuthToken;
+import org.neo4j.driver.v1.Config;
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.GraphDatabase;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the drivers of the bolt procedures open for reuse, per url and driver config, so that calls per row don't pay
+ * for the connection and TLS handshake each time. Each driver pools its own connections, up to the
+ * `maxConnectionPoolSize` of the driver config.
+ * Drivers that are not used for `apoc.bolt.driver.idleTimeout` (default 60) seconds are closed, and of more than
+ * `apoc.bolt.driver.maxDrivers` (default 16) drivers the least recently used ones are closed as soon as they are idle.
+ */
+public class BoltDriverCache {
+
+    static final int DEFAULT_MAX_DRIVERS = 16;
+    static final int DEFAULT_IDLE_TIMEOUT = 60;
+
+    private static final ClientCache<Key, Driver> DRIVERS = new ClientCache<>(
+            "bolt.driver.idleTimeout", DEFAULT_IDLE_TIMEOUT, "bolt.driver.maxDrivers", DEFAULT_MAX_DRIVERS, Driver::close);
+
+    private BoltDriverCache() {}
+
+    /**
+     * @return a driver for the url and config that has to be released when it is no longer used
+     */
+    public static Driver acquire(URI uri, AuthToken token, Map<String, Object> driverConfig, Config config) {
+        return DRIVERS.acquire(new Key(uri, driverConfig), () -> GraphDatabase.driver(uri, token, config));
+    }
+
+    public static void release(URI uri, Map<String, Object> driverConfig) {
+        DRIVERS.release(new Key(uri, driverConfig));
+    }
+
+    public static int drivers() {
+        return DRIVERS.size();
+    }
+
+    public static void clear() {
+        DRIVERS.clear();
+    }
+
+    static void evictIdle() {
+        DRIVERS.evictIdle();
+    }
+
+    private static class Key {
+        private final URI uri;
+        private final Map<String, Object> driverConfig;
+
+        Key(URI uri, Map<String, Object> driverConfig) {
+            this.uri = uri;
+            this.driverConfig = driverConfig;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            // the uri includes the credentials, drivers are only reused with the same ones
+            return uri.equals(key.uri) && driverConfig.equals(key.driverConfig);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, driverConfig);
+        }
+    }
+}
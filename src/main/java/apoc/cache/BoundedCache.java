@@ -0,0 +1,305 @@
+package apoc.cache;
+
+import apoc.ApocConfiguration;
+import apoc.util.Util;
+import org.neo4j.graphdb.Entity;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+
+/**
+ * A map of values that is bounded by a maximum number of entries and of estimated bytes, and whose entries can expire
+ * after a time to live. Reads don't lock: they only look up the entry and record its access.
+ * When a write exceeds a bound, the writer evicts a batch of a tenth of the bound, the least recently used (lru) or the
+ * least frequently used (lfu) entries first, so that the eviction is amortized over the following writes.
+ * The recency of an access is the number of writes before it, so that reads don't need the clock, and the
+ * frequencies saturate at 15 and are halved after each eviction, so that entries that were used often a long time ago
+ * age out and frequently read entries aren't written on each read.
+ * The bounds, the default time to live and the policy are read from the config with the given prefix, e.g.
+ * `apoc.cache.static.maxEntries`, `maxBytes`, `ttl` (seconds) and `policy`, where 0 means unbounded.
+ */
+public class BoundedCache<K> {
+
+    public enum Policy { LRU, LFU }
+
+    private final String configPrefix;
+    private final Map<K, Entry> map = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile boolean expiring;
+
+    /**
+     * @param configPrefix the prefix of the config keys without the `apoc.` prefix, e.g. `cache.static`
+     */
+    public BoundedCache(String configPrefix) {
+        this.configPrefix = configPrefix;
+    }
+
+    public Object get(K key) {
+        Entry entry = map.get(key);
+        if (entry != null && entry.expiresAt != 0 && entry.isExpired(System.currentTimeMillis())) {
+            if (remove(key, entry)) expirations.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.touch(writes.get());
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * @param ttl the time to live in seconds, 0 for the configured default and a negative value for none
+     * @return the previous value
+     */
+    public Object put(K key, Object value, long ttl) {
+        return put(key, value, ttl, estimateBytes(value));
+    }
+
+    /**
+     * @param estimatedBytes the estimated heap size of the value, e.g. if it is wrapped in an object that the estimate doesn't know
+     */
+    public Object put(K key, Object value, long ttl, long estimatedBytes) {
+        long now = System.currentTimeMillis();
+        long seconds = ttl == 0 ? Util.toLong(ApocConfiguration.get(configPrefix + ".ttl", 0)) : ttl;
+        Entry entry = new Entry(value, estimatedBytes, seconds > 0 ? now + TimeUnit.SECONDS.toMillis(seconds) : 0, writes.incrementAndGet());
+        if (entry.expiresAt != 0) expiring = true;
+        Entry previous = map.put(key, entry);
+        bytes.addAndGet(entry.bytes - (previous == null ? 0 : previous.bytes));
+        puts.increment();
+        evictIfNeeded();
+        return previous == null || previous.isExpired(now) ? null : previous.value;
+    }
+
+    public Object remove(K key) {
+        Entry entry = map.remove(key);
+        if (entry == null) return null;
+        bytes.addAndGet(-entry.bytes);
+        return entry.isExpired(System.currentTimeMillis()) ? null : entry.value;
+    }
+
+    private boolean remove(K key, Entry entry) {
+        if (!map.remove(key, entry)) return false;
+        bytes.addAndGet(-entry.bytes);
+        return true;
+    }
+
+    /**
+     * @return a copy of the entries that are not expired, without recording their access
+     */
+    public Map<K, Object> snapshot() {
+        long now = System.currentTimeMillis();
+        Map<K, Object> result = new HashMap<>(map.size());
+        map.forEach((key, entry) -> {
+            if (!entry.isExpired(now)) result.put(key, entry.value);
+        });
+        return result;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void clear() {
+        map.forEach(this::remove);
+    }
+
+    /**
+     * Removes the entries that the predicate matches, e.g. because the data they were computed from changed.
+     * @return the number of removed entries
+     */
+    public int removeIf(BiPredicate<K, Object> invalid) {
+        int removed = 0;
+        for (Map.Entry<K, Entry> e : map.entrySet()) {
+            if (invalid.test(e.getKey(), e.getValue().value) && remove(e.getKey(), e.getValue())) removed++;
+        }
+        invalidations.add(removed);
+        return removed;
+    }
+
+    /**
+     * Removes the expired entries, if any entry has a time to live.
+     */
+    public void expire() {
+        if (!expiring) return;
+        long now = System.currentTimeMillis();
+        map.forEach((key, entry) -> {
+            if (entry.isExpired(now) && remove(key, entry)) expirations.increment();
+        });
+    }
+
+    private long config(String name) {
+        return Util.toLong(ApocConfiguration.get(configPrefix + "." + name, 0));
+    }
+
+    private void evictIfNeeded() {
+        long maxEntries = config("maxEntries"), maxBytes = config("maxBytes");
+        if (!exceeds(maxEntries, maxBytes)) return;
+        // one writer evicts a batch, the others don't wait for it
+        if (!evictionLock.tryLock()) return;
+        try {
+            expire();
+            // evict a tenth more than the bound, so that the next writes don't evict again
+            if (!exceeds(maxEntries, maxBytes)) return;
+            long entriesTarget = maxEntries - maxEntries / 10, bytesTarget = maxBytes - maxBytes / 10;
+            // the accesses are copied, as concurrent reads change them while sorting
+            List<Candidate<K>> candidates = new ArrayList<>(map.size());
+            map.forEach((key, entry) -> candidates.add(new Candidate<>(key, entry)));
+            candidates.sort(comparator(policy()));
+            for (Candidate<K> candidate : candidates) {
+                if (!exceeds(entriesTarget, bytesTarget)) break;
+                if (remove(candidate.key, candidate.entry)) evictions.increment();
+            }
+            for (Entry entry : map.values()) entry.frequency >>>= 1;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean exceeds(long maxEntries, long maxBytes) {
+        return maxEntries > 0 && map.size() > maxEntries || maxBytes > 0 && bytes.get() > maxBytes;
+    }
+
+    private Policy policy() {
+        Object policy = ApocConfiguration.get(configPrefix + ".policy", Policy.LRU.name());
+        try {
+            return Policy.valueOf(policy.toString().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The apoc." + configPrefix + ".policy must be lru or lfu, but was " + policy);
+        }
+    }
+
+    private static <K> Comparator<Candidate<K>> comparator(Policy policy) {
+        Comparator<Candidate<K>> lru = Comparator.comparingLong(c -> c.lastAccess);
+        return policy == Policy.LFU ? Comparator.<Candidate<K>>comparingInt(c -> c.frequency).thenComparing(lru) : lru;
+    }
+
+    /**
+     * @param name the name of the cache in the stats
+     */
+    public Stats stats(String name) {
+        long h = hits.sum(), m = misses.sum();
+        return new Stats(name, map.size(), bytes.get(), h, m, h + m == 0 ? 0 : (double) h / (h + m), puts.sum(), evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    /**
+     * A rough estimate of the heap size of a value, with the sizes of a 64 bit jvm with compressed oops.
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String) return 40 + 2L * ((String) value).length();
+        if (value instanceof Number || value instanceof Boolean) return 24;
+        // nodes and relationships are only referenced by their id
+        if (value instanceof Entity) return 32;
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateBytes(e.getKey()) + estimateBytes(e.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 40;
+            for (Object element : (Collection<?>) value) size += 8 + estimateBytes(element);
+            return size;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Class<?> type = value.getClass().getComponentType();
+            if (type.isPrimitive()) return 16 + (type == long.class || type == double.class ? 8L : 4L) * length;
+            long size = 16;
+            for (int i = 0; i < length; i++) size += 8 + estimateBytes(Array.get(value, i));
+            return size;
+        }
+        return 64;
+    }
+
+    private static final int MAX_FREQUENCY = 15;
+
+    private static class Entry {
+        private final Object value;
+        private final long bytes;
+        private final long expiresAt;
+        private volatile long lastAccess;
+        // only an approximation, increments of concurrent reads may get lost
+        private int frequency;
+
+        Entry(Object value, long bytes, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+            this.frequency = 1;
+        }
+
+        void touch(long access) {
+            if (lastAccess != access) lastAccess = access;
+            int f = frequency;
+            if (f < MAX_FREQUENCY) frequency = f + 1;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now >= expiresAt;
+        }
+    }
+
+    private static class Candidate<K> {
+        private final K key;
+        private final Entry entry;
+        private final long lastAccess;
+        private final int frequency;
+
+        Candidate(K key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+            this.frequency = entry.frequency;
+        }
+    }
+
+    public static class Stats {
+        public final String name;
+        public final long entries;
+        public final long estimatedBytes;
+        public final long hits;
+        public final long misses;
+        public final double hitRate;
+        public final long puts;
+        public final long evictions;
+        public final long expirations;
+        public final long invalidations;
+
+        public Stats(String name, long entries, long estimatedBytes, long hits, long misses, double hitRate, long puts, long evictions, long expirations, long invalidations) {
+            this.name = name;
+            this.entries = entries;
+            this.estimatedBytes = estimatedBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.hitRate = hitRate;
+            this.puts = puts;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package apoc.cache;
 
+import apoc.Pools;
 import apoc.result.MapResult;
 import apoc.result.ObjectResult;
 import apoc.result.StringResult;
+import apoc.util.Util;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
@@ -13,6 +15,7 @@ import org.neo4j.procedure.Procedure;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 /**
@@ -25,7 +28,13 @@ public class Dynamic
     @Context
     public GraphDatabaseAPI db;
 
-    private static Map<String,ConcurrentHashMap<String,Object>> storage = new ConcurrentHashMap<>();
+    // each map is bounded by apoc.cache.dynamic.maxEntries, maxBytes, ttl and policy, see BoundedCache
+    private static Map<String,BoundedCache<String>> storage = new ConcurrentHashMap<>();
+
+    static
+    {
+        Pools.SCHEDULED.scheduleWithFixedDelay( () -> storage.values().forEach( BoundedCache::expire ), 10, 10, TimeUnit.SECONDS );
+    }
 
     @Procedure( "apoc.dynamic.open" )
     @Description( "apoc.dynamic.open() - Open a temporary map and return the generated key." )
@@ -39,7 +48,7 @@ public class Dynamic
             generatedKey = RandomStringUtils.random( keySizeInt );
         }
 
-        storage.put( generatedKey, new ConcurrentHashMap<>() );
+        storage.put( generatedKey, new BoundedCache<>( "cache.dynamic" ) );
 
         return Stream.of( new StringResult( generatedKey ) );
     }
@@ -73,26 +82,34 @@ public class Dynamic
     @Description( "apoc.dynamic.getAll( superKey ) - Returns the entire temporary map by key" )
     public Stream<MapResult> getAll( @Name( "superKey" ) String superKey )
     {
-        return Stream.of( new MapResult( retrieveSubmap( superKey ) ) );
+        return Stream.of( new MapResult( retrieveSubmap( superKey ).snapshot() ) );
     }
 
     @Procedure( "apoc.dynamic.set" )
-    @Description( "apoc.dynamic.set( superKey, subKey, value ) - stores value under key for server livetime storage, returns previously stored or configured value" )
-    public Stream<ObjectResult> set( @Name( "superKey" ) String superKey, @Name( "subKey" ) String subKey, @Name( "value" ) Object value )
+    @Description( "apoc.dynamic.set( superKey, subKey, value, {ttl: seconds} ) - stores value under key for server livetime storage or ttl seconds, returns previously stored or configured value" )
+    public Stream<ObjectResult> set( @Name( "superKey" ) String superKey, @Name( "subKey" ) String subKey, @Name( "value" ) Object value,
+            @Name( value = "config", defaultValue = "{}" ) Map<String,Object> config )
     {
-        ConcurrentHashMap<String,Object> superMap = retrieveSubmap( superKey );
+        BoundedCache<String> superMap = retrieveSubmap( superKey );
         if ( value == null )
         {
             superMap.remove( subKey );
         }
         else
         {
-            superMap.put( subKey, value );
+            superMap.put( subKey, value, Util.toLong( config.getOrDefault( "ttl", 0 ) ) );
         }
         return Stream.of( new ObjectResult( value ) );
     }
 
-    private static ConcurrentHashMap<String,Object> retrieveSubmap( String superKey )
+    @Procedure( "apoc.dynamic.stats" )
+    @Description( "apoc.dynamic.stats() - returns the number of entries, their estimated bytes, the hits, misses and hit rate, and the puts, evictions and expirations of each temporary map" )
+    public Stream<BoundedCache.Stats> stats()
+    {
+        return storage.entrySet().stream().map( e -> e.getValue().stats( e.getKey() ) );
+    }
+
+    private static BoundedCache<String> retrieveSubmap( String superKey )
     {
         if ( storage.containsKey( superKey ) )
         {
@@ -1,6 +1,7 @@
 package apoc.cache;
 
 import apoc.ApocConfiguration;
+import apoc.Pools;
 import org.neo4j.procedure.*;
 import apoc.result.KeyValueResult;
 import apoc.result.MapResult;
@@ -10,6 +11,7 @@ import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 /**
@@ -21,19 +23,25 @@ public class Static {
     @Context
     public GraphDatabaseAPI db;
 
-    private static Map<String,Object> storage = new HashMap<>();
+    // bounded by apoc.cache.static.maxEntries, maxBytes, ttl and policy, see BoundedCache
+    private static final BoundedCache<String> storage = new BoundedCache<>("cache.static");
+
+    static {
+        Pools.SCHEDULED.scheduleWithFixedDelay(storage::expire, 10, 10, TimeUnit.SECONDS);
+    }
 
     @Procedure("apoc.static.get")
     @Deprecated
     @Description("apoc.static.get(name) - returns statically stored value from config (apoc.static.<key>) or server lifetime storage")
     public Stream<ObjectResult> getProcedure(@Name("key") String key) {
-        return Stream.of(new ObjectResult(storage.getOrDefault(key, fromConfig(key))));
+        return Stream.of(new ObjectResult(get(key)));
     }
 
     @UserFunction("apoc.static.get")
     @Description("apoc.static.get(name) - returns statically stored value from config (apoc.static.<key>) or server lifetime storage")
     public Object get(@Name("key") String key) {
-        return storage.getOrDefault(key, fromConfig(key));
+        Object value = storage.get(key);
+        return value == null ? fromConfig(key) : value;
     }
 
     @Deprecated
@@ -52,7 +60,7 @@ public class Static {
     private HashMap<String, Object> getFromConfigAndStorage(@Name("prefix") String prefix) {
         Map<String,Object> config = ApocConfiguration.get("static." + prefix);
         HashMap<String, Object> result = new HashMap<>(config);
-        result.putAll(Util.subMap(storage, prefix));
+        result.putAll(Util.subMap(storage.snapshot(), prefix));
         return result;
     }
 
@@ -68,12 +76,19 @@ public class Static {
     }
 
     @Procedure("apoc.static.set")
-    @Description("apoc.static.set(name, value) - stores value under key for server livetime storage, returns previously stored or configured value")
-    public Stream<ObjectResult> set(@Name("key") String key, @Name("value") Object value) {
-        Object previous = value == null ? storage.remove(key) : storage.put(key, value);
+    @Description("apoc.static.set(name, value, {ttl: seconds}) - stores value under key for server livetime storage or ttl seconds, returns previously stored or configured value")
+    public Stream<ObjectResult> set(@Name("key") String key, @Name("value") Object value, @Name(value = "config", defaultValue = "{}") Map<String,Object> config) {
+        long ttl = Util.toLong(config.getOrDefault("ttl", 0));
+        Object previous = value == null ? storage.remove(key) : storage.put(key, value, ttl);
         return Stream.of(new ObjectResult(previous==null ? fromConfig(key) : previous));
     }
 
+    @Procedure("apoc.static.stats")
+    @Description("apoc.static.stats() - returns the number of entries, their estimated bytes, the hits, misses and hit rate, and the puts, evictions and expirations of the server lifetime storage")
+    public Stream<BoundedCache.Stats> stats() {
+        return Stream.of(storage.stats("static"));
+    }
+
     public static void clear() {
         storage.clear();
     }
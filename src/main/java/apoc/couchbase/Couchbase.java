@@ -1,9 +1,15 @@
 package apoc.couchbase;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import apoc.result.MapResult;
 import apoc.util.MissingDependencyException;
+import apoc.util.Util;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
@@ -36,6 +42,7 @@ import apoc.result.BooleanResult;
  * <li>{@link #exists} to check whether a json document with the given ID does exist</li>
  * <li>{@link #insert} to insert a json document if it does not exist already</li>
  * <li>{@link #upsert} to insert or overwrite a json document</li>
+ * <li>{@link #upsertBatch} to insert or overwrite json documents with concurrent requests</li>
  * <li>{@link #remove} to remove the json document identified by its unique ID</li>
  * <li>{@link #replace} to replace the content of the json document identified by its unique ID</li>
  * <li>{@link #append} to append a json document's content to an existing one</li>
@@ -47,7 +54,9 @@ import apoc.result.BooleanResult;
  * <li>{@link #query} for plain un-parameterized N1QL statements</li>
  * <li>{@link #posParamsQuery} for N1QL statements with positional parameters</li>
  * <li>{@link #namedParamsQuery} for N1QL statements with named parameters</li>
+ * <li>{@link #streamQuery} for N1QL statements whose rows are streamed as they are received</li>
  * </ul>
+ * The connections are pooled per host or key and bucket, see {@link CouchbaseManager#getConnection}.
  * For instance, after inserting a JSON document this way:
  * <p/>
  * <code>
@@ -172,6 +181,33 @@ public class Couchbase {
         }
     }
 
+    /**
+     * Inserts or overwrites {@link JsonDocument}s with asynchronous requests, instead of one request after the other.
+     * <p/>
+     * Example:
+     * <code>CALL apoc.couchbase.upsertBatch('localhost', 'default', [{id: 'artist:vincent_van_gogh', content: {lastName: 'Van Gogh'}}], {concurrency: 64}) yield id, expiry, cas, mutationToken, content</code>
+     *
+     * @param hostOrKey a URI to use when connecting to the cluster reference or a configuration key
+     * @param bucket    the bucket to open; if null is passed then it's used the "default"
+     *                  bucket
+     * @param documents maps with the unique ID of a document as id and its content as a map or JSON String
+     * @param config    concurrency: the maximum number of pending requests, 64 by default
+     * @return the newly created or overwritten {@link JsonDocument}s, not in the order of the given ones
+     * @see com.couchbase.client.java.AsyncBucket#upsert(Document)
+     */
+    @Procedure
+    @Description("apoc.couchbase.upsertBatch(hostOrKey, bucket, [{id, content}], {concurrency: 64}) yield id, expiry, cas, mutationToken, content - insert or overwrite couchbase json documents with concurrent requests.")
+    public Stream<CouchbaseJsonDocument> upsertBatch(@Name("hostOrKey") String hostOrKey, @Name("bucket") String bucket,
+                                                     @Name("documents") List<Map<String, Object>> documents,
+                                                     @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        int concurrency = Util.toLong(config.getOrDefault("concurrency", 64)).intValue();
+        if (concurrency < 1) throw new IllegalArgumentException("The concurrency must be at least 1, but was " + concurrency);
+        List<JsonDocument> jsonDocuments = CouchbaseConnection.toJsonDocuments(documents);
+        try (CouchbaseConnection couchbaseConnection = getCouchbaseConnection(hostOrKey, bucket)) {
+            return couchbaseConnection.upsertAll(jsonDocuments, concurrency).stream().map(CouchbaseJsonDocument::new);
+        }
+    }
+
     /**
      * Append a {@link JsonDocument}'s content to an existing one.
      * <p/>
@@ -348,6 +384,46 @@ public class Couchbase {
         }
     }
 
+    /**
+     * Executes a N1QL statement and streams its rows as they are received, instead of collecting them into one result.
+     * <p/>
+     * Example:
+     * <code>CALL apoc.couchbase.streamQuery('localhost', 'default', 'select * from default where lastName = $lastName', {lastName: 'Van Gogh'}) yield value</code>
+     *
+     * @param hostOrKey a URI to use when connecting to the cluster reference or a configuration key
+     * @param bucket    the bucket to open; if null is passed then it's used the "default"
+     *                  bucket
+     * @param statement the raw statement string to execute
+     * @param params    a list of values for positional placeholders ($1, $2, ...), a map of values for named
+     *                  placeholders ($param1, ...) or null
+     * @return one map per row
+     * @see com.couchbase.client.java.AsyncBucket#query(N1qlQuery)
+     */
+    @Procedure
+    @Description("apoc.couchbase.streamQuery(hostOrKey, bucket, statement, params-or-null) yield value - executes a N1QL statement with positional (list) or named (map) parameters and streams its rows.")
+    public Stream<MapResult> streamQuery(@Name("hostOrKey") String hostOrKey, @Name("bucket") String bucket,
+                                         @Name("statement") String statement, @Name(value = "params", defaultValue = "null") Object params) {
+        if (params != null && !(params instanceof List) && !(params instanceof Map)) {
+            throw new IllegalArgumentException("The params must be a list, a map or null, but were " + params);
+        }
+        CouchbaseConnection couchbaseConnection = getCouchbaseConnection(hostOrKey, bucket);
+        try {
+            CouchbaseConnection.CloseableIterator<Map<String, Object>> rows = couchbaseConnection.streamStatement(statement, params);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)
+                    .map(MapResult::new)
+                    .onClose(() -> {
+                        try {
+                            rows.close();
+                        } finally {
+                            couchbaseConnection.close();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            couchbaseConnection.close();
+            throw e;
+        }
+    }
+
     private CouchbaseConnection getCouchbaseConnection(String hostOrKey, String bucket) {
         try {
             return CouchbaseManager.getConnection(hostOrKey, bucket);
@@ -11,9 +11,13 @@ import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.env.CouchbaseEnvironment;
 import com.couchbase.client.java.query.*;
 import org.parboiled.common.StringUtils;
+import rx.Observable;
+import rx.Subscription;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,7 +29,9 @@ import java.util.concurrent.TimeUnit;
  * The class is {@link AutoCloseable} so that every operation can be performed
  * inside a try-block and if an exception is raised the internal state of the
  * connection object will cause {@link #close()} to safely disconnect from
- * Couchbase with no resource leaks.
+ * Couchbase with no resource leaks. Connections that are pooled by the
+ * {@link CouchbaseManager} are released on {@link #close()} instead, so that
+ * the next call reuses them.
  *
  * @author inserpio
  * @since 15.8.2016
@@ -38,6 +44,9 @@ public class CouchbaseConnection implements AutoCloseable {
 
     private CouchbaseEnvironment env;
 
+    // the key of the connection in the pool of the CouchbaseManager, null if it isn't pooled
+    private String poolKey;
+
     /**
      * @param nodes
      * @param authenticator
@@ -89,13 +98,28 @@ public class CouchbaseConnection implements AutoCloseable {
         return this.cluster.authenticate(this.passwordAuthenticator).clusterManager().info(5,TimeUnit.SECONDS).getMinVersion().major();
     }
 
+    void setPoolKey(String poolKey) {
+        this.poolKey = poolKey;
+    }
+
     /**
-     * Disconnect and close all buckets.
+     * Releases a pooled connection, or disconnects one that isn't pooled.
      *
      * @see java.lang.AutoCloseable#close()
      */
     @Override
     public void close() {
+        if (poolKey != null) {
+            CouchbaseManager.release(poolKey);
+        } else {
+            disconnect();
+        }
+    }
+
+    /**
+     * Disconnect and close all buckets.
+     */
+    void disconnect() {
 //        if (!this.bucket.isClosed()) {
 //            this.bucket.close();
 //        }
@@ -149,6 +173,38 @@ public class CouchbaseConnection implements AutoCloseable {
         return this.bucket.upsert(JsonDocument.create(documentId, JsonObject.fromJson(json)));
     }
 
+    /**
+     * Inserts or overwrites the {@link JsonDocument}s with asynchronous requests, at most concurrency at a time.
+     *
+     * @param documents   the documents to store
+     * @param concurrency the maximum number of pending requests
+     * @return the newly created or overwritten {@link JsonDocument}s, not in the order of the given ones
+     * @see com.couchbase.client.java.AsyncBucket#upsert(Document)
+     */
+    public List<JsonDocument> upsertAll(List<JsonDocument> documents, int concurrency) {
+        return Observable.from(documents)
+                .flatMap(document -> this.bucket.async().upsert(document), concurrency)
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    /**
+     * @param documents maps with the unique ID of the document as id and its content as a map or JSON String
+     */
+    static List<JsonDocument> toJsonDocuments(List<Map<String, Object>> documents) {
+        List<JsonDocument> result = new ArrayList<>(documents.size());
+        for (Map<String, Object> document : documents) {
+            Object id = document.get("id"), content = document.get("content");
+            if (id == null || content == null) {
+                throw new IllegalArgumentException("Each document needs an id and a content, but was " + document.keySet());
+            }
+            JsonObject json = content instanceof Map ? JsonObject.from((Map<String, ?>) content) : JsonObject.fromJson(content.toString());
+            result.add(JsonDocument.create(id.toString(), json));
+        }
+        return result;
+    }
+
     /**
      * Appends a {@link JsonDocument}'s content to an existing one.
      *
@@ -245,6 +301,53 @@ public class CouchbaseConnection implements AutoCloseable {
         return executeQuery(query);
     }
 
+    /**
+     * Executes a N1QL statement with positional parameters for a list, named parameters for a map or
+     * none for null, and returns the rows as they are received, which the iterator requests with backpressure.
+     * The query is cancelled when the iterator is closed before all rows are consumed.
+     *
+     * @param statement  the raw statement string to execute
+     * @param parameters the values for the placeholders in statement
+     * @see com.couchbase.client.java.AsyncBucket#query(N1qlQuery)
+     */
+    public CloseableIterator<Map<String, Object>> streamStatement(String statement, Object parameters) {
+        if (this.bucket.isClosed()) {
+            throw new RuntimeException("bucket has been closed before performing the query");
+        }
+        N1qlQuery query = parameters == null ? N1qlQuery.simple(statement)
+                : parameters instanceof Map ? N1qlQuery.parameterized(statement, JsonObject.from((Map<String, ?>) parameters))
+                : N1qlQuery.parameterized(statement, JsonArray.from((List<?>) parameters));
+        Iterator<Map<String, Object>> rows = this.bucket.async().query(query)
+                .flatMap(result -> result.rows()
+                        .map(row -> row.value().toMap())
+                        .concatWith(result.errors().flatMap(error -> Observable.<Map<String, Object>>error(
+                                new RuntimeException("Error executing the N1QL statement: " + error)))))
+                .toBlocking()
+                .getIterator();
+        return new CloseableIterator<Map<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                return rows.next();
+            }
+
+            @Override
+            public void close() {
+                // the blocking iterator of rxjava is the subscriber of the rows
+                if (rows instanceof Subscription) ((Subscription) rows).unsubscribe();
+            }
+        };
+    }
+
+    public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+        @Override
+        void close();
+    }
+
     private List<JsonObject> executeQuery(N1qlQuery query) {
         if(this.bucket.isClosed()){
             throw new RuntimeException("bucket has been closed before performing the query");
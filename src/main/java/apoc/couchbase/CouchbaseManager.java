@@ -1,6 +1,7 @@
 package apoc.couchbase;
 
 import apoc.ApocConfiguration;
+import apoc.util.ClientCache;
 import com.couchbase.client.java.auth.PasswordAuthenticator;
 import com.couchbase.client.java.env.DefaultCouchbaseEnvironment;
 import org.neo4j.helpers.collection.Pair;
@@ -31,6 +32,14 @@ public class CouchbaseManager {
 
     private static final Map<String, Object> DEFAULT_CONFIG;
 
+    /**
+     * The connections per host or key and bucket, which are closed after apoc.couchbase.connection.idleTimeout
+     * seconds without use, and of more than apoc.couchbase.connection.max connections the least recently used ones
+     * as soon as they are not in use.
+     */
+    private static final ClientCache<String, CouchbaseConnection> CONNECTIONS = new ClientCache<>(
+            "couchbase.connection.idleTimeout", 60, "couchbase.connection.max", 8, CouchbaseConnection::disconnect);
+
     static {
         Map<String, Object> cfg = new HashMap<>();
         cfg.put("connectTimeout", 5000L);
@@ -136,9 +145,30 @@ public class CouchbaseManager {
     /**
      * @param hostOrKey
      * @param bucketName
-     * @return
+     * @return a pooled connection, which is released by {@link CouchbaseConnection#close()}
      */
     public static CouchbaseConnection getConnection(String hostOrKey, String bucketName) {
+        String key = hostOrKey + "\u0000" + bucketName;
+        return CONNECTIONS.acquire(key, () -> {
+            CouchbaseConnection connection = createConnection(hostOrKey, bucketName);
+            connection.setPoolKey(key);
+            return connection;
+        });
+    }
+
+    static void release(String key) {
+        CONNECTIONS.release(key);
+    }
+
+    static int connections() {
+        return CONNECTIONS.size();
+    }
+
+    static void clearConnections() {
+        CONNECTIONS.clear();
+    }
+
+    private static CouchbaseConnection createConnection(String hostOrKey, String bucketName) {
         PasswordAuthenticator passwordAuthenticator = getPasswordAuthenticator(hostOrKey);
         List<String> nodes = getNodes(hostOrKey);
         DefaultCouchbaseEnvironment env = getEnv(hostOrKey);
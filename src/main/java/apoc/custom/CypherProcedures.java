@@ -5,11 +5,14 @@ import apoc.util.JsonUtil;
 import apoc.util.Util;
 import org.neo4j.collection.PrefetchingRawIterator;
 import org.neo4j.collection.RawIterator;
-import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.function.ThrowingConsumer;
+import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.internal.kernel.api.exceptions.ProcedureException;
 import org.neo4j.internal.kernel.api.procs.*;
+import org.neo4j.internal.kernel.api.security.LoginContext;
 import org.neo4j.kernel.AvailabilityGuard;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.api.ResourceTracker;
@@ -19,17 +22,20 @@ import org.neo4j.kernel.api.proc.Key;
 import org.neo4j.kernel.impl.core.EmbeddedProxySPI;
 import org.neo4j.kernel.impl.core.GraphProperties;
 import org.neo4j.kernel.impl.core.GraphPropertiesProxy;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
 import org.neo4j.kernel.impl.factory.GraphDatabaseFacade;
 import org.neo4j.kernel.impl.proc.Procedures;
-import org.neo4j.kernel.impl.util.DefaultValueMapper;
+import org.neo4j.kernel.impl.query.QueryExecutionEngine;
 import org.neo4j.kernel.impl.util.ValueUtils;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 import org.neo4j.values.AnyValue;
 import org.neo4j.values.virtual.MapValue;
+import org.neo4j.values.virtual.VirtualValues;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -110,6 +116,10 @@ public class CypherProcedures {
     }
 
     static class CustomStatementRegistry {
+        // the registrations per database, so that a redefinition with the same signature only replaces the statement,
+        // as compiled plans keep the id of the procedure or function and would have to be cleared if it was registered again
+        private static final Map<Procedures, Map<String, Registration>> REGISTRATIONS = Collections.synchronizedMap(new WeakHashMap<>());
+
         GraphDatabaseAPI api;
         Procedures procedures;
         private final Log log;
@@ -122,29 +132,31 @@ public class CypherProcedures {
 
         public boolean registerProcedure(@Name("name") String name, @Name("statement") String statement, @Name(value = "mode", defaultValue = "read") String mode, @Name(value = "outputs", defaultValue = "null") List<List<String>> outputs, @Name(value = "inputs", defaultValue = "null") List<List<String>> inputs, @Name(value= "description", defaultValue = "") String description) {
             try {
-                Procedures procedures = api.getDependencyResolver().resolveDependency(Procedures.class);
                 ProcedureSignature signature = new ProcedureSignature(qualifiedName(name), inputSignatures(inputs), outputSignatures(outputs),
                         Mode.valueOf(mode.toUpperCase()), null, new String[0], description, null, false, true
                 );
-                procedures.register(new CallableProcedure.BasicProcedure(signature) {
-                    @Override
-                    public RawIterator<Object[], ProcedureException> apply(org.neo4j.kernel.api.proc.Context ctx, Object[] input, ResourceTracker resourceTracker) throws ProcedureException {
-                        KernelTransaction ktx = ctx.get(Key.key("KernelTransaction", KernelTransaction.class));
-                        debug(name, "inside", ktx);
-                        Map<String, Object> params = params(input, inputs);
-                        Result result = api.execute(statement, params);
-                        resourceTracker.registerCloseableResource(result);
-                        String[] names = outputs == null ? null : outputs.stream().map(pair -> pair.get(0)).toArray(String[]::new);
-                        return new PrefetchingRawIterator<Object[], ProcedureException>() {
-                            @Override
-                            protected Object[] fetchNextOrNull() {
-                                if (!result.hasNext()) return null;
-                                Map<String, Object> row = result.next();
-                                return toResult(row, names);
-                            }
-                        };
-                    }
-                }, true);
+                String[] names = outputs == null ? null : outputs.stream().map(pair -> pair.get(0)).toArray(String[]::new);
+                PreparedStatement prepared = new PreparedStatement(statement, inputNames(inputs), names, null);
+                register(PROCEDURE, signature.name(), Arrays.asList(signature, signature.mode(), description), prepared, registration -> {
+                    procedures.register(new CallableProcedure.BasicProcedure(signature) {
+                        @Override
+                        public RawIterator<Object[], ProcedureException> apply(org.neo4j.kernel.api.proc.Context ctx, Object[] input, ResourceTracker resourceTracker) throws ProcedureException {
+                            KernelTransaction ktx = ctx.get(Key.key("KernelTransaction", KernelTransaction.class));
+                            debug(name, "inside", ktx);
+                            PreparedStatement current = registration.prepared;
+                            Result result = api.execute(current.statement, current.params(input));
+                            resourceTracker.registerCloseableResource(result);
+                            return new PrefetchingRawIterator<Object[], ProcedureException>() {
+                                @Override
+                                protected Object[] fetchNextOrNull() {
+                                    if (!result.hasNext()) return null;
+                                    Map<String, Object> row = result.next();
+                                    return toResult(row, current.outputs);
+                                }
+                            };
+                        }
+                    }, true);
+                });
                 return true;
             } catch (Exception e) {
                 log.error("Could not register procedure: " + name + " with " + statement + "\n accepting" + inputs + " resulting in " + outputs + " mode " + mode,e);
@@ -159,36 +171,23 @@ public class CypherProcedures {
                 UserFunctionSignature signature = new UserFunctionSignature(qualifiedName(name), inputSignatures(inputs), outType,
                         null, new String[0], description, false);
 
-                DefaultValueMapper defaultValueMapper = new DefaultValueMapper(api.getDependencyResolver().resolveDependency(GraphDatabaseFacade.class));
-
-                procedures.register(new CallableUserFunction.BasicUserFunction(signature) {
-                    @Override
-                    public AnyValue apply(org.neo4j.kernel.api.proc.Context ctx, AnyValue[] input) throws ProcedureException {
-                        Map<String, Object> params = functionParams(input, inputs, defaultValueMapper);
-                        try (Result result = api.execute(statement, params)) {
+                GraphDatabaseFacade facade = api.getDependencyResolver().resolveDependency(GraphDatabaseFacade.class);
+                PreparedStatement prepared = new PreparedStatement(statement, inputNames(inputs), null, functionResult(output, outType, forceSingle));
+                register(FUNCTION, signature.name(), Arrays.asList(signature, description), prepared, registration -> {
+                    procedures.register(new CallableUserFunction.BasicUserFunction(signature) {
+                        @Override
+                        public AnyValue apply(org.neo4j.kernel.api.proc.Context ctx, AnyValue[] input) throws ProcedureException {
+                            PreparedStatement current = registration.prepared;
+                            // the arguments are passed on as values, without converting them to java objects and back
+                            InternalTransaction tx = facade.beginTransaction(KernelTransaction.Type.implicit, LoginContext.AUTH_DISABLED);
+                            try (Result result = facade.execute(tx, current.statement, current.functionParams(input))) {
 //                resourceTracker.registerCloseableResource(result); // TODO
-                            if (!result.hasNext()) return null;
-                            if (output.isEmpty()) {
-                                return ValueUtils.of(result.stream().collect(Collectors.toList()));
-                            }
-                            List<String> cols = result.columns();
-                            if (cols.isEmpty()) return null;
-                            if (!forceSingle && outType instanceof ListType) {
-                                ListType listType = (ListType) outType;
-                                AnyType innerType = listType.innerType();
-                                if (innerType instanceof MapType)
-                                    return ValueUtils.of(result.stream().collect(Collectors.toList()));
-                                if (cols.size() == 1)
-                                    return ValueUtils.of(result.stream().map(row -> row.get(cols.get(0))).collect(Collectors.toList()));
-                            } else {
-                                Map<String, Object> row = result.next();
-                                if (outType instanceof MapType) return ValueUtils.of(row);
-                                if (cols.size() == 1) return ValueUtils.of(row.get(cols.get(0)));
+                                if (!result.hasNext()) return null;
+                                return ValueUtils.of(current.result.apply(result));
                             }
-                            throw new IllegalStateException("Result mismatch " + cols + " output type is " + output);
                         }
-                    }
-                }, true);
+                    }, true);
+                });
                 return true;
             } catch(Exception e) {
                 log.error("Could not register function: "+name+" with "+statement+"\n accepting"+inputs+" resulting in "+output+" single result "+forceSingle,e);
@@ -196,6 +195,66 @@ public class CypherProcedures {
             }
         }
 
+        /**
+         * Registers a procedure or function, or only replaces the statement of the registered one if its signature is the same.
+         * Otherwise the query caches are cleared, and the plans that were compiled before and still call the previous
+         * registration run the current statement as well, as not all plans are cleared.
+         */
+        private void register(String type, QualifiedName name, List<Object> signature, PreparedStatement prepared, ThrowingConsumer<Registration, ProcedureException> registerCallable) throws ProcedureException {
+            Map<String, Registration> registrations = REGISTRATIONS.computeIfAbsent(procedures, key -> new HashMap<>());
+            synchronized (registrations) {
+                Registration registration = registrations.computeIfAbsent(type + ":" + name, key -> new Registration());
+                registration.prepared = prepared;
+                if (signature.equals(registration.signature)) return;
+                registerCallable.accept(registration);
+                boolean replaced = registration.signature != null;
+                registration.signature = signature;
+                if (replaced) clearQueryCaches(api);
+            }
+        }
+
+        private Function<Result, Object> functionResult(String output, AnyType outType, boolean forceSingle) {
+            if (output.isEmpty()) return CustomStatementRegistry::rows;
+            if (!forceSingle && outType instanceof ListType) {
+                if (((ListType) outType).innerType() instanceof MapType) return CustomStatementRegistry::rows;
+                // a single column is read without building the maps of the rows
+                return result -> {
+                    List<String> cols = singleColumn(result, output);
+                    try (ResourceIterator<Object> column = result.columnAs(cols.get(0))) {
+                        return Iterators.asList(column);
+                    }
+                };
+            }
+            if (outType instanceof MapType) return Result::next;
+            return result -> result.next().get(singleColumn(result, output).get(0));
+        }
+
+        private static List<Map<String, Object>> rows(Result result) {
+            return result.stream().collect(Collectors.toList());
+        }
+
+        private static List<String> singleColumn(Result result, String output) {
+            List<String> cols = result.columns();
+            if (cols.size() != 1) throw new IllegalStateException("Result mismatch " + cols + " output type is " + output);
+            return cols;
+        }
+
+        static void clearQueryCaches(GraphDatabaseAPI api) {
+            api.getDependencyResolver().resolveDependency(QueryExecutionEngine.class).clearQueryCaches();
+        }
+
+        /**
+         * Plans the statement, so that the first call doesn't have to. Statements that can't be planned without their
+         * parameters or in a transaction of their own are planned on their first call.
+         */
+        void prepare(String statement) {
+            try (Transaction tx = api.beginTx()) {
+                api.execute("EXPLAIN " + statement).close();
+                tx.success();
+            } catch (Exception e) {
+                log.debug("Could not prepare " + statement + ": " + e.getMessage());
+            }
+        }
 
         public static QualifiedName qualifiedName(@Name("name") String name) {
             String[] names = name.split("\\.");
@@ -300,23 +359,52 @@ public class CypherProcedures {
             return result;
         }
 
-        public Map<String, Object> params(Object[] input, @Name(value = "inputs", defaultValue = "null") List<List<String>> inputs) {
-            if (inputs == null) return (Map<String,Object>)input[0];
-            Map<String, Object> params = new HashMap<>(input.length);
-            for (int i = 0; i < input.length; i++) {
-                params.put(inputs.get(i).get(0), input[i]);
-            }
-            return params;
+        private static String[] inputNames(List<List<String>> inputs) {
+            return inputs == null ? null : inputs.stream().map(pair -> pair.get(0)).toArray(String[]::new);
+        }
+    }
+
+    /**
+     * The statement of a registered procedure or function, with what it needs per call computed once.
+     */
+    static class PreparedStatement {
+        final String statement;
+        // null for the default single map parameter
+        final String[] inputs;
+        // the output columns of a procedure, null for the default single map column
+        final String[] outputs;
+        // reads the value of a function from its non empty result
+        final Function<Result, Object> result;
+
+        PreparedStatement(String statement, String[] inputs, String[] outputs, Function<Result, Object> result) {
+            this.statement = statement;
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.result = result;
         }
 
-        public Map<String, Object> functionParams(Object[] input, @Name(value = "inputs", defaultValue = "null") List<List<String>> inputs, DefaultValueMapper mapper) {
-            if (inputs == null) return (Map<String, Object>)((MapValue)input[0]).map(mapper);
+        Map<String, Object> params(Object[] input) {
+            if (inputs == null) return (Map<String, Object>) input[0];
             Map<String, Object> params = new HashMap<>(input.length);
             for (int i = 0; i < input.length; i++) {
-                params.put(inputs.get(i).get(0), ((AnyValue)input[i]).map(mapper));
+                params.put(inputs[i], input[i]);
             }
             return params;
         }
+
+        MapValue functionParams(AnyValue[] input) {
+            if (inputs == null) return (MapValue) input[0];
+            return VirtualValues.map(inputs, input);
+        }
+    }
+
+    /**
+     * The current statement of all registrations of a procedure or function with the same name.
+     */
+    private static class Registration {
+        // what the compiled plans depend on, the signature and, as the signature doesn't compare them, the mode and description
+        private List<Object> signature;
+        private volatile PreparedStatement prepared;
     }
 
     public static class CustomProcedureInfo {
@@ -351,6 +439,8 @@ public class CypherProcedures {
         private final Log log;
         private Timer timer = new Timer(getClass().getSimpleName(), true);
         private long lastUpdate;
+        // the definitions registered by the last refresh
+        private final Map<String, Map<String, Object>> restored = new HashMap<>();
 
         public CustomProcedureStorage(GraphDatabaseAPI api, Log log) {
             this.api = api;
@@ -373,20 +463,31 @@ public class CypherProcedures {
             return api.getDependencyResolver().resolveDependency(EmbeddedProxySPI.class).newGraphPropertiesProxy();
         }
 
+        /**
+         * Registers the procedures and functions whose stored definition changed since the last refresh, e.g. on
+         * another cluster member, and prepares their statements.
+         */
         private void restoreProcedures() {
-            if (getLastUpdate(properties) <= lastUpdate) return;
-            lastUpdate = System.currentTimeMillis();
+            // the stored time of the last update, as the clocks of the members of a cluster differ
+            long update = getLastUpdate(properties);
+            if (update == lastUpdate) return;
+            lastUpdate = update;
             CustomStatementRegistry registry = new CustomStatementRegistry(api, log);
             Map<String, Map<String, Map<String, Object>>> stored = readData(properties);
             stored.get(FUNCTIONS).forEach((name, data) -> {
-                registry.registerFunction(name, (String) data.get("statement"), (String) data.get("output"),
-                        (List<List<String>>) data.get("inputs"), (Boolean) data.get("forceSingle"), (String) data.get("description"));
+                if (!data.equals(restored.put(FUNCTION + ":" + name, data)) &&
+                        registry.registerFunction(name, (String) data.get("statement"), (String) data.get("output"),
+                        (List<List<String>>) data.get("inputs"), (Boolean) data.get("forceSingle"), (String) data.get("description"))) {
+                    registry.prepare((String) data.get("statement"));
+                }
             });
             stored.get(PROCEDURES).forEach((name, data) -> {
-                registry.registerProcedure(name, (String) data.get("statement"), (String) data.get("mode"),
-                        (List<List<String>>) data.get("outputs"), (List<List<String>>) data.get("inputs"), (String) data.get("description"));
+                if (!data.equals(restored.put(PROCEDURE + ":" + name, data)) &&
+                        registry.registerProcedure(name, (String) data.get("statement"), (String) data.get("mode"),
+                        (List<List<String>>) data.get("outputs"), (List<List<String>>) data.get("inputs"), (String) data.get("description"))) {
+                    registry.prepare((String) data.get("statement"));
+                }
             });
-            clearQueryCaches(api);
         }
 
         @Override
@@ -442,14 +543,6 @@ public class CypherProcedures {
             }
         }
 
-        private static void clearQueryCaches(GraphDatabaseService db) {
-            try (Transaction tx = db.beginTx()) {
-                db.execute("call dbms.clearQueryCaches()").close();
-                tx.success();
-            }
-        }
-
-
         public List<CustomProcedureInfo> list() {
             return readData(getProperties(api)).entrySet().stream()
                     .flatMap(entryProcedureType -> {
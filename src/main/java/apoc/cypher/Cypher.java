@@ -1,6 +1,9 @@
 package apoc.cypher;
 
+import apoc.ApocConfiguration;
+import apoc.ApocKernelExtensionFactory;
 import apoc.Pools;
+import apoc.cache.BoundedCache;
 import apoc.result.MapResult;
 import apoc.util.FileUtils;
 import apoc.util.QueueBasedSpliterator;
@@ -10,6 +13,10 @@ import org.neo4j.graphdb.QueryStatistics;
 import org.neo4j.graphdb.Result;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
@@ -63,6 +70,62 @@ public class Cypher {
         return db.execute(withParamMapping(statement, params.keySet()), params).stream().map(MapResult::new);
     }
 
+    @Procedure
+    @Description("apoc.cypher.cached(fragment, params, {ttl: seconds, maxRows: 10000}) yield value - executes reading fragment with the given parameters, or returns its rows of a previous call, until a transaction changes the labels or relationship types it reads")
+    public Stream<MapResult> cached(@Name("cypher") String statement, @Name("params") Map<String, Object> params, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        if (params == null) params = Collections.emptyMap();
+        QueryCache cache = queryCache();
+        // the changes of the current transaction are not visible to the others
+        if (cache == null || hasChanges()) return run(statement, params);
+        List<Map<String, Object>> rows = cache.get(statement, params);
+        if (rows != null) return rows.stream().map(MapResult::new);
+
+        long ttl = Util.toLong(config.getOrDefault("ttl", 0));
+        long maxRows = Util.toLong(config.getOrDefault("maxRows", ApocConfiguration.get("cypher.cache.maxRows", 10000)));
+        long generation = cache.start();
+        try {
+            Result result = db.execute(withParamMapping(statement, params.keySet()), params);
+            rows = new ArrayList<>();
+            while (result.hasNext() && rows.size() <= maxRows) {
+                rows.add(result.next());
+            }
+            if (rows.size() > maxRows) {
+                // too many rows to cache, the rest is streamed
+                return Stream.concat(rows.stream(), result.stream()).map(MapResult::new);
+            }
+            cache.put(statement, params, rows, ttl, generation);
+            return rows.stream().map(MapResult::new);
+        } finally {
+            cache.done();
+        }
+    }
+
+    @Procedure
+    @Description("apoc.cypher.cacheStats() - returns the entries, estimated bytes, hits, misses, hit rate, puts, evictions, expirations and invalidations of the apoc.cypher.cached rows")
+    public Stream<BoundedCache.Stats> cacheStats() {
+        QueryCache cache = queryCache();
+        return cache == null ? Stream.empty() : Stream.of(cache.stats());
+    }
+
+    @Procedure
+    @Description("apoc.cypher.cacheClear() - drops the rows cached by apoc.cypher.cached")
+    public void cacheClear() {
+        QueryCache cache = queryCache();
+        if (cache != null) cache.clear();
+    }
+
+    private QueryCache queryCache() {
+        ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
+        return apocLifecycle == null || apocLifecycle.getQueryCacheLifeCycle() == null ? null
+                : apocLifecycle.getQueryCacheLifeCycle().getCache();
+    }
+
+    private boolean hasChanges() {
+        KernelTransaction ktx = ((GraphDatabaseAPI) db).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        return ktx instanceof TxStateHolder && ((TxStateHolder) ktx).hasTxStateWithChanges();
+    }
+
     @Procedure(mode = WRITE)
     @Description("apoc.cypher.runFile(file or url,[{statistics:true,timeout:10,parameters:{}}]) - runs each statement in the file, all semicolon separated - currently no schema operations")
     public Stream<RowResult> runFile(@Name("file") String fileName, @Name(value = "config",defaultValue = "{}") Map<String,Object> config) {
@@ -0,0 +1,250 @@
+package apoc.cypher;
+
+import apoc.cache.BoundedCache;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the rows of the read only statements of apoc.cypher.cached per statement and parameters, bounded by
+ * `apoc.cypher.cache.maxEntries`, `maxBytes`, `ttl` and `policy` (see {@link BoundedCache}).
+ * The labels and relationship types that a statement reads are taken from its text. A committed transaction drops the
+ * rows of the statements that read a label or type of a node or relationship that it created, deleted or changed.
+ * Statements that read nodes without a label or relationships without a type, or call procedures, could read anything,
+ * so any committed change drops their rows.
+ */
+public class QueryCache extends TransactionEventHandler.Adapter<QueryCache.Changes> {
+
+    private static final Pattern LITERALS = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"|//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    // a label or type after a colon, or a further type of an alternative, e.g. (n:Person) or [:KNOWS|:LIKES]
+    private static final Pattern NAMES = Pattern.compile("[:|]\\s*(`[^`]+`|\\w+)");
+    // a node pattern without a label, that is not the argument of a function e.g. (n), (), (n {name: 'x'}) but not count(n)
+    private static final Pattern UNLABELED_NODE = Pattern.compile("(?<![\\w`])\\(\\s*(`[^`]+`|\\w+)?\\s*(\\{[^}]*})?\\s*\\)");
+    // a relationship pattern without a type, e.g. -[r]-> or -->
+    private static final Pattern UNTYPED_RELATIONSHIP = Pattern.compile("-\\[[^\\]:]*]|--");
+    private static final Pattern CALL = Pattern.compile("\\bCALL\\b", Pattern.CASE_INSENSITIVE);
+
+    private final BoundedCache<Key> cache = new BoundedCache<>("cypher.cache");
+    // incremented on each commit with changes, rows read while a commit changed what they read aren't cached
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Long> changedIn = new ConcurrentHashMap<>();
+    private final AtomicLong anyChangeIn = new AtomicLong();
+    private final AtomicLong allChangedIn = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+
+    List<Map<String, Object>> get(String statement, Map<String, Object> params) {
+        Rows rows = (Rows) cache.get(new Key(statement, params));
+        return rows == null ? null : rows.rows;
+    }
+
+    /**
+     * @return the generation before the statement is run, which has to be passed to {@link #put}, and {@link #done}
+     * has to be called when the statement was read
+     */
+    long start() {
+        running.incrementAndGet();
+        return generation.get();
+    }
+
+    void done() {
+        running.decrementAndGet();
+    }
+
+    /**
+     * Caches the rows, unless a transaction that committed since the start changed what the statement reads.
+     */
+    void put(String statement, Map<String, Object> params, List<Map<String, Object>> rows, long ttl, long generation) {
+        Rows entry = new Rows(Collections.unmodifiableList(rows), Dependencies.of(statement));
+        long bytes = BoundedCache.estimateBytes(statement) + BoundedCache.estimateBytes(params) + BoundedCache.estimateBytes(rows);
+        cache.put(new Key(statement, params), entry, ttl, bytes);
+        // after the put, so that a concurrent commit either drops the rows or is seen here
+        if (changedSince(entry.dependencies, generation)) {
+            cache.removeIf((key, value) -> value == entry);
+        }
+    }
+
+    private boolean changedSince(Dependencies dependencies, long generation) {
+        if (allChangedIn.get() > generation) return true;
+        if (dependencies.any) return anyChangeIn.get() > generation;
+        for (String name : dependencies.names) {
+            if (changedIn.getOrDefault(name, 0L) > generation) return true;
+        }
+        return false;
+    }
+
+    BoundedCache.Stats stats() {
+        return cache.stats("cypher");
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public Changes beforeCommit(TransactionData data) throws Exception {
+        // while the cache is unused, commits don't pay for collecting their changes, they drop what was put meanwhile
+        if (cache.size() == 0 && running.get() == 0) return Changes.ALL;
+        Changes changes = new Changes();
+        for (LabelEntry entry : data.assignedLabels()) changes.add(entry.label());
+        for (LabelEntry entry : data.removedLabels()) changes.add(entry.label());
+        // the labels of deleted nodes are removed labels
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) changes.add(entry.entity());
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            if (!data.isDeleted(entry.entity())) changes.add(entry.entity());
+        }
+        for (Relationship relationship : data.createdRelationships()) changes.add(relationship);
+        for (Relationship relationship : data.deletedRelationships()) changes.add(relationship);
+        for (PropertyEntry<Relationship> entry : data.assignedRelationshipProperties()) changes.add(entry.entity());
+        for (PropertyEntry<Relationship> entry : data.removedRelationshipProperties()) changes.add(entry.entity());
+        // created or deleted nodes without labels only change what statements with unlabeled nodes read
+        changes.any |= data.createdNodes().iterator().hasNext() || data.deletedNodes().iterator().hasNext();
+        return changes.any ? changes : null;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Changes changes) {
+        if (changes == null) return;
+        long changed = generation.incrementAndGet();
+        // before dropping the rows, so that rows put concurrently are either dropped here or by put
+        if (changes == Changes.ALL) {
+            allChangedIn.accumulateAndGet(changed, Math::max);
+            cache.clear();
+            return;
+        }
+        for (String name : changes.names) changedIn.merge(name, changed, Math::max);
+        anyChangeIn.accumulateAndGet(changed, Math::max);
+        cache.removeIf((key, rows) -> ((Rows) rows).dependencies.changedBy(changes));
+    }
+
+    static class Changes {
+        private static final Changes ALL = new Changes();
+
+        private final Set<String> names = new HashSet<>();
+        private boolean any;
+
+        private void add(Label label) {
+            names.add(label.name());
+            any = true;
+        }
+
+        private void add(Node node) {
+            for (Label label : node.getLabels()) names.add(label.name());
+            any = true;
+        }
+
+        private void add(Relationship relationship) {
+            names.add(relationship.getType().name());
+            any = true;
+        }
+    }
+
+    /**
+     * The labels and relationship types that a statement reads, or any if it could read any node or relationship.
+     * Names in map literals are taken as well, which only drops rows more often than needed.
+     */
+    static class Dependencies {
+        final Set<String> names;
+        final boolean any;
+
+        private Dependencies(Set<String> names, boolean any) {
+            this.names = names;
+            this.any = any;
+        }
+
+        static Dependencies of(String statement) {
+            String text = LITERALS.matcher(statement).replaceAll("''");
+            if (CALL.matcher(text).find() || UNLABELED_NODE.matcher(text).find() || UNTYPED_RELATIONSHIP.matcher(text).find()) {
+                return new Dependencies(Collections.emptySet(), true);
+            }
+            Set<String> names = new HashSet<>();
+            Matcher matcher = NAMES.matcher(text);
+            while (matcher.find()) {
+                names.add(matcher.group(1).replace("`", ""));
+            }
+            return new Dependencies(names, false);
+        }
+
+        boolean changedBy(Changes changes) {
+            if (any) return changes.any;
+            for (String name : names) {
+                if (changes.names.contains(name)) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Rows {
+        private final List<Map<String, Object>> rows;
+        private final Dependencies dependencies;
+
+        Rows(List<Map<String, Object>> rows, Dependencies dependencies) {
+            this.rows = rows;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class Key {
+        private final String statement;
+        private final Map<String, Object> params;
+
+        Key(String statement, Map<String, Object> params) {
+            this.statement = statement;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            // parameters of other types are other keys, e.g. 1 and '1' or 1 and 1.0
+            return statement.equals(key.statement) && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(statement, params);
+        }
+    }
+
+    public static class LifeCycle {
+        private final GraphDatabaseAPI db;
+        private QueryCache cache;
+
+        public LifeCycle(GraphDatabaseAPI db) {
+            this.db = db;
+        }
+
+        public void start() {
+            cache = new QueryCache();
+            db.registerTransactionEventHandler(cache);
+        }
+
+        public void stop() {
+            if (cache == null) return;
+            db.unregisterTransactionEventHandler(cache);
+            cache = null;
+        }
+
+        public QueryCache getCache() {
+            return cache;
+        }
+    }
+}
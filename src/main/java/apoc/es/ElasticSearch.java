@@ -9,12 +9,20 @@ import apoc.util.Util;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static apoc.util.MapUtil.map;
 
@@ -34,6 +42,9 @@ public class ElasticSearch {
      */
     private final static Pattern KEY_VALUE = Pattern.compile("(.*)(:|=)(.*)");
 
+    private final static int DEFAULT_BULK_SIZE = 1000;
+    private final static int MAX_BULK_ERRORS = 10;
+
     protected String getElasticSearchUrl(String hostOrKey) {
         return new UrlResolver("http", "localhost", 9200).getUrl("es", hostOrKey);
     }
@@ -185,4 +196,127 @@ public class ElasticSearch {
         }
         return LoadJson.loadJsonStream(getQueryUrl(hostOrKey, index, type, id, query), map("method", "PUT","content-type",contentType(payload)), toPayload(payload));
     }
+
+    @Procedure
+    @Description("apoc.es.bulk(host-or-port,index,type,documents,{idField:null,batchSize:1000}) yield value - indexes the documents with requests to the _bulk endpoint of batchSize documents each, and returns the number of documents, batches and failed documents")
+    public Stream<MapResult> bulk(@Name("host") String hostOrKey, @Name("index") String index, @Name("type") String type, @Name("documents") List<Map<String, Object>> documents, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        String url = getElasticSearchUrl(hostOrKey) + "/_bulk";
+        String idField = (String) config.get("idField");
+        int batchSize = Util.toLong(config.getOrDefault("batchSize", DEFAULT_BULK_SIZE)).intValue();
+        if (batchSize < 1) throw new IllegalArgumentException("The batchSize of apoc.es.bulk must be at least 1, but was " + batchSize);
+        long batches = 0, failed = 0, took = 0;
+        List<Object> errors = new ArrayList<>();
+        for (int start = 0; start < documents.size(); start += batchSize) {
+            List<Map<String, Object>> batch = documents.subList(start, Math.min(start + batchSize, documents.size()));
+            Map<String, Object> response = request(url, "POST", "application/x-ndjson", toBulkPayload(index, type, idField, batch));
+            batches++;
+            took += Util.toLong(response.getOrDefault("took", 0));
+            if (!Util.toBoolean(response.get("errors"))) continue;
+            for (Map<String, Map<String, Object>> item : (List<Map<String, Map<String, Object>>>) response.get("items")) {
+                Map<String, Object> result = item.values().iterator().next();
+                if (result.get("error") == null) continue;
+                failed++;
+                if (errors.size() < MAX_BULK_ERRORS) errors.add(result.get("error"));
+            }
+        }
+        return Stream.of(new MapResult(map("count", (long) documents.size(), "batches", batches, "failed", failed, "took", took, "errors", errors)));
+    }
+
+    /**
+     * The bulk format has one line with the action and metadata and one line with the source of each document.
+     */
+    static String toBulkPayload(String index, String type, String idField, List<Map<String, Object>> documents) {
+        StringBuilder payload = new StringBuilder();
+        for (Map<String, Object> document : documents) {
+            Map<String, Object> metadata = map("_index", index, "_type", type);
+            if (idField != null && document.get(idField) != null) metadata.put("_id", document.get(idField).toString());
+            payload.append(Util.toJson(map("index", metadata))).append('\n');
+            payload.append(Util.toJson(document)).append('\n');
+        }
+        return payload.toString();
+    }
+
+    @Procedure
+    @Description("apoc.es.scroll(host-or-port,index-or-null,type-or-null,query-or-null,payload-or-null,{scroll:'1m',size:null}) yield value - streams the hits of a SEARCH operation on elastic search, fetching them page by page with the scroll api")
+    public Stream<MapResult> scroll(@Name("host") String hostOrKey, @Name("index") String index, @Name("type") String type, @Name("query") Object query, @Name("payload") Object payload, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        String scroll = config.getOrDefault("scroll", "1m").toString();
+        Object size = config.get("size");
+        if (payload == null) payload = Collections.emptyMap();
+        if (size != null) {
+            Map<String, Object> sized = payload instanceof Map ? new HashMap<>((Map<String, Object>) payload) : Util.readMap(payload.toString());
+            sized.put("size", size);
+            payload = sized;
+        }
+        Map<String, Object> scrollQuery = query == null ? new HashMap<>()
+                : query instanceof Map ? new HashMap<>((Map<String, Object>) query) : null;
+        String url = scrollQuery == null
+                ? getSearchQueryUrl(hostOrKey, index, type, query + "&scroll=" + scroll)
+                : getSearchQueryUrl(hostOrKey, index, type, addScroll(scrollQuery, scroll));
+        ScrollIterator hits = new ScrollIterator(getElasticSearchUrl(hostOrKey), scroll, request(url, "POST", contentType(payload), toPayload(payload)));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(hits, Spliterator.ORDERED), false)
+                .map(MapResult::new)
+                .onClose(hits::clear);
+    }
+
+    private static Map<String, Object> addScroll(Map<String, Object> query, String scroll) {
+        query.put("scroll", scroll);
+        return query;
+    }
+
+    private static Map<String, Object> request(String url, String method, String contentType, String payload) {
+        try (Stream<MapResult> stream = LoadJson.loadJsonStream(url, map("method", method, "content-type", contentType), payload)) {
+            return stream.findFirst().map(result -> result.value).orElse(Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Requests the next page of hits when the previous one is consumed, and clears the scroll context on the server
+     * when it is done or closed early.
+     */
+    private static class ScrollIterator implements Iterator<Map<String, Object>> {
+        private final String url;
+        private final String scroll;
+        private String scrollId;
+        private Iterator<Map<String, Object>> page;
+        private boolean last;
+
+        ScrollIterator(String url, String scroll, Map<String, Object> response) {
+            this.url = url;
+            this.scroll = scroll;
+            nextPage(response);
+        }
+
+        private void nextPage(Map<String, Object> response) {
+            Object id = response.get("_scroll_id");
+            if (id != null) scrollId = id.toString();
+            Map<String, Object> hits = (Map<String, Object>) response.get("hits");
+            List<Map<String, Object>> list = hits == null ? null : (List<Map<String, Object>>) hits.get("hits");
+            page = list == null ? Collections.emptyIterator() : list.iterator();
+            last = list == null || list.isEmpty() || scrollId == null;
+            if (last) clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (last) return false;
+                nextPage(request(url + "/_search/scroll", "POST", "application/json", Util.toJson(map("scroll", scroll, "scroll_id", scrollId))));
+            }
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return page.next();
+        }
+
+        void clear() {
+            last = true;
+            if (scrollId == null) return;
+            String id = scrollId;
+            scrollId = null;
+            request(url + "/_search/scroll", "DELETE", "application/json", Util.toJson(map("scroll_id", Collections.singletonList(id))));
+        }
+    }
 }
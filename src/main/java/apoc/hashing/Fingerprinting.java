@@ -1,24 +1,35 @@
 package apoc.hashing;
 
+import apoc.Pools;
+import apoc.util.kernel.MultiThreadedGlobalGraphOperations;
 import org.neo4j.graphdb.*;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
 import org.neo4j.procedure.UserFunction;
 
 import javax.xml.bind.DatatypeConverter;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class Fingerprinting {
 
     public static final String DIGEST_ALGORITHM = "MD5";
 
+    private static final int BATCH_SIZE = 10_000;
+
     @Context
     public GraphDatabaseService db;
 
@@ -54,95 +65,219 @@ public class Fingerprinting {
     }
 
     @UserFunction
-    @Description("calculate a checksum (md5) over a the full graph. Be aware that this function does use in-memomry datastructures depending on the size of your graph.")
-    public String fingerprintGraph(@Name(value = "propertyExcludes", defaultValue = "") List<String> excludedPropertyKeys) {
-
-        return withMessageDigest(messageDigest -> {
-            // step 1: load all nodes, calc their hash and map them to id
-            Map<Long, String> idToNodeHash = db.getAllNodes().stream().collect(Collectors.toMap(
-                    Node::getId,
-                    node -> fingerprint(node, excludedPropertyKeys),
-                    (aLong, aLong2) -> {
-                        throw new RuntimeException();
-                    },
-                    () -> new TreeMap<>()
-            ));
-
-            // step 2: build inverse map
-            Map<String, Long> nodeHashToId = idToNodeHash.entrySet().stream().collect(Collectors.toMap(
-                    Map.Entry::getValue,
-                    Map.Entry::getKey,
-                    (o, o2) -> {
-                        throw new RuntimeException();
-                    },
-                    () -> new TreeMap<>()
-            ));
-
-            // step 3: iterate nodes in order of their hash (we cannot rely on internal ids)
-            nodeHashToId.entrySet().stream().forEach(entry -> {
-                messageDigest.update(entry.getKey().getBytes());
-
-                Node node = db.getNodeById(entry.getValue());
-                List<EndNodeRelationshipHashTuple> endNodeRelationshipHashTuples = StreamSupport.stream(node.getRelationships(Direction.OUTGOING).spliterator(), false)
-                        .map(relationship -> {
-                            String endNodeHash = idToNodeHash.get(relationship.getEndNodeId());
-                            String relationshipHash = fingerprint(relationship, excludedPropertyKeys);
-                            return new EndNodeRelationshipHashTuple(endNodeHash, relationshipHash);
-                        }).collect(Collectors.toList());
-
-                endNodeRelationshipHashTuples.stream().sorted().forEach(endNodeRelationshipHashTuple -> {
-                    messageDigest.update(endNodeRelationshipHashTuple.getEndNodeHash().getBytes());
-                    messageDigest.update(endNodeRelationshipHashTuple.getRelationshipHash().getBytes());
-                });
+    @Description("calculate a checksum over the full graph, computed in parallel with constant memory. config: {algorithm: 'MD5'|'MURMUR3'}")
+    public String fingerprintGraph(@Name(value = "propertyExcludes", defaultValue = "") List<String> excludedPropertyKeys,
+                                   @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        HashAlgorithm algorithm = HashAlgorithm.from(config.get("algorithm"));
+        GraphFingerprint fingerprint = fingerprintGraph(algorithm, excludedPropertyKeys, false);
+        return fingerprint.total(algorithm);
+    }
 
-            });
+    public static class PartitionFingerprint {
+        public final String type;
+        public final String name;
+        public final long count;
+        public final String fingerprint;
+
+        public PartitionFingerprint(String type, String name, long count, String fingerprint) {
+            this.type = type;
+            this.name = name;
+            this.count = count;
+            this.fingerprint = fingerprint;
+        }
+    }
 
-        });
+    @Procedure
+    @Description("apoc.hashing.fingerprintGraphPartitions(propertyExcludes, {algorithm: 'MD5'|'MURMUR3'}) - partial checksums per label and relationship type, to localize differences between two graphs")
+    public Stream<PartitionFingerprint> fingerprintGraphPartitions(@Name(value = "propertyExcludes", defaultValue = "") List<String> excludedPropertyKeys,
+                                                                   @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        HashAlgorithm algorithm = HashAlgorithm.from(config.get("algorithm"));
+        GraphFingerprint fingerprint = fingerprintGraph(algorithm, excludedPropertyKeys, true);
+        Stream<PartitionFingerprint> labels = fingerprint.labels.entrySet().stream()
+                .map(e -> new PartitionFingerprint("node", e.getKey(), e.getValue().count, e.getValue().toHex()));
+        Stream<PartitionFingerprint> types = fingerprint.types.entrySet().stream()
+                .map(e -> new PartitionFingerprint("relationship", e.getKey(), e.getValue().count, e.getValue().toHex()));
+        return Stream.concat(labels, types);
     }
 
-    private static class EndNodeRelationshipHashTuple implements Comparable {
-        private final String endNodeHash;
-        private final String relationshipHash;
+    /**
+     * The graph fingerprint is an order independent combination of 128 bit hashes of every node and relationship.
+     * Node hashes cover labels and properties, relationship hashes cover the hashes of both end nodes, the type and
+     * the properties, so the structure is part of the fingerprint without relying on internal ids.
+     * Hashes are summed modulo 2^128 which is commutative, so partitions of the store are hashed in parallel
+     * and merged afterwards, without keeping any per entity state.
+     */
+    private GraphFingerprint fingerprintGraph(HashAlgorithm algorithm, List<String> excludedPropertyKeys, boolean partitions) {
+        Set<String> excludes = new HashSet<>(excludedPropertyKeys);
+        GraphDatabaseAPI api = (GraphDatabaseAPI) db;
+        // the batch jobs run in their own transactions and would not see the changes of this one
+        if (hasChanges(api)) {
+            GraphFingerprint fingerprint = new GraphFingerprint(algorithm.newHasher(), excludes, partitions);
+            db.getAllNodes().forEach(fingerprint::addNode);
+            db.getAllRelationships().forEach(fingerprint::addRelationship);
+            return fingerprint;
+        }
+
+        // each batch job runs in its own transaction, so it hashes into its own fingerprint
+        Map<KernelTransaction, GraphFingerprint> results = new ConcurrentHashMap<>();
+        Function<KernelTransaction, GraphFingerprint> local = ktx -> results.computeIfAbsent(ktx, k -> new GraphFingerprint(algorithm.newHasher(), excludes, partitions));
+
+        MultiThreadedGlobalGraphOperations.BatchJobResult nodes = MultiThreadedGlobalGraphOperations.forAllNodes(api, Pools.DEFAULT, BATCH_SIZE,
+                (ktx, nodeCursor) -> local.apply(ktx).addNode(api.getNodeById(nodeCursor.nodeReference())));
+        checkBatchJobs(nodes, "nodes");
+        MultiThreadedGlobalGraphOperations.BatchJobResult rels = MultiThreadedGlobalGraphOperations.forAllRelationships(api, Pools.DEFAULT, BATCH_SIZE,
+                (ktx, relCursor) -> local.apply(ktx).addRelationship(api.getRelationshipById(relCursor.relationshipReference())));
+        checkBatchJobs(rels, "relationships");
+
+        GraphFingerprint total = new GraphFingerprint(null, excludes, partitions);
+        results.values().forEach(total::merge);
+        return total;
+    }
 
-        public EndNodeRelationshipHashTuple(String endNodeHash, String relationshipHash) {
-            this.endNodeHash = endNodeHash;
-            this.relationshipHash = relationshipHash;
+    /**
+     * Fails on entities that could not be hashed, and on batch jobs that did not complete, whose ids are missing from all counts.
+     */
+    private static void checkBatchJobs(MultiThreadedGlobalGraphOperations.BatchJobResult result, String entities) {
+        if (result.getFailures() > 0) {
+            throw new RuntimeException(String.format("Failed to fingerprint %d %s", result.getFailures(), entities));
         }
+        long visited = result.getSucceeded() + result.getMissing();
+        if (visited < (long) result.getBatches() * BATCH_SIZE) {
+            throw new RuntimeException(String.format("Failed to fingerprint %s, only %d of %d batches completed", entities, visited / BATCH_SIZE, result.getBatches()));
+        }
+    }
 
-        @Override
-        public int compareTo(Object o) {
-            EndNodeRelationshipHashTuple other = (EndNodeRelationshipHashTuple) o;
-            int res = endNodeHash.compareTo(other.endNodeHash);
-            if (res == 0) {
-                res = relationshipHash.compareTo(other.relationshipHash);
-            }
-            return res;
+    private static boolean hasChanges(GraphDatabaseAPI api) {
+        KernelTransaction ktx = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        return ktx instanceof TxStateHolder && ((TxStateHolder) ktx).hasTxStateWithChanges();
+    }
+
+    static class Fingerprint128 {
+        long high;
+        long low;
+        long count;
+
+        void add(byte[] digest) {
+            add(toLong(digest, 0), toLong(digest, 8), 1);
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
+        void add(Fingerprint128 other) {
+            add(other.high, other.low, other.count);
+        }
 
-            EndNodeRelationshipHashTuple that = (EndNodeRelationshipHashTuple) o;
+        private void add(long high, long low, long count) {
+            long sum = this.low + low;
+            long carry = Long.compareUnsigned(sum, this.low) < 0 ? 1 : 0;
+            this.low = sum;
+            this.high += high + carry;
+            this.count += count;
+        }
 
-            if (endNodeHash != null ? !endNodeHash.equals(that.endNodeHash) : that.endNodeHash != null) return false;
-            return relationshipHash != null ? relationshipHash.equals(that.relationshipHash) : that.relationshipHash == null;
+        byte[] toBytes() {
+            byte[] result = new byte[24];
+            putLong(result, 0, high);
+            putLong(result, 8, low);
+            putLong(result, 16, count);
+            return result;
+        }
+
+        String toHex() {
+            return DatatypeConverter.printHexBinary(Arrays.copyOf(toBytes(), 16));
         }
 
-        @Override
-        public int hashCode() {
-            int result = endNodeHash != null ? endNodeHash.hashCode() : 0;
-            result = 31 * result + (relationshipHash != null ? relationshipHash.hashCode() : 0);
+        private static long toLong(byte[] bytes, int offset) {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (bytes[offset + i] & 0xff);
+            }
             return result;
         }
 
-        public String getEndNodeHash() {
-            return endNodeHash;
+        private static void putLong(byte[] bytes, int offset, long value) {
+            for (int i = 7; i >= 0; i--) {
+                bytes[offset + i] = (byte) value;
+                value >>>= 8;
+            }
+        }
+    }
+
+    private static final byte[] SEPARATOR = new byte[]{0};
+
+    static class GraphFingerprint {
+        private final HashAlgorithm.Hasher hasher;
+        private final Set<String> excludes;
+        private final boolean partitions;
+        final Fingerprint128 nodes = new Fingerprint128();
+        final Fingerprint128 relationships = new Fingerprint128();
+        final Map<String, Fingerprint128> labels = new TreeMap<>();
+        final Map<String, Fingerprint128> types = new TreeMap<>();
+
+        GraphFingerprint(HashAlgorithm.Hasher hasher, Set<String> excludes, boolean partitions) {
+            this.hasher = hasher;
+            this.excludes = excludes;
+            this.partitions = partitions;
+        }
+
+        void addNode(Node node) {
+            byte[] digest = hashNode(node);
+            nodes.add(digest);
+            if (partitions) {
+                for (Label label : node.getLabels()) {
+                    labels.computeIfAbsent(label.name(), l -> new Fingerprint128()).add(digest);
+                }
+            }
+        }
+
+        void addRelationship(Relationship rel) {
+            byte[] start = hashNode(rel.getStartNode());
+            byte[] end = hashNode(rel.getEndNode());
+            hasher.update(start);
+            hasher.update(rel.getType().name().getBytes());
+            hasher.update(SEPARATOR);
+            hashProperties(rel);
+            hasher.update(end);
+            byte[] digest = hasher.digest();
+            relationships.add(digest);
+            if (partitions) {
+                types.computeIfAbsent(rel.getType().name(), t -> new Fingerprint128()).add(digest);
+            }
+        }
+
+        private byte[] hashNode(Node node) {
+            StreamSupport.stream(node.getLabels().spliterator(), false)
+                    .map(Label::name)
+                    .sorted()
+                    .forEach(label -> {
+                        hasher.update(label.getBytes());
+                        hasher.update(SEPARATOR);
+                    });
+            hasher.update(SEPARATOR);
+            hashProperties(node);
+            return hasher.digest();
+        }
+
+        private void hashProperties(PropertyContainer pc) {
+            new TreeMap<>(pc.getAllProperties()).forEach((key, value) -> {
+                if (excludes.contains(key)) return;
+                hasher.update(key.getBytes());
+                hasher.update(SEPARATOR);
+                hasher.update(convertValueToString(value).getBytes());
+                hasher.update(SEPARATOR);
+            });
+        }
+
+        void merge(GraphFingerprint other) {
+            nodes.add(other.nodes);
+            relationships.add(other.relationships);
+            other.labels.forEach((label, fp) -> labels.computeIfAbsent(label, l -> new Fingerprint128()).add(fp));
+            other.types.forEach((type, fp) -> types.computeIfAbsent(type, t -> new Fingerprint128()).add(fp));
         }
 
-        public String getRelationshipHash() {
-            return relationshipHash;
+        String total(HashAlgorithm algorithm) {
+            HashAlgorithm.Hasher hasher = algorithm.newHasher();
+            hasher.update(nodes.toBytes());
+            hasher.update(relationships.toBytes());
+            return DatatypeConverter.printHexBinary(hasher.digest());
         }
     }
 
@@ -171,7 +306,7 @@ public class Fingerprinting {
         }
     }
 
-    private String convertValueToString(Object value) {
+    private static String convertValueToString(Object value) {
         if (value.getClass().isArray()) {
             return nativeArrayToString(value);
         } else {
@@ -179,7 +314,7 @@ public class Fingerprinting {
         }
     }
 
-    private String nativeArrayToString(Object value) {
+    private static String nativeArrayToString(Object value) {
         StringBuilder sb = new StringBuilder();
         if (value instanceof String[]) {
             for (String s : (String[]) value) {
@@ -0,0 +1,181 @@
+package apoc.hashing;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 128 bit hash functions used for graph fingerprints.
+ * MD5 is the default for compatibility, MURMUR3 (x64, 128 bit) is a much faster non-cryptographic alternative.
+ */
+public enum HashAlgorithm {
+    MD5 {
+        @Override
+        public Hasher newHasher() {
+            try {
+                MessageDigest md = MessageDigest.getInstance("MD5");
+                return new Hasher() {
+                    @Override
+                    public void update(byte[] value) {
+                        md.update(value);
+                    }
+
+                    @Override
+                    public byte[] digest() {
+                        return md.digest();
+                    }
+                };
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    },
+    MURMUR3 {
+        @Override
+        public Hasher newHasher() {
+            return new Murmur3Hasher();
+        }
+    };
+
+    public abstract Hasher newHasher();
+
+    public static HashAlgorithm from(Object name) {
+        if (name == null) return MD5;
+        return valueOf(name.toString().toUpperCase());
+    }
+
+    /**
+     * not thread safe, each thread has to use its own instance. {@link #digest()} resets the hasher.
+     */
+    public interface Hasher {
+        void update(byte[] value);
+
+        /**
+         * @return the 16 byte digest of all updates since the last call
+         */
+        byte[] digest();
+    }
+
+    static class Murmur3Hasher implements Hasher {
+        private byte[] buffer = new byte[256];
+        private int length;
+
+        @Override
+        public void update(byte[] value) {
+            if (length + value.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + value.length));
+            }
+            System.arraycopy(value, 0, buffer, length, value.length);
+            length += value.length;
+        }
+
+        @Override
+        public byte[] digest() {
+            long[] hash = murmur3_128(buffer, length, 0);
+            length = 0;
+            byte[] result = new byte[16];
+            putLong(result, 0, hash[0]);
+            putLong(result, 8, hash[1]);
+            return result;
+        }
+    }
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * MurmurHash3_x64_128 by Austin Appleby (public domain)
+     */
+    static long[] murmur3_128(byte[] data, int length, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int blocks = length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        switch (length & 15) {
+            case 15: k2 ^= ((long) data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= ((long) data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= ((long) data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= ((long) data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= ((long) data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= ((long) data[tail + 9] & 0xff) << 8;
+            case 9:  k2 ^= ((long) data[tail + 8] & 0xff);
+                h2 ^= mixK2(k2);
+            case 8:  k1 ^= ((long) data[tail + 7] & 0xff) << 56;
+            case 7:  k1 ^= ((long) data[tail + 6] & 0xff) << 48;
+            case 6:  k1 ^= ((long) data[tail + 5] & 0xff) << 40;
+            case 5:  k1 ^= ((long) data[tail + 4] & 0xff) << 32;
+            case 4:  k1 ^= ((long) data[tail + 3] & 0xff) << 24;
+            case 3:  k1 ^= ((long) data[tail + 2] & 0xff) << 16;
+            case 2:  k1 ^= ((long) data[tail + 1] & 0xff) << 8;
+            case 1:  k1 ^= ((long) data[tail] & 0xff);
+                h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return ((long) data[offset] & 0xff)
+                | ((long) data[offset + 1] & 0xff) << 8
+                | ((long) data[offset + 2] & 0xff) << 16
+                | ((long) data[offset + 3] & 0xff) << 24
+                | ((long) data[offset + 4] & 0xff) << 32
+                | ((long) data[offset + 5] & 0xff) << 40
+                | ((long) data[offset + 6] & 0xff) << 48
+                | ((long) data[offset + 7] & 0xff) << 56;
+    }
+
+    private static void putLong(byte[] data, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            data[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+}
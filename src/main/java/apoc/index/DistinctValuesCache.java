@@ -0,0 +1,133 @@
+package apoc.index;
+
+import apoc.ApocConfiguration;
+import apoc.util.Util;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.graphdb.Node;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+import org.neo4j.values.storable.Value;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the distinct values and counts of the schema indexes, used by apoc.schema.properties.distinct and
+ * distinctCount. The values of a label and property key are dropped when a transaction that changed this property
+ * or label on any node commits. Only indexes with up to {@link #MAX_VALUES} distinct values are cached.
+ */
+public class DistinctValuesCache extends TransactionEventHandler.Adapter<Void> {
+
+    static final int MAX_VALUES = 10_000;
+
+    private final Map<LabelKey, Entry> entries = new ConcurrentHashMap<>();
+    // incremented on every commit that changed node labels or properties, values enumerated while it changed aren't cached
+    private final AtomicLong generation = new AtomicLong();
+
+    Entry get(String label, String key) {
+        return entries.get(new LabelKey(label, key));
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    void put(String label, String key, Value[] values, long[] counts, long generation) {
+        Entry entry = new Entry(values, counts);
+        LabelKey labelKey = new LabelKey(label, key);
+        entries.put(labelKey, entry);
+        // an update committed while the values were enumerated could already have invalidated them
+        if (this.generation.get() != generation) {
+            entries.remove(labelKey, entry);
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Void state) {
+        if (!hasNodeChanges(data)) return;
+        // before looking at the entries, so that values put concurrently are either removed here or by put
+        generation.incrementAndGet();
+        if (entries.isEmpty()) return;
+        Set<String> labels = new HashSet<>();
+        Set<String> keys = new HashSet<>();
+        for (LabelEntry entry : data.assignedLabels()) labels.add(entry.label().name());
+        for (LabelEntry entry : data.removedLabels()) labels.add(entry.label().name());
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) keys.add(entry.key());
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) keys.add(entry.key());
+        entries.keySet().removeIf(labelKey -> labels.contains(labelKey.label) || keys.contains(labelKey.key));
+    }
+
+    private static boolean hasNodeChanges(TransactionData data) {
+        return data.assignedLabels().iterator().hasNext() || data.removedLabels().iterator().hasNext()
+                || data.assignedNodeProperties().iterator().hasNext() || data.removedNodeProperties().iterator().hasNext();
+    }
+
+    static class Entry {
+        final Value[] values;
+        final long[] counts;
+
+        Entry(Value[] values, long[] counts) {
+            this.values = values;
+            this.counts = counts;
+        }
+    }
+
+    private static class LabelKey {
+        private final String label, key;
+
+        LabelKey(String label, String key) {
+            this.label = label;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LabelKey that = (LabelKey) o;
+            return label.equals(that.label) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * label.hashCode() + key.hashCode();
+        }
+    }
+
+    public static class LifeCycle {
+        private final GraphDatabaseAPI db;
+        private final Log log;
+        private DistinctValuesCache cache;
+
+        public LifeCycle(GraphDatabaseAPI db, Log log) {
+            this.db = db;
+            this.log = log;
+        }
+
+        public void start() {
+            boolean enabled = Util.toBoolean(ApocConfiguration.get("schema.distinct.cache.enabled", null));
+            if (!enabled) {
+                return;
+            }
+            cache = new DistinctValuesCache();
+            db.registerTransactionEventHandler(cache);
+            log.info("caching distinct values of schema indexes");
+        }
+
+        public void stop() {
+            if (cache == null) return;
+            db.unregisterTransactionEventHandler(cache);
+            cache = null;
+        }
+
+        public DistinctValuesCache getCache() {
+            return cache;
+        }
+    }
+}
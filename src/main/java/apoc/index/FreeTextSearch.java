@@ -19,13 +19,27 @@ import org.neo4j.index.impl.lucene.explicit.LuceneDataSource;
 import org.neo4j.index.impl.lucene.explicit.LuceneIndexImplementation;
 import org.neo4j.index.lucene.QueryContext;
 import org.neo4j.index.lucene.ValueContext;
+import org.neo4j.internal.kernel.api.LabelSet;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.Read;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.impl.store.id.IdGeneratorFactory;
+import org.neo4j.kernel.impl.store.id.IdType;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 import org.neo4j.scheduler.JobScheduler;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -63,10 +77,45 @@ public class FreeTextSearch {
             throw new IllegalArgumentException("No structure given.");
         }
         return async(executor(), "Creating index '" + index + "'", result -> {
-            populate(index(index, structure, options ), structure, result);
+            populate(index, index(index, structure, options ), structure, result);
         });
     }
 
+    public static class PopulationStatus {
+        public final String name;
+        public final String state;
+        public final long threads;
+        public final long partitions;
+        public final long completedPartitions;
+        public final long scannedNodes;
+        public final long indexedNodes;
+        public final long elapsedMillis;
+        public final String error;
+
+        private PopulationStatus(Population population) {
+            this.name = population.name;
+            this.state = population.state;
+            this.threads = population.threads;
+            this.partitions = population.partitions;
+            this.completedPartitions = population.completedPartitions.get();
+            this.scannedNodes = population.scannedNodes.get();
+            this.indexedNodes = population.indexedNodes.get();
+            this.elapsedMillis = (population.finished == 0 ? System.currentTimeMillis() : population.finished) - population.started;
+            this.error = population.error;
+        }
+    }
+
+    /**
+     * Progress of the running and of the last finished population of each free text search index.
+     *
+     * @return a stream with one element per index that was populated since the database started.
+     */
+    @Procedure(name = "apoc.index.addAllNodes.status", mode = Mode.READ)
+    @Description("apoc.index.addAllNodes.status() YIELD name, state, threads, partitions, completedPartitions, scannedNodes, indexedNodes, elapsedMillis, error - progress of the free text search index populations")
+    public Stream<PopulationStatus> addAllNodesStatus() {
+        return populations(db).values().stream().map(PopulationStatus::new);
+    }
+
     /**
      * Create (or recreate) a free text search index.
      * <p>
@@ -112,6 +161,15 @@ public class FreeTextSearch {
         return toWeightedNodeResult(db.index().forNodes(index).query(queryParam));    
     }
 
+    @Procedure(name = "apoc.index.autoUpdate.status", mode = Mode.READ)
+    @Description("apoc.index.autoUpdate.status() YIELD enabled, async, queueSize, pendingUpdates, appliedUpdates, coalescedUpdates, lagMillis, updatesPerSecond, ... - queue depth, lag and throughput of the automatic index updates")
+    public Stream<IndexUpdateTransactionEventHandler.Status> autoUpdateStatus() {
+        ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = db.getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
+        IndexUpdateTransactionEventHandler handler = apocLifecycle == null || apocLifecycle.getIndexUpdateLifeCycle() == null ? null
+                : apocLifecycle.getIndexUpdateLifeCycle().getIndexUpdateTransactionEventHandler();
+        return Stream.of(handler == null ? IndexUpdateTransactionEventHandler.Status.disabled() : handler.getStatus());
+    }
+
     private Stream<WeightedNodeResult> toWeightedNodeResult(IndexHits<Node> hits) {
         List<WeightedNodeResult> results = new ArrayList<>(hits.size());
         while (hits.hasNext()) {
@@ -137,6 +195,9 @@ public class FreeTextSearch {
 
     private static final Map<String, String> CONFIG = LuceneIndexImplementation.FULLTEXT_CONFIG;
     static final String KEY = "search";
+    static final int PARTITION_SIZE = 50_000;
+    // per database, so the populations of a database that was shut down are dropped with it
+    private static final Map<GraphDatabaseAPI, Map<String, Population>> POPULATIONS = Collections.synchronizedMap(new WeakHashMap<>());
     private static final JobScheduler.Group GROUP = new JobScheduler.Group(FreeTextSearch.class.getSimpleName());
 
     private static Stream<WeightedNodeResult> result(IndexHits<Node> hits) {
@@ -155,43 +216,117 @@ public class FreeTextSearch {
         }, 0), false);
     }
 
-    private void populate(Index<Node> index, Map<String, List<String>> config, Consumer<IndexStats> result) {
+    private static Map<String, Population> populations(GraphDatabaseAPI db) {
+        return POPULATIONS.computeIfAbsent(db, x -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Populates the index from all nodes. The node id range is split into partitions of {@link #PARTITION_SIZE}
+     * ids, which are taken by the current thread and the workers of a pool of this population, each partition is
+     * indexed and committed in its own transaction, the per label and property counts of the workers are merged at
+     * the end. The population already runs on the default pool, so it does not wait for workers queued behind it there.
+     */
+    private void populate(String name, Index<Node> index, Map<String, List<String>> config, Consumer<IndexStats> result) {
         Map<String, String[]> structure = convertStructure(config);
+        long highId = db.getDependencyResolver().resolveDependency(IdGeneratorFactory.class).get(IdType.NODE).getHighId();
+        long partitions = (highId + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        int threads = (int) Math.max(1, Math.min(partitions, Pools.DEFAULT_POOL_THREADS / 2));
+        Population population = new Population(name, threads, partitions);
+        populations(db).put(name, population);
+
+        AtomicLong nextPartition = new AtomicLong();
+        List<Future<Map<LabelProperty, Counter>>> futures = new ArrayList<>();
         Map<LabelProperty, Counter> stats = new HashMap<>();
-        Transaction tx = db.beginTx();
+        // the current thread is one of the workers
+        ExecutorService workers = threads > 1 ? Executors.newFixedThreadPool(threads - 1) : null;
         try {
-            int batch = 0;
-            for (Node node : db.getAllNodes()) {
-                boolean indexed = false;
-                for (Label label : node.getLabels()) {
-                    String[] keys = structure.get(label.name());
-                    if (keys == null) continue;
-                    indexed = true;
-                    Map<String, Object> properties = keys.length == 0 ? node.getAllProperties() : node.getProperties(keys);
-                    for (Map.Entry<String, Object> entry : properties.entrySet()) {
-                        Object value = entry.getValue();
-                        index.add(node, KEY, value.toString());
-                        if (value instanceof Number) {
-                            value = ValueContext.numeric(((Number) value).doubleValue());
+            for (int i = 1; i < threads; i++) {
+                futures.add(workers.submit(() -> populatePartitions(index, structure, highId, nextPartition, population)));
+            }
+            merge(stats, populatePartitions(index, structure, highId, nextPartition, population));
+            for (Future<Map<LabelProperty, Counter>> future : futures) {
+                merge(stats, future.get());
+            }
+            population.finish("DONE", null);
+        } catch (Exception e) {
+            // the other workers don't take any more partitions
+            nextPartition.set(partitions);
+            population.finish("FAILED", e.getMessage());
+            throw new RuntimeException("Error populating index '" + name + "': " + e.getMessage(), e);
+        } finally {
+            if (workers != null) workers.shutdown();
+        }
+        stats.forEach((key,counter) -> result.accept(key.stats(counter)));
+    }
+
+    private Map<LabelProperty, Counter> populatePartitions(Index<Node> index, Map<String, String[]> structure, long highId, AtomicLong nextPartition, Population population) {
+        Map<LabelProperty, Counter> stats = new HashMap<>();
+        ThreadToStatementContextBridge bridge = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        long partition;
+        while ((partition = nextPartition.getAndIncrement()) < population.partitions) {
+            long from = partition * PARTITION_SIZE;
+            long to = Math.min(from + PARTITION_SIZE, highId);
+            long scanned = 0;
+            long indexed = 0;
+            try (Transaction tx = db.beginTx()) {
+                KernelTransaction ktx = bridge.getKernelTransactionBoundToThisThread(true);
+                try (Statement ignore = ktx.acquireStatement();
+                     NodeCursor cursor = ktx.cursors().allocateNodeCursor()) {
+                    int[] labels = labelTokens(ktx.tokenRead(), structure);
+                    Read read = ktx.dataRead();
+                    for (long id = from; id < to; id++) {
+                        read.singleNode(id, cursor);
+                        if (!cursor.next()) continue;
+                        scanned++;
+                        // only nodes with one of the indexed labels are loaded
+                        if (hasAnyLabel(cursor, labels) && index(index, structure, db.getNodeById(id), stats)) {
+                            indexed++;
                         }
-                        index.add(node, label.name() + "." + entry.getKey(), value);
-                        stats.computeIfAbsent(new LabelProperty(label.name(), entry.getKey()), x -> new Counter()).count++;
                     }
                 }
-                if (indexed) {
-                    if (++batch == 50_000) {
-                        batch = 0;
-                        tx.success();
-                        tx.close();
-                        tx = db.beginTx();
-                    }
+                tx.success();
+            }
+            population.completedPartitions.incrementAndGet();
+            population.scannedNodes.addAndGet(scanned);
+            population.indexedNodes.addAndGet(indexed);
+        }
+        return stats;
+    }
+
+    private boolean index(Index<Node> index, Map<String, String[]> structure, Node node, Map<LabelProperty, Counter> stats) {
+        boolean indexed = false;
+        for (Label label : node.getLabels()) {
+            String[] keys = structure.get(label.name());
+            if (keys == null) continue;
+            indexed = true;
+            Map<String, Object> properties = keys.length == 0 ? node.getAllProperties() : node.getProperties(keys);
+            for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                Object value = entry.getValue();
+                index.add(node, KEY, value.toString());
+                if (value instanceof Number) {
+                    value = ValueContext.numeric(((Number) value).doubleValue());
                 }
+                index.add(node, label.name() + "." + entry.getKey(), value);
+                stats.computeIfAbsent(new LabelProperty(label.name(), entry.getKey()), x -> new Counter()).count++;
             }
-            tx.success();
-        } finally {
-            tx.close();
         }
-        stats.forEach((key,counter) -> result.accept(key.stats(counter)));
+        return indexed;
+    }
+
+    private static int[] labelTokens(TokenRead tokenRead, Map<String, String[]> structure) {
+        return structure.keySet().stream().mapToInt(tokenRead::nodeLabel).filter(token -> token != TokenRead.NO_TOKEN).toArray();
+    }
+
+    private static boolean hasAnyLabel(NodeCursor cursor, int[] labels) {
+        LabelSet labelSet = cursor.labels();
+        for (int label : labels) {
+            if (labelSet.contains(label)) return true;
+        }
+        return false;
+    }
+
+    private static void merge(Map<LabelProperty, Counter> stats, Map<LabelProperty, Counter> other) {
+        other.forEach((key, counter) -> stats.computeIfAbsent(key, x -> new Counter()).count += counter.count);
     }
 
     private Map<String, String[]> convertStructure(Map<String, List<String>> config) {
@@ -325,4 +460,29 @@ public class FreeTextSearch {
     private static class Counter {
         long count;
     }
+
+    private static class Population {
+        private final String name;
+        private final int threads;
+        private final long partitions;
+        private final long started = System.currentTimeMillis();
+        private final AtomicLong completedPartitions = new AtomicLong();
+        private final AtomicLong scannedNodes = new AtomicLong();
+        private final AtomicLong indexedNodes = new AtomicLong();
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile long finished;
+
+        Population(String name, int threads, long partitions) {
+            this.name = name;
+            this.threads = threads;
+            this.partitions = partitions;
+        }
+
+        void finish(String state, String error) {
+            this.error = error;
+            this.finished = System.currentTimeMillis();
+            this.state = state;
+        }
+    }
 }
@@ -21,7 +21,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -30,36 +30,239 @@ import static org.neo4j.helpers.collection.Iterables.stream;
 /**
  * a transaction event handler that updates manual indexes based on configuration in graph properties
  * based on configuration the updates are process synchronously via {@link #beforeCommit(TransactionData)} or async via
- * {@link #afterCommit(TransactionData, Collection<Consumer<Void>)}
+ * {@link #afterCommit(TransactionData, Collection<IndexUpdate>)}
+ * in async mode the updates are applied in batches, within a batch an update that replaces or removes the value of a
+ * node for an index key supersedes the earlier updates of the same key
  * @author Stefan Armbruster
  */
-public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.Adapter<Collection<Consumer<Void>>> {
+public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.Adapter<Collection<IndexUpdateTransactionEventHandler.IndexUpdate>> {
 
     private final GraphDatabaseService graphDatabaseService;
     private final boolean async;
 
-    private final BlockingQueue<Consumer<Void>> indexCommandQueue;
+    private final BlockingQueue<IndexUpdate> indexCommandQueue;
+    private final int queueCapacity;
     private final boolean stopWatchEnabled;
     private final Log log;
+    private final Stats stats = new Stats();
     private Map<String, Map<String, Collection<Index<Node>>>> indexesByLabelAndProperty;
     private ScheduledFuture<?> configUpdateFuture = null;
 
     // "magic" command for queue to perform a tx rollover
-    private static boolean forceTxRolloverFlag = false;
-    private static final Consumer<Void> FORCE_TX_ROLLOVER = aVoid -> forceTxRolloverFlag = true;
+    private static volatile boolean forceTxRolloverFlag = false;
+    private static final IndexUpdate FORCE_TX_ROLLOVER = new IndexUpdate(null, null, null, null, null);
 
     public IndexUpdateTransactionEventHandler(GraphDatabaseAPI graphDatabaseService, Log log, boolean async, int queueCapacity, boolean stopWatchEnabled) {
         this.graphDatabaseService = graphDatabaseService;
         this.log = log;
         this.async = async;
+        this.queueCapacity = queueCapacity;
         this.stopWatchEnabled = stopWatchEnabled;
         this.indexCommandQueue = async ? new LinkedBlockingQueue<>(queueCapacity) : null;
     }
 
-    public BlockingQueue<Consumer<Void>> getIndexCommandQueue() {
+    public BlockingQueue<IndexUpdate> getIndexCommandQueue() {
         return indexCommandQueue;
     }
 
+    enum UpdateType {
+        // adds the value
+        ADD,
+        // removes the previous values of the key and adds the value
+        REPLACE,
+        // removes the values of the key
+        REMOVE,
+        // removes the node from the index
+        REMOVE_NODE
+    }
+
+    /**
+     * a single change of a node in an index, the index key is null when the whole node is removed
+     */
+    public static class IndexUpdate {
+        final Index<Node> index;
+        final Node node;
+        final String key;
+        final Object value;
+        final UpdateType type;
+        long enqueued;
+
+        IndexUpdate(Index<Node> index, Node node, String key, Object value, UpdateType type) {
+            this.index = index;
+            this.node = node;
+            this.key = key;
+            this.value = value;
+            this.type = type;
+        }
+
+        void apply() {
+            switch (type) {
+                case REPLACE:
+                    index.remove(node, key);
+                    index.remove(node, FreeTextSearch.KEY);
+                    // fall through
+                case ADD:
+                    index.add(node, key, value);
+                    index.add(node, FreeTextSearch.KEY, value);
+                    break;
+                case REMOVE:
+                    index.remove(node, key);
+                    index.remove(node, FreeTextSearch.KEY);
+                    break;
+                case REMOVE_NODE:
+                    index.remove(node);
+                    break;
+            }
+        }
+
+        /**
+         * @return true if applying this update makes the earlier updates of the same index, node and key irrelevant,
+         * as it removes both the values of the key and the free text values of the node
+         */
+        boolean supersedesEarlierUpdates() {
+            return type != UpdateType.ADD;
+        }
+    }
+
+    /**
+     * the updates of one batch in the order they arrived, superseded updates are replaced by null
+     */
+    static class Batch {
+        private final boolean coalesce;
+        private final List<IndexUpdate> updates = new ArrayList<>();
+        // positions of the updates that weren't superseded yet by index name, node id and index key
+        private final Map<String, Map<Long, Map<String, List<Integer>>>> positions = new HashMap<>();
+        int coalesced;
+
+        Batch(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+
+        void add(IndexUpdate update) {
+            if (coalesce) {
+                Map<String, List<Integer>> keys = positions.computeIfAbsent(update.index.getName(), name -> new HashMap<>())
+                        .computeIfAbsent(update.node.getId(), id -> new HashMap<>());
+                if (update.type == UpdateType.REMOVE_NODE) {
+                    keys.values().forEach(this::supersede);
+                    keys.clear();
+                } else if (update.supersedesEarlierUpdates()) {
+                    List<Integer> earlier = keys.get(update.key);
+                    if (earlier != null) {
+                        supersede(earlier);
+                        earlier.clear();
+                    }
+                }
+                keys.computeIfAbsent(update.key, key -> new ArrayList<>()).add(updates.size());
+            }
+            updates.add(update);
+        }
+
+        private void supersede(List<Integer> positions) {
+            positions.forEach(this::supersede);
+        }
+
+        private void supersede(int position) {
+            if (updates.set(position, null) != null) coalesced++;
+        }
+
+        int size() {
+            return updates.size();
+        }
+
+        boolean isEmpty() {
+            return updates.isEmpty();
+        }
+
+        long oldest() {
+            for (IndexUpdate update : updates) {
+                if (update != null) return update.enqueued;
+            }
+            return 0;
+        }
+
+        int apply() {
+            int applied = 0;
+            for (IndexUpdate update : updates) {
+                if (update != null) {
+                    update.apply();
+                    applied++;
+                }
+            }
+            return applied;
+        }
+
+        void clear() {
+            updates.clear();
+            positions.clear();
+            coalesced = 0;
+        }
+    }
+
+    /**
+     * counters of the async index updates, updated by the background thread
+     */
+    static class Stats {
+        final AtomicLong enqueued = new AtomicLong();
+        final AtomicLong applied = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+        final AtomicLong applyMillis = new AtomicLong();
+        volatile long pending;
+        volatile long pendingSince;
+        volatile long lastBatchSize;
+        volatile long lastBatchMillis;
+        volatile long lastBatchLagMillis;
+    }
+
+    public static class Status {
+        public boolean enabled;
+        public boolean async;
+        public long queueSize;
+        public long queueCapacity;
+        public long pendingUpdates;
+        public long enqueuedUpdates;
+        public long appliedUpdates;
+        public long coalescedUpdates;
+        public long batches;
+        public long lagMillis;
+        public long lastBatchSize;
+        public long lastBatchMillis;
+        public long lastBatchLagMillis;
+        public double updatesPerSecond;
+
+        public static Status disabled() {
+            return new Status();
+        }
+    }
+
+    public Status getStatus() {
+        Status status = new Status();
+        status.enabled = true;
+        status.async = async;
+        if (!async) return status;
+        long now = System.currentTimeMillis();
+        status.queueSize = indexCommandQueue.size();
+        status.queueCapacity = queueCapacity;
+        status.pendingUpdates = stats.pending;
+        status.enqueuedUpdates = stats.enqueued.get();
+        status.appliedUpdates = stats.applied.get();
+        status.coalescedUpdates = stats.coalesced.get();
+        status.batches = stats.batches.get();
+        long pendingSince = stats.pendingSince;
+        IndexUpdate head = indexCommandQueue.peek();
+        if (pendingSince > 0) {
+            status.lagMillis = now - pendingSince;
+        } else if (head != null && head != FORCE_TX_ROLLOVER) {
+            status.lagMillis = now - head.enqueued;
+        }
+        status.lastBatchSize = stats.lastBatchSize;
+        status.lastBatchMillis = stats.lastBatchMillis;
+        status.lastBatchLagMillis = stats.lastBatchLagMillis;
+        long applyMillis = stats.applyMillis.get();
+        status.updatesPerSecond = applyMillis == 0 ? 0 : (stats.applied.get() + stats.coalesced.get()) * 1000d / applyMillis;
+        return status;
+    }
+
     @FunctionalInterface
     interface IndexFunction<A, B, C, D, E> {
         void apply (A a, B b, C c, D d, E e);
@@ -82,56 +285,45 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
     }
 
     @Override
-    public Collection<Consumer<Void>> beforeCommit(TransactionData data) throws Exception {
+    public Collection<IndexUpdate> beforeCommit(TransactionData data) throws Exception {
 
         return logDuration("beforeCommit", () -> {
             getIndexesByLabelAndProperty();
-            Collection<Consumer<Void>> state = async ? new LinkedList<>() : null;
+            Collection<IndexUpdate> state = async ? new ArrayList<>() : null;
 
-            iterateNodePropertyChange(stream(data.assignedNodeProperties()),false, (index, node, key, value, oldValue) -> indexUpdate(state, aVoid -> {
-                if (oldValue != null) {
-                    index.remove(node, key);
-                    index.remove(node, FreeTextSearch.KEY);
-                }
-                index.add(node, key, value);
-                index.add(node, FreeTextSearch.KEY, value);
-            }));
+            iterateNodePropertyChange(stream(data.assignedNodeProperties()),false, (index, node, key, value, oldValue) ->
+                    indexUpdate(state, new IndexUpdate(index, node, key, value, oldValue != null ? UpdateType.REPLACE : UpdateType.ADD)));
 
             // filter out removedNodeProperties from node deletions
-            iterateNodePropertyChange(stream(data.removedNodeProperties()).filter(nodePropertyEntry -> !data.isDeleted(nodePropertyEntry.entity())), true, (index, node, key, value, oldValue) -> indexUpdate(state, aVoid -> {
-                index.remove(node, key);
-                index.remove(node, FreeTextSearch.KEY);
-            }));
+            iterateNodePropertyChange(stream(data.removedNodeProperties()).filter(nodePropertyEntry -> !data.isDeleted(nodePropertyEntry.entity())), true, (index, node, key, value, oldValue) ->
+                    indexUpdate(state, new IndexUpdate(index, node, key, null, UpdateType.REMOVE)));
 
             // performance tweak: converted created nodes to a set, so we can apply `contains` on it fast
             final Set<Node> createdNodes = Iterables.asSet(data.createdNodes());
             iterateLabelChanges(
                     stream(data.assignedLabels()).filter( labelEntry -> !createdNodes.contains( labelEntry.node() ) ),
-                    (index, node, key, value, ignore) -> indexUpdate(state, aVoid -> {
-                        index.add(node, key, value);
-                        index.add(node, FreeTextSearch.KEY, value);
-                    }));
+                    (index, node, key, value, ignore) -> indexUpdate(state, new IndexUpdate(index, node, key, value, UpdateType.ADD)));
 
             iterateLabelChanges(
                     stream(data.removedLabels()).filter( labelEntry -> !data.isDeleted(labelEntry.node()) ),
-                    (index, node, key, value, ignore) -> indexUpdate(state, aVoid -> {
-                        index.remove(node, key);
-                        index.remove(node, FreeTextSearch.KEY);
-                    }));
+                    (index, node, key, value, ignore) -> indexUpdate(state, new IndexUpdate(index, node, key, null, UpdateType.REMOVE)));
 
             iterateNodeDeletions(stream(data.removedLabels()).filter( labelEntry -> data.isDeleted(labelEntry.node())),
-                    (nodeIndex, node, void1, void2, void3) -> indexUpdate(state, aVoid -> nodeIndex.remove(node)));
+                    (nodeIndex, node, void1, void2, void3) -> indexUpdate(state, new IndexUpdate(nodeIndex, node, null, null, UpdateType.REMOVE_NODE)));
             return state;
         });
     }
 
     @Override
-    public void afterCommit(TransactionData data, Collection<Consumer<Void>> state) {
+    public void afterCommit(TransactionData data, Collection<IndexUpdate> state) {
         logDuration("afterCommit", () -> {
             if (async) {
-                for (Consumer<Void> consumer: state) {
+                long now = System.currentTimeMillis();
+                for (IndexUpdate update: state) {
                     try {
-                        indexCommandQueue.put(consumer);
+                        update.enqueued = now;
+                        indexCommandQueue.put(update);
+                        stats.enqueued.incrementAndGet();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
                     }
@@ -197,13 +389,13 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
     }
 
     /**
-     * in async mode add the index action to a collection for consumption in {@link #afterCommit(TransactionData, Collection)}, in sync mode, run it directly
+     * in async mode add the index update to a collection for consumption in {@link #afterCommit(TransactionData, Collection)}, in sync mode, run it directly
      */
-    private Void indexUpdate(Collection<Consumer<Void>> state, Consumer<Void> indexAction) {
+    private Void indexUpdate(Collection<IndexUpdate> state, IndexUpdate update) {
         if (async) {
-            state.add(indexAction);
+            state.add(update);
         } else {
-            indexAction.accept(null);
+            update.apply();
         }
         return null;
     }
@@ -264,9 +456,10 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
                 int queueCapacity = Integer.parseInt(ApocConfiguration.get("autoIndex.queue_capacity", "100000"));
                 indexUpdateTransactionEventHandler = new IndexUpdateTransactionEventHandler(db, log, async, queueCapacity, stopWatchEnabled);
                 if (async) {
-                    startIndexTrackingThread(db, indexUpdateTransactionEventHandler.getIndexCommandQueue(),
+                    startIndexTrackingThread(db, indexUpdateTransactionEventHandler,
                             Long.parseLong(ApocConfiguration.get("autoIndex.async_rollover_opscount", "50000")),
                             Long.parseLong(ApocConfiguration.get("autoIndex.async_rollover_millis", "5000")),
+                            Util.toBoolean(ApocConfiguration.get("autoIndex.async_coalesce", "true")),
                             log
                     );
                 }
@@ -277,44 +470,49 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
                 }
             }
         }
-        private void startIndexTrackingThread(GraphDatabaseAPI db, BlockingQueue<Consumer<Void>> indexCommandQueue, long opsCountRollover, long millisRollover, Log log) {
+        private void startIndexTrackingThread(GraphDatabaseAPI db, IndexUpdateTransactionEventHandler handler, long opsCountRollover, long millisRollover, boolean coalesce, Log log) {
+            final BlockingQueue<IndexUpdate> indexCommandQueue = handler.getIndexCommandQueue();
+            final Stats stats = handler.stats;
             new Thread(() -> {
-                Transaction tx = null;
+                final Batch batch = new Batch(coalesce);
+                final List<IndexUpdate> drained = new ArrayList<>();
                 try {
                     final AvailabilityGuard availabilityGuard = db.getDependencyResolver().resolveDependency(AvailabilityGuard.class);
                     availabilityGuard.await(60_000);
-                    tx = db.beginTx();
-                    int opsCount = 0;
-                    long lastCommit = System.currentTimeMillis();
+                    long batchStart = System.currentTimeMillis();
                     while (true) {
-                        Consumer<Void> indexCommand = indexCommandQueue.poll(millisRollover, TimeUnit.MILLISECONDS);
+                        // wait at most until the current batch is due
+                        long wait = batch.isEmpty() ? millisRollover : Math.max(1, batchStart + millisRollover - System.currentTimeMillis());
+                        IndexUpdate first = indexCommandQueue.poll(wait, TimeUnit.MILLISECONDS);
 
                         if (availabilityGuard.isShutdown()) {
                             log.debug("shutdown in progress. Aborting index tracking thread.");
                             break;
                         }
 
+                        boolean forceRollover = false;
+                        if (first != null) {
+                            drained.add(first);
+                            indexCommandQueue.drainTo(drained, (int) Math.max(0, opsCountRollover - batch.size() - 1));
+                            for (IndexUpdate update : drained) {
+                                if (update == FORCE_TX_ROLLOVER) {
+                                    forceRollover = true;
+                                } else {
+                                    if (batch.isEmpty()) batchStart = System.currentTimeMillis();
+                                    batch.add(update);
+                                }
+                            }
+                            drained.clear();
+                            stats.pending = batch.size() - batch.coalesced;
+                            if (stats.pendingSince == 0) stats.pendingSince = batch.oldest();
+                        }
+
                         long now = System.currentTimeMillis();
-                        if (
-                                FORCE_TX_ROLLOVER.equals(indexCommand) ||
-                                ((opsCount>0) && ((now - lastCommit > millisRollover) || (opsCount >= opsCountRollover)))
-
-                                ) {
-                            tx.success();
-                            tx.close();
-                            tx = db.beginTx();
-                            log.info("background indexing thread doing tx rollover, opscount " + opsCount + ", millis since last rollover " + (now-lastCommit));
-                            lastCommit = now;
-                            opsCount = 0;
+                        if (!batch.isEmpty() && (forceRollover || (now - batchStart >= millisRollover) || (batch.size() >= opsCountRollover))) {
+                            applyBatch(db, batch, stats, log);
                         }
-                        if (indexCommand == null) {
-                            // in case we couldn't get anything from queue, we'll update lastcommit to prevent too early commits
-                            if (opsCount == 0) {
-                                lastCommit = now;
-                            }
-                        } else {
-                            opsCount++;
-                            indexCommand.accept(null);
+                        if (forceRollover) {
+                            forceTxRolloverFlag = true;
                         }
                     }
                 } catch (InterruptedException|AvailabilityGuard.UnavailableException e) {
@@ -324,12 +522,11 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
                     log.error(e.getMessage(), e);
                     throw new RuntimeException(e);
                 } finally {
-                    if (tx!=null) {
-                        tx.success();
+                    if (!batch.isEmpty()) {
                         try {
-                            tx.close();
+                            applyBatch(db, batch, stats, log);
                             log.debug("final commit in background thread");
-                        } catch (TransactionTerminatedException e) {
+                        } catch (Exception e) {
                             log.error(e.getMessage(), e);
                         }
                     }
@@ -339,6 +536,28 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
             log.info("started background thread for async index updates");
         }
 
+        private static void applyBatch(GraphDatabaseAPI db, Batch batch, Stats stats, Log log) {
+            long start = System.currentTimeMillis();
+            long oldest = batch.oldest();
+            int applied;
+            try (Transaction tx = db.beginTx()) {
+                applied = batch.apply();
+                tx.success();
+            }
+            long end = System.currentTimeMillis();
+            stats.applied.addAndGet(applied);
+            stats.coalesced.addAndGet(batch.coalesced);
+            stats.batches.incrementAndGet();
+            stats.applyMillis.addAndGet(end - start);
+            stats.lastBatchSize = batch.size();
+            stats.lastBatchMillis = end - start;
+            stats.lastBatchLagMillis = oldest == 0 ? 0 : end - oldest;
+            stats.pending = 0;
+            stats.pendingSince = 0;
+            log.info("background indexing thread doing tx rollover, opscount " + batch.size() + ", applied " + applied + ", millis " + (end - start));
+            batch.clear();
+        }
+
         public void stop() {
             if (indexUpdateTransactionEventHandler!=null) {
                 db.unregisterTransactionEventHandler(indexUpdateTransactionEventHandler);
@@ -1,9 +1,15 @@
 package apoc.index;
 
+import apoc.ApocKernelExtensionFactory;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.helpers.collection.Pair;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.internal.kernel.api.CapableIndexReference;
+import org.neo4j.internal.kernel.api.IndexOrder;
+import org.neo4j.internal.kernel.api.NodeValueIndexCursor;
 import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.kernel.api.Statement;
 import org.neo4j.kernel.api.exceptions.index.IndexNotApplicableKernelException;
 import org.neo4j.kernel.api.schema.SchemaDescriptorFactory;
 import org.neo4j.kernel.api.schema.index.SchemaIndexDescriptor;
@@ -14,10 +20,6 @@ import org.neo4j.procedure.Description;
 import apoc.result.ListResult;
 import apoc.result.NodeResult;
 import apoc.util.Util;
-import org.apache.lucene.index.Fields;
-import org.apache.lucene.index.MultiFields;
-import org.apache.lucene.index.Terms;
-import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.Sort;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Direction;
@@ -37,6 +39,9 @@ import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.values.storable.TextValue;
+import org.neo4j.values.storable.Value;
+import org.neo4j.values.storable.Values;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
@@ -199,78 +204,247 @@ public class SchemaIndex {
     }
 
     @Procedure("apoc.schema.properties.distinct")
-    @Description("apoc.schema.properties.distinct(label, key) - quickly returns all distinct values for a given key")
-    public Stream<ListResult> distinct(@Name("label") String label, @Name("key")  String key) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException, DuplicateSchemaRuleException {
-        List<Object> values = distinctTerms(label, key);
-        return Stream.of(new ListResult(values));
-    }
-
-    private List<Object> distinctTerms(@Name("label") String label, @Name("key") String key) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException, DuplicateSchemaRuleException {
-        SimpleIndexReader reader = getLuceneIndexReader(label,key);
-        SortedIndexReader sortedIndexReader = new SortedIndexReader(reader, 0, Sort.INDEXORDER);
-        Set<Object> values = new LinkedHashSet<>(100);
-        TermsEnum termsEnum;
-
-        Fields fields = MultiFields.getFields(sortedIndexReader.getIndexSearcher().getIndexReader());
-
-        Terms terms = fields.terms("string");
-        if (terms != null) {
-            termsEnum = terms.iterator();
-            while ((termsEnum.next()) != null) {
-                values.add(termsEnum.term().utf8ToString());
+    @Description("apoc.schema.properties.distinct(label, key, {prefix, min, max, limit}) - quickly returns all distinct values for a given key")
+    public Stream<ListResult> distinct(@Name("label") String label, @Name("key")  String key, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        if (indexFor(label, key) == CapableIndexReference.NO_INDEX) {
+            throw new IllegalArgumentException("No index for :" + label + "(" + key + ")");
+        }
+        try (DistinctValues values = new DistinctValues(Collections.singletonList(Pair.of(label, key)).iterator(), new DistinctFilter(config))) {
+            List<Object> result = new ArrayList<>();
+            while (values.hasNext()) {
+                result.add(values.next().value);
             }
+            return Stream.of(new ListResult(result));
         }
-        return new ArrayList<>(values);
     }
 
     @Procedure("apoc.schema.properties.distinctCount")
-    @Description("apoc.schema.properties.distinctCount([label], [key]) YIELD label, key, value, count - quickly returns all distinct values and counts for a given key")
-    public Stream<PropertyValueCount> distinctCount(@Name(value = "label", defaultValue = "") String labelName, @Name(value = "key", defaultValue = "") String keyName) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
-        Iterable<IndexDefinition> labels = (labelName.isEmpty()) ? db.schema().getIndexes() : db.schema().getIndexes(Label.label(labelName));
-        return StreamSupport.stream(labels.spliterator(), false).filter(i -> keyName.isEmpty() || isKeyIndexed(i, keyName)).flatMap(
-                index -> {
-                    Iterable<String> keys = keyName.isEmpty() ? index.getPropertyKeys() : Collections.singletonList(keyName);
-                    return StreamSupport.stream(keys.spliterator(), false).flatMap(key -> {
-                        String label = index.getLabel().name();
-                        return distinctTermsCount(label, key).
-                                entrySet().stream().map(e -> new PropertyValueCount(label, key, e.getKey(), e.getValue()));
-                    });
-                }
-        );
+    @Description("apoc.schema.properties.distinctCount([label], [key], {prefix, min, max, limit}) YIELD label, key, value, count - quickly returns all distinct values and counts for a given key")
+    public Stream<PropertyValueCount> distinctCount(@Name(value = "label", defaultValue = "") String labelName, @Name(value = "key", defaultValue = "") String keyName, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        Iterable<IndexDefinition> indexes = (labelName.isEmpty()) ? db.schema().getIndexes() : db.schema().getIndexes(Label.label(labelName));
+        List<Pair<String, String>> labelKeys = new ArrayList<>();
+        for (IndexDefinition index : indexes) {
+            if (!keyName.isEmpty() && !isKeyIndexed(index, keyName)) continue;
+            Iterable<String> keys = keyName.isEmpty() ? index.getPropertyKeys() : Collections.singletonList(keyName);
+            for (String key : keys) {
+                labelKeys.add(Pair.of(index.getLabel().name(), key));
+            }
+        }
+        DistinctValues values = new DistinctValues(labelKeys.iterator(), new DistinctFilter(config));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(values, Spliterator.NONNULL), false).onClose(values::close);
     }
 
     private boolean isKeyIndexed(@Name("index") IndexDefinition index, @Name("key") String key) {
         return StreamSupport.stream(index.getPropertyKeys().spliterator(), false).anyMatch(k -> k.equals(key));
     }
 
-    private Map<String, Integer> distinctTermsCount(@Name("label") String label, @Name("key") String key) {
-        try {
-            SortedIndexReader sortedIndexReader = getSortedIndexReader(label, key, 0, Sort.INDEXORDER);
+    private CapableIndexReference indexFor(String label, String key) {
+        TokenRead tokenRead = tx.tokenRead();
+        int labelId = tokenRead.nodeLabel(label);
+        int keyId = tokenRead.propertyKey(key);
+        if (labelId == TokenRead.NO_TOKEN || keyId == TokenRead.NO_TOKEN) {
+            return CapableIndexReference.NO_INDEX;
+        }
+        return tx.schemaRead().index(labelId, keyId);
+    }
+
+    private DistinctValuesCache distinctValuesCache() {
+        ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = db.getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
+        return apocLifecycle == null || apocLifecycle.getDistinctValuesCacheLifeCycle() == null ? null
+                : apocLifecycle.getDistinctValuesCacheLifeCycle().getCache();
+    }
 
-            Fields fields = MultiFields.getFields(sortedIndexReader.getIndexSearcher().getIndexReader());
+    /**
+     * Enumerates the distinct values and counts of the single property indexes of the labels and keys one after
+     * another, straight from the index or from the cache, so that only the current value is held in memory.
+     * Completely enumerated indexes with few enough values are put into the cache, when no filter or limit applies.
+     * The kernel can't seek into the distinct values, but when an index returns them in ascending order the scan
+     * stops once they are past the prefix or the maximum.
+     */
+    private class DistinctValues extends PrefetchingIterator<PropertyValueCount> implements AutoCloseable {
+        private final Iterator<Pair<String, String>> labelKeys;
+        private final DistinctFilter filter;
+        private final DistinctValuesCache cache = distinctValuesCache();
+        private final Statement statement = tx.acquireStatement();
+        private String label, key;
+        private long returned;
+
+        private NodeValueIndexCursor cursor;
+        private CapableIndexReference index;
+        private boolean inPrefix;
+        private long generation;
+        // values and counts to be cached, null if the index has too many values
+        private List<Value> values;
+        private long[] counts;
+
+        private DistinctValuesCache.Entry cached;
+        private int cachedIndex;
+
+        DistinctValues(Iterator<Pair<String, String>> labelKeys, DistinctFilter filter) {
+            this.labelKeys = labelKeys;
+            this.filter = filter;
+        }
 
-            Map<String, Integer> values = new HashMap<>();
-            TermsEnum termsEnum;
-            Terms terms = fields.terms("string");
-            if (terms != null) {
-                termsEnum = terms.iterator();
-                while ((termsEnum.next()) != null) {
-                    values.put(termsEnum.term().utf8ToString(), termsEnum.docFreq());
+        @Override
+        protected PropertyValueCount fetchNextOrNull() {
+            while (true) {
+                if (returned < filter.limit) {
+                    PropertyValueCount next = nextValue();
+                    if (next != null) return next;
                 }
+                closeCursor();
+                cached = null;
+                if (!labelKeys.hasNext()) return null;
+                Pair<String, String> labelKey = labelKeys.next();
+                open(labelKey.first(), labelKey.other());
             }
-            return values;
-        } catch (Exception e) {
-            throw new RuntimeException("Error collecting distinct terms of label: " + label + " and key: " + key, e);
+        }
+
+        private void open(String label, String key) {
+            this.label = label;
+            this.key = key;
+            this.returned = 0;
+            if (cache != null && (cached = cache.get(label, key)) != null) {
+                cachedIndex = 0;
+                return;
+            }
+            index = indexFor(label, key);
+            inPrefix = false;
+            // only single property indexes can be enumerated
+            if (index == CapableIndexReference.NO_INDEX) return;
+            cursor = tx.cursors().allocateNodeValueIndexCursor();
+            try {
+                tx.dataRead().nodeIndexDistinctValues(index, cursor);
+            } catch (IndexNotFoundKernelException e) {
+                throw new RuntimeException("Error collecting distinct values of label: " + label + " and key: " + key, e);
+            }
+            if (cache != null && filter.isEmpty()) {
+                generation = cache.generation();
+                values = new ArrayList<>();
+                counts = new long[16];
+            }
+        }
+
+        private PropertyValueCount nextValue() {
+            while (true) {
+                Value value;
+                long count;
+                if (cached != null) {
+                    if (cachedIndex == cached.values.length) return null;
+                    value = cached.values[cachedIndex];
+                    count = cached.counts[cachedIndex++];
+                } else if (cursor != null) {
+                    if (!cursor.next()) {
+                        cacheValues();
+                        return null;
+                    }
+                    // the count of each value is passed as node reference
+                    value = cursor.propertyValue(0);
+                    count = cursor.nodeReference();
+                    // lucene indexes only return their string values
+                    if (value == null || value == Values.NO_VALUE) continue;
+                    recordValue(value, count);
+                    if (isPastFilter(value)) return null;
+                } else {
+                    return null;
+                }
+                if (filter.accepts(value)) {
+                    returned++;
+                    return new PropertyValueCount(label, key, value.asObject(), count);
+                }
+            }
+        }
+
+        /**
+         * @return true if no later value of an index in ascending order can be accepted, these start with the prefix
+         * right after each other, and are below the maximum
+         */
+        private boolean isPastFilter(Value value) {
+            if (filter.prefix != null && value instanceof TextValue) {
+                boolean startsWith = ((TextValue) value).stringValue().startsWith(filter.prefix);
+                if (inPrefix && !startsWith && isAscending(value)) return true;
+                inPrefix = startsWith;
+            }
+            return filter.max != null && value.valueGroup() == filter.max.valueGroup()
+                    && Values.COMPARATOR.compare(value, filter.max) > 0 && isAscending(value);
+        }
+
+        private boolean isAscending(Value value) {
+            return Arrays.asList(index.orderCapability(value.valueGroup().category())).contains(IndexOrder.ASCENDING);
+        }
+
+        private void recordValue(Value value, long count) {
+            if (values == null) return;
+            int size = values.size();
+            if (size == DistinctValuesCache.MAX_VALUES) {
+                values = null;
+                counts = null;
+                return;
+            }
+            if (size == counts.length) counts = Arrays.copyOf(counts, size * 2);
+            counts[size] = count;
+            values.add(value);
+        }
+
+        private void cacheValues() {
+            if (values == null) return;
+            cache.put(label, key, values.toArray(new Value[0]), Arrays.copyOf(counts, values.size()), generation);
+            values = null;
+            counts = null;
+        }
+
+        private void closeCursor() {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+            values = null;
+            counts = null;
+        }
+
+        @Override
+        public void close() {
+            closeCursor();
+            statement.close();
+        }
+    }
+
+    /**
+     * Restricts the distinct values to a string prefix and an inclusive range of values of the same group as the
+     * bounds, and limits the number of values per label and key.
+     */
+    private static class DistinctFilter {
+        private final String prefix;
+        private final Value min, max;
+        private final long limit;
+
+        DistinctFilter(Map<String, Object> config) {
+            this.prefix = (String) config.get("prefix");
+            this.min = config.get("min") == null ? null : Values.of(config.get("min"));
+            this.max = config.get("max") == null ? null : Values.of(config.get("max"));
+            long limit = Util.toLong(config.getOrDefault("limit", 0L));
+            this.limit = limit > 0 ? limit : Long.MAX_VALUE;
+        }
+
+        boolean isEmpty() {
+            return prefix == null && min == null && max == null && limit == Long.MAX_VALUE;
+        }
+
+        boolean accepts(Value value) {
+            if (prefix != null && !(value instanceof TextValue && ((TextValue) value).stringValue().startsWith(prefix))) return false;
+            if (min != null && (value.valueGroup() != min.valueGroup() || Values.COMPARATOR.compare(value, min) < 0)) return false;
+            if (max != null && (value.valueGroup() != max.valueGroup() || Values.COMPARATOR.compare(value, max) > 0)) return false;
+            return true;
         }
     }
 
     public static class PropertyValueCount {
         public String label;
         public String key;
-        public String value;
+        public Object value;
         public long count;
 
-        public PropertyValueCount(String label, String key, String value, long count) {
+        public PropertyValueCount(String label, String key, Object value, long count) {
             this.label = label;
             this.key = key;
             this.value = value;
@@ -17,6 +17,12 @@ import java.sql.*;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -73,14 +79,19 @@ public class Jdbc {
         String url = getUrlOrKey(urlOrKey);
         String query = getSqlOrKey(tableOrSelect);
         try {
+            if (loadJdbcConfig.getPartitionBy() != null) {
+                Stream<RowResult> partitioned = executePartitionedQuery(url, query, loadJdbcConfig, params);
+                if (partitioned != null) return partitioned;
+            }
             Connection connection = getConnection(url,loadJdbcConfig);
             try {
                 PreparedStatement stmt = connection.prepareStatement(query);
                 try {
                     for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+                    stmt.setFetchSize(loadJdbcConfig.getFetchSize());
                     ResultSet rs = stmt.executeQuery();
-                    rs.setFetchSize(5000);
-                    Iterator<Map<String, Object>> supplier = new ResultSetIterator(log, rs, true, loadJdbcConfig);
+                    rs.setFetchSize(loadJdbcConfig.getFetchSize());
+                    Iterator<Map<String, Object>> supplier = new ResultSetIterator(log, rs, connection, loadJdbcConfig);
                     Spliterator<Map<String, Object>> spliterator = Spliterators.spliteratorUnknownSize(supplier, Spliterator.ORDERED);
                     return StreamSupport.stream(spliterator, false)
                             .map(RowResult::new)
@@ -94,11 +105,87 @@ public class Jdbc {
                 throw sqle;
             }
         } catch (Exception e) {
-            log.error(String.format("Cannot execute SQL statement `%s`.%nError:%n%s", query, e.getMessage()),e);
-            String errorMessage = "Cannot execute SQL statement `%s`.%nError:%n%s";
-            if(e.getMessage().contains("No suitable driver")) errorMessage="Cannot execute SQL statement `%s`.%nError:%n%s%n%s";
-            throw new RuntimeException(String.format(errorMessage, query, e.getMessage(), "Please download and copy the JDBC driver into $ONGDB_HOME/plugins,more details at https://neo4j-contrib.github.io/neo4j-apoc-procedures/#_load_jdbc_resources"), e);
+            throw sqlError(query, e);
+        }
+    }
+
+    /**
+     * Splits the rows of the query into ranges of the values of the partitionBy column between its minimum and maximum,
+     * which are read concurrently on their own connections, and a partition of the rows without a value.
+     * @return null if the query has no values in the column to partition
+     */
+    private Stream<RowResult> executePartitionedQuery(String url, String query, LoadJdbcConfig config, Object... params) throws Exception {
+        String column = config.getPartitionBy();
+        String source = "SELECT * FROM (" + query + ") APOC_PARTITIONED";
+        Object min, max;
+        try (Connection connection = getConnection(url, config);
+             PreparedStatement stmt = connection.prepareStatement("SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + query + ") APOC_PARTITIONED")) {
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                min = rs.getObject(1);
+                max = rs.getObject(2);
+            }
         }
+        List<Object[]> bounds = partitionBounds(min, max, config.getPartitions());
+        if (bounds == null) return null;
+        List<Partition> partitions = new ArrayList<>(bounds.size() + 1);
+        for (int i = 0; i < bounds.size(); i++) {
+            boolean last = i == bounds.size() - 1;
+            String where = column + " >= ? AND " + column + (last ? " <= ?" : " < ?");
+            partitions.add(new Partition(source + " WHERE " + where, append(params, bounds.get(i))));
+        }
+        partitions.add(new Partition(source + " WHERE " + column + " IS NULL", params));
+        PartitionedResultIterator rows = new PartitionedResultIterator(log, url, config, partitions);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.NONNULL), false)
+                .map(RowResult::new)
+                .onClose(rows::close);
+    }
+
+    private static Object[] append(Object[] params, Object[] more) {
+        Object[] all = Arrays.copyOf(params, params.length + more.length);
+        System.arraycopy(more, 0, all, params.length, more.length);
+        return all;
+    }
+
+    /**
+     * @return the lower and upper bound of each range of numbers, dates or timestamps, the upper bound is exclusive
+     * except for the last range, null for values of other types
+     */
+    static List<Object[]> partitionBounds(Object min, Object max, int partitions) {
+        List<Object[]> bounds = new ArrayList<>(partitions);
+        if (min instanceof Long || min instanceof Integer || min instanceof Short || min instanceof Byte) {
+            long from = ((Number) min).longValue(), to = ((Number) max).longValue();
+            long step = (to - from) / partitions + 1;
+            for (long lower = from; ; lower += step) {
+                if (to - lower < step) {
+                    bounds.add(new Object[]{lower, to});
+                    break;
+                }
+                bounds.add(new Object[]{lower, lower + step});
+            }
+        } else if (min instanceof Number) {
+            double from = ((Number) min).doubleValue(), to = ((Number) max).doubleValue();
+            int ranges = from == to ? 1 : partitions;
+            double step = (to - from) / ranges;
+            for (int i = 0; i < ranges; i++) {
+                bounds.add(new Object[]{from + i * step, i == ranges - 1 ? to : from + (i + 1) * step});
+            }
+        } else if (min instanceof java.util.Date) {
+            List<Object[]> millis = partitionBounds(((java.util.Date) min).getTime(), ((java.util.Date) max).getTime(), partitions);
+            for (Object[] range : millis) {
+                bounds.add(new Object[]{sameType(min, (Long) range[0]), sameType(min, (Long) range[1])});
+            }
+        } else {
+            return null;
+        }
+        return bounds;
+    }
+
+    private static java.util.Date sameType(Object date, long millis) {
+        if (date instanceof Timestamp) return new Timestamp(millis);
+        if (date instanceof java.sql.Date) return new java.sql.Date(millis);
+        return new java.util.Date(millis);
     }
 
     @Procedure
@@ -131,13 +218,65 @@ public class Jdbc {
                 throw sqle;
             }
         } catch (Exception e) {
-            log.error(String.format("Cannot execute SQL statement `%s`.%nError:%n%s", query, e.getMessage()),e);
-            String errorMessage = "Cannot execute SQL statement `%s`.%nError:%n%s";
-            if(e.getMessage().contains("No suitable driver")) errorMessage="Cannot execute SQL statement `%s`.%nError:%n%s%n%s";
-            throw new RuntimeException(String.format(errorMessage, query, e.getMessage(), "Please download and copy the JDBC driver into $ONGDB_HOME/plugins,more details at https://neo4j-contrib.github.io/neo4j-apoc-procedures/#_load_jdbc_resources"), e);
+            throw sqlError(query, e);
+        }
+    }
+
+    @Procedure
+    @Description("apoc.load.jdbcUpdateBatch('key or url','statement',[[params],...],config) YIELD row - update relational database, executing the SQL statement once for each list of parameters in batches of config.batchSize (default 1000) in one transaction")
+    public Stream<RowResult> jdbcUpdateBatch(@Name("jdbc") String urlOrKey, @Name("query") String query, @Name("params") List<List<Object>> params, @Name(value = "config",defaultValue = "{}") Map<String, Object> config) {
+        log.info( String.format( "Executing SQL batch update: %s", query ) );
+        String url = getUrlOrKey(urlOrKey);
+        LoadJdbcConfig jdbcConfig = new LoadJdbcConfig(config);
+        try (Connection connection = getConnection(url, jdbcConfig);
+             PreparedStatement stmt = connection.prepareStatement(query)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long count = 0, batches = 0;
+                int batched = 0;
+                for (List<Object> row : params) {
+                    for (int i = 0; i < row.size(); i++) stmt.setObject(i + 1, row.get(i));
+                    stmt.addBatch();
+                    if (++batched == jdbcConfig.getBatchSize()) {
+                        count += updateCount(stmt.executeBatch());
+                        batches++;
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    count += updateCount(stmt.executeBatch());
+                    batches++;
+                }
+                connection.commit();
+                return Stream.of(new RowResult(MapUtil.map("count", count, "batches", batches)));
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (Exception e) {
+            throw sqlError(query, e);
         }
     }
 
+    private static long updateCount(int[] updateCounts) {
+        long count = 0;
+        for (int updateCount : updateCounts) {
+            // drivers that don't report the count of each statement return SUCCESS_NO_INFO
+            count += updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, updateCount);
+        }
+        return count;
+    }
+
+    private RuntimeException sqlError(String query, Exception e) {
+        log.error(String.format("Cannot execute SQL statement `%s`.%nError:%n%s", query, e.getMessage()),e);
+        String errorMessage = "Cannot execute SQL statement `%s`.%nError:%n%s";
+        if(e.getMessage().contains("No suitable driver")) errorMessage="Cannot execute SQL statement `%s`.%nError:%n%s%n%s";
+        return new RuntimeException(String.format(errorMessage, query, e.getMessage(), "Please download and copy the JDBC driver into $ONGDB_HOME/plugins,more details at https://neo4j-contrib.github.io/neo4j-apoc-procedures/#_load_jdbc_resources"), e);
+    }
+
     static void closeIt(Log log, AutoCloseable...closeables) {
         for (AutoCloseable c : closeables) {
             try {
@@ -155,17 +294,20 @@ public class Jdbc {
         private final Log log;
         private final ResultSet rs;
         private final String[] columns;
-        private final boolean closeConnection;
+        private final int[] types;
+        // closed with the result set, the connection of the statement would bypass the connection pool
+        private final Connection connection;
         private Map<String, Object> map;
         private LoadJdbcConfig config;
 
 
-        public ResultSetIterator(Log log, ResultSet rs, boolean closeConnection, LoadJdbcConfig config) throws SQLException {
+        public ResultSetIterator(Log log, ResultSet rs, Connection connection, LoadJdbcConfig config) throws SQLException {
             this.config = config;
             this.log = log;
             this.rs = rs;
             this.columns = getMetaData(rs);
-            this.closeConnection = closeConnection;
+            this.types = getTypes(rs);
+            this.connection = connection;
             this.map = get();
         }
 
@@ -179,6 +321,15 @@ public class Jdbc {
             return columns;
         }
 
+        private int[] getTypes(ResultSet rs) throws SQLException {
+            ResultSetMetaData meta = rs.getMetaData();
+            int[] types = new int[columns.length];
+            for (int col = 1; col < columns.length; col++) {
+                types[col] = meta.getColumnType(col);
+            }
+            return types;
+        }
+
         @Override
         public boolean hasNext() {
             return this.map != null;
@@ -196,7 +347,7 @@ public class Jdbc {
                 if (handleEndOfResults()) return null;
                 Map<String, Object> row = new LinkedHashMap<>(columns.length);
                 for (int col = 1; col < columns.length; col++) {
-                    row.put(columns[col], convert(rs.getObject(col), rs.getMetaData().getColumnType(col)));
+                    row.put(columns[col], convert(rs.getObject(col), types[col]));
                 }
                 return row;
             } catch (Exception e) {
@@ -256,7 +407,7 @@ public class Jdbc {
         private void closeRs() {
             Boolean closed = isRsClosed();
             if (closed==null || !closed) {
-                closeIt(log, ignore(rs::getStatement), closeConnection ? ignore(()->rs.getStatement().getConnection()) : null);
+                closeIt(log, ignore(rs::getStatement), connection);
             }
         }
 
@@ -269,6 +420,121 @@ public class Jdbc {
         }
 
     }
+    private static class Partition {
+        private final String query;
+        private final Object[] params;
+
+        Partition(String query, Object[] params) {
+            this.query = query;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Reads the partitions on their own connections in reader threads, which pass chunks of the converted rows through
+     * a bounded queue in the order they arrive.
+     */
+    private static class PartitionedResultIterator implements Iterator<Map<String, Object>>, AutoCloseable {
+        // chunks of rows are passed through the queue, so that it isn't contended for every row
+        private static final int CHUNK_SIZE = 256;
+        private static final int QUEUE_SIZE = 64;
+        private static final Object END = new Object();
+        private static final ExecutorService READERS = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "apoc-jdbc-partition-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final Log log;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final List<Future<?>> readers = new ArrayList<>();
+        private volatile boolean closed;
+        private int running;
+        private Iterator<Map<String, Object>> chunk = Collections.emptyIterator();
+
+        PartitionedResultIterator(Log log, String url, LoadJdbcConfig config, List<Partition> partitions) {
+            this.log = log;
+            this.running = partitions.size();
+            for (Partition partition : partitions) {
+                readers.add(READERS.submit(() -> read(url, config, partition)));
+            }
+        }
+
+        private void read(String url, LoadJdbcConfig config, Partition partition) {
+            Object end = END;
+            try (Connection connection = getConnection(url, config);
+                 PreparedStatement stmt = connection.prepareStatement(partition.query)) {
+                for (int i = 0; i < partition.params.length; i++) stmt.setObject(i + 1, partition.params[i]);
+                stmt.setFetchSize(config.getFetchSize());
+                ResultSet rs = stmt.executeQuery();
+                rs.setFetchSize(config.getFetchSize());
+                ResultSetIterator rows = new ResultSetIterator(log, rs, null, config);
+                List<Map<String, Object>> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (!closed && rows.hasNext()) {
+                    chunk.add(rows.next());
+                    if (chunk.size() == CHUNK_SIZE) {
+                        put(chunk);
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) put(chunk);
+                rs.close();
+            } catch (Exception e) {
+                end = e;
+            } finally {
+                put(end);
+            }
+        }
+
+        private void put(Object value) {
+            try {
+                while (!closed && !queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                    // wait for the consumer or until closed
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if (chunk.hasNext()) return true;
+            try {
+                while (running > 0) {
+                    Object value = queue.take();
+                    if (value == END) {
+                        running--;
+                    } else if (value instanceof Exception) {
+                        close();
+                        throw new RuntimeException("Cannot read partition: " + ((Exception) value).getMessage(), (Exception) value);
+                    } else {
+                        chunk = ((List<Map<String, Object>>) value).iterator();
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while reading partitions", e);
+            }
+            return false;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return chunk.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            // unblocks the readers waiting for space, they close their connections
+            queue.clear();
+        }
+    }
+
     interface FailingSupplier<T> {
         T get() throws Exception;
     }
@@ -1,6 +1,7 @@
 package apoc.load;
 
 import apoc.export.util.CountingReader;
+import apoc.load.util.CsvRanges;
 import apoc.load.util.LoadCsvConfig;
 import apoc.meta.Meta;
 import apoc.util.FileUtils;
@@ -8,14 +9,19 @@ import apoc.util.Util;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -36,24 +42,22 @@ public class LoadCsv {
     public GraphDatabaseService db;
 
     @Procedure
-    @Description("apoc.load.csv('url',{config}) YIELD lineNo, list, map - load CSV fom URL as stream of values,\n config contains any of: {skip:1,limit:5,header:false,sep:'TAB',ignore:['tmp'],nullValues:['na'],arraySep:';',mapping:{years:{type:'int',arraySep:'-',array:false,name:'age',ignore:false}}")
+    @Description("apoc.load.csv('url',{config}) YIELD lineNo, list, map - load CSV fom URL as stream of values,\n config contains any of: {skip:1,limit:5,header:false,sep:'TAB',ignore:['tmp'],nullValues:['na'],arraySep:';',mapping:{years:{type:'int',arraySep:'-',array:false,name:'age',ignore:false}},parallel:false,ordered:true,concurrency:4}")
     public Stream<CSVResult> csv(@Name("url") String url, @Name(value = "config",defaultValue = "{}") Map<String, Object> configMap) {
         LoadCsvConfig config = new LoadCsvConfig(configMap);
         try {
             CountingReader reader = FileUtils.readerFor(url);
-
-            // new CSVReader(...) is deprecated, moved to the new builder
-            CSVReader csv = new CSVReaderBuilder(reader)
-                    .withCSVParser(new CSVParserBuilder()
-                            .withQuoteChar(config.getQuoteChar())
-                            .withSeparator(config.getSeparator())
-                            .build())
-                    .build();
+            CSVReader csv = csvReader(reader, config);
 
             String[] header = getHeader(csv, config);
-            boolean checkIgnore = !config.getIgnore().isEmpty() || config.getMappings().values().stream().anyMatch( m -> m.ignore);
-            return StreamSupport.stream(new CSVSpliterator(csv, header, url, config.getSkip(), config.getLimit(),
-                    checkIgnore, config.getMappings(), config.getNullValues(), config.getResults(), config.getIgnoreErrors()), false);
+            Columns columns = new Columns(header, checkIgnore(config), config.getMappings(), config.getNullValues());
+            File file = config.isParallel() ? FileUtils.uncompressedLocalFile(url) : null;
+            if (file != null) {
+                reader.close();
+                return ParallelCsvIterator.stream(file, url, columns, config);
+            }
+            return StreamSupport.stream(new CSVSpliterator(csv, columns, url, config.getSkip(), config.getLimit(),
+                    config.getResults()), false);
         } catch (IOException e) {
 
             if(!config.isFailOnError())
@@ -63,6 +67,20 @@ public class LoadCsv {
         }
     }
 
+    private static boolean checkIgnore(LoadCsvConfig config) {
+        return !config.getIgnore().isEmpty() || config.getMappings().values().stream().anyMatch( m -> m.ignore);
+    }
+
+    private static CSVReader csvReader(Reader reader, LoadCsvConfig config) {
+        // new CSVReader(...) is deprecated, moved to the new builder
+        return new CSVReaderBuilder(reader)
+                .withCSVParser(new CSVParserBuilder()
+                        .withQuoteChar(config.getQuoteChar())
+                        .withSeparator(config.getSeparator())
+                        .build())
+                .build();
+    }
+
     public static class Mapping {
         public static final Mapping EMPTY = new Mapping("", Collections.emptyMap(), DEFAULT_ARRAY_SEP, false);
         final String name;
@@ -133,6 +151,32 @@ public class LoadCsv {
         return headers;
     }
 
+    /**
+     * The header and mappings of the columns, resolved once for all rows.
+     */
+    public static class Columns {
+        private final String[] header;
+        private final boolean ignore;
+        private final Mapping[] mappings;
+        private final boolean unmapped;
+        private final Set<String> nullValues;
+
+        public Columns(String[] header, boolean ignore, Map<String, Mapping> mappings, List<String> nullValues) {
+            this.header = header;
+            this.ignore = ignore;
+            this.unmapped = !ignore && mappings.isEmpty();
+            this.nullValues = nullValues.isEmpty() ? Collections.emptySet() : new HashSet<>(nullValues);
+            if (header == null) {
+                this.mappings = null;
+            } else {
+                this.mappings = new Mapping[header.length];
+                for (int i = 0; i < header.length; i++) {
+                    this.mappings[i] = mappings.get(header[i]);
+                }
+            }
+        }
+    }
+
     public static class CSVResult {
         public long lineNo;
         public List<Object> list;
@@ -141,33 +185,38 @@ public class LoadCsv {
         public Map<String, String> stringMap;
 
         public CSVResult(String[] header, String[] list, long lineNo, boolean ignore, Map<String, Mapping> mapping, List<String> nullValues, EnumSet<Results> results) {
+            this(new Columns(header, ignore, mapping, nullValues), list, lineNo, results);
+        }
+
+        public CSVResult(Columns columns, String[] list, long lineNo, EnumSet<Results> results) {
             this.lineNo = lineNo;
-            removeNullValues(list, nullValues);
+            removeNullValues(list, columns.nullValues);
 
             this.strings = results.contains(Results.strings) ?
-                    (List)createList(header, list, ignore, mapping, false) : emptyList();
+                    (List)createList(columns, list, false) : emptyList();
             this.stringMap = results.contains(Results.stringMap) ?
-                    (Map)createMap(header, list, ignore, mapping,false) : emptyMap();
+                    (Map)createMap(columns, list, false) : emptyMap();
             this.map = results.contains(Results.map) ?
-                    createMap(header, list, ignore, mapping,true) : emptyMap();
+                    createMap(columns, list, true) : emptyMap();
             this.list = results.contains(Results.list) ?
-                        createList(header, list, ignore, mapping, true) : emptyList();
+                        createList(columns, list, true) : emptyList();
         }
 
-        public void removeNullValues(String[] list, List<String> nullValues) {
+        public void removeNullValues(String[] list, Collection<String> nullValues) {
             if (nullValues.isEmpty()) return;
             for (int i = 0; i < list.length; i++) {
                 if (nullValues.contains(list[i]))list[i] = null;
             }
         }
 
-        private List<Object> createList(String[] header, String[] list, boolean ignore, Map<String, Mapping> mappings, boolean convert) {
-            if (!ignore && mappings.isEmpty()) return asList((Object[]) list);
+        private List<Object> createList(Columns columns, String[] list, boolean convert) {
+            if (columns.unmapped) return asList((Object[]) list);
+            String[] header = columns.header;
             ArrayList<Object> result = new ArrayList<>(list.length);
             for (int i = 0; i < header.length; i++) {
                 String name = header[i];
                 if (name == null) continue;
-                Mapping mapping = mappings.get(name);
+                Mapping mapping = columns.mappings[i];
                 if (mapping != null) {
                     if (mapping.ignore) continue;
                     result.add(convert ? mapping.convert(list[i]) : list[i]);
@@ -178,13 +227,14 @@ public class LoadCsv {
             return result;
         }
 
-        private Map<String, Object> createMap(String[] header, String[] list, boolean ignore, Map<String, Mapping> mappings, boolean convert) {
+        private Map<String, Object> createMap(Columns columns, String[] list, boolean convert) {
+            String[] header = columns.header;
             if (header == null) return null;
             Map<String, Object> map = new LinkedHashMap<>(header.length, 1f);
             for (int i = 0; i < header.length; i++) {
                 String name = header[i];
-                if (ignore && name == null) continue;
-                Mapping mapping = mappings.get(name);
+                if (columns.ignore && name == null) continue;
+                Mapping mapping = columns.mappings[i];
                 if (mapping == null) {
                     map.put(name, list[i]);
                 } else {
@@ -198,26 +248,18 @@ public class LoadCsv {
 
     private static class CSVSpliterator extends Spliterators.AbstractSpliterator<CSVResult> {
         private final CSVReader csv;
-        private final String[] header;
+        private final Columns columns;
         private final String url;
         private final long limit;
-        private final boolean ignore;
-        private final Map<String, Mapping> mapping;
-        private final List<String> nullValues;
         private final EnumSet<Results> results;
-        private final boolean ignoreErrors;
         long lineNo;
 
-        public CSVSpliterator(CSVReader csv, String[] header, String url, long skip, long limit, boolean ignore, Map<String, Mapping> mapping, List<String> nullValues, EnumSet<Results> results, boolean ignoreErrors) throws IOException {
+        public CSVSpliterator(CSVReader csv, Columns columns, String url, long skip, long limit, EnumSet<Results> results) throws IOException {
             super(Long.MAX_VALUE, Spliterator.ORDERED);
             this.csv = csv;
-            this.header = header;
+            this.columns = columns;
             this.url = url;
-            this.ignore = ignore;
-            this.mapping = mapping;
-            this.nullValues = nullValues;
             this.results = results;
-            this.ignoreErrors = ignoreErrors;
             this.limit = skip + limit;
             lineNo = skip;
             while (skip-- > 0) {
@@ -230,7 +272,7 @@ public class LoadCsv {
             try {
                 String[] row = csv.readNext();
                 if (row != null && lineNo < limit) {
-                    action.accept(new CSVResult(header, row, lineNo, ignore,mapping, nullValues,results));
+                    action.accept(new CSVResult(columns, row, lineNo, results));
                     lineNo++;
                     return true;
                 }
@@ -240,4 +282,163 @@ public class LoadCsv {
             }
         }
     }
+
+    /**
+     * Parses the ranges of a local file on reader threads, which pass chunks of the rows through queues: with `ordered`
+     * one queue per range that is consumed in the order of the ranges, with a bounded number of ranges ahead of the
+     * consumer, otherwise one bounded queue for all ranges in the order the chunks are parsed.
+     */
+    private static class ParallelCsvIterator implements Iterator<CSVResult>, AutoCloseable {
+        private static final int CHUNK_SIZE = 256;
+        private static final long MIN_RANGE_SIZE = 64 * 1024;
+        private static final long MAX_RANGE_SIZE = 8 * 1024 * 1024;
+        private static final Object END = new Object();
+        private static final ExecutorService READERS = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "apoc-csv-range-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private final File file;
+        private final String url;
+        private final Columns columns;
+        private final LoadCsvConfig config;
+        private final List<CsvRanges.Range> ranges;
+        private final long from, to;
+        private final boolean ordered;
+        private final List<BlockingQueue<Object>> queues;
+        // the ranges that may be parsed ahead of the consumer
+        private final Semaphore ahead;
+        private final AtomicInteger nextRange = new AtomicInteger();
+        private volatile boolean closed;
+        private int current, running;
+        private Iterator<CSVResult> chunk = Collections.emptyIterator();
+
+        static Stream<CSVResult> stream(File file, String url, Columns columns, LoadCsvConfig config) throws IOException {
+            int concurrency = config.getConcurrency();
+            long rangeSize = Math.max(MIN_RANGE_SIZE, Math.min(MAX_RANGE_SIZE, file.length() / (concurrency * 4L)));
+            CsvRanges ranges = CsvRanges.split(file, config.getQuoteChar(), config.isHasHeader(), rangeSize);
+            ParallelCsvIterator iterator = new ParallelCsvIterator(file, url, columns, config, ranges.getRanges());
+            iterator.start(concurrency);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, config.isOrdered() ? Spliterator.ORDERED : 0), false)
+                    .onClose(iterator::close);
+        }
+
+        private ParallelCsvIterator(File file, String url, Columns columns, LoadCsvConfig config, List<CsvRanges.Range> ranges) {
+            this.file = file;
+            this.url = url;
+            this.columns = columns;
+            this.config = config;
+            this.from = config.getSkip();
+            this.to = config.getLimit() == Long.MAX_VALUE ? Long.MAX_VALUE : from + config.getLimit();
+            // only the ranges with records between skip and limit
+            this.ranges = ranges.stream()
+                    .filter(range -> range.getFirstRecord() + range.getRecords() > from && range.getFirstRecord() < to)
+                    .collect(Collectors.toList());
+            this.ordered = config.isOrdered();
+            int concurrency = config.getConcurrency();
+            if (ordered) {
+                this.queues = new ArrayList<>(this.ranges.size());
+                for (int i = 0; i < this.ranges.size(); i++) queues.add(new LinkedBlockingQueue<>());
+                this.ahead = new Semaphore(concurrency * 2);
+            } else {
+                this.queues = Collections.singletonList(new ArrayBlockingQueue<>(concurrency * 4));
+                this.ahead = new Semaphore(Integer.MAX_VALUE);
+            }
+            this.running = this.ranges.size();
+        }
+
+        private void start(int concurrency) {
+            for (int i = Math.min(concurrency, ranges.size()); i > 0; i--) {
+                READERS.submit(this::read);
+            }
+        }
+
+        private void read() {
+            try {
+                while (!closed) {
+                    if (!ahead.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+                    int index = nextRange.getAndIncrement();
+                    if (index >= ranges.size()) return;
+                    BlockingQueue<Object> queue = queues.get(ordered ? index : 0);
+                    try {
+                        readRange(ranges.get(index), queue);
+                        put(queue, END);
+                    } catch (Exception e) {
+                        put(queue, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void readRange(CsvRanges.Range range, BlockingQueue<Object> queue) throws IOException, InterruptedException {
+            long record = range.getFirstRecord();
+            long end = Math.min(record + range.getRecords(), to);
+            try (InputStream in = new FileInputStream(file)) {
+                IOUtils.skipFully(in, range.getStart());
+                Reader reader = new InputStreamReader(new BoundedInputStream(in, range.getEnd() - range.getStart()), StandardCharsets.UTF_8);
+                CSVReader csv = csvReader(new BufferedReader(reader, CountingReader.BUFFER_SIZE), config);
+                List<CSVResult> chunk = new ArrayList<>(CHUNK_SIZE);
+                String[] row;
+                while (!closed && record < end && (row = csv.readNext()) != null) {
+                    if (record >= from) {
+                        chunk.add(new CSVResult(columns, row, record, config.getResults()));
+                        if (chunk.size() == CHUNK_SIZE) {
+                            put(queue, chunk);
+                            chunk = new ArrayList<>(CHUNK_SIZE);
+                        }
+                    }
+                    record++;
+                }
+                if (!chunk.isEmpty()) put(queue, chunk);
+            }
+        }
+
+        private void put(BlockingQueue<Object> queue, Object value) throws InterruptedException {
+            while (!closed && !queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                // the consumer is behind, or gone if the stream was closed
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if (chunk.hasNext()) return true;
+            try {
+                while (running > 0) {
+                    Object value = queues.get(ordered ? current : 0).take();
+                    if (value == END) {
+                        running--;
+                        current++;
+                        ahead.release();
+                    } else if (value instanceof Exception) {
+                        close();
+                        throw new RuntimeException("Error reading CSV from URL " + cleanUrl(url), (Exception) value);
+                    } else {
+                        chunk = ((List<CSVResult>) value).iterator();
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while reading CSV from URL " + cleanUrl(url), e);
+            }
+            return false;
+        }
+
+        @Override
+        public CSVResult next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return chunk.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            queues.forEach(Collection::clear);
+        }
+    }
 }
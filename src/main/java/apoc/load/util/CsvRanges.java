@@ -0,0 +1,149 @@
+package apoc.load.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an uncompressed csv file into byte ranges that start and end at record boundaries, so that the ranges can be
+ * parsed independently. The file is scanned once through memory mapped buffers for the line breaks that are outside of
+ * quoted fields, which also counts the records of each range, so that their line numbers are known before parsing.
+ * The scan follows the defaults of the opencsv parser: a quote toggles a quoted field (a doubled quote toggles twice),
+ * a backslash escapes a following quote or backslash in a quoted field, and "\n", "\r\n" and "\r" end a record.
+ */
+public class CsvRanges {
+
+    private static final long MAP_SIZE = 1L << 30;
+    private static final char ESCAPE_CHAR = '\\';
+
+    private final long headerEnd;
+    private final List<Range> ranges;
+
+    private CsvRanges(long headerEnd, List<Range> ranges) {
+        this.headerEnd = headerEnd;
+        this.ranges = ranges;
+    }
+
+    /**
+     * @param header whether the first record is a header, which is not part of the ranges
+     * @param rangeSize the minimum size of a range in bytes, a range ends at the first record boundary after it
+     */
+    public static CsvRanges split(File file, char quoteChar, boolean header, long rangeSize) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean quoted = false, escaped = false, cr = false;
+            long headerEnd = header ? -1 : 0;
+            long rangeStart = 0, records = 0, firstRecord = 0;
+            boolean recordStarted = false;
+            for (long offset = 0; offset < size; offset += MAP_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAP_SIZE, size - offset));
+                for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                    byte b = buffer.get(i);
+                    long position = offset + i;
+                    // the "\n" of a "\r\n" doesn't end another record
+                    if (cr) {
+                        cr = false;
+                        if (b == '\n') continue;
+                    }
+                    if (escaped) {
+                        escaped = false;
+                        recordStarted = true;
+                        continue;
+                    }
+                    if (b == '\n' || b == '\r') {
+                        if (quoted) continue;
+                        cr = b == '\r';
+                        long end = position + 1 + (cr && position + 1 < size && byteAt(buffer, channel, position + 1, offset) == '\n' ? 1 : 0);
+                        recordStarted = false;
+                        if (headerEnd < 0) {
+                            headerEnd = rangeStart = end;
+                            continue;
+                        }
+                        records++;
+                        if (end - rangeStart >= rangeSize) {
+                            ranges.add(new Range(rangeStart, end, firstRecord, records));
+                            firstRecord += records;
+                            records = 0;
+                            rangeStart = end;
+                        }
+                        continue;
+                    }
+                    recordStarted = true;
+                    if (b == quoteChar) {
+                        quoted = !quoted;
+                    } else if (quoted && b == ESCAPE_CHAR && position + 1 < size) {
+                        byte next = byteAt(buffer, channel, position + 1, offset);
+                        escaped = next == quoteChar || next == ESCAPE_CHAR;
+                    }
+                }
+            }
+            if (headerEnd < 0) {
+                // only a header without a line break
+                return new CsvRanges(size, ranges);
+            }
+            // the last record without a line break
+            if (recordStarted) records++;
+            if (records > 0) ranges.add(new Range(rangeStart, size, firstRecord, records));
+            return new CsvRanges(headerEnd, ranges);
+        }
+    }
+
+    private static byte byteAt(MappedByteBuffer buffer, FileChannel channel, long position, long offset) throws IOException {
+        if (position - offset < buffer.limit()) return buffer.get((int) (position - offset));
+        // the next byte is in the next mapped buffer
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 1).get(0);
+    }
+
+    /**
+     * @return the offset after the header record, or 0 without a header
+     */
+    public long getHeaderEnd() {
+        return headerEnd;
+    }
+
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    public long getRecords() {
+        return ranges.isEmpty() ? 0 : ranges.get(ranges.size() - 1).getFirstRecord() + ranges.get(ranges.size() - 1).getRecords();
+    }
+
+    public static class Range {
+        private final long start;
+        private final long end;
+        private final long firstRecord;
+        private final long records;
+
+        Range(long start, long end, long firstRecord, long records) {
+            this.start = start;
+            this.end = end;
+            this.firstRecord = firstRecord;
+            this.records = records;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * @return the index of the first record of the range, not counting the header
+         */
+        public long getFirstRecord() {
+            return firstRecord;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package apoc.load.util;
+
+import apoc.ApocConfiguration;
+import apoc.Pools;
+import apoc.util.Util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the connections of the jdbc procedures open for reuse, per url and credentials.
+ * Closing a pooled connection returns it to the pool, where up to `apoc.jdbc.pool.maxIdle` (default 8) connections per
+ * url and credentials are kept for `apoc.jdbc.pool.idleTimeout` (default 60) seconds. Connections are validated before they
+ * are handed out again, so that connections closed by the database are replaced.
+ */
+public class JdbcConnectionPool {
+
+    static final int DEFAULT_MAX_IDLE = 8;
+    static final int DEFAULT_IDLE_TIMEOUT = 60;
+    private static final int VALIDATION_TIMEOUT = 1;
+
+    private static final Map<Key, Deque<Idle>> IDLE = new ConcurrentHashMap<>();
+    private static final AtomicInteger idleCount = new AtomicInteger();
+    private static final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    private JdbcConnectionPool() {}
+
+    /**
+     * @param connect opens a new connection if there is no idle one
+     * @return a connection that is returned to the pool when closed
+     */
+    public static Connection getConnection(String url, String user, String password, Callable<Connection> connect) throws Exception {
+        Key key = new Key(url, user, password);
+        Deque<Idle> idle = IDLE.get(key);
+        Idle entry;
+        while (idle != null && (entry = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (isValid(entry.connection)) {
+                return pooled(key, entry.connection);
+            }
+            close(entry.connection);
+        }
+        return pooled(key, connect.call());
+    }
+
+    public static int idleConnections() {
+        return idleCount.get();
+    }
+
+    public static void clear() {
+        IDLE.values().forEach(idle -> {
+            Idle entry;
+            while ((entry = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                close(entry.connection);
+            }
+        });
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException | AbstractMethodError e) {
+            return false;
+        }
+    }
+
+    private static Connection pooled(Key key, Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(JdbcConnectionPool.class.getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) release(key, connection);
+                    return null;
+                case "isClosed":
+                    return closed.get() || connection.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(connection)) return connection;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+            if (closed.get()) throw new SQLException("Connection is closed");
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static void release(Key key, Connection connection) {
+        try {
+            if (connection.isClosed()) return;
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            close(connection);
+            return;
+        }
+        long maxIdle = Util.toLong(ApocConfiguration.get("jdbc.pool.maxIdle", DEFAULT_MAX_IDLE));
+        AtomicBoolean added = new AtomicBoolean();
+        // atomically with the removal of empty entries by the eviction
+        IDLE.compute(key, (k, idle) -> {
+            if (idle == null) idle = new ConcurrentLinkedDeque<>();
+            if (idle.size() < maxIdle) {
+                // most recently used first, so that the connections at the end stay unused and are evicted
+                idle.addFirst(new Idle(connection));
+                added.set(true);
+            }
+            return idle;
+        });
+        if (!added.get()) {
+            close(connection);
+            return;
+        }
+        idleCount.incrementAndGet();
+        scheduleEviction();
+    }
+
+    private static void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            Pools.SCHEDULED.scheduleWithFixedDelay(JdbcConnectionPool::evictIdle, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    static void evictIdle() {
+        long idleTimeout = TimeUnit.SECONDS.toMillis(Util.toLong(ApocConfiguration.get("jdbc.pool.idleTimeout", DEFAULT_IDLE_TIMEOUT)));
+        long now = System.currentTimeMillis();
+        for (Key key : IDLE.keySet()) {
+            IDLE.computeIfPresent(key, (k, idle) -> {
+                Idle entry;
+                while ((entry = idle.peekLast()) != null && now - entry.since >= idleTimeout) {
+                    if (idle.removeLastOccurrence(entry)) {
+                        idleCount.decrementAndGet();
+                        close(entry.connection);
+                    }
+                }
+                return idle.isEmpty() ? null : idle;
+            });
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    private static class Idle {
+        private final Connection connection;
+        private final long since = System.currentTimeMillis();
+
+        Idle(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static class Key {
+        private final String url, user, password;
+
+        Key(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            // connections are only reused with the same credentials they were opened with
+            return url.equals(key.url) && Objects.equals(user, key.user) && Objects.equals(password, key.password);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * url.hashCode() + Objects.hashCode(user);
+        }
+    }
+}
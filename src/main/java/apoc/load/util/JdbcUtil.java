@@ -12,6 +12,7 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.concurrent.Callable;
 
 public class JdbcUtil {
 
@@ -22,19 +23,24 @@ public class JdbcUtil {
 
     public static Connection getConnection(String jdbcUrl, LoadJdbcConfig config) throws Exception {
         if(config.hasCredentials()) {
-            return createConnection(jdbcUrl, config.getCredentials().getUser(), config.getCredentials().getPassword());
+            return getConnection(jdbcUrl, config.getCredentials().getUser(), config.getCredentials().getPassword(), config);
         } else {
             URI uri = new URI(jdbcUrl.substring("jdbc:".length()));
             String userInfo = uri.getUserInfo();
             if (userInfo != null) {
                 String cleanUrl = jdbcUrl.substring(0, jdbcUrl.indexOf("://") + 3) + jdbcUrl.substring(jdbcUrl.indexOf("@") + 1);
                 String[] user = userInfo.split(":");
-                return createConnection(cleanUrl, user[0], user[1]);
+                return getConnection(cleanUrl, user[0], user[1], config);
             }
-            return DriverManager.getConnection(jdbcUrl);
+            return getConnection(jdbcUrl, null, null, config);
         }
     }
 
+    private static Connection getConnection(String jdbcUrl, String userName, String password, LoadJdbcConfig config) throws Exception {
+        Callable<Connection> connect = () -> userName == null ? DriverManager.getConnection(jdbcUrl) : createConnection(jdbcUrl, userName, password);
+        return config.isPool() ? JdbcConnectionPool.getConnection(jdbcUrl, userName, password, connect) : connect.call();
+    }
+
     private static Connection createConnection(String jdbcUrl, String userName, String password) throws Exception {
         if (jdbcUrl.contains(";auth=kerberos")) {
             String client = System.getProperty("java.security.auth.login.config.client", "KerberosClient");
@@ -25,6 +25,10 @@ public class LoadCsvConfig {
 
     private boolean failOnError;
 
+    private boolean parallel;
+    private boolean ordered;
+    private int concurrency;
+
     private EnumSet<Results> results;
 
     public enum Results {
@@ -48,6 +52,12 @@ public class LoadCsvConfig {
         hasHeader = (boolean) config.getOrDefault("header", true);
         limit = (long) config.getOrDefault("limit", Long.MAX_VALUE);
         failOnError = (boolean) config.getOrDefault("failOnError", true);
+        parallel = Util.toBoolean(config.getOrDefault("parallel", false));
+        ordered = Util.toBoolean(config.getOrDefault("ordered", true));
+        concurrency = Util.toInteger(config.getOrDefault("concurrency", Runtime.getRuntime().availableProcessors()));
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1, but was " + concurrency);
+        }
 
         results = EnumSet.noneOf(Results.class);
         List<String> resultList = (List<String>) config.getOrDefault("results", asList("map","list"));
@@ -95,6 +105,18 @@ public class LoadCsvConfig {
         return failOnError;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
     public EnumSet<Results> getResults() {
         return results;
     }
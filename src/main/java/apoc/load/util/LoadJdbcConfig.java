@@ -1,5 +1,6 @@
 package apoc.load.util;
 
+import apoc.util.Util;
 import org.apache.commons.lang.StringUtils;
 
 import java.time.DateTimeException;
@@ -13,10 +14,22 @@ import java.util.Map;
  */
 public class LoadJdbcConfig {
 
+    public static final int MAX_PARTITIONS = 64;
+
     private ZoneId zoneId = null;
 
     private Credentials credentials;
 
+    private boolean pool;
+
+    private long batchSize;
+
+    private String partitionBy;
+
+    private int partitions;
+
+    private int fetchSize;
+
     public LoadJdbcConfig(Map<String,Object> config) {
         config = config != null ? config : Collections.emptyMap();
         try {
@@ -26,12 +39,43 @@ public class LoadJdbcConfig {
             throw new IllegalArgumentException(String.format("The timezone field contains an error: %s", e.getMessage()));
         }
         this.credentials = config.containsKey("credentials") ? createCredentials((Map<String, String>) config.get("credentials")) : null;
+        this.pool = Util.toBoolean(config.getOrDefault("pool", true));
+        this.batchSize = Util.toLong(config.getOrDefault("batchSize", 1000L));
+        if (this.batchSize < 1) {
+            throw new IllegalArgumentException("The batchSize must be at least 1");
+        }
+        this.partitionBy = (String) config.get("partitionBy");
+        this.partitions = Util.toInteger(config.getOrDefault("partitions", 4));
+        if (this.partitions < 1 || this.partitions > MAX_PARTITIONS) {
+            throw new IllegalArgumentException(String.format("The partitions must be between 1 and %d", MAX_PARTITIONS));
+        }
+        this.fetchSize = Util.toInteger(config.getOrDefault("fetchSize", 5000));
     }
 
     public ZoneId getZoneId(){
         return this.zoneId;
     }
 
+    public boolean isPool() {
+        return pool;
+    }
+
+    public long getBatchSize() {
+        return batchSize;
+    }
+
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
     public Credentials getCredentials() {
         return this.credentials;
     }
@@ -1,26 +1,37 @@
 package apoc.meta;
 
+import apoc.Pools;
 import apoc.result.GraphResult;
 import apoc.result.MapResult;
 import apoc.result.VirtualNode;
 import apoc.result.VirtualRelationship;
 import apoc.util.MapUtil;
+import apoc.util.Util;
+import apoc.util.kernel.MultiThreadedGlobalGraphOperations;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.schema.ConstraintDefinition;
 import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.graphdb.spatial.Point;
+import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Pair;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.NodeLabelIndexCursor;
 import org.neo4j.internal.kernel.api.Read;
 import org.neo4j.internal.kernel.api.TokenRead;
 import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.*;
 import org.neo4j.values.storable.DurationValue;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -428,39 +439,138 @@ public class Meta {
 
     private Map<String, Map<String, MetaResult>> collectMetaData (MetaConfig config) {
         Map<String,Map<String,MetaResult>> metaData = new LinkedHashMap<>(100);
+        for (RelationshipType type : db.getAllRelationshipTypesInUse()) {
+            metaData.put(type.name(), new LinkedHashMap<>(10));
+        }
+        Map<String, Long> countStore = getLabelCountStore();
+        List<Label> labels = Iterables.asList(db.getAllLabelsInUse());
+        long deadline = config.getMaxTime() > 0 ? System.currentTimeMillis() + config.getMaxTime() : Long.MAX_VALUE;
+
+        List<LabelMetaData> sampled = new ArrayList<>(labels.size());
+        if (config.isParallel() && labels.size() > 1) {
+            List<Future<LabelMetaData>> futures = new ArrayList<>(labels.size());
+            for (Label label : labels) {
+                long labelCount = countStore.get(label.name());
+                futures.add(Util.inTxFuture(Pools.DEFAULT, db, () -> sampleLabel(label, labelCount, config, deadline)));
+            }
+            for (Future<LabelMetaData> future : futures) {
+                try {
+                    sampled.add(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException("Error sampling label meta data", e);
+                }
+            }
+        } else {
+            for (Label label : labels) {
+                sampled.add(sampleLabel(label, countStore.get(label.name()), config, deadline));
+            }
+        }
+
+        // merge in label order, so the result is the same as for a sequential scan
+        for (LabelMetaData labelMetaData : sampled) {
+            metaData.put(labelMetaData.labelName, labelMetaData.nodeMeta);
+            labelMetaData.relMeta.forEach((typeName, typeMeta) -> {
+                Map<String, MetaResult> target = metaData.get(typeName);
+                if (target != null) typeMeta.forEach(target::putIfAbsent);
+            });
+        }
+        return metaData;
+    }
+
+    // smaller labels are always sampled from the label scan store, walking it is cheap and keeps their samples stable
+    private static final long PROBE_LABEL_COUNT = 10_000;
+
+    static class LabelMetaData {
+        final String labelName;
+        final Map<String, MetaResult> nodeMeta = new LinkedHashMap<>(50);
+        final Map<String, Map<String, MetaResult>> relMeta = new LinkedHashMap<>(20);
+
+        LabelMetaData(String labelName) {
+            this.labelName = labelName;
+        }
+    }
+
+    /**
+     * Samples the nodes of one label, only the sampled nodes are loaded. Either the label scan store is walked with the
+     * sample stride, or when that visits more entries than it takes node reads to find them, the node id space is split
+     * into one window per sample and each window is probed from a random offset for the first node with the label.
+     * Sampling stops early when {@code maxNodesPerLabel} nodes have been sampled or the deadline has passed.
+     */
+    private LabelMetaData sampleLabel(Label label, long labelCount, MetaConfig config, long deadline) {
+        String labelName = label.name();
+        LabelMetaData result = new LabelMetaData(labelName);
         Schema schema = db.schema();
 
         Map<String, Iterable<ConstraintDefinition>> relConstraints = new HashMap<>(20);
         for (RelationshipType type : db.getAllRelationshipTypesInUse()) {
-            metaData.put(type.name(), new LinkedHashMap<>(10));
-            relConstraints.put(type.name(),schema.getConstraints(type));
+            result.relMeta.put(type.name(), new LinkedHashMap<>(10));
+            relConstraints.put(type.name(), schema.getConstraints(type));
         }
-        Map<String, Long> countStore = getLabelCountStore();
-        for (Label label : db.getAllLabelsInUse()) {
-            Map<String,MetaResult> nodeMeta = new LinkedHashMap<>(50);
-            String labelName = label.name();
-            metaData.put(labelName, nodeMeta);
-            Iterable<ConstraintDefinition> constraints = schema.getConstraints(label);
-            Set<String> indexed = new LinkedHashSet<>();
-            for (IndexDefinition index : schema.getIndexes(label)) {
-                for (String prop : index.getPropertyKeys()) {
-                    indexed.add(prop);
+        Iterable<ConstraintDefinition> constraints = schema.getConstraints(label);
+        Set<String> indexed = new LinkedHashSet<>();
+        for (IndexDefinition index : schema.getIndexes(label)) {
+            for (String prop : index.getPropertyKeys()) {
+                indexed.add(prop);
+            }
+        }
+
+        long stride = getSampleForLabelCount(labelCount, config.getSample());
+        long maxNodes = config.getMaxNodesPerLabel() > 0 ? config.getMaxNodesPerLabel() : Long.MAX_VALUE;
+        KernelTransaction ktx = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        int labelId = ktx.tokenRead().nodeLabel(labelName);
+        if (labelId == TokenRead.NO_TOKEN) return result;
+
+        LongPredicate sample = nodeId -> {
+            Node node = db.getNodeById(nodeId);
+            addRelationships(result.relMeta, result.nodeMeta, labelName, node, relConstraints);
+            addProperties(result.nodeMeta, labelName, constraints, indexed, node, node);
+            return System.currentTimeMillis() <= deadline;
+        };
+        try (Statement ignore = ktx.acquireStatement()) {
+            long samples = stride > 1 ? Math.min((labelCount + stride - 1) / stride, maxNodes) : maxNodes;
+            long highId = MultiThreadedGlobalGraphOperations.getHighestIdInUseForStore(api.getDependencyResolver(), MultiThreadedGlobalGraphOperations.GlobalOperationsTypes.NODES);
+            // expected node reads to find a node of the label in each window, against the label scan entries walked
+            if (labelCount >= PROBE_LABEL_COUNT && samples < highId && samples * (highId / labelCount) < Math.min(labelCount, samples * Math.max(stride, 1))) {
+                sampleNodeIds(ktx, labelId, highId, samples, deadline, sample);
+            } else {
+                sampleLabelScan(ktx, labelId, stride, maxNodes, deadline, sample);
+            }
+        }
+        return result;
+    }
+
+    private void sampleLabelScan(KernelTransaction ktx, int labelId, long stride, long maxNodes, long deadline, LongPredicate sample) {
+        try (NodeLabelIndexCursor cursor = ktx.cursors().allocateNodeLabelIndexCursor()) {
+            ktx.dataRead().nodeLabelScan(labelId, cursor);
+            long count = 1;
+            long sampled = 0;
+            while (cursor.next()) {
+                if (count++ % stride != 0) {
+                    if ((count & 0xFFF) == 0 && System.currentTimeMillis() > deadline) break;
+                    continue;
                 }
+                if (!sample.test(cursor.nodeReference()) || ++sampled == maxNodes) break;
             }
-            long labelCount = countStore.get(labelName);
-            long sample = getSampleForLabelCount(labelCount, config.getSample());
-            try (ResourceIterator<Node> nodes = db.findNodes(label)) {
-                int count = 1;
-                while (nodes.hasNext()) {
-                    Node node = nodes.next();
-                    if(count++ % sample == 0) {
-                        addRelationships(metaData, nodeMeta, labelName, node, relConstraints);
-                        addProperties(nodeMeta, labelName, constraints, indexed, node, node);
+        }
+    }
+
+    private void sampleNodeIds(KernelTransaction ktx, int labelId, long highId, long samples, long deadline, LongPredicate sample) {
+        Read read = ktx.dataRead();
+        long window = (highId + samples - 1) / samples;
+        try (NodeCursor cursor = ktx.cursors().allocateNodeCursor()) {
+            for (long start = 0; start < highId; start += window) {
+                long size = Math.min(window, highId - start);
+                long offset = ThreadLocalRandom.current().nextLong(size);
+                for (long i = 0; i < size; i++) {
+                    read.singleNode(start + (offset + i) % size, cursor);
+                    if (cursor.next() && cursor.labels().contains(labelId)) {
+                        if (!sample.test(cursor.nodeReference())) return;
+                        break;
                     }
+                    if ((i & 0xFFF) == 0xFFF && System.currentTimeMillis() > deadline) return;
                 }
             }
         }
-        return metaData;
     }
 
     private Map<String, Long> getLabelCountStore() {
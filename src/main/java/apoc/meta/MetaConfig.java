@@ -1,5 +1,7 @@
 package apoc.meta;
 
+import apoc.util.Util;
+
 import java.util.*;
 
 public class MetaConfig {
@@ -9,6 +11,9 @@ public class MetaConfig {
     private Set<String> excludes;
     private long maxRels;
     private long sample;
+    private long maxNodesPerLabel;
+    private long maxTime;
+    private boolean parallel;
 
     public MetaConfig(Map<String,Object> config) {
         config = config != null ? config : Collections.emptyMap();
@@ -17,6 +22,9 @@ public class MetaConfig {
         this.excludes = new HashSet<>((Collection<String>)config.getOrDefault("excludes",Collections.EMPTY_SET));
         this.sample = (long) config.getOrDefault("sample", 1000L);
         this.maxRels = (long) config.getOrDefault("maxRels", 100L);
+        this.maxNodesPerLabel = (long) config.getOrDefault("maxNodesPerLabel", -1L);
+        this.maxTime = (long) config.getOrDefault("maxTime", -1L);
+        this.parallel = Util.toBoolean(config.getOrDefault("parallel", false));
     }
 
     public Set<String> getIncludesLabels() {
@@ -43,4 +51,16 @@ public class MetaConfig {
     public long getMaxRels() {
         return maxRels;
     }
+
+    public long getMaxNodesPerLabel() {
+        return maxNodesPerLabel;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
 }
@@ -52,16 +52,17 @@ public class MongoDB {
     public Log log;
 
     @Procedure
-    @Description("apoc.mongodb.get(host-or-port,db-or-null,collection-or-null,query-or-null,[compatibleValues=true|false],skip-or-null,limit-or-null) yield value - perform a find operation on mongodb collection")
+    @Description("apoc.mongodb.get(host-or-port,db-or-null,collection-or-null,query-or-null,[compatibleValues=true|false],skip-or-null,limit-or-null,batchSize-or-null) yield value - perform a find operation on mongodb collection")
     public Stream<MapResult> get(@Name("host") String hostOrKey,
                                  @Name("db") String db,
                                  @Name("collection") String collection,
                                  @Name("query") Map<String, Object> query,
                                  @Name(value = "compatibleValues", defaultValue = "false") boolean compatibleValues, 
                                  @Name(value = "skip", defaultValue = "0") Long skip,
-                                 @Name(value = "limit", defaultValue = "0") Long limit) {
+                                 @Name(value = "limit", defaultValue = "0") Long limit,
+                                 @Name(value = "batchSize", defaultValue = "0") Long batchSize) {
         return executeMongoQuery(hostOrKey, db, collection, compatibleValues,
-                coll -> coll.all(query, skip, limit).map(MapResult::new),
+                coll -> coll.all(query, skip, limit, batchSize).map(MapResult::new),
                 e -> log.error("apoc.mongodb.get - hostOrKey = [" + hostOrKey + "], db = [" + db + "], collection = [" + collection + "], query = [" + query + "], compatibleValues = [" + compatibleValues + "], skip = [" + skip + "], limit = [" + limit + "]", e));
     }
 
@@ -93,7 +94,7 @@ public class MongoDB {
     }
 
     @Procedure
-    @Description("apoc.mongodb.find(host-or-port,db-or-null,collection-or-null,query-or-null,projection-or-null,sort-or-null,pagination,[compatibleValues=true|false],skip-or-null,limit-or-null) yield value - perform a find,project,sort operation on mongodb collection")
+    @Description("apoc.mongodb.find(host-or-port,db-or-null,collection-or-null,query-or-null,projection-or-null,sort-or-null,pagination,[compatibleValues=true|false],skip-or-null,limit-or-null,batchSize-or-null) yield value - perform a find,project,sort operation on mongodb collection")
     public Stream<MapResult> find(@Name("host") String hostOrKey,
                                   @Name("db") String db,
                                   @Name("collection") String collection,
@@ -102,9 +103,10 @@ public class MongoDB {
                                   @Name("sort") Map<String, Object> sort,
                                   @Name(value = "compatibleValues", defaultValue = "false") boolean compatibleValues,
                                   @Name(value = "skip", defaultValue = "0") Long skip,
-                                  @Name(value = "limit", defaultValue = "0") Long limit) {
+                                  @Name(value = "limit", defaultValue = "0") Long limit,
+                                  @Name(value = "batchSize", defaultValue = "0") Long batchSize) {
         return executeMongoQuery(hostOrKey, db, collection, compatibleValues,
-                coll -> coll.find(query, project, sort, skip, limit).map(MapResult::new),
+                coll -> coll.find(query, project, sort, skip, limit, batchSize).map(MapResult::new),
                 e -> log.error("apoc.mongodb.find - hostOrKey = [" + hostOrKey + "], db = [" + db + "], collection = [" + collection + "], query = [" + query + "], project = [" + project + "], sort = [" + sort + "], compatibleValues = [" + compatibleValues + "], skip = [" + skip + "], limit = [" + limit + "]",e));
     }
 
@@ -119,6 +121,14 @@ public class MongoDB {
         }
     }
 
+    @Procedure
+    @Description("apoc.mongodb.bulkWrite(host-or-port,db-or-null,collection-or-null,list-of-operations,[ordered=true|false]) yield value - performs the insertOne, updateOne, updateMany, replaceOne, deleteOne and deleteMany operations in bulk and returns their counts")
+    public Stream<MapResult> bulkWrite(@Name("host") String hostOrKey, @Name("db") String db, @Name("collection") String collection, @Name("operations") List<Map<String, Object>> operations, @Name(value = "ordered", defaultValue = "true") boolean ordered) {
+        return executeMongoQuery(hostOrKey, db, collection, false,
+                coll -> Stream.of(new MapResult(coll.bulkWrite(operations, ordered))),
+                e -> log.error("apoc.mongodb.bulkWrite - hostOrKey = [" + hostOrKey + "], db = [" + db + "], collection = [" + collection + "], operations = [" + operations.size() + "], ordered = [" + ordered + "]",e));
+    }
+
     @Procedure
     @Description("apoc.mongodb.delete(host-or-port,db-or-null,collection-or-null,list-of-maps) - delete the given documents from the mongodb collection and returns the number of affected documents")
     public Stream<LongResult> delete(@Name("host") String hostOrKey, @Name("db") String db, @Name("collection") String collection, @Name("query") Map<String, Object> query) {
@@ -162,14 +172,16 @@ public class MongoDB {
     interface Coll extends Closeable {
         Map<String, Object> first(Map<String, Object> params);
 
-        Stream<Map<String, Object>> all(Map<String, Object> query, Long skip, Long limit);
+        Stream<Map<String, Object>> all(Map<String, Object> query, Long skip, Long limit, Long batchSize);
 
         long count(Map<String, Object> query);
 
-        Stream<Map<String, Object>> find(Map<String, Object> query, Map<String, Object> project, Map<String, Object> sort, Long skip, Long limit);
+        Stream<Map<String, Object>> find(Map<String, Object> query, Map<String, Object> project, Map<String, Object> sort, Long skip, Long limit, Long batchSize);
 
         void insert(List<Map<String, Object>> docs);
 
+        Map<String, Object> bulkWrite(List<Map<String, Object>> operations, boolean ordered);
+
         long update(Map<String, Object> query, Map<String, Object> update);
 
         long delete(Map<String, Object> query);
@@ -1,19 +1,32 @@
 package apoc.mongodb;
 
+import apoc.util.ClientCache;
+import apoc.util.Util;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Spliterator;
@@ -21,6 +34,8 @@ import java.util.Spliterators;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static apoc.util.MapUtil.map;
+
 /**
  * @author mh
  * @since 30.06.16
@@ -28,16 +43,24 @@ import java.util.stream.StreamSupport;
 class MongoDBColl implements MongoDB.Coll {
 
     private static final ObjectMapper jsonMapper = new ObjectMapper().enable(DeserializationFeature.USE_LONG_FOR_INTS);
+    // the clients pool their connections, they are shared by all calls with the same url
+    static final ClientCache<String, MongoClient> CLIENTS = new ClientCache<>(
+            "mongodb.client.idleTimeout", 60, "mongodb.client.max", 16, MongoClient::close);
+    private final String url;
     private MongoCollection<Document> collection;
-    private MongoClient mongoClient;
     private boolean compatibleValues = false;
-    private boolean doorStop = false;
+    private boolean closed = false;
 
     public MongoDBColl(String url, String db, String coll) {
-        MongoClientURI connectionString = new MongoClientURI(url);
-        mongoClient = new MongoClient(connectionString);
-        MongoDatabase database = mongoClient.getDatabase(db);
-        collection = database.getCollection(coll);
+        this.url = url;
+        MongoClient mongoClient = CLIENTS.acquire(url, () -> new MongoClient(new MongoClientURI(url)));
+        try {
+            MongoDatabase database = mongoClient.getDatabase(db);
+            collection = database.getCollection(coll);
+        } catch (RuntimeException e) {
+            CLIENTS.release(url);
+            throw e;
+        }
     }
 
     /**
@@ -52,10 +75,14 @@ class MongoDBColl implements MongoDB.Coll {
         this.compatibleValues = compatibleValues;
     }
 
+    /**
+     * Releases the shared client.
+     */
     @Override
     public void close() throws IOException {
-        if (doorStop) return;
-        mongoClient.close();
+        if (closed) return;
+        closed = true;
+        CLIENTS.release(url);
     }
 
     /**
@@ -100,10 +127,11 @@ class MongoDBColl implements MongoDB.Coll {
     }
 
     @Override
-    public Stream<Map<String, Object>> all(Map<String, Object> query, Long skip, Long limit) {
+    public Stream<Map<String, Object>> all(Map<String, Object> query, Long skip, Long limit, Long batchSize) {
         FindIterable<Document> documents = query == null ? collection.find() : collection.find(new Document(query));
         if (skip != 0) documents = documents.skip(skip.intValue());
         if (limit != 0) documents = documents.limit(limit.intValue());
+        if (batchSize != 0) documents = documents.batchSize(batchSize.intValue());
         return asStream(documents);
     }
 
@@ -112,33 +140,100 @@ class MongoDBColl implements MongoDB.Coll {
         return query == null ? collection.count() : collection.count(new Document(query));
     }
 
+    /**
+     * The cursor fetches the documents in batches as they are consumed.
+     */
     private Stream<Map<String, Object>> asStream(FindIterable<Document> result) {
-        this.doorStop = true;
-        Iterable<Document> it = () -> result.iterator();
+        MongoCursor<Document> cursor = result.iterator();
         return StreamSupport
-                .stream(it.spliterator(), false)
+                .stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
                 .map(doc -> this.documentToPackableMap(doc))
-                .onClose( () -> {
-                        result.iterator().close();
-                        mongoClient.close();
-                    } );
+                .onClose(cursor::close);
     }
 
     @Override
-    public Stream<Map<String, Object>> find(Map<String, Object> query, Map<String, Object> project, Map<String, Object> sort, Long skip, Long limit) {
+    public Stream<Map<String, Object>> find(Map<String, Object> query, Map<String, Object> project, Map<String, Object> sort, Long skip, Long limit, Long batchSize) {
         FindIterable<Document> documents = query == null ? collection.find() : collection.find(new Document(query));
         if (project != null) documents = documents.projection(new Document(project));
         if (sort != null) documents = documents.sort(new Document(sort));
         if (skip != 0) documents = documents.skip(skip.intValue());
         if (limit != 0) documents = documents.limit(limit.intValue());
+        if (batchSize != 0) documents = documents.batchSize(batchSize.intValue());
         return asStream(documents);
     }
 
     @Override
     public void insert(List<Map<String, Object>> docs) {
+        if (docs.isEmpty()) return;
+        List<Document> documents = new ArrayList<>(docs.size());
         for (Map<String, Object> doc : docs) {
-            collection.insertOne(new Document(doc));
+            documents.add(new Document(doc));
+        }
+        collection.insertMany(documents);
+    }
+
+    @Override
+    public Map<String, Object> bulkWrite(List<Map<String, Object>> operations, boolean ordered) {
+        if (operations.isEmpty()) return bulkWriteResult(0, 0, 0, 0, 0);
+        BulkWriteResult result = collection.bulkWrite(toWriteModels(operations), new BulkWriteOptions().ordered(ordered));
+        if (!result.wasAcknowledged()) return map("acknowledged", false);
+        return bulkWriteResult(result.getInsertedCount(), result.getMatchedCount(),
+                result.isModifiedCountAvailable() ? result.getModifiedCount() : -1, result.getDeletedCount(), result.getUpserts().size());
+    }
+
+    private static Map<String, Object> bulkWriteResult(long inserted, long matched, long modified, long deleted, long upserted) {
+        return map("acknowledged", true, "insertedCount", inserted, "matchedCount", matched, "modifiedCount", modified,
+                "deletedCount", deleted, "upsertedCount", upserted);
+    }
+
+    /**
+     * Converts operations in the format of the bulkWrite command of the mongo shell, e.g.
+     * `{insertOne: {document: {...}}}` or `{updateMany: {filter: {...}, update: {...}, upsert: true}}`.
+     */
+    static List<WriteModel<Document>> toWriteModels(List<Map<String, Object>> operations) {
+        List<WriteModel<Document>> models = new ArrayList<>(operations.size());
+        for (Map<String, Object> operation : operations) {
+            if (operation.size() != 1) {
+                throw new IllegalArgumentException("Each bulk operation needs exactly one of insertOne, updateOne, updateMany, replaceOne, deleteOne or deleteMany, but was " + operation.keySet());
+            }
+            Map.Entry<String, Object> entry = operation.entrySet().iterator().next();
+            if (!(entry.getValue() instanceof Map)) {
+                throw new IllegalArgumentException("The bulk operation " + entry.getKey() + " needs a map of arguments, but was " + entry.getValue());
+            }
+            Map<String, Object> args = (Map<String, Object>) entry.getValue();
+            UpdateOptions upsert = new UpdateOptions().upsert(Util.toBoolean(args.get("upsert")));
+            switch (entry.getKey()) {
+                case "insertOne":
+                    models.add(new InsertOneModel<>(document(args, "document")));
+                    break;
+                case "updateOne":
+                    models.add(new UpdateOneModel<>(document(args, "filter"), document(args, "update"), upsert));
+                    break;
+                case "updateMany":
+                    models.add(new UpdateManyModel<>(document(args, "filter"), document(args, "update"), upsert));
+                    break;
+                case "replaceOne":
+                    models.add(new ReplaceOneModel<>(document(args, "filter"), document(args, "replacement"), upsert));
+                    break;
+                case "deleteOne":
+                    models.add(new DeleteOneModel<>(document(args, "filter")));
+                    break;
+                case "deleteMany":
+                    models.add(new DeleteManyModel<>(document(args, "filter")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown bulk operation " + entry.getKey() + ", supported are insertOne, updateOne, updateMany, replaceOne, deleteOne and deleteMany");
+            }
+        }
+        return models;
+    }
+
+    private static Document document(Map<String, Object> args, String name) {
+        Object value = args.get(name);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("The bulk operation needs a map for " + name + ", but was " + value);
         }
+        return new Document((Map<String, Object>) value);
     }
 
     @Override
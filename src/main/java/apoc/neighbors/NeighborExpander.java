@@ -0,0 +1,209 @@
+package apoc.neighbors;
+
+import apoc.Pools;
+import apoc.util.Util;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.helpers.collection.Pair;
+import org.neo4j.internal.kernel.api.CursorFactory;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.Read;
+import org.neo4j.internal.kernel.api.RelationshipGroupCursor;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static apoc.path.RelationshipTypeAndDirections.parse;
+
+/**
+ * Expands a whole frontier of nodes by the relationship types and directions of a pattern with kernel cursors.
+ * The relationship type tokens are resolved once, large frontiers are split into batches that are expanded
+ * in parallel on the default pool, each into its own bitmap, the bitmaps are merged afterwards.
+ */
+class NeighborExpander {
+    static final int BATCH_SIZE = 10_000;
+
+    private final GraphDatabaseAPI api;
+    private final KernelTransaction ktx;
+    private final ThreadToStatementContextBridge bridge;
+    private final TypeSelection outgoing = new TypeSelection();
+    private final TypeSelection incoming = new TypeSelection();
+
+    NeighborExpander(GraphDatabaseAPI api, KernelTransaction ktx, String types) {
+        this.api = api;
+        this.ktx = ktx;
+        this.bridge = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        TokenRead tokenRead = ktx.tokenRead();
+        for (Pair<RelationshipType, Direction> pair : parse(types)) {
+            int type;
+            if (pair.first() == null) {
+                type = Read.ANY_RELATIONSHIP_TYPE;
+            } else {
+                type = tokenRead.relationshipType(pair.first().name());
+                if (type == TokenRead.NO_TOKEN) continue;
+            }
+            if (pair.other() != Direction.INCOMING) outgoing.add(type);
+            if (pair.other() != Direction.OUTGOING) incoming.add(type);
+        }
+    }
+
+    /**
+     * @return the ids of all nodes connected to the given node
+     */
+    Roaring64NavigableMap expand(long nodeId) {
+        Roaring64NavigableMap next = new Roaring64NavigableMap();
+        try (Expansion expansion = new Expansion(ktx)) {
+            expansion.expand(nodeId, next);
+        }
+        return next;
+    }
+
+    /**
+     * @return the ids of all nodes connected to any of the nodes in the frontier
+     */
+    Roaring64NavigableMap expand(Roaring64NavigableMap frontier) {
+        Roaring64NavigableMap next = new Roaring64NavigableMap();
+        // other transactions can't see the changes of the current one, so it has to expand everything itself
+        if (frontier.getLongCardinality() <= BATCH_SIZE || hasChanges()) {
+            try (Expansion expansion = new Expansion(ktx)) {
+                LongIterator it = frontier.getLongIterator();
+                while (it.hasNext()) {
+                    expansion.expand(it.next(), next);
+                }
+            }
+            return next;
+        }
+        List<Future<Roaring64NavigableMap>> futures = new ArrayList<>();
+        LongIterator it = frontier.getLongIterator();
+        while (it.hasNext()) {
+            long[] batch = take(it);
+            futures.add(Util.inTxFuture(Pools.DEFAULT, api, () -> {
+                Roaring64NavigableMap partial = new Roaring64NavigableMap();
+                KernelTransaction workerTx = bridge.getKernelTransactionBoundToThisThread(true);
+                try (Statement ignore = workerTx.acquireStatement();
+                     Expansion expansion = new Expansion(workerTx)) {
+                    for (long nodeId : batch) {
+                        expansion.expand(nodeId, partial);
+                    }
+                }
+                return partial;
+            }));
+        }
+        for (Future<Roaring64NavigableMap> future : futures) {
+            try {
+                next.or(future.get());
+            } catch (Exception e) {
+                futures.forEach(f -> f.cancel(true));
+                throw new RuntimeException("Error expanding neighbors: " + e.getMessage(), e);
+            }
+        }
+        return next;
+    }
+
+    private boolean hasChanges() {
+        return ktx instanceof TxStateHolder && ((TxStateHolder) ktx).hasTxStateWithChanges();
+    }
+
+    private static long[] take(LongIterator it) {
+        long[] batch = new long[BATCH_SIZE];
+        int size = 0;
+        while (size < BATCH_SIZE && it.hasNext()) {
+            batch[size++] = it.next();
+        }
+        return size == BATCH_SIZE ? batch : Arrays.copyOf(batch, size);
+    }
+
+    /**
+     * The cursors of one thread, reused for all nodes it expands.
+     */
+    private class Expansion implements AutoCloseable {
+        private final Read read;
+        private final NodeCursor node;
+        private final RelationshipGroupCursor group;
+        private final RelationshipTraversalCursor traversal;
+
+        Expansion(KernelTransaction tx) {
+            CursorFactory cursors = tx.cursors();
+            this.read = tx.dataRead();
+            this.node = cursors.allocateNodeCursor();
+            this.group = cursors.allocateRelationshipGroupCursor();
+            this.traversal = cursors.allocateRelationshipTraversalCursor();
+        }
+
+        void expand(long nodeId, Roaring64NavigableMap next) {
+            read.singleNode(nodeId, node);
+            if (!node.next()) return;
+            if (node.isDense()) {
+                node.relationships(group);
+                while (group.next()) {
+                    int type = group.type();
+                    boolean out = outgoing.contains(type);
+                    boolean in = incoming.contains(type);
+                    if (out) {
+                        group.outgoing(traversal);
+                        addNeighbours(next);
+                    }
+                    if (in) {
+                        group.incoming(traversal);
+                        addNeighbours(next);
+                    }
+                    if (out || in) {
+                        group.loops(traversal);
+                        addNeighbours(next);
+                    }
+                }
+            } else {
+                node.allRelationships(traversal);
+                while (traversal.next()) {
+                    int type = traversal.type();
+                    if ((traversal.sourceNodeReference() == nodeId && outgoing.contains(type))
+                            || (traversal.targetNodeReference() == nodeId && incoming.contains(type))) {
+                        next.addLong(traversal.neighbourNodeReference());
+                    }
+                }
+            }
+        }
+
+        private void addNeighbours(Roaring64NavigableMap next) {
+            while (traversal.next()) {
+                next.addLong(traversal.neighbourNodeReference());
+            }
+        }
+
+        @Override
+        public void close() {
+            traversal.close();
+            group.close();
+            node.close();
+        }
+    }
+
+    /**
+     * The relationship types selected for one direction, either all or a set of type tokens.
+     */
+    private static class TypeSelection {
+        private boolean all;
+        private final BitSet types = new BitSet();
+
+        void add(int type) {
+            if (type == Read.ANY_RELATIONSHIP_TYPE) all = true;
+            else types.set(type);
+        }
+
+        boolean contains(int type) {
+            return all || types.get(type);
+        }
+    }
+}
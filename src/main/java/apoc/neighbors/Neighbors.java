@@ -3,84 +3,32 @@ package apoc.neighbors;
 import apoc.result.*;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.Node;
-import org.neo4j.helpers.collection.Pair;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.*;
-import org.roaringbitmap.RoaringBitmap;
-import org.roaringbitmap.longlong.LongBitmapDataProvider;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.util.*;
 import java.util.stream.*;
 
-import static apoc.path.RelationshipTypeAndDirections.parse;
-
 public class Neighbors {
 
     @Context
     public GraphDatabaseService db;
 
+    @Context
+    public GraphDatabaseAPI api;
+
+    @Context
+    public KernelTransaction ktx;
+
     @Procedure("apoc.neighbors.tohop")
     @Description("apoc.neighbors.tohop(node, rel-direction-pattern, distance) - returns distinct nodes of the given relationships in the pattern up to a certain distance, can use '>' or '<' for all outgoing or incoming relationships")
     public Stream<NodeResult> neighbors(@Name("node") Node node, @Name(value = "types", defaultValue = "") String types, @Name(value="distance", defaultValue = "1") Long distance) {
         if (distance < 1) return Stream.empty();
         if (types==null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap seen = new Roaring64NavigableMap();
-        Roaring64NavigableMap nextA = new Roaring64NavigableMap();
-        Roaring64NavigableMap nextB = new Roaring64NavigableMap();
-        long nodeId = node.getId();
-        seen.addLong(nodeId);
-        Iterator<Long> iterator;
-
-        // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                nextB.addLong(r.getOtherNodeId(nodeId));
-            }
-        }
-
-        for(int i = 1; i < distance; i++) {
-            // next even Hop
-            nextB.andNot(seen);
-            seen.or(nextB);
-            nextA.clear();
-            iterator = nextB.iterator();
-            while (iterator.hasNext()) {
-                nodeId = iterator.next();
-                node = db.getNodeById(nodeId);
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        nextA.add((r.getOtherNodeId(nodeId)));
-                    }
-                }
-            }
-
-            i++;
-            if (i < distance) {
-                // next odd Hop
-                nextA.andNot(seen);
-                seen.or(nextA);
-                nextB.clear();
-                iterator = nextA.iterator();
-                while (iterator.hasNext()) {
-                    nodeId = iterator.next();
-                    node = db.getNodeById(nodeId);
-                    for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                        for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                            nextB.add(r.getOtherNodeId(nodeId));
-                        }
-                    }
-                }
-            }
-        }
-        if((distance % 2) == 0) {
-            seen.or(nextA);
-        } else {
-            seen.or(nextB);
-        }
-        // remove starting node
-        seen.removeLong(node.getId());
+        Roaring64NavigableMap seen = toHop(node.getId(), types, distance);
 
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(seen.iterator(), Spliterator.SORTED), false)
                 .map(x -> new NodeResult(db.getNodeById(x)));
@@ -92,62 +40,7 @@ public class Neighbors {
         if (distance < 1) return Stream.empty();
         if (types==null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap seen = new Roaring64NavigableMap();
-        Roaring64NavigableMap nextA = new Roaring64NavigableMap();
-        Roaring64NavigableMap nextB = new Roaring64NavigableMap();
-        long nodeId = node.getId();
-        seen.add(nodeId);
-        Iterator<Long> iterator;
-
-        // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                nextB.add(r.getOtherNodeId(nodeId));
-            }
-        }
-
-        for(int i = 1; i < distance; i++) {
-            // next even Hop
-            nextB.andNot(seen);
-            seen.or(nextB);
-            nextA.clear();
-            iterator = nextB.iterator();
-            while (iterator.hasNext()) {
-                nodeId = iterator.next();
-                node = db.getNodeById(nodeId);
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        nextA.add(r.getOtherNodeId(nodeId));
-                    }
-                }
-            }
-
-            i++;
-            if (i < distance) {
-                // next odd Hop
-                nextA.andNot(seen);
-                seen.or(nextA);
-                nextB.clear();
-                iterator = nextA.iterator();
-                while (iterator.hasNext()) {
-                    nodeId = iterator.next();
-                    node = db.getNodeById(nodeId);
-                    for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                        for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                            nextB.add(r.getOtherNodeId(nodeId));
-                        }
-                    }
-                }
-            }
-        }
-        if((distance % 2) == 0) {
-            seen.or(nextA);
-        } else {
-            seen.or(nextB);
-        }
-        // remove starting node
-        seen.removeLong(node.getId());
+        Roaring64NavigableMap seen = toHop(node.getId(), types, distance);
 
         return Stream.of(new LongResult(seen.getLongCardinality()));
     }
@@ -158,37 +51,7 @@ public class Neighbors {
         if (distance < 1) return Stream.empty();
         if (types==null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap[] seen = new Roaring64NavigableMap[distance.intValue()];
-        for(int i = 0; i < distance; i++) {
-            seen[i] = new Roaring64NavigableMap();
-        }
-        long nodeId = node.getId();
-
-        Iterator<Long> iterator;
-
-        // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                seen[0].add(r.getOtherNodeId(nodeId));
-            }
-        }
-
-        for(int i = 1; i < distance; i++) {
-            iterator = seen[i-1].iterator();
-            while (iterator.hasNext()) {
-                node = db.getNodeById(iterator.next());
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        seen[i].add(r.getOtherNodeId(node.getId()));
-                    }
-                }
-            }
-            for(int j = 0; j < i; j++){
-                seen[i].andNot(seen[j]);
-                seen[i].removeLong(nodeId);
-            }
-        }
+        Roaring64NavigableMap[] seen = byHop(node.getId(), types, distance);
 
         return Arrays.stream(seen).map(x -> new NodeListResult(
                 StreamSupport.stream(Spliterators.spliteratorUnknownSize(x.iterator(), Spliterator.SORTED), false)
@@ -202,37 +65,7 @@ public class Neighbors {
         if (distance < 1) return Stream.empty();
         if (types==null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap[] seen = new Roaring64NavigableMap[distance.intValue()];
-        for(int i = 0; i < distance; i++) {
-            seen[i] = new Roaring64NavigableMap();
-        }
-        long nodeId = node.getId();
-
-        Iterator<Long> iterator;
-
-        // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                seen[0].add(r.getOtherNodeId(nodeId));
-            }
-        }
-
-        for(int i = 1; i < distance; i++) {
-            iterator = seen[i-1].iterator();
-            while (iterator.hasNext()) {
-                node = db.getNodeById(iterator.next());
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        seen[i].add(r.getOtherNodeId(node.getId()));
-                    }
-                }
-            }
-            for(int j = 0; j < i; j++){
-                seen[i].andNot(seen[j]);
-                seen[i].removeLong(nodeId);
-            }
-        }
+        Roaring64NavigableMap[] seen = byHop(node.getId(), types, distance);
 
         ArrayList counts = new ArrayList<Long>();
         for(int i = 0; i < distance; i++) {
@@ -248,37 +81,7 @@ public class Neighbors {
         if (distance < 1) return Stream.empty();
         if (types==null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap[] seen = new Roaring64NavigableMap[distance.intValue()];
-        for(int i = 0; i < distance; i++) {
-            seen[i] = new Roaring64NavigableMap();
-        }
-        long nodeId = node.getId();
-
-        Iterator<Long> iterator;
-
-        // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                seen[0].add(r.getOtherNodeId(nodeId));
-            }
-        }
-
-        for(int i = 1; i < distance; i++) {
-            iterator = seen[i-1].iterator();
-            while (iterator.hasNext()) {
-                node = db.getNodeById(iterator.next());
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        seen[i].add(r.getOtherNodeId(node.getId()));
-                    }
-                }
-            }
-            for(int j = 0; j < i; j++){
-                seen[i].andNot(seen[j]);
-                seen[i].removeLong(nodeId);
-            }
-        }
+        Roaring64NavigableMap[] seen = byHop(node.getId(), types, distance);
 
         return StreamSupport
                 .stream(Spliterators.spliteratorUnknownSize(seen[distance.intValue() - 1].iterator(), Spliterator.SORTED), false).map(y -> new NodeResult(db.getNodeById(y)));
@@ -290,38 +93,52 @@ public class Neighbors {
         if (distance < 1) return Stream.empty();
         if (types == null || types.isEmpty()) return Stream.empty();
 
-        // Initialize bitmaps for iteration
-        Roaring64NavigableMap[] seen = new Roaring64NavigableMap[distance.intValue()];
-        for (int i = 0; i < distance; i++) {
-            seen[i] = new Roaring64NavigableMap();
-        }
-        long nodeId = node.getId();
+        Roaring64NavigableMap[] seen = byHop(node.getId(), types, distance);
+
+        return Stream.of(new LongResult(seen[distance.intValue() - 1].getLongCardinality()));
+    }
 
-        Iterator<Long> iterator;
+    /**
+     * @return all nodes up to the given distance, without the start node
+     */
+    private Roaring64NavigableMap toHop(long nodeId, String types, long distance) {
+        NeighborExpander expander = new NeighborExpander(api, ktx, types);
+
+        Roaring64NavigableMap seen = new Roaring64NavigableMap();
+        seen.addLong(nodeId);
 
         // First Hop
-        for (Pair<RelationshipType, Direction> pair : parse(types)) {
-            for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                seen[0].add(r.getOtherNodeId(nodeId));
-            }
+        Roaring64NavigableMap next = expander.expand(nodeId);
+
+        for (int i = 1; i < distance; i++) {
+            next.andNot(seen);
+            seen.or(next);
+            next = expander.expand(next);
         }
+        seen.or(next);
+        // remove starting node
+        seen.removeLong(nodeId);
+        return seen;
+    }
+
+    /**
+     * @return the nodes at each distance, nodes that were already reached at a lower distance are not repeated
+     */
+    private Roaring64NavigableMap[] byHop(long nodeId, String types, long distance) {
+        NeighborExpander expander = new NeighborExpander(api, ktx, types);
+
+        Roaring64NavigableMap[] seen = new Roaring64NavigableMap[(int) distance];
+
+        // First Hop
+        seen[0] = expander.expand(nodeId);
 
         for (int i = 1; i < distance; i++) {
-            iterator = seen[i - 1].iterator();
-            while (iterator.hasNext()) {
-                node = db.getNodeById(iterator.next());
-                for (Pair<RelationshipType, Direction> pair : parse(types)) {
-                    for (Relationship r : node.getRelationships(pair.first(), pair.other())) {
-                        seen[i].add(r.getOtherNodeId(node.getId()));
-                    }
-                }
-            }
+            seen[i] = expander.expand(seen[i - 1]);
             for (int j = 0; j < i; j++) {
                 seen[i].andNot(seen[j]);
-                seen[i].removeLong(nodeId);
             }
+            seen[i].removeLong(nodeId);
         }
-
-        return Stream.of(new LongResult(seen[distance.intValue() - 1].getLongCardinality()));
+        return seen;
     }
 }
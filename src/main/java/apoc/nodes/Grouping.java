@@ -5,15 +5,19 @@ import apoc.Pools;
 import apoc.result.VirtualNode;
 import apoc.result.VirtualRelationship;
 import apoc.util.Util;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
 import org.neo4j.graphdb.*;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
@@ -96,40 +100,29 @@ public class Grouping {
         // also filter (esp. max) during aggregation?
         Map<String,Number> filter = configuredFilter(config);
 
-        Map<NodeKey, Set<Node>> grouped = new ConcurrentHashMap<>();
-        Map<NodeKey, VirtualNode> virtualNodes = new ConcurrentHashMap<>();
-        Map<RelKey, VirtualRelationship> virtualRels = new ConcurrentHashMap<>();
+        // each batch job collects its own partial groups, they are merged after the scan
+        Queue<PartialGroups> partials = new ConcurrentLinkedQueue<>();
 
         List<Future> futures = new ArrayList<>(1000);
 
         ExecutorService pool = Pools.DEFAULT;
         for (String labelName : labels) {
             Label label = Label.label(labelName);
-            Label[] singleLabel = {label};
 
             try (ResourceIterator<Node> nodes = (labelName.equals("*")) ? db.getAllNodes().iterator() : db.findNodes(label)) {
                 while (nodes.hasNext()) {
                     List<Node> batch = Util.take(nodes, BATCHSIZE);
                     futures.add(Util.inTxFuture(pool, db, () -> {
+                        PartialGroups partial = new PartialGroups();
+                        partials.add(partial);
                         try {
                             for (Node node : batch) {
                                 NodeKey key = keyFor(node, labelName, keys);
-                                grouped.compute(key, (k, v) -> {
-                                    if (v == null) v = new HashSet<>();
-                                    v.add(node);
-                                    return v;
-                                });
-                                virtualNodes.compute(key, (k, v) -> {
-                                            if (v == null) {
-                                                v = new VirtualNode(singleLabel, propertiesFor(node, keys), db);
-                                            }
-                                            VirtualNode vn = v;
-                                            if (!nodeAggNames.isEmpty()) {
-                                                aggregate(vn, nodeAggNames, nodeAggKeys.length > 0 ? node.getProperties(nodeAggKeys) : Collections.emptyMap());
-                                            }
-                                            return vn;
-                                        }
-                                );
+                                Group group = partial.groups.computeIfAbsent(key, Group::new);
+                                group.nodeIds.addLong(node.getId());
+                                if (!nodeAggNames.isEmpty()) {
+                                    aggregate(group.aggregates, nodeAggNames, nodeAggKeys.length > 0 ? node.getProperties(nodeAggKeys) : Collections.emptyMap());
+                                }
                             }
                         } catch (Exception e) {
                             log.debug("Error grouping nodes", e);
@@ -142,37 +135,58 @@ public class Grouping {
         }
         Util.waitForFutures(futures);
         futures.clear();
-        Iterator<Map.Entry<NodeKey, Set<Node>>> entries = grouped.entrySet().iterator();
-        int size = 0;
-        List<Map.Entry<NodeKey, Set<Node>>> batch = new ArrayList<>();
-        while (entries.hasNext()) {
-            Map.Entry<NodeKey, Set<Node>> outerEntry = entries.next();
-            batch.add(outerEntry);
-            size += outerEntry.getValue().size();
-            if (size > BATCHSIZE || !entries.hasNext()) {
-                ArrayList<Map.Entry<NodeKey, Set<Node>>> submitted = new ArrayList<>(batch);
-                batch.clear();
-                size = 0;
+
+        Map<NodeKey, Group> merged = new LinkedHashMap<>();
+        for (PartialGroups partial : partials) {
+            partial.groups.forEach((key, group) -> {
+                Group existing = merged.putIfAbsent(key, group);
+                if (existing != null) existing.merge(group);
+            });
+        }
+        partials.clear();
+
+        // group ids are indexes into this list, nodes are mapped to the id of their group per label so end nodes don't have to be re-keyed
+        List<Group> groups = new ArrayList<>(merged.values());
+        List<VirtualNode> virtualNodes = new ArrayList<>(groups.size());
+        Map<String, PrimitiveLongIntMap> groupIdsByLabel = new HashMap<>();
+        for (int groupId = 0; groupId < groups.size(); groupId++) {
+            Group group = groups.get(groupId);
+            PrimitiveLongIntMap groupIds = groupIdsByLabel.computeIfAbsent(group.key.label, l -> Primitive.longIntMap());
+            LongIterator it = group.nodeIds.getLongIterator();
+            while (it.hasNext()) {
+                groupIds.put(it.next(), groupId);
+            }
+            VirtualNode virtualNode = new VirtualNode(new Label[]{Label.label(group.key.label)}, group.key.values, db);
+            group.aggregates.forEach(virtualNode::setProperty);
+            group.aggregates = null;
+            virtualNodes.add(virtualNode);
+        }
+        PrimitiveLongIntMap[] labelGroupIds = groupIdsByLabel.values().toArray(new PrimitiveLongIntMap[0]);
+
+        Queue<Map<RelKey, Map<String, Object>>> relPartials = new ConcurrentLinkedQueue<>();
+        for (int groupId = 0; groupId < groups.size(); groupId++) {
+            int startGroupId = groupId;
+            LongIterator it = groups.get(groupId).nodeIds.getLongIterator();
+            while (it.hasNext()) {
+                long[] batch = takeIds(it, BATCHSIZE);
                 futures.add(Util.inTxFuture(pool, db, () -> {
+                    Map<RelKey, Map<String, Object>> partial = new HashMap<>();
+                    relPartials.add(partial);
                     try {
-                        for (Map.Entry<NodeKey, Set<Node>> entry : submitted) {
-                            for (Node node : entry.getValue()) {
-                                NodeKey startKey = entry.getKey();
-                                VirtualNode v1 = virtualNodes.get(startKey);
-                                for (Relationship rel : node.getRelationships(Direction.OUTGOING)) {
-                                    if (includeRels != null && !includeRels.contains(rel.getType().name())) continue;
-                                    Node endNode = rel.getEndNode();
-                                    for (NodeKey endKey : keysFor(endNode, labels, keys)) {
-                                        VirtualNode v2 = virtualNodes.get(endKey);
-                                        if (v2 == null) continue;
-                                        if (!selfRels && startKey.equals(endKey)) continue;
-                                        virtualRels.compute(new RelKey(startKey, endKey, rel), (rk, vRel) -> {
-                                            if (vRel == null) vRel = v1.createRelationshipTo(v2, rel.getType());
-                                            if (!relAggNames.isEmpty()) {
-                                                aggregate(vRel, relAggNames, relAggKeys.length > 0 ? rel.getProperties(relAggKeys) : Collections.emptyMap());
-                                            }
-                                            return vRel;
-                                        });
+                        for (long nodeId : batch) {
+                            for (Relationship rel : db.getNodeById(nodeId).getRelationships(Direction.OUTGOING)) {
+                                String type = rel.getType().name();
+                                if (includeRels != null && !includeRels.contains(type)) continue;
+                                long endNodeId = rel.getEndNodeId();
+                                Map<String, Object> properties = null;
+                                for (PrimitiveLongIntMap groupIds : labelGroupIds) {
+                                    int endGroupId = groupIds.get(endNodeId);
+                                    if (endGroupId == -1) continue;
+                                    if (!selfRels && startGroupId == endGroupId) continue;
+                                    Map<String, Object> aggregates = partial.computeIfAbsent(new RelKey(startGroupId, endGroupId, type), k -> new HashMap<>());
+                                    if (!relAggNames.isEmpty()) {
+                                        if (properties == null) properties = relAggKeys.length > 0 ? rel.getProperties(relAggKeys) : Collections.emptyMap();
+                                        aggregate(aggregates, relAggNames, properties);
                                     }
                                 }
                             }
@@ -186,7 +200,21 @@ public class Grouping {
             }
         }
         Util.waitForFutures(futures);
-        Stream<VirtualNode> stream = fixAggregates(virtualNodes.values()).stream();
+
+        Map<RelKey, Map<String, Object>> relAggregates = new LinkedHashMap<>();
+        for (Map<RelKey, Map<String, Object>> partial : relPartials) {
+            partial.forEach((key, aggregates) -> {
+                Map<String, Object> existing = relAggregates.putIfAbsent(key, aggregates);
+                if (existing != null) mergeAggregates(existing, aggregates);
+            });
+        }
+        relPartials.clear();
+        relAggregates.forEach((key, aggregates) -> {
+            VirtualRelationship vRel = virtualNodes.get(key.startGroupId).createRelationshipTo(virtualNodes.get(key.endGroupId), RelationshipType.withName(key.type));
+            aggregates.forEach(vRel::setProperty);
+        });
+
+        Stream<VirtualNode> stream = fixAggregates(virtualNodes).stream();
         // apply filter
         if (filter != null) stream = stream.filter(n -> filter(n.getLabels(), n.getAllProperties(), filter));
         if (limitNodes > -1) stream = stream.limit(limitNodes);
@@ -288,38 +316,38 @@ public class Grouping {
         return pcs;
     }
 
-    private void aggregate(PropertyContainer pc, Map<String, List<String>> aggregations, Map<String, Object> properties) {
+    private void aggregate(Map<String, Object> aggregates, Map<String, List<String>> aggregations, Map<String, Object> properties) {
         aggregations.forEach((k2, aggNames) -> {
             for (String aggName : aggNames) {
                 String key = aggName + "_" + k2;
                 if ("count_*".equals(key)) {
-                    pc.setProperty(key, ((Number) pc.getProperty(key, 0)).longValue() + 1);
+                    aggregates.put(key, ((Number) aggregates.getOrDefault(key, 0)).longValue() + 1);
                 } else {
                     Object value = properties.get(k2);
                     if (value != null) {
                         switch (aggName) {
                             case "collect":
-                                List<Object> existing = (List<Object>) pc.getProperty(key, new ArrayList<>());
+                                List<Object> existing = (List<Object>) aggregates.getOrDefault(key, new ArrayList<>());
                                 existing.add(value);
-                                pc.setProperty(key, existing);
+                                aggregates.put(key, existing);
                                 break;
                             case "count":
-                                pc.setProperty(key, ((Number) pc.getProperty(key, 0)).longValue() + 1);
+                                aggregates.put(key, ((Number) aggregates.getOrDefault(key, 0)).longValue() + 1);
                                 break;
                             case "sum":
-                                pc.setProperty(key, ((Number) pc.getProperty(key, 0)).doubleValue() + Util.toDouble(value));
+                                aggregates.put(key, ((Number) aggregates.getOrDefault(key, 0)).doubleValue() + Util.toDouble(value));
                                 break;
                             case "min":
-                                pc.setProperty(key, Math.min(((Number) pc.getProperty(key, Double.MAX_VALUE)).doubleValue(), Util.toDouble(value)));
+                                aggregates.put(key, Math.min(((Number) aggregates.getOrDefault(key, Double.MAX_VALUE)).doubleValue(), Util.toDouble(value)));
                                 break;
                             case "max":
-                                pc.setProperty(key, Math.max(((Number) pc.getProperty(key, Double.MIN_VALUE)).doubleValue(), Util.toDouble(value)));
+                                aggregates.put(key, Math.max(((Number) aggregates.getOrDefault(key, Double.MIN_VALUE)).doubleValue(), Util.toDouble(value)));
                                 break;
                             case "avg": {
-                                double[] avg = (double[]) pc.getProperty(key, new double[2]);
+                                double[] avg = (double[]) aggregates.getOrDefault(key, new double[2]);
                                 avg[0] += Util.toDouble(value);
                                 avg[1] += 1;
-                                pc.setProperty(key, avg);
+                                aggregates.put(key, avg);
                                 break;
                             }
                         }
@@ -329,6 +357,47 @@ public class Grouping {
         });
     }
 
+    /**
+     * Merges the partial aggregates of the same group computed by another thread into the target.
+     *
+     * @param target  aggregates to merge into
+     * @param partial aggregates to merge
+     */
+    private static void mergeAggregates(Map<String, Object> target, Map<String, Object> partial) {
+        partial.forEach((key, value) -> target.merge(key, value, (a, b) -> {
+            switch (key.substring(0, key.indexOf('_'))) {
+                case "collect":
+                    ((List<Object>) a).addAll((List<Object>) b);
+                    return a;
+                case "count":
+                    return ((Number) a).longValue() + ((Number) b).longValue();
+                case "sum":
+                    return ((Number) a).doubleValue() + ((Number) b).doubleValue();
+                case "min":
+                    return Math.min(((Number) a).doubleValue(), ((Number) b).doubleValue());
+                case "max":
+                    return Math.max(((Number) a).doubleValue(), ((Number) b).doubleValue());
+                case "avg": {
+                    double[] avg = (double[]) a;
+                    avg[0] += ((double[]) b)[0];
+                    avg[1] += ((double[]) b)[1];
+                    return avg;
+                }
+                default:
+                    return a;
+            }
+        }));
+    }
+
+    private static long[] takeIds(LongIterator it, int batchSize) {
+        long[] batch = new long[batchSize];
+        int size = 0;
+        while (size < batchSize && it.hasNext()) {
+            batch[size++] = it.next();
+        }
+        return size == batchSize ? batch : Arrays.copyOf(batch, size);
+    }
+
     /**
      * Returns the properties for the given node according to the specified keys. If a node does not have a property
      * assigned to given key, the value is set to {@code null}.
@@ -359,29 +428,6 @@ public class Grouping {
         return new NodeKey(label, propertiesFor(node, keys));
     }
 
-    /**
-     * Creates a grouping key for each specified label.
-     *
-     * @param node   node
-     * @param labels node labels
-     * @param keys   property keys
-     * @return grouping keys
-     */
-    private Collection<NodeKey> keysFor(Node node, Collection<String> labels, String[] keys) {
-        Map<String, Object> props = propertiesFor(node, keys);
-        List<NodeKey> result = new ArrayList<>(labels.size());
-        if (labels.contains("*")) {
-            result.add(new NodeKey("*", props));
-        } else {
-            for (Label label : node.getLabels()) {
-                if (labels.contains(label.name())) {
-                    result.add(new NodeKey(label.name(), props));
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * Represents a grouping key for nodes.
      */
@@ -412,19 +458,44 @@ public class Grouping {
     }
 
     /**
-     * Represents a grouping key for relationships.
+     * The node ids and aggregated values of one group.
+     */
+    private static class Group {
+        private final NodeKey key;
+        private final Roaring64NavigableMap nodeIds = new Roaring64NavigableMap();
+        private Map<String, Object> aggregates = new HashMap<>();
+
+        Group(NodeKey key) {
+            this.key = key;
+        }
+
+        void merge(Group other) {
+            nodeIds.or(other.nodeIds);
+            mergeAggregates(aggregates, other.aggregates);
+        }
+    }
+
+    /**
+     * Groups collected by a single worker thread.
+     */
+    private static class PartialGroups {
+        private final Map<NodeKey, Group> groups = new HashMap<>();
+    }
+
+    /**
+     * Represents a grouping key for relationships between the groups with the given ids.
      */
     private static class RelKey {
         private final int hash;
-        private final NodeKey startKey;
-        private final NodeKey endKey;
+        private final int startGroupId;
+        private final int endGroupId;
         private final String type;
 
-        RelKey(NodeKey startKey, NodeKey endKey, Relationship rel) {
-            this.startKey = startKey;
-            this.endKey = endKey;
-            this.type = rel.getType().name();
-            hash = 31 * (31 * startKey.hashCode() + endKey.hashCode()) + type.hashCode();
+        RelKey(int startGroupId, int endGroupId, String type) {
+            this.startGroupId = startGroupId;
+            this.endGroupId = endGroupId;
+            this.type = type;
+            hash = 31 * (31 * startGroupId + endGroupId) + type.hashCode();
         }
 
         @Override
@@ -434,7 +505,7 @@ public class Grouping {
 
             RelKey relKey = (RelKey) o;
 
-            return startKey.equals(relKey.startKey) && endKey.equals(relKey.endKey) && type.equals(relKey.type);
+            return startGroupId == relKey.startGroupId && endGroupId == relKey.endGroupId && type.equals(relKey.type);
         }
 
         @Override
@@ -0,0 +1,41 @@
+package apoc.path;
+
+import org.neo4j.graphdb.traversal.TraversalBranch;
+import org.neo4j.graphdb.traversal.UniquenessFactory;
+import org.neo4j.graphdb.traversal.UniquenessFilter;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Same semantics as {@link org.neo4j.graphdb.traversal.Uniqueness#NODE_GLOBAL}, but keeps the visited node ids in a
+ * Roaring bitmap, which stays compact for the dense id ranges of large subgraphs.
+ */
+public class GlobalNodeBitmapUniqueness implements UniquenessFactory {
+    public static final GlobalNodeBitmapUniqueness INSTANCE = new GlobalNodeBitmapUniqueness();
+
+    @Override
+    public UniquenessFilter create(Object optionalParameter) {
+        if (optionalParameter != null) {
+            throw new IllegalArgumentException("Only accepts null parameter, was " + optionalParameter);
+        }
+        Roaring64NavigableMap visited = new Roaring64NavigableMap();
+        return new UniquenessFilter() {
+            @Override
+            public boolean checkFirst(TraversalBranch branch) {
+                return check(branch);
+            }
+
+            @Override
+            public boolean check(TraversalBranch branch) {
+                long nodeId = branch.endNode().getId();
+                if (visited.contains(nodeId)) return false;
+                visited.addLong(nodeId);
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean eagerStartBranches() {
+        return true;
+    }
+}
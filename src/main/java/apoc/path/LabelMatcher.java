@@ -1,5 +1,6 @@
 package apoc.path;
 
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import java.util.*;
 
@@ -18,8 +19,8 @@ import java.util.*;
  * Please strip these symbols from the start of each label before adding to the matcher.
  */
 public class LabelMatcher {
-    private List<String> labels = new ArrayList<>();
-    private List<List<String>> compoundLabels;
+    private List<Label> labels = new ArrayList<>();
+    private List<Label[]> compoundLabels;
 
     private static LabelMatcher ACCEPTS_ALL_LABEL_MATCHER = new LabelMatcher() {
         @Override
@@ -53,31 +54,33 @@ public class LabelMatcher {
 
         String[] elements = label.split(":");
         if (elements.length == 1) {
-            labels.add(label);
+            labels.add(Label.label(label));
         } else if (elements.length > 1) {
             if (compoundLabels == null) {
                 compoundLabels = new ArrayList<>();
             }
 
-            compoundLabels.add(Arrays.asList(elements));
+            Label[] compoundLabel = new Label[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                compoundLabel[i] = Label.label(elements[i]);
+            }
+            compoundLabels.add(compoundLabel);
         }
 
         return this;
     }
 
     public boolean matchesLabels(Node node) {
-        Set<String> nodeLabels = new HashSet<>();
-        node.getLabels().forEach(label -> nodeLabels.add(label.name()));
-
-        for ( String label : labels ) {
-            if (nodeLabels.contains(label)) {
+        // checks the labels one by one instead of collecting the node's labels into a set, this is evaluated for every step of a traversal
+        for ( Label label : labels ) {
+            if (node.hasLabel(label)) {
                 return true;
             }
         }
 
         if (compoundLabels != null) {
-            for (List<String> compoundLabel : compoundLabels) {
-                if (nodeLabels.containsAll(compoundLabel)) {
+            for (Label[] compoundLabel : compoundLabels) {
+                if (hasAllLabels(node, compoundLabel)) {
                     return true;
                 }
             }
@@ -86,6 +89,15 @@ public class LabelMatcher {
         return false;
     }
 
+    private static boolean hasAllLabels(Node node, Label[] labels) {
+        for (Label label : labels) {
+            if (!node.hasLabel(label)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean isEmpty() {
         return labels.isEmpty() && (compoundLabels == null || compoundLabels.isEmpty());
     }
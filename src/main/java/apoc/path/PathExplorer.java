@@ -15,6 +15,7 @@ import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -75,8 +76,13 @@ public class PathExplorer {
 			throw new IllegalArgumentException("minLevel not supported in subgraphAll");
 		}
 
-		List<Node> subgraphNodes = expandConfigPrivate(start, configMap).map( Path::endNode ).collect(Collectors.toList());
-		List<Relationship> subgraphRels = Cover.coverNodes(subgraphNodes).collect(Collectors.toList());
+		List<Node> subgraphNodes = new ArrayList<>();
+		Roaring64NavigableMap subgraphNodeIds = new Roaring64NavigableMap();
+		expandConfigPrivate(start, configMap).map( Path::endNode ).forEach(node -> {
+			subgraphNodes.add(node);
+			subgraphNodeIds.addLong(node.getId());
+		});
+		List<Relationship> subgraphRels = Cover.coverNodes(db, subgraphNodeIds).collect(Collectors.toList());
 
 		return Stream.of(new GraphResult(subgraphNodes, subgraphRels));
 	}
@@ -94,9 +100,11 @@ public class PathExplorer {
 		return expandConfigPrivate(start, configMap).map( PathResult::new );
 	}
 
-	private Uniqueness getUniqueness(String uniqueness) {
+	private UniquenessFactory getUniqueness(String uniqueness) {
 		for (Uniqueness u : Uniqueness.values()) {
-			if (u.name().equalsIgnoreCase(uniqueness)) return u;
+			if (u.name().equalsIgnoreCase(uniqueness)) {
+				return u == Uniqueness.NODE_GLOBAL ? GlobalNodeBitmapUniqueness.INSTANCE : u;
+			}
 		}
 		return UNIQUENESS;
 	}
@@ -183,7 +191,7 @@ public class PathExplorer {
 											long minLevel,
 											long maxLevel,
 											boolean bfs,
-											Uniqueness uniqueness,
+											UniquenessFactory uniqueness,
 											boolean filterStartNode,
 											long limit,
 											EnumMap<NodeFilter, List<Node>> nodeFilter,
@@ -224,7 +232,7 @@ public class PathExplorer {
 									 String labelFilter,
 									 long minLevel,
 									 long maxLevel,
-									 Uniqueness uniqueness,
+									 UniquenessFactory uniqueness,
 									 boolean bfs,
 									 boolean filterStartNode,
 									 EnumMap<NodeFilter, List<Node>> nodeFilter,
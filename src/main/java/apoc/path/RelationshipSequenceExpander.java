@@ -5,10 +5,29 @@ import org.neo4j.graphdb.traversal.BranchState;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.helpers.collection.NestingIterator;
 import org.neo4j.helpers.collection.Pair;
+import org.neo4j.internal.kernel.api.CursorFactory;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.RelationshipGroupCursor;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.internal.kernel.api.helpers.RelationshipDenseSelectionCursor;
+import org.neo4j.internal.kernel.api.helpers.RelationshipSelectionCursor;
+import org.neo4j.internal.kernel.api.helpers.RelationshipSparseSelectionCursor;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.EmbeddedProxySPI;
+import org.neo4j.kernel.impl.core.NodeProxy;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static java.lang.String.format;
 
 /**
  * An expander for repeating sequences of relationships. The sequence provided should be a string consisting of
@@ -25,6 +44,12 @@ public class RelationshipSequenceExpander implements PathExpander {
     private final List<List<Pair<RelationshipType, Direction>>> relSequences = new ArrayList<>();
     private List<Pair<RelationshipType, Direction>> initialRels = null;
 
+    private static final int[] NO_TYPES = new int[0];
+    private final Map<String, int[]> typeTokens = new HashMap<>();
+    private GraphDatabaseService db;
+    private ThreadToStatementContextBridge bridge;
+    private EmbeddedProxySPI proxySpi;
+
 
     public RelationshipSequenceExpander(String relSequenceString, boolean beginSequenceAtStart) {
         int index = 0;
@@ -82,6 +107,10 @@ public class RelationshipSequenceExpander implements PathExpander {
             stepRels = relSequences.get((initialRels == null ? depth : depth - 1) % relSequences.size());
         }
 
+        if (node instanceof NodeProxy && initKernelAccess(node.getGraphDatabase())) {
+            return expandWithCursors(node.getId(), stepRels);
+        }
+
         return Iterators.asList(
          new NestingIterator<Relationship, Pair<RelationshipType, Direction>>(
                 stepRels.iterator() )
@@ -103,6 +132,129 @@ public class RelationshipSequenceExpander implements PathExpander {
         });
     }
 
+    private boolean initKernelAccess(GraphDatabaseService db) {
+        if (db == this.db) return bridge != null;
+        this.db = db;
+        if (!(db instanceof GraphDatabaseAPI)) return false;
+        DependencyResolver resolver = ((GraphDatabaseAPI) db).getDependencyResolver();
+        bridge = resolver.resolveDependency(ThreadToStatementContextBridge.class);
+        proxySpi = resolver.resolveDependency(EmbeddedProxySPI.class);
+        return true;
+    }
+
+    /**
+     * Reads the relationships of each type and direction of the step in the same order as {@link Node#getRelationships(RelationshipType, Direction)},
+     * but filters them by type token and direction on the kernel cursors, and only records their ids into a buffer.
+     * Relationship proxies are created lazily while iterating the buffer.
+     * The cursors are taken from and closed back into the cursor pool of the transaction, the buffer belongs to this
+     * expansion only, as the traversal may still iterate the relationships of other branches.
+     */
+    private Iterable<Relationship> expandWithCursors(long nodeId, List<Pair<RelationshipType, Direction>> stepRels) {
+        KernelTransaction ktx = bridge.getKernelTransactionBoundToThisThread(true);
+        TokenRead tokenRead = ktx.tokenRead();
+        CursorFactory cursors = ktx.cursors();
+        RelationshipBuffer buffer = new RelationshipBuffer();
+        try (NodeCursor nodeCursor = cursors.allocateNodeCursor()) {
+            ktx.dataRead().singleNode(nodeId, nodeCursor);
+            if (!nodeCursor.next()) {
+                throw new NotFoundException(format("Node %d not found", nodeId));
+            }
+            for (Pair<RelationshipType, Direction> pair : stepRels) {
+                int[] types = typeTokens(pair.first(), tokenRead);
+                if (types != null && types.length == 0) continue;
+                RelationshipSelectionCursor selection = select(cursors, nodeCursor, pair.other(), types);
+                try {
+                    while (selection.next()) {
+                        buffer.add(selection);
+                    }
+                } finally {
+                    selection.close();
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private RelationshipSelectionCursor select(CursorFactory cursors, NodeCursor nodeCursor, Direction direction, int[] types) {
+        if (nodeCursor.isDense()) {
+            RelationshipDenseSelectionCursor denseSelection = new RelationshipDenseSelectionCursor();
+            RelationshipGroupCursor groupCursor = cursors.allocateRelationshipGroupCursor();
+            RelationshipTraversalCursor traversalCursor = cursors.allocateRelationshipTraversalCursor();
+            nodeCursor.relationships(groupCursor);
+            switch (direction) {
+                case OUTGOING: denseSelection.outgoing(groupCursor, traversalCursor, types); break;
+                case INCOMING: denseSelection.incoming(groupCursor, traversalCursor, types); break;
+                default: denseSelection.all(groupCursor, traversalCursor, types);
+            }
+            return denseSelection;
+        } else {
+            RelationshipSparseSelectionCursor sparseSelection = new RelationshipSparseSelectionCursor();
+            RelationshipTraversalCursor traversalCursor = cursors.allocateRelationshipTraversalCursor();
+            nodeCursor.allRelationships(traversalCursor);
+            switch (direction) {
+                case OUTGOING: sparseSelection.outgoing(traversalCursor, types); break;
+                case INCOMING: sparseSelection.incoming(traversalCursor, types); break;
+                default: sparseSelection.all(traversalCursor, types);
+            }
+            return sparseSelection;
+        }
+    }
+
+    /**
+     * @return null for all types, an empty array if the type doesn't exist (yet), otherwise the single type token
+     */
+    private int[] typeTokens(RelationshipType type, TokenRead tokenRead) {
+        if (type == null) return null;
+        int[] tokens = typeTokens.get(type.name());
+        if (tokens == null || tokens.length == 0) {
+            int token = tokenRead.relationshipType(type.name());
+            tokens = token == TokenRead.NO_TOKEN ? NO_TYPES : new int[]{token};
+            typeTokens.put(type.name(), tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Relationship ids, start and end node ids and type tokens of one expansion, iterated exactly once by the traversal.
+     */
+    private class RelationshipBuffer implements Iterable<Relationship>, Iterator<Relationship> {
+        // relationship id, start node id and end node id per relationship
+        private long[] ids = new long[16 * 3];
+        private int[] types = new int[16];
+        private int size;
+        private int position;
+
+        void add(RelationshipSelectionCursor cursor) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                ids = Arrays.copyOf(ids, size * 2 * 3);
+            }
+            int offset = size * 3;
+            ids[offset] = cursor.relationshipReference();
+            ids[offset + 1] = cursor.sourceNodeReference();
+            ids[offset + 2] = cursor.targetNodeReference();
+            types[size++] = cursor.type();
+        }
+
+        @Override
+        public Iterator<Relationship> iterator() {
+            position = 0;
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public Relationship next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int offset = position * 3;
+            return proxySpi.newRelationshipProxy(ids[offset], ids[offset + 1], types[position++], ids[offset + 2]);
+        }
+    }
+
     @Override
     public PathExpander reverse() {
         throw new RuntimeException("Not implemented");
@@ -4,24 +4,37 @@ import apoc.ApocConfiguration;
 import apoc.util.JsonUtil;
 import apoc.util.Util;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
+import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static apoc.util.MapUtil.map;
 import static apoc.util.Util.toDouble;
 import static apoc.util.Util.toLong;
 import static java.lang.String.valueOf;
-import static java.lang.System.currentTimeMillis;
 
 public class Geocode {
     public static final int MAX_RESULTS = 100;
     public static final String PREFIX = "spatial.geocode";
     public static final String GEOCODE_PROVIDER_KEY = "provider";
+    public static final long DEFAULT_CACHE_TTL = TimeUnit.DAYS.toSeconds(30);
+    public static final long DEFAULT_CONCURRENCY = 4;
 
     @Context
     public GraphDatabaseService db;
@@ -32,40 +45,99 @@ public class Geocode {
     @Context
     public Log log;
 
-    interface GeocodeSupplier {
+    /**
+     * A geocoding service. Besides osm, google and the url based providers, the provider can be the name of a class
+     * that implements this interface and has a public constructor that takes the `spatial.geocode` config map.
+     * Calls are throttled by the caller.
+     */
+    public interface GeocodeSupplier {
         Stream<GeoCodeResult> geocode(String params, long maxResults);
         Stream<GeoCodeResult> reverseGeocode(Double latitude, Double longitude);
     }
 
-    private static class Throttler {
-        private final TerminationGuard terminationGuard;
-        private long throttleInMs;
-        private static long lastCallTime = 0L;
+    /**
+     * A token bucket per provider that is shared by all calls: a call takes a token, and the tokens are refilled with
+     * one per throttle ms up to the burst size, so that the calls of a batch start as soon as the rate allows, and
+     * not a throttle after the end of the previous call.
+     */
+    static class Throttler {
+        private static final Map<String, Throttler> THROTTLERS = new ConcurrentHashMap<>();
         private static long DEFAULT_THROTTLE = 5*1000;  // 5 seconds
         private static long MAX_THROTTLE = 60 * 60 * 1000;  // 1 hour
 
-        public Throttler(TerminationGuard terminationGuard, long throttle) {
-            this.terminationGuard = terminationGuard;
+        private final long throttleInNanos;
+        private final long burst;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
 
-            throttle = Math.min(throttle, MAX_THROTTLE);
-            if (throttle < 0) throttle = DEFAULT_THROTTLE;
+        private Throttler(long throttle, long burst) {
+            this.throttleInNanos = TimeUnit.MILLISECONDS.toNanos(throttle);
+            this.burst = burst;
+            this.tokens = burst;
+        }
 
-            this.throttleInMs = throttle;
+        static Throttler of(Map<String, Object> config, String provider) {
+            long configured = Math.min(toLong(config.getOrDefault(provider + ".throttle", DEFAULT_THROTTLE)), MAX_THROTTLE);
+            long throttle = configured < 0 ? DEFAULT_THROTTLE : configured;
+            long burst = Math.max(1, toLong(config.getOrDefault(provider + ".burst", 1)));
+            return THROTTLERS.computeIfAbsent(provider + ":" + throttle + ":" + burst, key -> new Throttler(throttle, burst));
         }
 
-        private void waitForThrottle() {
-            long msSinceLastCall = currentTimeMillis() - lastCallTime;
-            while (msSinceLastCall < throttleInMs) {
+        private void waitForThrottle(TerminationGuard terminationGuard) {
+            long nanosToWait;
+            while ((nanosToWait = tryAcquire()) > 0) {
                 try {
                     terminationGuard.check();
-                    long msToWait = throttleInMs - msSinceLastCall;
-                    Thread.sleep(Math.min(msToWait, 1000));
+                    TimeUnit.NANOSECONDS.sleep(Math.min(nanosToWait, TimeUnit.SECONDS.toNanos(1)));
                 } catch (InterruptedException e) {
                     // ignore
                 }
-                msSinceLastCall = currentTimeMillis() - lastCallTime;
             }
-            lastCallTime = currentTimeMillis();
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanos until the next token
+         */
+        private synchronized long tryAcquire() {
+            if (throttleInNanos == 0) return 0;
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (double) (now - refilledAt) / throttleInNanos);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) * throttleInNanos));
+        }
+    }
+
+    private static class ThrottledSupplier implements GeocodeSupplier {
+        private final GeocodeSupplier supplier;
+        private final Throttler throttler;
+        private final TerminationGuard terminationGuard;
+
+        ThrottledSupplier(GeocodeSupplier supplier, Throttler throttler, TerminationGuard terminationGuard) {
+            this.supplier = supplier;
+            this.throttler = throttler;
+            this.terminationGuard = terminationGuard;
+        }
+
+        @Override
+        public Stream<GeoCodeResult> geocode(String address, long maxResults) {
+            if (address.isEmpty()) {
+                return Stream.empty();
+            }
+            throttler.waitForThrottle(terminationGuard);
+            return supplier.geocode(address, maxResults);
+        }
+
+        @Override
+        public Stream<GeoCodeResult> reverseGeocode(Double latitude, Double longitude) {
+            if (latitude == null || longitude == null) {
+                return Stream.empty();
+            }
+            throttler.waitForThrottle(terminationGuard);
+            return supplier.reverseGeocode(latitude, longitude);
         }
     }
 
@@ -73,12 +145,11 @@ public class Geocode {
         private static final String[] FORMATTED_KEYS = new String[]{"formatted", "formatted_address", "address", "description", "display_name"};
         private static final String[] LAT_KEYS = new String[]{"lat", "latitude"};
         private static final String[] LNG_KEYS = new String[]{"lng", "longitude", "lon"};
-        private Throttler throttler;
         private String configBase;
         private String urlTemplate;
         private String urlTemplateReverse;
 
-        public SupplierWithKey(Map<String, Object> config, TerminationGuard terminationGuard, String provider) {
+        public SupplierWithKey(Map<String, Object> config, String provider) {
             this.configBase = provider;
 
             if (!config.containsKey(configKey("url"))) {
@@ -103,8 +174,6 @@ public class Geocode {
             String key = config.get(configKey("key")).toString();
             urlTemplate = urlTemplate.replace("KEY", key);
             urlTemplateReverse = urlTemplateReverse.replace("KEY", key);
-
-            this.throttler = new Throttler(terminationGuard, toLong(ApocConfiguration.get(configKey("throttle"), Throttler.DEFAULT_THROTTLE)));
         }
 
         @SuppressWarnings("unchecked")
@@ -112,7 +181,6 @@ public class Geocode {
             if (address.isEmpty()) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
             String url = urlTemplate.replace("PLACE", Util.encodeUrlComponent(address));
             Object value = JsonUtil.loadJson(url).findFirst().orElse(null);
             if (value instanceof List) {
@@ -131,7 +199,6 @@ public class Geocode {
             if (latitude == null || longitude == null) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
             String url = urlTemplateReverse.replace("LAT", latitude.toString()).replace("LNG", longitude.toString());
             Object value = JsonUtil.loadJson(url).findFirst().orElse(null);
             if (value instanceof List) {
@@ -180,18 +247,12 @@ public class Geocode {
         private static final String OSM_URL_REVERSE_GEOCODE = OSM_URL + "/reverse?format=jsonv2&";
         private static final String OSM_URL_GEOCODE = OSM_URL + "/search.php?format=json&q=";
 
-        private Throttler throttler;
-
-        public OSMSupplier(Map<String, Object> config, TerminationGuard terminationGuard) {
-            this.throttler = new Throttler(terminationGuard, toLong(config.getOrDefault("osm.throttle", Throttler.DEFAULT_THROTTLE)));
-        }
 
         @SuppressWarnings("unchecked")
         public Stream<GeoCodeResult> geocode(String address, long maxResults) {
             if (address.isEmpty()) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
             Object value = JsonUtil.loadJson(OSM_URL_GEOCODE + Util.encodeUrlComponent(address)).findFirst().orElse(null);
             if (value instanceof List) {
                 return ((List<Map<String, Object>>) value).stream().limit(maxResults).map(data ->
@@ -205,7 +266,6 @@ public class Geocode {
             if (latitude == null || longitude == null) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
 
             Object value = JsonUtil.loadJson(OSM_URL_REVERSE_GEOCODE + String.format("lat=%s&lon=%s", latitude, longitude)).findFirst().orElse(null);
             if (value instanceof Map) {
@@ -216,8 +276,7 @@ public class Geocode {
         }
     }
 
-    class GoogleSupplier implements GeocodeSupplier {
-        private final Throttler throttler;
+    static class GoogleSupplier implements GeocodeSupplier {
         private Map<String, Object> configMap;
 
         private static final String BASE_GOOGLE_API_URL = "https://maps.googleapis.com/maps/api/geocode/json";
@@ -226,8 +285,7 @@ public class Geocode {
         private static final String GEOCODE_URL = BASE_GOOGLE_API_URL + "?%s&address=";
 
 
-        public GoogleSupplier(Map<String, Object> config, TerminationGuard terminationGuard) {
-            this.throttler = new Throttler(terminationGuard, toLong(config.getOrDefault("google.throttle", Throttler.DEFAULT_THROTTLE)));
+        public GoogleSupplier(Map<String, Object> config) {
             this.configMap = config;
         }
 
@@ -246,7 +304,6 @@ public class Geocode {
             if (address.isEmpty()) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
             Object value = JsonUtil.loadJson(String.format(GEOCODE_URL, credentials(this.configMap)) + Util.encodeUrlComponent(address)).findFirst().orElse(null);
             if (value instanceof Map) {
                 Map map = (Map) value;
@@ -267,7 +324,6 @@ public class Geocode {
             if (latitude == null || longitude == null) {
                 return Stream.empty();
             }
-            throttler.waitForThrottle();
             Object value = JsonUtil.loadJson(String.format(REVERSE_GEOCODE_URL, credentials(this.configMap)) + Util.encodeUrlComponent(latitude+","+longitude)).findFirst().orElse(null);
             if (value instanceof Map) {
                 Map map = (Map) value;
@@ -286,15 +342,48 @@ public class Geocode {
 
     private GeocodeSupplier getSupplier() {
         Map<String, Object> activeConfig = ApocConfiguration.get(PREFIX);
-        if (activeConfig.containsKey(GEOCODE_PROVIDER_KEY)) {
-            String supplier = activeConfig.get(GEOCODE_PROVIDER_KEY).toString().toLowerCase();
-            switch (supplier) {
-                case "google" : return new GoogleSupplier(activeConfig, terminationGuard);
-                case "osm" : return new OSMSupplier(activeConfig,terminationGuard);
-                default: return new SupplierWithKey(activeConfig, terminationGuard, supplier);
-            }
+        String provider = provider(activeConfig);
+        return new ThrottledSupplier(createSupplier(activeConfig, provider), Throttler.of(activeConfig, provider), terminationGuard);
+    }
+
+    private static String provider(Map<String, Object> activeConfig) {
+        if (!activeConfig.containsKey(GEOCODE_PROVIDER_KEY)) return "osm";
+        String provider = activeConfig.get(GEOCODE_PROVIDER_KEY).toString();
+        return provider.contains(".") ? provider : provider.toLowerCase();
+    }
+
+    private static GeocodeSupplier createSupplier(Map<String, Object> activeConfig, String provider) {
+        switch (provider) {
+            case "google" : return new GoogleSupplier(activeConfig);
+            case "osm" : return new OSMSupplier();
+        }
+        if (!provider.contains(".")) return new SupplierWithKey(activeConfig, provider);
+        try {
+            return Class.forName(provider).asSubclass(GeocodeSupplier.class).getConstructor(Map.class).newInstance(activeConfig);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("The geocode provider " + provider + " must be a class that implements " + GeocodeSupplier.class.getName() + " with a public constructor that takes the config map", e);
         }
-        return new OSMSupplier(activeConfig, terminationGuard);
+    }
+
+    /**
+     * The cache of the results of geocode and geocodeOnce, or null if `spatial.geocode.cache.enabled` is false.
+     */
+    private GeocodeCache getCache(Map<String, Object> activeConfig) {
+        if (!Util.toBoolean(activeConfig.getOrDefault("cache.enabled", true))) return null;
+        Object file = activeConfig.get("cache.file");
+        return GeocodeCache.of(file == null ? new File(((GraphDatabaseAPI) db).getStoreDir(), "apoc-geocode.cache") : new File(file.toString()), cacheTtl(activeConfig));
+    }
+
+    private static long cacheTtl(Map<String, Object> activeConfig) {
+        return toLong(activeConfig.getOrDefault("cache.ttl", DEFAULT_CACHE_TTL));
+    }
+
+    private List<GeoCodeResult> geocode(GeocodeSupplier supplier, GeocodeCache cache, String provider, String address, long maxResults, long ttl) {
+        List<GeoCodeResult> results = cache == null ? null : cache.get(provider, address, maxResults, ttl);
+        if (results != null) return results;
+        results = supplier.geocode(address, maxResults).collect(Collectors.toList());
+        if (cache != null) cache.put(provider, address, maxResults, results);
+        return results;
     }
 
     @Procedure
@@ -310,7 +399,8 @@ public class Geocode {
             return Stream.empty();
         else {
             try {
-                return getSupplier().geocode(address, maxResults == 0 ? MAX_RESULTS : Math.min(Math.max(maxResults, 1), MAX_RESULTS));
+                Map<String, Object> activeConfig = ApocConfiguration.get(PREFIX);
+                return geocode(getSupplier(), getCache(activeConfig), provider(activeConfig), address, maxResults(maxResults), cacheTtl(activeConfig)).stream();
             } catch (IllegalStateException re) {
                 if (!quotaException && re.getMessage().startsWith("QUOTA_EXCEEDED")) return Stream.empty();
                 throw re;
@@ -318,6 +408,59 @@ public class Geocode {
         }
     }
 
+    private static long maxResults(long maxResults) {
+        return maxResults == 0 ? MAX_RESULTS : Math.min(Math.max(maxResults, 1), MAX_RESULTS);
+    }
+
+    @Procedure
+    @Description("apoc.spatial.geocodeBatch(['address'], maxResults=1, {concurrency:4, quotaException:false}) YIELD address, location, latitude, longitude, description, data - look up the geographic locations of addresses, each distinct address once, from the cache or from the geocoding service with concurrent requests within its throttle")
+    public Stream<GeoCodeBatchResult> geocodeBatch(@Name("addresses") List<String> addresses, @Name(value = "maxResults", defaultValue = "1") long maxResults,
+                                                   @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws InterruptedException {
+        if (addresses == null || addresses.isEmpty()) return Stream.empty();
+        Map<String, Object> activeConfig = ApocConfiguration.get(PREFIX);
+        GeocodeSupplier supplier = getSupplier();
+        GeocodeCache cache = getCache(activeConfig);
+        String provider = provider(activeConfig);
+        long max = maxResults(maxResults), ttl = cacheTtl(activeConfig);
+        boolean quotaException = Util.toBoolean(config.get("quotaException"));
+
+        // each distinct address is looked up once
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String address : addresses) {
+            if (address != null && !address.isEmpty()) distinct.putIfAbsent(GeocodeCache.normalize(address), address);
+        }
+        Map<String, Future<List<GeoCodeResult>>> lookups = new HashMap<>(distinct.size());
+        int concurrency = (int) Math.max(1, Math.min(toLong(config.getOrDefault("concurrency", DEFAULT_CONCURRENCY)), distinct.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            distinct.forEach((normalized, address) -> lookups.put(normalized, executor.submit(() -> geocode(supplier, cache, provider, address, max, ttl))));
+            Map<String, List<GeoCodeResult>> results = new HashMap<>(lookups.size());
+            for (Map.Entry<String, Future<List<GeoCodeResult>>> e : lookups.entrySet()) {
+                try {
+                    results.put(e.getKey(), e.getValue().get());
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (!quotaException && cause instanceof IllegalStateException && String.valueOf(cause.getMessage()).startsWith("QUOTA_EXCEEDED")) continue;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new RuntimeException(cause);
+                }
+            }
+            return addresses.stream()
+                    .filter(address -> address != null && !address.isEmpty())
+                    .flatMap(address -> results.getOrDefault(GeocodeCache.normalize(address), Collections.emptyList()).stream()
+                            .map(result -> new GeoCodeBatchResult(address, result)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Procedure
+    @Description("apoc.spatial.clearGeocodeCache() - drop the cached results of geocoding and delete the cache file")
+    public void clearGeocodeCache() {
+        GeocodeCache cache = getCache(ApocConfiguration.get(PREFIX));
+        if (cache != null) cache.clear();
+    }
+
     @Procedure
     @Description("apoc.spatial.reverseGeocode(latitude,longitude) YIELD location, latitude, longitude, description - look up address from latitude and longitude from a geocoding service (the default one is OpenStreetMap)")
     public Stream<GeoCodeResult> reverseGeocode(@Name("latitude") double latitude, @Name("longitude") double longitude, @Name(value = "quotaException",defaultValue = "false") boolean quotaException) {
@@ -329,6 +472,24 @@ public class Geocode {
         }
     }
 
+    public static class GeoCodeBatchResult {
+        public final String address;
+        public final Map<String, Object> location;
+        public final Map<String, Object> data;
+        public final Double latitude;
+        public final Double longitude;
+        public final String description;
+
+        public GeoCodeBatchResult(String address, GeoCodeResult result) {
+            this.address = address;
+            this.location = result.location;
+            this.data = result.data;
+            this.latitude = result.latitude;
+            this.longitude = result.longitude;
+            this.description = result.description;
+        }
+    }
+
     public static class GeoCodeResult {
         public final Map<String, Object> location;
         public final Map<String, Object> data;
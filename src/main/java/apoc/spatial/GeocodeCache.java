@@ -0,0 +1,200 @@
+package apoc.spatial;
+
+import apoc.util.JsonUtil;
+import apoc.util.Util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static apoc.util.MapUtil.map;
+import static apoc.util.Util.toDouble;
+
+/**
+ * Persists the results of geocoding per provider and normalized address in a file, so that the same addresses are not
+ * looked up again, e.g. by the next run of a nightly import.
+ * Each lookup is appended as a line of json, the file is read when the cache is first used and rewritten without the
+ * expired and replaced lines when they are the majority.
+ */
+public class GeocodeCache {
+
+    private static final Map<File, GeocodeCache> CACHES = new ConcurrentHashMap<>();
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern SEPARATORS = Pattern.compile("\\s*([,;])\\s*");
+
+    private final File file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+    private int lines;
+
+    private GeocodeCache(File file) {
+        this.file = file;
+    }
+
+    public static GeocodeCache of(File file, long ttl) {
+        GeocodeCache cache = CACHES.computeIfAbsent(file.getAbsoluteFile(), GeocodeCache::new);
+        cache.open(ttl);
+        return cache;
+    }
+
+    /**
+     * Addresses that only differ in case, whitespace, unicode representation or spaces around separators are the same.
+     */
+    public static String normalize(String address) {
+        String normalized = Normalizer.normalize(address, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+        normalized = SPACES.matcher(normalized).replaceAll(" ");
+        return SEPARATORS.matcher(normalized).replaceAll("$1 ");
+    }
+
+    private static String key(String provider, String address) {
+        return provider + "\t" + normalize(address);
+    }
+
+    /**
+     * @return the cached results, or null if there are none that are younger than the ttl and have at least maxResults
+     * results or all results of the provider
+     */
+    public List<Geocode.GeoCodeResult> get(String provider, String address, long maxResults, long ttl) {
+        Entry entry = entries.get(key(provider, address));
+        if (entry == null || entry.isExpired(System.currentTimeMillis(), ttl)) return null;
+        // fewer results than were asked for are all results of the provider
+        if (maxResults > entry.maxResults && entry.results.size() >= entry.maxResults) return null;
+        List<Geocode.GeoCodeResult> results = new ArrayList<>(entry.results.size());
+        for (Map<String, Object> result : entry.results) {
+            if (results.size() >= maxResults) break;
+            results.add(new Geocode.GeoCodeResult(toDouble(result.get("latitude")), toDouble(result.get("longitude")),
+                    (String) result.get("description"), (Map<String, Object>) result.get("data")));
+        }
+        return results;
+    }
+
+    public void put(String provider, String address, long maxResults, List<Geocode.GeoCodeResult> results) {
+        List<Map<String, Object>> stored = new ArrayList<>(results.size());
+        for (Geocode.GeoCodeResult result : results) {
+            stored.add(map("latitude", result.latitude, "longitude", result.longitude, "description", result.description, "data", result.data));
+        }
+        String key = key(provider, address);
+        Entry entry = new Entry(System.currentTimeMillis(), maxResults, stored);
+        entries.put(key, entry);
+        append(map("key", key, "time", entry.time, "maxResults", maxResults, "results", stored));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops all entries and deletes the file.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        close();
+        file.delete();
+    }
+
+    /**
+     * Closes the file of the cache, the next use reads it again.
+     */
+    static void close(File file) {
+        GeocodeCache cache = CACHES.remove(file.getAbsoluteFile());
+        if (cache != null) cache.close();
+    }
+
+    private synchronized void open(long ttl) {
+        if (writer != null) return;
+        try {
+            lines = 0;
+            if (file.exists()) load(ttl);
+            if (lines > 2 * entries.size() + 1000) compact();
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) parent.mkdirs();
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open the geocode cache " + file, e);
+        }
+    }
+
+    private void load(long ttl) throws IOException {
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                Map<String, Object> data;
+                try {
+                    data = JsonUtil.OBJECT_MAPPER.readValue(line, Map.class);
+                } catch (IOException e) {
+                    // the last line of a crashed write
+                    continue;
+                }
+                Entry entry = new Entry(Util.toLong(data.get("time")), Util.toLong(data.get("maxResults")), (List<Map<String, Object>>) data.get("results"));
+                if (!entry.isExpired(now, ttl)) entries.put((String) data.get("key"), entry);
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.write(JsonUtil.OBJECT_MAPPER.writeValueAsString(map("key", e.getKey(), "time", entry.time, "maxResults", entry.maxResults, "results", entry.results)));
+                out.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lines = entries.size();
+    }
+
+    private synchronized void append(Map<String, Object> line) {
+        try {
+            if (writer == null) return;
+            writer.write(JsonUtil.OBJECT_MAPPER.writeValueAsString(line));
+            writer.newLine();
+            writer.flush();
+            lines++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write to the geocode cache " + file, e);
+        }
+    }
+
+    private synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        writer = null;
+    }
+
+    private static class Entry {
+        private final long time;
+        private final long maxResults;
+        private final List<Map<String, Object>> results;
+
+        Entry(long time, long maxResults, List<Map<String, Object>> results) {
+            this.time = time;
+            this.maxResults = maxResults;
+            this.results = results;
+        }
+
+        boolean isExpired(long now, long ttl) {
+            return ttl > 0 && now - time >= TimeUnit.SECONDS.toMillis(ttl);
+        }
+    }
+}
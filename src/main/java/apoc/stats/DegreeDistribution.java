@@ -3,11 +3,12 @@ package apoc.stats;
 import apoc.Pools;
 import apoc.path.RelationshipTypeAndDirections;
 import apoc.util.kernel.MultiThreadedGlobalGraphOperations;
-import org.HdrHistogram.AtomicHistogram;
+import org.HdrHistogram.Histogram;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.helpers.collection.Pair;
 import org.neo4j.internal.kernel.api.*;
+import org.neo4j.internal.kernel.api.exceptions.LabelNotFoundKernelException;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
@@ -15,8 +16,11 @@ import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static org.neo4j.internal.kernel.api.Read.ANY_LABEL;
@@ -35,19 +39,39 @@ public class DegreeDistribution {
         public final long total;
         private final int type;
         private final Direction direction;
-        private transient AtomicHistogram histogram;
+        private transient Histogram histogram;
 
-        public void computeDegree(NodeCursor nodeCursor, CursorFactory cursors) {
-            int degree = DegreeUtil.degree(nodeCursor, cursors, type, direction);
-            record(degree);
+        public static class Result {
+            public String type;
+            public String direction;
+            public long total;
+            public long p50, p75, p90, p95, p99, p999, max, min;
+            public double mean;
         }
 
-        public static class Result {
+        public static class LabelResult {
+            public String label;
             public String type;
             public String direction;
             public long total;
             public long p50, p75, p90, p95, p99, p999, max, min;
             public double mean;
+
+            public LabelResult(String label, Result result) {
+                this.label = label;
+                this.type = result.type;
+                this.direction = result.direction;
+                this.total = result.total;
+                this.p50 = result.p50;
+                this.p75 = result.p75;
+                this.p90 = result.p90;
+                this.p95 = result.p95;
+                this.p99 = result.p99;
+                this.p999 = result.p999;
+                this.max = result.max;
+                this.min = result.min;
+                this.mean = result.mean;
+            }
         }
 
         public DegreeStats(String typeName, int type, Direction direction, long total) {
@@ -55,11 +79,18 @@ public class DegreeDistribution {
             this.type = type;
             this.direction = direction;
             this.total = total;
-            this.histogram = new AtomicHistogram(total,3);
+            this.histogram = new Histogram(Math.max(2, total), 3);
+            this.histogram.setAutoResize(true);
+        }
+        public DegreeStats copy() {
+            return new DegreeStats(typeName, type, direction, total);
         }
         public void record(long value) {
             histogram.recordValue(value);
         }
+        public void merge(DegreeStats other) {
+            histogram.add(other.histogram);
+        }
         public Result done() {
             Result result = new Result();
             result.type = typeName;
@@ -86,14 +117,96 @@ public class DegreeDistribution {
     @Context
     public KernelTransaction tx;
 
+    /**
+     * Per thread degree histograms, all types and directions of a node are computed from one relationship pass.
+     * The histograms of all threads are merged after the scan, so the scan threads never contend on shared counters.
+     */
+    static class DegreeCollector {
+        private final List<DegreeStats> prototype;
+        private final boolean byLabel;
+        private final List<DegreeStats> stats;
+        private final Map<Integer, List<DegreeStats>> labelStats = new HashMap<>();
+        private final DegreeUtil.DegreeCounter counter = new DegreeUtil.DegreeCounter();
+
+        DegreeCollector(List<DegreeStats> prototype, boolean byLabel) {
+            this.prototype = prototype;
+            this.byLabel = byLabel;
+            this.stats = copy(prototype);
+        }
+
+        private static List<DegreeStats> copy(List<DegreeStats> stats) {
+            List<DegreeStats> result = new ArrayList<>(stats.size());
+            for (DegreeStats s : stats) result.add(s.copy());
+            return result;
+        }
+
+        void accept(NodeCursor nodeCursor, CursorFactory cursors) {
+            counter.count(nodeCursor, cursors);
+            record(stats);
+            if (byLabel) {
+                LabelSet labels = nodeCursor.labels();
+                for (int l = 0; l < labels.numberOfLabels(); l++) {
+                    record(labelStats.computeIfAbsent(labels.label(l), (label) -> copy(prototype)));
+                }
+            }
+        }
+
+        private void record(List<DegreeStats> target) {
+            for (DegreeStats s : target) {
+                s.record(counter.degree(s.type, s.direction));
+            }
+        }
+
+        void mergeInto(List<DegreeStats> totals, Map<Integer, List<DegreeStats>> labelTotals) {
+            merge(stats, totals);
+            labelStats.forEach((label, s) -> merge(s, labelTotals.computeIfAbsent(label, (l) -> copy(prototype))));
+        }
+
+        private static void merge(List<DegreeStats> from, List<DegreeStats> to) {
+            for (int i = 0; i < from.size(); i++) to.get(i).merge(from.get(i));
+        }
+    }
+
     @Procedure
     public Stream<DegreeStats.Result> degrees(@Name(value = "types", defaultValue = "") String types) {
         List<DegreeStats> stats = prepareStats(types);
+        collect(stats, null);
+        return stats.stream().map(DegreeStats::done);
+    }
+
+    @Procedure
+    public Stream<DegreeStats.LabelResult> degreesByLabel(@Name(value = "types", defaultValue = "") String types) {
+        List<DegreeStats> stats = prepareStats(types);
+        Map<Integer, List<DegreeStats>> labelStats = new HashMap<>();
+        collect(stats, labelStats);
+        TokenRead tokenRead = tx.tokenRead();
+        Stream<DegreeStats.LabelResult> global = stats.stream().map(s -> new DegreeStats.LabelResult(null, s.done()));
+        Stream<DegreeStats.LabelResult> perLabel = labelStats.entrySet().stream().flatMap(e -> {
+            String label = labelName(tokenRead, e.getKey());
+            return e.getValue().stream().map(s -> new DegreeStats.LabelResult(label, s.done()));
+        });
+        return Stream.concat(global, perLabel);
+    }
 
+    private void collect(List<DegreeStats> stats, Map<Integer, List<DegreeStats>> labelStats) {
+        boolean byLabel = labelStats != null;
+        // each batch job runs in its own transaction, so it collects into its own collector, a pooled transaction is only
+        // reused by the next batch job after it was closed
+        Map<KernelTransaction, DegreeCollector> collectors = new ConcurrentHashMap<>();
         MultiThreadedGlobalGraphOperations.forAllNodes(db, Pools.DEFAULT, BATCHSIZE,
-                (ktx,nodeCursor)-> stats.forEach((s) -> s.computeDegree(nodeCursor, ktx.cursors()))
+                (ktx,nodeCursor)-> collectors.computeIfAbsent(ktx, k -> new DegreeCollector(stats, byLabel)).accept(nodeCursor, ktx.cursors())
         );
-        return stats.stream().map(DegreeStats::done);
+        for (DegreeCollector collector : collectors.values()) {
+            collector.mergeInto(stats, byLabel ? labelStats : new HashMap<>());
+        }
+    }
+
+    private String labelName(TokenRead tokenRead, int labelId) {
+        try {
+            return tokenRead.nodeLabelName(labelId);
+        } catch (LabelNotFoundKernelException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public List<DegreeStats> prepareStats(String types) {
@@ -3,8 +3,12 @@ package apoc.stats;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.internal.kernel.api.CursorFactory;
 import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.RelationshipGroupCursor;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
 import org.neo4j.internal.kernel.api.helpers.Nodes;
 
+import java.util.Arrays;
+
 import static org.neo4j.internal.kernel.api.Read.ANY_RELATIONSHIP_TYPE;
 
 public class DegreeUtil {
@@ -34,4 +38,88 @@ public class DegreeUtil {
         }
     }
 
+    /**
+     * Counts the outgoing, incoming and loop degrees of all relationship types of a node in a single pass,
+     * so that degrees for several types and directions can be read without re-reading the relationship chain.
+     * Not thread safe, meant to be reused by one thread for many nodes.
+     */
+    public static class DegreeCounter {
+        private int[] outgoing = new int[16];
+        private int[] incoming = new int[16];
+        private int[] loops = new int[16];
+        private int[] touched = new int[16];
+        private int touchedCount;
+        private int anyOutgoing, anyIncoming, anyLoops;
+
+        public void count(NodeCursor nodeCursor, CursorFactory cursors) {
+            reset();
+            if (nodeCursor.isDense()) {
+                try (RelationshipGroupCursor group = cursors.allocateRelationshipGroupCursor()) {
+                    nodeCursor.relationships(group);
+                    while (group.next()) {
+                        add(group.type(), group.outgoingCount(), group.incomingCount(), group.loopCount());
+                    }
+                }
+            } else {
+                long nodeId = nodeCursor.nodeReference();
+                try (RelationshipTraversalCursor traversal = cursors.allocateRelationshipTraversalCursor()) {
+                    nodeCursor.allRelationships(traversal);
+                    while (traversal.next()) {
+                        boolean out = traversal.sourceNodeReference() == nodeId;
+                        boolean in = traversal.targetNodeReference() == nodeId;
+                        add(traversal.type(), out && !in ? 1 : 0, in && !out ? 1 : 0, out && in ? 1 : 0);
+                    }
+                }
+            }
+        }
+
+        public int degree(int relType, Direction direction) {
+            int out, in, loop;
+            if (relType == ANY_RELATIONSHIP_TYPE) {
+                out = anyOutgoing; in = anyIncoming; loop = anyLoops;
+            } else if (relType < 0 || relType >= outgoing.length) {
+                return 0;
+            } else {
+                out = outgoing[relType]; in = incoming[relType]; loop = loops[relType];
+            }
+            switch (direction) {
+                case OUTGOING: return out + loop;
+                case INCOMING: return in + loop;
+                case BOTH: return out + in + loop;
+                default: throw new IllegalArgumentException("invalid direction " + direction);
+            }
+        }
+
+        private void add(int type, int out, int in, int loop) {
+            if (type >= outgoing.length) grow(type + 1);
+            if (outgoing[type] == 0 && incoming[type] == 0 && loops[type] == 0) {
+                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = type;
+            }
+            outgoing[type] += out;
+            incoming[type] += in;
+            loops[type] += loop;
+            anyOutgoing += out;
+            anyIncoming += in;
+            anyLoops += loop;
+        }
+
+        private void grow(int minSize) {
+            int size = Math.max(minSize, outgoing.length * 2);
+            outgoing = Arrays.copyOf(outgoing, size);
+            incoming = Arrays.copyOf(incoming, size);
+            loops = Arrays.copyOf(loops, size);
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int type = touched[i];
+                outgoing[type] = 0;
+                incoming[type] = 0;
+                loops[type] = 0;
+            }
+            touchedCount = 0;
+            anyOutgoing = anyIncoming = anyLoops = 0;
+        }
+    }
 }
@@ -0,0 +1,30 @@
+package apoc.ttl;
+
+import apoc.ApocKernelExtensionFactory;
+import apoc.util.Util;
+import org.neo4j.graphdb.Result;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Procedure;
+
+import java.util.stream.Stream;
+
+public class TTL {
+
+    @Context
+    public GraphDatabaseAPI db;
+
+    @Procedure(mode = Mode.READ)
+    @Description("apoc.ttl.status() YIELD enabled, backlog, expiredNodes, expiredRelationships, nodesPerSecond, nextRunMillis, ... - expired nodes left to delete and progress of the TTL background task")
+    public Stream<TTLLifeCycle.Status> status() {
+        ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = db.getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
+        TTLLifeCycle ttlLifeCycle = apocLifecycle == null ? null : apocLifecycle.getTtlLifeCycle();
+        TTLLifeCycle.Status status = ttlLifeCycle == null ? new TTLLifeCycle.Status() : ttlLifeCycle.getStatus();
+        try (Result result = db.execute("MATCH (t:TTL) WHERE t.ttl < timestamp() RETURN count(*) AS backlog")) {
+            status.backlog = Util.toLong(result.next().get("backlog"));
+        }
+        return Stream.of(status);
+    }
+}
@@ -1,16 +1,34 @@
 package apoc.ttl;
 
 import apoc.ApocConfiguration;
+import apoc.Pools;
 import apoc.util.Util;
-import org.neo4j.graphdb.QueryStatistics;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.scheduler.JobScheduler;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Deletes the nodes whose `ttl` has passed. Each run reads up to `apoc.ttl.limit` expired node ids with a range seek
+ * on the :TTL(ttl) index and deletes them in batches of about `apoc.ttl.batchSize` nodes and relationships on up to
+ * `apoc.ttl.concurrency` threads of the default pool. Nodes with more relationships than a batch are deleted on their
+ * own, with their relationships removed in chunks of the batch size.
+ * While a run leaves expired nodes behind, the next run starts right away instead of after `apoc.ttl.schedule` seconds.
+ *
  * @author mh
  * @since 15.02.17
  */
@@ -18,42 +36,240 @@ public class TTLLifeCycle {
 
     public static final int INITIAL_DELAY = 30;
     public static final int DEFAULT_SCHEDULE = 60;
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    // delay between the runs while there is a backlog of expired nodes
+    static final long BACKLOG_DELAY_MILLIS = 100;
+    private static final Label TTL = Label.label("TTL");
     public static JobScheduler.Group TTL_GROUP = new JobScheduler.Group("TTL");
     private final JobScheduler scheduler;
     private final GraphDatabaseAPI db;
     private JobScheduler.JobHandle ttlIndexJobHandle;
-    private JobScheduler.JobHandle ttlJobHandle;
+    private volatile JobScheduler.JobHandle ttlJobHandle;
+    private volatile boolean stopped;
+    private boolean enabled;
     private Log log;
 
+    private final long schedule;
+    private final long limit;
+    private final long batchSize;
+    private final int concurrency;
+    private final Stats stats = new Stats();
+
     public TTLLifeCycle(JobScheduler scheduler, GraphDatabaseAPI db, Log log) {
         this.scheduler = scheduler;
         this.log = log;
         this.db = db;
+        this.schedule = Util.toLong(ApocConfiguration.get("ttl.schedule", DEFAULT_SCHEDULE));
+        this.limit = Util.toLong(ApocConfiguration.get("ttl.limit", 1000L));
+        this.batchSize = Math.max(1, Util.toLong(ApocConfiguration.get("ttl.batchSize", DEFAULT_BATCH_SIZE)));
+        this.concurrency = Math.max(1, Util.toInteger(ApocConfiguration.get("ttl.concurrency", Math.max(1, Pools.DEFAULT_POOL_THREADS / 2))));
     }
 
     public void start() {
         boolean enabled = Util.toBoolean(ApocConfiguration.get("ttl.enabled", null));
         if (!enabled) return;
+        this.enabled = true;
 
-        long ttlSchedule = Util.toLong(ApocConfiguration.get("ttl.schedule", DEFAULT_SCHEDULE));
-        ttlIndexJobHandle = scheduler.schedule(TTL_GROUP, this::createTTLIndex, (int)(ttlSchedule*0.8), TimeUnit.SECONDS);
+        ttlIndexJobHandle = scheduler.schedule(TTL_GROUP, this::createTTLIndex, (int)(schedule*0.8), TimeUnit.SECONDS);
+        scheduleRun(TimeUnit.SECONDS.toMillis(schedule));
+    }
 
-        long limit = Util.toLong(ApocConfiguration.get("ttl.limit", 1000L));
+    private void scheduleRun(long delayMillis) {
+        if (stopped) return;
+        stats.nextRun = System.currentTimeMillis() + delayMillis;
+        ttlJobHandle = scheduler.schedule(TTL_GROUP, this::run, delayMillis, TimeUnit.MILLISECONDS);
+    }
 
-        ttlJobHandle = scheduler.scheduleRecurring(TTL_GROUP, () -> expireNodes(limit), ttlSchedule, ttlSchedule, TimeUnit.SECONDS);
+    private void run() {
+        long delay = TimeUnit.SECONDS.toMillis(schedule);
+        try {
+            if (Util.isWriteableInstance(db) && expireNodes(limit) == limit) {
+                delay = Math.min(delay, BACKLOG_DELAY_MILLIS);
+            }
+        } finally {
+            scheduleRun(delay);
+        }
     }
 
-    public void expireNodes(long limit) {
+    /**
+     * @return the number of expired nodes that were read, which were either deleted by this or a concurrent run
+     */
+    public long expireNodes(long limit) {
         try {
-            if (!Util.isWriteableInstance(db)) return;
-            Result result = db.execute("MATCH (t:TTL) where t.ttl < timestamp() WITH t LIMIT {limit} DETACH DELETE t", Util.map("limit", limit));
-            QueryStatistics stats = result.getQueryStatistics();
-            result.close();
-            if (stats.getNodesDeleted()>0) {
-                log.info("TTL: Expired %d nodes %d relationships", stats.getNodesDeleted(), stats.getRelationshipsDeleted());
+            long start = System.currentTimeMillis();
+            long[] ids = expiredNodeIds(start, limit);
+            if (ids.length == 0) {
+                stats.run(start, 0, 0);
+                return 0;
+            }
+            ConcurrentLinkedQueue<Batch> batches = batches(ids);
+            AtomicLong nodes = new AtomicLong(), relationships = new AtomicLong();
+            List<Batch> failed = deleteInParallel(batches, nodes, relationships);
+            // batches that failed on a deadlock with a concurrent batch, e.g. on a relationship between both of their nodes
+            for (Batch batch : failed) {
+                batch.delete(nodes, relationships);
             }
+            stats.run(start, nodes.get(), relationships.get());
+            if (nodes.get() > 0) {
+                log.info("TTL: Expired %d nodes %d relationships", nodes.get(), relationships.get());
+            }
+            return ids.length;
         } catch (Exception e) {
             log.error("TTL: Error deleting expired nodes", e);
+            return 0;
+        }
+    }
+
+    private long[] expiredNodeIds(long now, long limit) {
+        try (Transaction tx = db.beginTx();
+             Result result = db.execute("MATCH (t:TTL) WHERE t.ttl < {now} RETURN id(t) AS id LIMIT {limit}",
+                     Util.map("now", now, "limit", limit))) {
+            long[] ids = result.<Long>columnAs("id").stream().mapToLong(Long::longValue).toArray();
+            tx.success();
+            return ids;
+        }
+    }
+
+    /**
+     * Groups the nodes into batches of up to batchSize nodes and relationships, nodes with more relationships get a
+     * batch of their own.
+     */
+    private ConcurrentLinkedQueue<Batch> batches(long[] ids) {
+        ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<>();
+        try (Transaction tx = db.beginTx()) {
+            Batch batch = new Batch();
+            for (long id : ids) {
+                int degree;
+                try {
+                    degree = db.getNodeById(id).getDegree();
+                } catch (NotFoundException e) {
+                    continue;
+                }
+                if (degree + 1 > batchSize) {
+                    batches.add(new Batch(id));
+                    continue;
+                }
+                if (batch.size + degree + 1 > batchSize) {
+                    batches.add(batch);
+                    batch = new Batch();
+                }
+                batch.add(id, degree);
+            }
+            if (batch.size > 0) batches.add(batch);
+            tx.success();
+        }
+        return batches;
+    }
+
+    private List<Batch> deleteInParallel(ConcurrentLinkedQueue<Batch> batches, AtomicLong nodes, AtomicLong relationships) throws Exception {
+        ConcurrentLinkedQueue<Batch> failed = new ConcurrentLinkedQueue<>();
+        int workers = Math.min(concurrency, batches.size());
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(Pools.DEFAULT.submit(() -> {
+                Batch batch;
+                while (!stopped && (batch = batches.poll()) != null) {
+                    try {
+                        batch.delete(nodes, relationships);
+                    } catch (Exception e) {
+                        failed.add(batch);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        return new ArrayList<>(failed);
+    }
+
+    private class Batch {
+        private long[] ids;
+        private int count;
+        private long size;
+        private final boolean dense;
+
+        Batch() {
+            this.ids = new long[16];
+            this.dense = false;
+        }
+
+        Batch(long denseNodeId) {
+            this.ids = new long[]{denseNodeId};
+            this.count = 1;
+            this.dense = true;
+        }
+
+        void add(long id, int degree) {
+            if (count == ids.length) {
+                long[] grown = new long[count * 2];
+                System.arraycopy(ids, 0, grown, 0, count);
+                ids = grown;
+            }
+            ids[count++] = id;
+            size += degree + 1;
+        }
+
+        void delete(AtomicLong nodes, AtomicLong relationships) {
+            if (dense) {
+                deleteDense(ids[0], nodes, relationships);
+                return;
+            }
+            long deletedNodes = 0, deletedRelationships = 0;
+            try (Transaction tx = db.beginTx()) {
+                for (int i = 0; i < count; i++) {
+                    Node node = expiredNode(db, ids[i]);
+                    if (node == null) continue;
+                    for (Relationship relationship : node.getRelationships()) {
+                        relationship.delete();
+                        deletedRelationships++;
+                    }
+                    node.delete();
+                    deletedNodes++;
+                }
+                tx.success();
+            }
+            nodes.addAndGet(deletedNodes);
+            relationships.addAndGet(deletedRelationships);
+        }
+
+        private void deleteDense(long id, AtomicLong nodes, AtomicLong relationships) {
+            while (!stopped) {
+                try (Transaction tx = db.beginTx()) {
+                    Node node = expiredNode(db, id);
+                    if (node == null) return;
+                    long deleted = 0;
+                    Iterator<Relationship> it = node.getRelationships().iterator();
+                    while (deleted < batchSize && it.hasNext()) {
+                        it.next().delete();
+                        deleted++;
+                    }
+                    if (!it.hasNext()) {
+                        node.delete();
+                        tx.success();
+                        relationships.addAndGet(deleted);
+                        nodes.incrementAndGet();
+                        return;
+                    }
+                    tx.success();
+                    relationships.addAndGet(deleted);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the node if it still exists and is still expired, its ttl could have been extended in the meantime
+     */
+    private static Node expiredNode(GraphDatabaseService db, long id) {
+        try {
+            Node node = db.getNodeById(id);
+            if (!node.hasLabel(TTL)) return null;
+            Object ttl = node.getProperty("ttl", null);
+            return ttl instanceof Number && ((Number) ttl).longValue() < System.currentTimeMillis() ? node : null;
+        } catch (NotFoundException e) {
+            return null;
         }
     }
 
@@ -66,7 +282,56 @@ public class TTLLifeCycle {
     }
 
     public void stop() {
+        stopped = true;
         if (ttlIndexJobHandle != null) ttlIndexJobHandle.cancel(true);
         if (ttlJobHandle != null) ttlJobHandle.cancel(true);
     }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Status getStatus() {
+        Status status = new Status();
+        status.enabled = enabled;
+        status.runs = stats.runs.get();
+        status.expiredNodes = stats.expiredNodes.get();
+        status.expiredRelationships = stats.expiredRelationships.get();
+        status.lastRun = stats.lastRun;
+        status.lastRunMillis = stats.lastRunMillis;
+        status.lastRunNodes = stats.lastRunNodes;
+        status.nodesPerSecond = stats.lastRunMillis == 0 ? stats.lastRunNodes : stats.lastRunNodes * 1000d / stats.lastRunMillis;
+        status.nextRunMillis = enabled ? Math.max(0, stats.nextRun - System.currentTimeMillis()) : 0;
+        return status;
+    }
+
+    private static class Stats {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong expiredNodes = new AtomicLong();
+        private final AtomicLong expiredRelationships = new AtomicLong();
+        private volatile long lastRun, lastRunMillis, lastRunNodes;
+        private volatile long nextRun;
+
+        private void run(long start, long nodes, long relationships) {
+            runs.incrementAndGet();
+            expiredNodes.addAndGet(nodes);
+            expiredRelationships.addAndGet(relationships);
+            lastRun = start;
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunNodes = nodes;
+        }
+    }
+
+    public static class Status {
+        public boolean enabled;
+        public long backlog;
+        public long runs;
+        public long expiredNodes;
+        public long expiredRelationships;
+        public long lastRun;
+        public long lastRunMillis;
+        public long lastRunNodes;
+        public double nodesPerSecond;
+        public long nextRunMillis;
+    }
 }
@@ -0,0 +1,141 @@
+package apoc.util;
+
+import apoc.ApocConfiguration;
+import apoc.Pools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Keeps clients of remote databases open for reuse, e.g. drivers that pool their own connections, so that calls per
+ * row don't connect again each time. A client is acquired for a key and released when the call is done with it.
+ * Clients that are not used for the configured idle timeout in seconds are closed, and of more than the configured
+ * maximum number of clients the least recently used ones are closed as soon as they are not in use.
+ */
+public class ClientCache<K, C> {
+
+    private final String idleTimeoutKey;
+    private final int defaultIdleTimeout;
+    private final String maxClientsKey;
+    private final int defaultMaxClients;
+    private final Consumer<C> close;
+
+    private final Map<K, Entry<C>> clients = new ConcurrentHashMap<>();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    /**
+     * @param idleTimeoutKey the config key of the idle timeout in seconds, without the `apoc.` prefix
+     * @param maxClientsKey the config key of the maximum number of clients, without the `apoc.` prefix
+     * @param close closes an evicted client
+     */
+    public ClientCache(String idleTimeoutKey, int defaultIdleTimeout, String maxClientsKey, int defaultMaxClients, Consumer<C> close) {
+        this.idleTimeoutKey = idleTimeoutKey;
+        this.defaultIdleTimeout = defaultIdleTimeout;
+        this.maxClientsKey = maxClientsKey;
+        this.defaultMaxClients = defaultMaxClients;
+        this.close = close;
+    }
+
+    /**
+     * @param create opens a new client if there is none for the key
+     * @return the client for the key, which has to be released when it is no longer used
+     */
+    public C acquire(K key, Supplier<C> create) {
+        Entry<C> entry = clients.compute(key, (k, existing) -> {
+            Entry<C> e = existing == null ? new Entry<>(create.get()) : existing;
+            e.inUse++;
+            e.lastUsed = System.currentTimeMillis();
+            return e;
+        });
+        scheduleEviction();
+        if (clients.size() > maxClients()) evictLeastRecentlyUsed();
+        return entry.client;
+    }
+
+    public void release(K key) {
+        clients.computeIfPresent(key, (k, entry) -> {
+            entry.inUse--;
+            entry.lastUsed = System.currentTimeMillis();
+            return entry;
+        });
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    public void clear() {
+        for (K key : clients.keySet()) {
+            Entry<C> entry = clients.remove(key);
+            if (entry != null) close(entry.client);
+        }
+    }
+
+    private long maxClients() {
+        return Util.toLong(ApocConfiguration.get(maxClientsKey, defaultMaxClients));
+    }
+
+    private void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            Pools.SCHEDULED.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    public void evictIdle() {
+        long idleTimeout = TimeUnit.SECONDS.toMillis(Util.toLong(ApocConfiguration.get(idleTimeoutKey, defaultIdleTimeout)));
+        long now = System.currentTimeMillis();
+        for (K key : clients.keySet()) {
+            evict(key, entry -> now - entry.lastUsed >= idleTimeout);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        List<Map.Entry<K, Entry<C>>> entries = new ArrayList<>(clients.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+        long excess = clients.size() - maxClients();
+        for (int i = 0; i < entries.size() && excess > 0; i++) {
+            if (evict(entries.get(i).getKey(), entry -> true)) excess--;
+        }
+    }
+
+    /**
+     * Removes the client if it is not in use, atomically with its acquisition.
+     */
+    private boolean evict(K key, Predicate<Entry<C>> evict) {
+        List<C> evicted = new ArrayList<>(1);
+        clients.computeIfPresent(key, (k, entry) -> {
+            if (entry.inUse > 0 || !evict.test(entry)) return entry;
+            evicted.add(entry.client);
+            return null;
+        });
+        evicted.forEach(this::close);
+        return !evicted.isEmpty();
+    }
+
+    private void close(C client) {
+        try {
+            close.accept(client);
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    private static class Entry<C> {
+        private final C client;
+        // only changed within the compute functions of the map
+        private int inUse;
+        private volatile long lastUsed;
+
+        Entry(C client) {
+            this.client = client;
+        }
+    }
+}
@@ -55,6 +55,25 @@ public class FileUtils {
         return readFileStream(fileName);
     }
 
+    /**
+     * @return the local file of the url, or null if it is remote or read from a compressed file
+     */
+    public static File uncompressedLocalFile(String fileName) throws IOException {
+        checkReadAllowed(fileName);
+        if (fileName == null || !isFile(fileName)) return null;
+        fileName = changeFileUrlIfImportDirectoryConstrained(fileName);
+        String lowerCase = fileName.toLowerCase();
+        if (fileName.contains("!") || lowerCase.endsWith(".gz") || lowerCase.endsWith(".zip") || lowerCase.endsWith(".tgz")) return null;
+        File file;
+        if (fileName.matches("^\\w+:/.+")) {
+            if (!lowerCase.startsWith("file:")) return null;
+            file = new File(URI.create(fileName));
+        } else {
+            file = new File(fileName);
+        }
+        return file.isFile() && file.canRead() ? file : null;
+    }
+
     private static CountingInputStream readHdfsStream(String fileName) {
         try {
             StreamConnection streamConnection = HDFSUtils.readFile(fileName);
@@ -0,0 +1,57 @@
+package apoc.uuid;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generators for the uuids added by the uuid handler, configured with `apoc.uuid.generator`.
+ * <ul>
+ * <li>random - random (version 4) uuids from the shared SecureRandom of {@link UUID#randomUUID()}</li>
+ * <li>thread_local_random - random (version 4) uuids from {@link ThreadLocalRandom}, which doesn't contend under concurrent writes</li>
+ * <li>time_ordered - (version 7) uuids starting with the milliseconds since epoch, so that new uuids are close to each other in the unique index</li>
+ * </ul>
+ */
+public enum UuidGenerator {
+    RANDOM {
+        @Override
+        public UUID generate() {
+            return UUID.randomUUID();
+        }
+    },
+    THREAD_LOCAL_RANDOM {
+        @Override
+        public UUID generate() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return uuid(random.nextLong(), random.nextLong(), 4);
+        }
+    },
+    TIME_ORDERED {
+        @Override
+        public UUID generate() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // 48 bits of milliseconds followed by the version and 12 random bits
+            long mostSigBits = (System.currentTimeMillis() << 16) | (random.nextLong() & 0xFFFFL);
+            return uuid(mostSigBits, random.nextLong(), 7);
+        }
+    };
+
+    public abstract UUID generate();
+
+    private static UUID uuid(long mostSigBits, long leastSigBits, int version) {
+        mostSigBits = (mostSigBits & ~0xF000L) | ((long) version << 12);
+        // IETF variant
+        leastSigBits = (leastSigBits & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    public static UuidGenerator from(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return RANDOM;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown uuid generator '" + name + "', use one of random, thread_local_random or time_ordered");
+        }
+    }
+}
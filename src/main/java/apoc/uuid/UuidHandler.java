@@ -1,5 +1,6 @@
 package apoc.uuid;
 
+import apoc.ApocConfiguration;
 import apoc.util.JsonUtil;
 import apoc.util.Util;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -7,6 +8,7 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
 import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventHandler;
@@ -17,11 +19,10 @@ import org.neo4j.kernel.impl.core.GraphProperties;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -31,6 +32,7 @@ public class UuidHandler implements TransactionEventHandler {
     static ConcurrentHashMap<String, UuidConfig> uuid = new ConcurrentHashMap();
     private static GraphProperties properties;
     private final Log log;
+    private final UuidGenerator generator;
 
 
     private static final TypeReference<Map<String, UuidConfig>> typeRef = new TypeReference<Map<String, UuidConfig>>() {};
@@ -41,6 +43,7 @@ public class UuidHandler implements TransactionEventHandler {
     UuidHandler(GraphDatabaseAPI api, Log log) {
         properties = api.getDependencyResolver().resolveDependency(EmbeddedProxySPI.class).newGraphPropertiesProxy();
         this.log = log;
+        this.generator = UuidGenerator.from(ApocConfiguration.get("uuid.generator", "random"));
     }
 
     private static void checkEnabled() {
@@ -76,53 +79,54 @@ public class UuidHandler implements TransactionEventHandler {
         }
     }
 
+    /**
+     * Adds missing uuids in one pass over the changes of the transaction, however many labels are configured.
+     * A uuid that was removed or set to an empty value is restored to its previously committed value, nodes that
+     * got a configured label without having a uuid get a new one.
+     */
     @Override
     public Object beforeCommit(TransactionData txData) {
+        if (uuid.isEmpty()) return null;
         GraphDatabaseService db = properties.getGraphDatabase();
-        Map<String, String> exceptions = new LinkedHashMap<>();
-        Iterable<Node> createdNodes = txData.createdNodes();
-        Iterable<PropertyEntry<Node>> assignedNodeProperties = txData.assignedNodeProperties();
-        Iterable<PropertyEntry<Node>> removedNodeProperties = txData.removedNodeProperties();
-
-        uuid.forEach((label, config) -> {
-            try (Transaction tx = db.beginTx()) {
-                if (createdNodes.iterator().hasNext()) {
-                    createdNodes.forEach(node -> {
-                        if (node.hasLabel(Label.label(label)) && !node.hasProperty(config.getUuidProperty())) {
-                            String uuid = UUID.randomUUID().toString();
-                            node.setProperty(config.getUuidProperty(), uuid);
-                        }
-                    });
-                }
-                checkAndRestoreUuidProperty(assignedNodeProperties, label, config.getUuidProperty(),
-                        (nodePropertyEntry) -> nodePropertyEntry.value() == null || nodePropertyEntry.value().equals(""));
-                checkAndRestoreUuidProperty(removedNodeProperties, label, config.getUuidProperty());
-                tx.success();
-            } catch (Exception e) {
-                log.warn("Error executing uuid " + label + " in phase before", e);
-                exceptions.put(label, e.getMessage());
+        Set<String> uuidProperties = new HashSet<>();
+        uuid.values().forEach(config -> uuidProperties.add(config.getUuidProperty()));
+
+        try (Transaction tx = db.beginTx()) {
+            // restore removed uuids first, so that the nodes don't get new ones below
+            restoreUuidProperties(txData, txData.assignedNodeProperties(), uuidProperties);
+            restoreUuidProperties(txData, txData.removedNodeProperties(), uuidProperties);
+            // labels of created nodes are assigned labels as well
+            for (LabelEntry labelEntry : txData.assignedLabels()) {
+                UuidConfig config = uuid.get(labelEntry.label().name());
+                if (config == null || txData.isDeleted(labelEntry.node())) continue;
+                setUuidIfMissing(labelEntry.node(), config.getUuidProperty(), null);
             }
-        });
+            tx.success();
+        } catch (Exception e) {
+            log.warn("Error executing uuid in phase before", e);
+        }
         return null;
     }
 
-    private void checkAndRestoreUuidProperty(Iterable<PropertyEntry<Node>> nodeProperties, String label, String uuidProperty) {
-        checkAndRestoreUuidProperty(nodeProperties, label, uuidProperty, null);
+    private void restoreUuidProperties(TransactionData txData, Iterable<PropertyEntry<Node>> nodeProperties, Set<String> uuidProperties) {
+        for (PropertyEntry<Node> nodePropertyEntry : nodeProperties) {
+            if (!uuidProperties.contains(nodePropertyEntry.key())) continue;
+            Node node = nodePropertyEntry.entity();
+            if (txData.isDeleted(node)) continue;
+            for (Label label : node.getLabels()) {
+                UuidConfig config = uuid.get(label.name());
+                if (config != null && config.getUuidProperty().equals(nodePropertyEntry.key())) {
+                    setUuidIfMissing(node, nodePropertyEntry.key(), nodePropertyEntry.previouslyCommitedValue());
+                    break;
+                }
+            }
+        }
     }
 
-    private void checkAndRestoreUuidProperty(Iterable<PropertyEntry<Node>> nodeProperties, String label, String uuidProperty, Predicate<PropertyEntry<Node>> predicate) {
-        if (nodeProperties.iterator().hasNext()) {
-            nodeProperties.forEach(nodePropertyEntry -> {
-                if (predicate == null) {
-                    if (nodePropertyEntry.entity().hasLabel(Label.label(label)) && nodePropertyEntry.key().equals(uuidProperty)) {
-                        nodePropertyEntry.entity().setProperty(uuidProperty, nodePropertyEntry.previouslyCommitedValue());
-                    }
-                } else {
-                    if (nodePropertyEntry.entity().hasLabel(Label.label(label)) && nodePropertyEntry.key().equals(uuidProperty) && predicate.test(nodePropertyEntry)) {
-                        nodePropertyEntry.entity().setProperty(uuidProperty, nodePropertyEntry.previouslyCommitedValue());
-                    }
-                }
-            });
+    private void setUuidIfMissing(Node node, String uuidProperty, Object previousValue) {
+        Object value = node.getProperty(uuidProperty, null);
+        if (value == null || value.equals("")) {
+            node.setProperty(uuidProperty, previousValue != null ? previousValue : generator.generate().toString());
         }
     }
 
@@ -0,0 +1,351 @@
+package apoc.warmup;
+
+import apoc.ApocConfiguration;
+import apoc.Pools;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.monitoring.PageCacheCounters;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.schema.SchemaDescriptorFactory;
+import org.neo4j.kernel.impl.api.index.IndexingService;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loads the pages of chosen store files into the page cache. Each file is split into ranges of pages that are read on
+ * the {@link Pools#WARMUP} pool, optionally throttled to a number of pages per second over all threads.
+ * A profile records which pages of the mapped files are in the page cache, so that only those are loaded again after
+ * a restart.
+ */
+public class PageWarmer {
+
+    public static final int DEFAULT_PARTITION_PAGES = 4096;
+    private static final int PROFILE_VERSION = 1;
+    // the throttle and the termination are checked for chunks of pages
+    private static final int CHUNK_PAGES = 64;
+
+    private static final Map<String, List<String>> STORES = new LinkedHashMap<>();
+    static {
+        STORES.put("nodes", Arrays.asList("neostore.nodestore.db", "neostore.nodestore.db.labels"));
+        STORES.put("relationships", Arrays.asList("neostore.relationshipstore.db", "neostore.relationshipgroupstore.db"));
+        STORES.put("properties", Collections.singletonList("neostore.propertystore.db"));
+        STORES.put("strings", Collections.singletonList("neostore.propertystore.db.strings"));
+        STORES.put("arrays", Collections.singletonList("neostore.propertystore.db.arrays"));
+    }
+    // an index by label and property keys, e.g. :Person(name) or :Person(first,last)
+    private static final Pattern INDEX = Pattern.compile(":\\s*`?([^`(]+?)`?\\s*\\(([^)]+)\\)");
+
+    private final GraphDatabaseAPI db;
+    private final PageCache pageCache;
+    private final BooleanSupplier terminated;
+
+    public PageWarmer(GraphDatabaseAPI db, BooleanSupplier terminated) {
+        this.db = db;
+        this.pageCache = db.getDependencyResolver().resolveDependency(PageCache.class);
+        this.terminated = terminated;
+    }
+
+    public static class FileResult {
+        public final String file;
+        public final boolean index;
+        public final long fileSize;
+        public final long pages;
+        public final long time;
+        public final double pagesPerSecond;
+        public final double hitRatio;
+
+        public FileResult(String file, boolean index, long fileSize, long pages, long time, double hitRatio) {
+            this.file = file;
+            this.index = index;
+            this.fileSize = fileSize;
+            this.pages = pages;
+            this.time = time;
+            this.pagesPerSecond = time == 0 ? pages * 1000d : pages * 1000d / time;
+            this.hitRatio = hitRatio;
+        }
+    }
+
+    /**
+     * @param stores `nodes`, `relationships`, `properties`, `strings`, `arrays`, `indexes` for all index and label scan
+     *               files, or an index like `:Person(name)`
+     */
+    public List<PagedFile> select(List<String> stores) throws IOException {
+        List<Predicate<PagedFile>> selected = new ArrayList<>(stores.size());
+        for (String store : stores) {
+            selected.add(selector(store.trim()));
+        }
+        return pageCache.listExistingMappings().stream()
+                .filter(pagedFile -> selected.stream().anyMatch(s -> s.test(pagedFile)))
+                .collect(Collectors.toList());
+    }
+
+    private Predicate<PagedFile> selector(String store) {
+        List<String> files = STORES.get(store.toLowerCase());
+        if (files != null) return pagedFile -> files.contains(pagedFile.file().getName());
+        if (store.equalsIgnoreCase("indexes")) return pagedFile -> isSchema(pagedFile.file());
+        Matcher matcher = INDEX.matcher(store);
+        if (matcher.matches()) {
+            String directory = File.separator + indexId(matcher.group(1).trim(), matcher.group(2).split(",")) + File.separator;
+            return pagedFile -> isSchema(pagedFile.file()) && name(pagedFile).contains(directory);
+        }
+        throw new IllegalArgumentException("Unknown store " + store + ", expected one of " + STORES.keySet() + ", indexes or an index like :Label(property)");
+    }
+
+    private long indexId(String label, String[] properties) {
+        KernelTransaction ktx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(true);
+        TokenRead tokens = ktx.tokenRead();
+        int labelId = tokens.nodeLabel(label);
+        int[] propertyIds = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            propertyIds[i] = tokens.propertyKey(properties[i].trim().replace("`", ""));
+        }
+        try {
+            return db.getDependencyResolver().resolveDependency(IndexingService.class).getIndexId(SchemaDescriptorFactory.forLabel(labelId, propertyIds));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("No index on :" + label + "(" + String.join(",", properties) + ")", e);
+        }
+    }
+
+    /**
+     * Loads all pages of the files.
+     */
+    public List<FileResult> warmup(List<PagedFile> files, int partitionPages, long pagesPerSecond) throws IOException {
+        Map<PagedFile, BitSet> pages = new LinkedHashMap<>();
+        for (PagedFile file : files) pages.put(file, null);
+        return warmup(pages, partitionPages, pagesPerSecond);
+    }
+
+    /**
+     * @param pages the pages to load per file, or null for all pages of the file
+     */
+    List<FileResult> warmup(Map<PagedFile, BitSet> pages, int partitionPages, long pagesPerSecond) throws IOException {
+        Throttle throttle = new Throttle(pagesPerSecond);
+        Map<PagedFile, LongAdder> loaded = new LinkedHashMap<>();
+        Map<PagedFile, AtomicLong> finished = new LinkedHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (Map.Entry<PagedFile, BitSet> entry : pages.entrySet()) {
+            PagedFile file = entry.getKey();
+            BitSet hot = entry.getValue();
+            LongAdder count = new LongAdder();
+            AtomicLong end = new AtomicLong(start);
+            loaded.put(file, count);
+            finished.put(file, end);
+            long lastPageId = file.fileSize() > 0 ? file.getLastPageId() : -1;
+            for (long first = 0; first <= lastPageId; first += partitionPages) {
+                long from = first, to = Math.min(lastPageId, first + partitionPages - 1);
+                if (hot != null) {
+                    int next = hot.nextSetBit((int) from);
+                    if (next < 0 || next > to) continue;
+                }
+                futures.add(Pools.WARMUP.submit(() -> {
+                    count.add(load(file, from, to, hot, throttle));
+                    end.accumulateAndGet(System.currentTimeMillis(), Math::max);
+                    return null;
+                }));
+            }
+        }
+        try {
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while warming up the page cache", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IOException("Error warming up the page cache", e.getCause());
+        } finally {
+            pageCache.reportEvents();
+        }
+        double hitRatio = hitRatio();
+        List<FileResult> results = new ArrayList<>(loaded.size());
+        for (Map.Entry<PagedFile, LongAdder> entry : loaded.entrySet()) {
+            PagedFile file = entry.getKey();
+            long time = finished.get(file).get() - start;
+            results.add(new FileResult(name(file), isSchema(file.file()), file.fileSize(), entry.getValue().sum(), time, hitRatio));
+        }
+        return results;
+    }
+
+    private long load(PagedFile file, long from, long to, BitSet hot, Throttle throttle) throws IOException {
+        long pages = 0;
+        try (PageCursor cursor = file.io(from, PagedFile.PF_SHARED_READ_LOCK | PagedFile.PF_READ_AHEAD)) {
+            long pageId = hot == null ? from : hot.nextSetBit((int) from);
+            while (pageId >= 0 && pageId <= to) {
+                if (pages % CHUNK_PAGES == 0) {
+                    if (terminated.getAsBoolean()) break;
+                    throttle.acquire((int) Math.min(CHUNK_PAGES, to - pageId + 1));
+                }
+                if (!cursor.next(pageId)) break;
+                cursor.getByte();
+                pages++;
+                pageId = hot == null ? pageId + 1 : hot.nextSetBit((int) pageId + 1);
+            }
+        } finally {
+            pageCache.reportEvents();
+        }
+        return pages;
+    }
+
+    private double hitRatio() {
+        try {
+            return db.getDependencyResolver().resolveDependency(PageCacheCounters.class).hitRatio();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @return the pages of the mapped files that are in the page cache, without loading any
+     */
+    public Map<PagedFile, BitSet> hotPages() throws IOException {
+        Map<PagedFile, BitSet> result = new LinkedHashMap<>();
+        for (PagedFile file : pageCache.listExistingMappings()) {
+            BitSet hot = new BitSet();
+            if (file.fileSize() > 0) {
+                try (PageCursor cursor = file.io(0, PagedFile.PF_SHARED_READ_LOCK | PagedFile.PF_NO_FAULT)) {
+                    while (cursor.next()) {
+                        long pageId = cursor.getCurrentPageId();
+                        if (pageId != PageCursor.UNBOUND_PAGE_ID && pageId <= Integer.MAX_VALUE) hot.set((int) pageId);
+                    }
+                }
+            }
+            result.put(file, hot);
+        }
+        return result;
+    }
+
+    /**
+     * Saves which pages of the mapped files are in the page cache.
+     * @return the number of pages per file
+     */
+    public Map<String, Long> saveProfile(File profile) throws IOException {
+        Map<PagedFile, BitSet> hotPages = hotPages();
+        Map<String, Long> result = new LinkedHashMap<>();
+        File parent = profile.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        // written next to the profile and renamed, so that a profile that is read at the same time is complete
+        File written = new File(profile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(written)))) {
+            out.writeInt(PROFILE_VERSION);
+            out.writeInt(hotPages.size());
+            for (Map.Entry<PagedFile, BitSet> entry : hotPages.entrySet()) {
+                String name = name(entry.getKey());
+                byte[] bytes = entry.getValue().toByteArray();
+                out.writeUTF(name);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                result.put(name, (long) entry.getValue().cardinality());
+            }
+        }
+        if (!written.renameTo(profile)) {
+            profile.delete();
+            if (!written.renameTo(profile)) throw new IOException("Could not write the warmup profile " + profile);
+        }
+        return result;
+    }
+
+    /**
+     * @return the recorded pages of the mapped files, files that are not mapped anymore are skipped
+     */
+    public Map<PagedFile, BitSet> loadProfile(File profile) throws IOException {
+        Map<String, PagedFile> files = new LinkedHashMap<>();
+        for (PagedFile file : pageCache.listExistingMappings()) files.put(name(file), file);
+        Map<PagedFile, BitSet> result = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(profile)))) {
+            int version = in.readInt();
+            if (version != PROFILE_VERSION) throw new IOException("Unknown version " + version + " of the warmup profile " + profile);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                PagedFile file = files.get(name);
+                if (file != null) result.put(file, BitSet.valueOf(bytes));
+            }
+        }
+        return result;
+    }
+
+    public static File profileFile(GraphDatabaseAPI db) {
+        Object configured = ApocConfiguration.get("warmup.profile.file", null);
+        return configured == null ? new File(db.getStoreDir(), "apoc-warmup.profile") : new File(configured.toString());
+    }
+
+    static boolean isSchema(File file) {
+        return file.getAbsolutePath().contains(File.separator + "schema" + File.separator);
+    }
+
+    /**
+     * @return the file name, or the path within the schema directory for index files
+     */
+    static String name(PagedFile pagedFile) {
+        File file = pagedFile.file();
+        return isSchema(file) ? subPath(file, "schema") : file.getName();
+    }
+
+    static String subPath(File file, String fromParent) {
+        StringBuilder sb = new StringBuilder(file.getAbsolutePath().length());
+        while (true) {
+            sb.insert(0, file.getName());
+            file = file.getParentFile();
+            if (file == null || file.getName().equals(fromParent)) break;
+            sb.insert(0, File.separator);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Spaces the chunks of pages of all threads evenly to the pages per second, 0 is unlimited.
+     */
+    private static class Throttle {
+        private final long nanosPerPage;
+        private final AtomicLong next = new AtomicLong(System.nanoTime());
+
+        Throttle(long pagesPerSecond) {
+            this.nanosPerPage = pagesPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / pagesPerSecond;
+        }
+
+        void acquire(int pages) {
+            if (nanosPerPage == 0) return;
+            long cost = pages * nanosPerPage;
+            long due = next.accumulateAndGet(cost, (previous, c) -> Math.max(previous, System.nanoTime()) + c) - cost;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package apoc.warmup;
 
+import apoc.ApocConfiguration;
 import apoc.Pools;
 import apoc.util.Util;
 import org.neo4j.io.pagecache.PageCache;
-import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
@@ -53,57 +53,23 @@ public class Warmup {
         }
     }
 
-    private String subPath(File file, String fromParent) {
-        StringBuilder sb = new StringBuilder(file.getAbsolutePath().length());
-        while (true) {
-            sb.insert(0,file.getName());
-            file = file.getParentFile();
-            if (file == null || file.getName().equals(fromParent)) break;
-            sb.insert(0, File.separator);
-        }
-        return sb.toString();
-    }
-
     @Procedure
     @Description("apoc.warmup.run(loadProperties=false,loadDynamicProperties=false,loadIndexes=false) - quickly loads all nodes and rels into memory by skipping one page at a time")
     public Stream<WarmupResult> run(@Name(value = "loadProperties", defaultValue = "false") boolean loadProperties, @Name(value = "loadDynamicProperties", defaultValue = "false") boolean loadDynamicProperties, @Name(value = "loadIndexes", defaultValue = "false") boolean loadIndexes) throws IOException {
         PageCache pageCache = db.getDependencyResolver().resolveDependency(PageCache.class);
 
-        List<PagedFile> pagedFiles = pageCache.listExistingMappings();
-
-        Map<String, PageResult> records = pagedFiles.parallelStream()
+        List<PagedFile> pagedFiles = pageCache.listExistingMappings().stream()
                 .filter(pF -> {
                     String name = pF.file().getName();
                     if (isSchema(pF.file()) && !loadIndexes) return false;
                     if ((name.endsWith("propertystore.db.strings") || name.endsWith("propertystore.db.arrays")) && !loadDynamicProperties) return false;
                     if ((name.startsWith("propertystore.db")) && !loadProperties) return false;
                     return true;
-                })
-                .map((pagedFile -> {
-                    File file = pagedFile.file();
-                    boolean index = isSchema(file);
-                    String fileName = index ? subPath(file, "schema") : file.getName();
-                    long pages = 0;
-                    long start = System.currentTimeMillis();
-                    try {
-                        if (pagedFile.fileSize() > 0) {
-                            PageCursor cursor = pagedFile.io(0L, PagedFile.PF_READ_AHEAD | PagedFile.PF_SHARED_READ_LOCK);
-                            while (cursor.next()) {
-                                cursor.getByte();
-                                pages++;
-                                if (pages % 1000 == 0 && Util.transactionIsTerminated(guard)) {
-                                    break;
-                                }
-                            }
-                        }
-                        return new PageResult(fileName, index, pagedFile.fileSize(), pages, null, start);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        return new PageResult(fileName, index, -1L, pages, e.getMessage(), start);
-                    } finally {
-                        pageCache.reportEvents();
-                    }
-                })).collect(Collectors.toMap(r -> r.file, r -> r));
+                }).collect(Collectors.toList());
+
+        Map<String, PageResult> records = warmer().warmup(pagedFiles, PageWarmer.DEFAULT_PARTITION_PAGES, 0).stream()
+                .map(r -> new PageResult(r.file, r.index, r.fileSize, r.pages, null, System.currentTimeMillis() - r.time))
+                .collect(Collectors.toMap(r -> r.file, r -> r));
 
         WarmupResult result = new WarmupResult(
                 pageCache.pageSize(),
@@ -125,8 +91,58 @@ public class Warmup {
         return Stream.of(result);
     }
 
+    @Procedure
+    @Description("apoc.warmup.stores(['nodes','relationships','properties','strings','arrays','indexes',':Label(property)'], {partitionPages:4096, pagesPerSecond:0}) - loads the pages of the chosen store and index files into the page cache, in ranges of pages on the warmup pool, returns the pages, time, pages per second and page cache hit ratio per file")
+    public Stream<PageWarmer.FileResult> stores(@Name("stores") List<String> stores, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws IOException {
+        PageWarmer warmer = warmer();
+        return warmer.warmup(warmer.select(stores), partitionPages(config), pagesPerSecond(config)).stream();
+    }
+
+    @Procedure
+    @Description("apoc.warmup.saveProfile() - saves which pages of the store and index files are in the page cache to apoc.warmup.profile.file (default apoc-warmup.profile in the store directory), returns the number of pages per file")
+    public Stream<ProfileResult> saveProfile() throws IOException {
+        File profile = PageWarmer.profileFile(db);
+        return warmer().saveProfile(profile).entrySet().stream()
+                .map(e -> new ProfileResult(profile.getPath(), e.getKey(), e.getValue()));
+    }
+
+    @Procedure
+    @Description("apoc.warmup.loadProfile({partitionPages:4096, pagesPerSecond:0}) - loads the pages that apoc.warmup.saveProfile recorded into the page cache, returns the pages, time, pages per second and page cache hit ratio per file")
+    public Stream<PageWarmer.FileResult> loadProfile(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws IOException {
+        File profile = PageWarmer.profileFile(db);
+        if (!profile.exists()) throw new RuntimeException("There is no warmup profile " + profile + ", save one with apoc.warmup.saveProfile()");
+        PageWarmer warmer = warmer();
+        return warmer.warmup(warmer.loadProfile(profile), partitionPages(config), pagesPerSecond(config)).stream();
+    }
+
+    private PageWarmer warmer() {
+        return new PageWarmer(db, () -> Util.transactionIsTerminated(guard));
+    }
+
+    static int partitionPages(Map<String, Object> config) {
+        int pages = Util.toInteger(config.getOrDefault("partitionPages", ApocConfiguration.get("warmup.partitionPages", PageWarmer.DEFAULT_PARTITION_PAGES)));
+        if (pages <= 0) throw new IllegalArgumentException("partitionPages must be positive, but was " + pages);
+        return pages;
+    }
+
+    static long pagesPerSecond(Map<String, Object> config) {
+        return Util.toLong(config.getOrDefault("pagesPerSecond", ApocConfiguration.get("warmup.pagesPerSecond", 0)));
+    }
+
+    public static class ProfileResult {
+        public final String profile;
+        public final String file;
+        public final long pages;
+
+        public ProfileResult(String profile, String file, long pages) {
+            this.profile = profile;
+            this.file = file;
+            this.pages = pages;
+        }
+    }
+
     public boolean isSchema(File file) {
-        return file.getAbsolutePath().contains(File.separator+"schema"+File.separator);
+        return PageWarmer.isSchema(file);
     }
 
     public static <R extends AbstractBaseRecord> long loadRecords(int recordsPerPage, long highestRecordId, RecordStore<R> recordStore, R record, GraphDatabaseAPI db, TerminationGuard guard) {
@@ -0,0 +1,73 @@
+package apoc.warmup;
+
+import apoc.ApocConfiguration;
+import apoc.Pools;
+import apoc.util.Util;
+import org.neo4j.kernel.AvailabilityGuard;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the pages of the saved warmup profile into the page cache when the database becomes available, if
+ * `apoc.warmup.profile.onStart` is true, and saves the profile every `apoc.warmup.profile.interval` seconds, if set.
+ */
+public class WarmupProfile implements AvailabilityGuard.AvailabilityListener {
+    private final GraphDatabaseAPI db;
+    private final Log log;
+    private volatile boolean available;
+    private ScheduledFuture<?> saving;
+
+    public WarmupProfile(GraphDatabaseAPI db, Log log) {
+        this.db = db;
+        this.log = log;
+    }
+
+    @Override
+    public synchronized void available() {
+        available = true;
+        File profile = PageWarmer.profileFile(db);
+        if (Util.toBoolean(ApocConfiguration.get("warmup.profile.onStart", false)) && profile.exists()) {
+            Pools.DEFAULT.submit(() -> load(profile));
+        }
+        long interval = Util.toLong(ApocConfiguration.get("warmup.profile.interval", 0));
+        if (interval > 0) {
+            saving = Pools.SCHEDULED.scheduleWithFixedDelay(() -> save(profile), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void load(File profile) {
+        try {
+            PageWarmer warmer = new PageWarmer(db, () -> !available);
+            List<PageWarmer.FileResult> results = warmer.warmup(warmer.loadProfile(profile),
+                    Warmup.partitionPages(Collections.emptyMap()), Warmup.pagesPerSecond(Collections.emptyMap()));
+            long pages = results.stream().mapToLong(r -> r.pages).sum();
+            long time = results.stream().mapToLong(r -> r.time).max().orElse(0);
+            log.info("loaded %d pages of the warmup profile %s in %d ms", pages, profile, time);
+        } catch (Exception e) {
+            log.warn("error loading the warmup profile " + profile, e);
+        }
+    }
+
+    private void save(File profile) {
+        try {
+            new PageWarmer(db, () -> !available).saveProfile(profile);
+        } catch (Exception e) {
+            log.warn("error saving the warmup profile " + profile, e);
+        }
+    }
+
+    @Override
+    public synchronized void unavailable() {
+        available = false;
+        if (saving != null) {
+            saving.cancel(false);
+            saving = null;
+        }
+    }
+}
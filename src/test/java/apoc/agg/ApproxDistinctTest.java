@@ -0,0 +1,49 @@
+package apoc.agg;
+
+import apoc.util.TestUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static apoc.util.TestUtil.testCall;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApproxDistinctTest {
+
+    private static GraphDatabaseService db;
+
+    @BeforeClass public static void setUp() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        TestUtil.registerProcedure(db, ApproxDistinct.class);
+    }
+
+    @AfterClass public static void tearDown() {
+        db.shutdown();
+    }
+
+    @Test
+    public void testApproxDistinct() throws Exception {
+        testCall(db, "UNWIND [] as value RETURN apoc.agg.approxDistinct(value) as c",
+                (row) -> assertEquals(0L, row.get("c")));
+        testCall(db, "UNWIND [1, 1.0, 2, null, 'a', 'a', 'b', true] as value RETURN apoc.agg.approxDistinct(value) as c",
+                (row) -> assertEquals(5L, row.get("c")));
+        testCall(db, "UNWIND range(1,100000) as value RETURN apoc.agg.approxDistinct(value % 50000) as c",
+                (row) -> assertEstimate(50000, (long) row.get("c"), 0.03));
+        testCall(db, "UNWIND range(1,100000) as value RETURN apoc.agg.approxDistinct('id' + value, 10) as c",
+                (row) -> assertEstimate(100000, (long) row.get("c"), 0.1));
+    }
+
+    @Test
+    public void testApproxDistinctNodes() throws Exception {
+        db.execute("UNWIND range(1,1000) as id CREATE (:Foo {id:id})").close();
+        testCall(db, "MATCH (n:Foo) WITH n UNWIND [1,2,3] as x RETURN apoc.agg.approxDistinct(n) as c",
+                (row) -> assertEstimate(1000, (long) row.get("c"), 0.02));
+    }
+
+    private static void assertEstimate(long expected, long actual, double error) {
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * error);
+    }
+}
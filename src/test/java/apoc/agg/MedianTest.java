@@ -9,6 +9,7 @@ import org.neo4j.test.TestGraphDatabaseFactory;
 
 import static apoc.util.TestUtil.testCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class MedianTest {
 
@@ -46,4 +47,16 @@ public class MedianTest {
                     assertEquals(2D, row.get("p"));
                 });
     }
+
+    @Test
+    public void testBoundedMedian() throws Exception {
+        // exact up to maxValues
+        testCall(db, "UNWIND [0,1,2,3] as value RETURN apoc.agg.median(value, 4) as p",
+                (row) -> assertEquals(1.5D, row.get("p")));
+        // shuffled -50000..49999, the median is within the rank error of the sketch
+        testCall(db, "UNWIND range(0,99999) as i RETURN apoc.agg.median((i * 7919) % 100000 - 50000, 1000) as p",
+                (row) -> assertTrue(String.valueOf(row.get("p")), Math.abs((double) row.get("p")) <= 100000 * 0.01));
+        testCall(db, "UNWIND range(1,10) as i RETURN apoc.agg.median(toFloat(i), 3) as p",
+                (row) -> assertTrue(String.valueOf(row.get("p")), Math.abs((double) row.get("p") - 5.5) <= 1));
+    }
 }
@@ -66,6 +66,26 @@ public class PercentilesTest {
                 });
     }
 
+    @Test
+    public void testPercentilesBeyondBuffer() throws Exception {
+        testCall(db, "UNWIND range(1,1000) as value RETURN apoc.agg.percentiles(value,[0.5,0.99]) as p",
+                (row) -> {
+                    assertEquals(asList(500L,990L), row.get("p"));
+                });
+        testCall(db, "UNWIND range(1,1000) as value RETURN apoc.agg.percentiles(CASE WHEN value = 300 THEN 300.0 ELSE value END,[0.5,0.99]) as p",
+                (row) -> {
+                    List<Double> p = (List<Double>) row.get("p");
+                    assertEquals(500D, p.get(0), 0.01);
+                    assertEquals(990D, p.get(1), 0.01);
+                });
+        testCall(db, "UNWIND range(1,1000) as value RETURN apoc.agg.percentiles(CASE WHEN value = 100 THEN 100.0 ELSE value END,[0.5,0.99]) as p",
+                (row) -> {
+                    List<Double> p = (List<Double>) row.get("p");
+                    assertEquals(500D, p.get(0), 0.01);
+                    assertEquals(990D, p.get(1), 0.01);
+                });
+    }
+
     private static void assertSameValues(List<Double> expected, Object values) {
         List<Double> doubleValues = (List<Double>) values;
         for (int i = 0; i < expected.size(); i++) {
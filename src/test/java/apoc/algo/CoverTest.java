@@ -6,8 +6,12 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -38,4 +42,36 @@ public class CoverTest {
                 "match (n) with collect(id(n)) as nodes call apoc.algo.cover(nodes) yield rel return count(*) as c",
                 (r) -> assertEquals(3L,r.get("c")));
     }
+
+    @Test
+    public void testCoverLargeNodeSet() throws Exception {
+        GraphDatabaseService largeDb = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        try {
+            TestUtil.registerProcedure(largeDb, Cover.class);
+            largeDb.execute("UNWIND range(0,24999) AS id CREATE (n:Node {id:id}) " +
+                    "WITH collect(n) AS nodes UNWIND range(1, size(nodes) - 1) AS i " +
+                    "WITH nodes[i - 1] AS prev, nodes[i] AS next, nodes[(i * 17) % size(nodes)] AS jump, i CREATE (prev)-[:NEXT]->(next) " +
+                    "FOREACH (_ IN CASE WHEN i % 5 = 0 THEN [1] ELSE [] END | CREATE (next)-[:JUMP]->(jump)) " +
+                    "FOREACH (_ IN CASE WHEN i % 50 = 0 THEN [1] ELSE [] END | CREATE (next)-[:SELF]->(next))").close();
+
+            String control = "MATCH (a:Node)-[r]->(b:Node) WHERE a.id % 3 <> 0 AND b.id % 3 <> 0 RETURN collect(id(r)) AS rels";
+            String query = "MATCH (n:Node) WHERE n.id % 3 <> 0 WITH collect(n) AS nodes CALL apoc.algo.cover(nodes) YIELD rel RETURN collect(id(rel)) AS rels";
+            List<Long> expected = (List<Long>) largeDb.execute(control).next().get("rels");
+            TestUtil.testCall(largeDb, query, (r) -> {
+                List<Long> rels = (List<Long>) r.get("rels");
+                assertEquals(expected.size(), rels.size());
+                assertEquals(new HashSet<>(expected), new HashSet<>(rels));
+            });
+
+            // uncommitted relationships are only visible to the current transaction
+            try (Transaction tx = largeDb.beginTx()) {
+                largeDb.execute("MATCH (a:Node {id:1}), (b:Node {id:24998}) CREATE (a)-[:NEW]->(b)").close();
+                long count = (Long) largeDb.execute("MATCH (n:Node) WHERE n.id % 3 <> 0 WITH collect(n) AS nodes CALL apoc.algo.cover(nodes) YIELD rel RETURN count(*) AS c").next().get("c");
+                assertEquals(expected.size() + 1, count);
+                tx.success();
+            }
+        } finally {
+            largeDb.shutdown();
+        }
+    }
 }
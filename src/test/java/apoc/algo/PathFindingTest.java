@@ -4,16 +4,29 @@ import apoc.util.TestUtil;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.graphalgo.CommonEvaluators;
+import org.neo4j.graphalgo.GraphAlgoFactory;
+import org.neo4j.graphalgo.PathFinder;
+import org.neo4j.graphalgo.WeightedPath;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PathExpanders;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static apoc.util.TestUtil.testCall;
@@ -22,6 +35,8 @@ import static apoc.util.Util.map;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.contains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 
 public class PathFindingTest {
@@ -203,4 +218,161 @@ public class PathFindingTest {
                 }
         );
     }
+
+    @Test
+    public void testDijkstraAndAStarMatchGraphAlgoOnGrid() {
+        Node[] nodes = createGrid(30, new Random(42));
+        Random random = new Random(7);
+        try (Transaction tx = db.beginTx()) {
+            PathFinder<WeightedPath> dijkstra = GraphAlgoFactory.dijkstra(PathExpanders.forTypeAndDirection(ROAD, Direction.OUTGOING), "dist");
+            PathFinder<WeightedPath> aStar = GraphAlgoFactory.aStar(PathExpanders.forTypeAndDirection(ROAD, Direction.OUTGOING),
+                    CommonEvaluators.doubleCostEvaluator("dist"), CommonEvaluators.geoEstimateEvaluator("lat", "lon"));
+            for (int i = 0; i < 50; i++) {
+                Node from = nodes[random.nextInt(nodes.length)];
+                Node to = nodes[random.nextInt(nodes.length)];
+                WeightedPath expected = dijkstra.findSinglePath(from, to);
+                assertSameCost(expected, new BidirectionalShortestPath(db, "ROAD>", "dist", Double.NaN).find(from, to));
+                assertSameCost(aStar.findSinglePath(from, to), new BidirectionalShortestPath(db, "ROAD>", "dist", null)
+                        .withGeoEstimate("lat", "lon").find(from, to));
+                // both directions, every pair is connected
+                assertEquals(dijkstra(from, to, Direction.BOTH), new BidirectionalShortestPath(db, "ROAD", "dist", Double.NaN).find(from, to).weight(), 1e-6);
+            }
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testDijkstraProcedureOnGrid() {
+        Node[] nodes = createGrid(10, new Random(42));
+        try (Transaction tx = db.beginTx()) {
+            double expected = dijkstra(nodes[0], nodes[nodes.length - 1], Direction.BOTH);
+            testCall(db, "MATCH (from:Loc {id:0}), (to:Loc {id:99}) CALL apoc.algo.dijkstra(from, to, 'ROAD', 'dist') YIELD path, weight RETURN path, weight",
+                    row -> {
+                        assertEquals(expected, (double) row.get("weight"), 1e-6);
+                        Path path = (Path) row.get("path");
+                        assertEquals(nodes[0], path.startNode());
+                        assertEquals(nodes[nodes.length - 1], path.endNode());
+                    });
+            testCall(db, "MATCH (from:Loc {id:0}), (to:Loc {id:99}) CALL apoc.algo.aStar(from, to, 'ROAD', 'dist', 'lat', 'lon') YIELD weight RETURN weight",
+                    row -> assertEquals(expected, (double) row.get("weight"), 1e-6));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testAllSimplePathsMatchGraphAlgo() {
+        Node[] nodes = createGrid(5, new Random(42));
+        try (Transaction tx = db.beginTx()) {
+            for (int[] pair : new int[][]{{0, 24}, {12, 3}, {6, 6}, {24, 0}}) {
+                Node from = nodes[pair[0]];
+                Node to = nodes[pair[1]];
+                Set<List<Long>> expected = new HashSet<>();
+                for (Path path : GraphAlgoFactory.allSimplePaths(PathExpanders.forTypeAndDirection(ROAD, Direction.BOTH), 8).findAllPaths(from, to)) {
+                    expected.add(relationshipIds(path));
+                }
+                for (boolean parallel : new boolean[]{false, true}) {
+                    List<Map<String, Object>> rows = Iterators.asList(db.execute("CALL apoc.algo.allSimplePaths($from, $to, 'ROAD', 8, {parallel:$parallel})",
+                            map("from", from, "to", to, "parallel", parallel)));
+                    Set<List<Long>> actual = rows.stream().map(row -> relationshipIds((Path) row.get("path"))).collect(Collectors.toSet());
+                    assertEquals(expected.size(), rows.size());
+                    assertEquals(expected, actual);
+                }
+            }
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testAllSimplePathsWithLimitAndTimeout() {
+        // there are more than a billion simple paths across a 7x7 grid
+        createGrid(7, new Random(42));
+        for (String parallel : new String[]{"false", "true"}) {
+            testCall(db, "MATCH (from:Loc {id:0}), (to:Loc {id:48}) CALL apoc.algo.allSimplePaths(from, to, 'ROAD', 48, {limit:10, parallel:" + parallel + "}) YIELD path RETURN count(*) AS count",
+                    row -> assertEquals(10L, row.get("count")));
+            long start = System.currentTimeMillis();
+            testCall(db, "MATCH (from:Loc {id:0}), (to:Loc {id:48}) CALL apoc.algo.allSimplePaths(from, to, 'ROAD', 48, {timeout:1, parallel:" + parallel + "}) YIELD path RETURN count(*) AS count",
+                    row -> assertTrue((Long) row.get("count") > 0));
+            assertTrue(System.currentTimeMillis() - start < 10_000);
+        }
+    }
+
+    @Test
+    public void testAllSimplePathsHeapStaysFlat() {
+        // layers of 8 nodes, each connected to all nodes of the next layer, 8^6 = 262144 paths from start to end
+        db.execute("CREATE (:Start), (:End) WITH 1 AS ignore UNWIND range(1,6) AS layer UNWIND range(1,8) AS i CREATE (:Layer {layer:layer})").close();
+        db.execute("MATCH (a:Layer), (b:Layer) WHERE b.layer = a.layer + 1 CREATE (a)-[:NEXT]->(b)").close();
+        db.execute("MATCH (s:Start), (e:End), (a:Layer {layer:1}), (b:Layer {layer:6}) MERGE (s)-[:NEXT]->(a) MERGE (b)-[:NEXT]->(e)").close();
+
+        for (String parallel : new String[]{"false", "true"}) {
+            long before = usedHeap();
+            long during = 0;
+            long count = 0;
+            try (Result result = db.execute("MATCH (s:Start), (e:End) CALL apoc.algo.allSimplePaths(s, e, 'NEXT>', 10, {parallel:" + parallel + "}) YIELD path RETURN path")) {
+                while (result.hasNext()) {
+                    result.next();
+                    count++;
+                    if (count == 250_000) during = usedHeap();
+                }
+            }
+            assertEquals(262144L, count);
+            // materializing the 250k paths before streaming them takes more than 40MB
+            assertTrue("heap grew by " + (during - before) + " bytes", during - before < 16 * 1024 * 1024);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Long> relationshipIds(Path path) {
+        return Iterables.asList(path.relationships()).stream().map(Relationship::getId).collect(Collectors.toList());
+    }
+
+    private static final RelationshipType ROAD = RelationshipType.withName("ROAD");
+
+    private double dijkstra(Node from, Node to, Direction direction) {
+        WeightedPath path = GraphAlgoFactory.dijkstra(PathExpanders.forTypeAndDirection(ROAD, direction), "dist").findSinglePath(from, to);
+        return path == null ? Double.NaN : path.weight();
+    }
+
+    private void assertSameCost(WeightedPath expected, WeightedPath actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected.weight(), actual.weight(), 1e-6);
+            assertEquals(expected.startNode(), actual.startNode());
+            assertEquals(expected.endNode(), actual.endNode());
+        }
+    }
+
+    /**
+     * A grid of nodes with coordinates, connected in random directions with weights of at least their distance,
+     * so that the geo estimate never overestimates.
+     */
+    private Node[] createGrid(int size, Random random) {
+        Node[] nodes = new Node[size * size];
+        try (Transaction tx = db.beginTx()) {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = db.createNode(Label.label("Loc"));
+                nodes[i].setProperty("id", i);
+                nodes[i].setProperty("lat", 50 + (i / size) * 0.01);
+                nodes[i].setProperty("lon", 10 + (i % size) * 0.01);
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                if (i % size < size - 1) connect(nodes[i], nodes[i + 1], random);
+                if (i + size < nodes.length) connect(nodes[i], nodes[i + size], random);
+            }
+            tx.success();
+        }
+        return nodes;
+    }
+
+    private void connect(Node a, Node b, Random random) {
+        // 2km is more than the diagonal distance between grid neighbours
+        double dist = 2000 + random.nextInt(2000);
+        if (random.nextBoolean()) a.createRelationshipTo(b, ROAD).setProperty("dist", dist);
+        else b.createRelationshipTo(a, ROAD).setProperty("dist", dist);
+    }
 }
@@ -0,0 +1,144 @@
+package apoc.bolt;
+
+import apoc.ApocConfiguration;
+import apoc.util.TestUtil;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.configuration.BoltConnector;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static apoc.util.MapUtil.map;
+import static apoc.util.TestUtil.testCall;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the bolt procedures against the bolt connector of the test database itself.
+ */
+public class BoltDriverCacheTest {
+
+    private static GraphDatabaseService db;
+    private static String url;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        BoltConnector bolt = new BoltConnector("bolt");
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig(bolt.type, "BOLT")
+                .setConfig(bolt.enabled, "true")
+                .setConfig(bolt.listen_address, "localhost:" + port)
+                .setConfig(GraphDatabaseSettings.auth_enabled, "false")
+                .newGraphDatabase();
+        TestUtil.registerProcedure(db, Bolt.class);
+        url = "bolt://localhost:" + port;
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        BoltDriverCache.clear();
+        db.shutdown();
+    }
+
+    @After
+    public void deleteAll() {
+        db.execute("MATCH (n) DETACH DELETE n").close();
+    }
+
+    private static Map<String, Object> params(Object... more) {
+        Map<String, Object> params = map("url", url, "config", map("driverConfig", map("encryption", false)));
+        params.putAll(map(more));
+        return params;
+    }
+
+    @Test
+    public void testReuseDriver() throws Exception {
+        BoltDriverCache.clear();
+        for (long i = 0; i < 5; i++) {
+            long expected = i;
+            testCall(db, "CALL apoc.bolt.load({url}, 'RETURN {i} AS i', {i: {i}}, {config})", params("i", i),
+                    row -> assertEquals(expected, ((Map) row.get("row")).get("i")));
+        }
+        assertEquals(1, BoltDriverCache.drivers());
+
+        // another driver config gets another driver
+        testCall(db, "CALL apoc.bolt.load({url}, 'RETURN 1 AS i', {}, {driverConfig: {encryption: false, maxConnectionPoolSize: 5}})",
+                params(), row -> assertEquals(1L, ((Map) row.get("row")).get("i")));
+        assertEquals(2, BoltDriverCache.drivers());
+    }
+
+    @Test
+    public void testEvictIdleDrivers() throws Exception {
+        BoltDriverCache.clear();
+        testCall(db, "CALL apoc.bolt.load({url}, 'RETURN 1 AS i', {}, {config})", params(), row -> {});
+        assertEquals(1, BoltDriverCache.drivers());
+        BoltDriverCache.evictIdle();
+        assertEquals(1, BoltDriverCache.drivers());
+        try {
+            // an idle timeout of 0 evicts every driver that is not in use
+            ApocConfiguration.addToConfig(map("bolt.driver.idleTimeout", "0"));
+            BoltDriverCache.evictIdle();
+        } finally {
+            ApocConfiguration.addToConfig(map("bolt.driver.idleTimeout", String.valueOf(BoltDriverCache.DEFAULT_IDLE_TIMEOUT)));
+        }
+        assertEquals(0, BoltDriverCache.drivers());
+    }
+
+    @Test
+    public void testStreamRemoteResult() throws Exception {
+        List<Object> rows = db.execute("CALL apoc.bolt.load({url}, 'UNWIND range(1, 1000000) AS i RETURN i', {}, {config}) YIELD row " +
+                "RETURN row.i AS i LIMIT 5", params()).stream().map(row -> row.get("i")).collect(Collectors.toList());
+        assertEquals(asList(1L, 2L, 3L, 4L, 5L), rows);
+
+        // the session of the stream is released, so that the driver can be used again
+        testCall(db, "CALL apoc.bolt.load({url}, 'RETURN 1 AS i', {}, {config})", params(),
+                row -> assertEquals(1L, ((Map) row.get("row")).get("i")));
+    }
+
+    @Test
+    public void testExecuteWrites() throws Exception {
+        testCall(db, "CALL apoc.bolt.execute({url}, 'CREATE (n:Remote {id: 1}) RETURN n.id AS id', {}, {config})", params(),
+                row -> assertEquals(1L, ((Map) row.get("row")).get("id")));
+        testCall(db, "MATCH (n:Remote) RETURN count(*) AS count", row -> assertEquals(1L, row.get("count")));
+    }
+
+    @Test
+    public void testExecuteBatch() throws Exception {
+        List<Map<String, Object>> batch = asList(map("id", 1), map("id", 2), map("id", 3));
+        testCall(db, "CALL apoc.bolt.executeBatch({url}, 'CREATE (n:Batch {id: {id}}) SET n.name = \"node\"', {batch}, {config})",
+                params("batch", batch), row -> {
+                    Map<String, Object> statistics = (Map<String, Object>) row.get("row");
+                    assertEquals(3, statistics.get("count"));
+                    assertEquals(3, statistics.get("nodesCreated"));
+                    assertEquals(6, statistics.get("propertiesSet"));
+                });
+        testCall(db, "MATCH (n:Batch) RETURN collect(n.id) AS ids", row -> assertEquals(3, ((List) row.get("ids")).size()));
+    }
+
+    @Test
+    public void testExecuteBatchRollsBackOnError() throws Exception {
+        try {
+            db.execute("CALL apoc.bolt.executeBatch({url}, 'CREATE (n:Failed {id: {id}}) SET n.ratio = 1 / {id}', {batch}, {config})",
+                    params("batch", asList(map("id", 1), map("id", 2), map("id", 0)))).close();
+            fail("the division by zero should fail the batch");
+        } catch (QueryExecutionException e) {
+            assertTrue(e.getMessage().contains("/ by zero"));
+        }
+        testCall(db, "MATCH (n:Failed) RETURN count(*) AS count", row -> assertEquals(0L, row.get("count")));
+    }
+}
@@ -0,0 +1,123 @@
+package apoc.cache;
+
+import apoc.ApocConfiguration;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static apoc.util.MapUtil.map;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedCacheTest {
+
+    private static final String PREFIX = "cache.test";
+
+    @After
+    public void resetConfig() {
+        ApocConfiguration.addToConfig(map(PREFIX + ".maxEntries", "0", PREFIX + ".maxBytes", "0", PREFIX + ".ttl", "0", PREFIX + ".policy", "lru"));
+    }
+
+    @Test
+    public void testUnbounded() {
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        IntStream.range(0, 1000).forEach(i -> cache.put("key" + i, i, 0));
+        assertEquals(1000, cache.size());
+        assertEquals(0, cache.stats("test").evictions);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        ApocConfiguration.addToConfig(map(PREFIX + ".maxEntries", "10"));
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, i, 0);
+            Thread.sleep(2);
+        }
+        // the first key is used again, so the second is the least recently used one
+        assertEquals(0, cache.get("key0"));
+        cache.put("key10", 10, 0);
+        // a batch of a tenth of the bound is evicted
+        assertEquals(9, cache.size());
+        assertEquals(0, cache.get("key0"));
+        assertNull(cache.get("key1"));
+        assertNull(cache.get("key2"));
+        assertEquals(3, cache.get("key3"));
+        assertEquals(10, cache.get("key10"));
+        assertEquals(2, cache.stats("test").evictions);
+    }
+
+    @Test
+    public void testEvictLeastFrequentlyUsed() {
+        ApocConfiguration.addToConfig(map(PREFIX + ".maxEntries", "10", PREFIX + ".policy", "lfu"));
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        IntStream.range(0, 10).forEach(i -> cache.put("key" + i, i, 0));
+        IntStream.range(0, 10).filter(i -> i != 5).forEach(i -> cache.get("key" + i));
+        cache.put("key10", 10, 0);
+        assertNull(cache.get("key5"));
+        assertEquals(9, cache.size());
+    }
+
+    @Test
+    public void testEvictByBytes() {
+        ApocConfiguration.addToConfig(map(PREFIX + ".maxBytes", "10000"));
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        char[] chars = new char[980];
+        // 40 + 2 * 980 bytes each
+        IntStream.range(0, 6).forEach(i -> cache.put("key" + i, new String(chars), 0));
+        BoundedCache.Stats stats = cache.stats("test");
+        assertTrue(stats.estimatedBytes + " bytes", stats.estimatedBytes <= 9000);
+        assertEquals(4, stats.entries);
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        cache.put("short", 1, 1);
+        cache.put("forever", 2, 0);
+        ApocConfiguration.addToConfig(map(PREFIX + ".ttl", "1"));
+        cache.put("default", 3, 0);
+        cache.put("never", 4, -1);
+        Thread.sleep(1100);
+        assertNull(cache.get("short"));
+        assertEquals(2, cache.get("forever"));
+        assertEquals(4, cache.get("never"));
+        assertEquals(map("forever", 2, "never", 4), cache.snapshot());
+        cache.expire();
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.stats("test").expirations);
+    }
+
+    @Test
+    public void testStats() {
+        BoundedCache<String> cache = new BoundedCache<>(PREFIX);
+        cache.put("a", "value", 0);
+        cache.put("a", "other", 0);
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        BoundedCache.Stats stats = cache.stats("test");
+        assertEquals("test", stats.name);
+        assertEquals(1, stats.entries);
+        assertEquals(BoundedCache.estimateBytes("other"), stats.estimatedBytes);
+        assertEquals(3, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(0.75, stats.hitRate, 0.001);
+        assertEquals(2, stats.puts);
+        cache.remove("a");
+        assertEquals(0, cache.stats("test").estimatedBytes);
+    }
+
+    @Test
+    public void testEstimateBytes() {
+        assertEquals(24, BoundedCache.estimateBytes(42L));
+        assertEquals(40 + 2 * 3, BoundedCache.estimateBytes("abc"));
+        assertEquals(40 + 2 * (8 + 24), BoundedCache.estimateBytes(asList(1L, 2L)));
+        assertEquals(16 + 8 * 4, BoundedCache.estimateBytes(new long[4]));
+        assertEquals(48 + 32 + (40 + 2) + 24, BoundedCache.estimateBytes(map("a", 1L)));
+    }
+}
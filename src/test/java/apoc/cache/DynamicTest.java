@@ -117,4 +117,27 @@ public class DynamicTest
             assertEquals( FIB_LIST, (row.get( "resultList" )) );
         } );
     }
+
+    @Test
+    public void testDynamicMap_stats() {
+        String key = (String) db.execute( "CALL apoc.dynamic.open() YIELD value RETURN value" ).next().get( "value" );
+        try
+        {
+            TestUtil.testCall( db, "CALL apoc.dynamic.set({key}, 'a', 'value') YIELD value RETURN value", ImmutableMap.of( "key", key ), row -> {} );
+            TestUtil.testCall( db, "CALL apoc.dynamic.get({key}, 'a') YIELD value RETURN value", ImmutableMap.of( "key", key ), row -> {} );
+            TestUtil.testCall( db, "CALL apoc.dynamic.get({key}, 'b') YIELD value RETURN value", ImmutableMap.of( "key", key ), row -> {} );
+            TestUtil.testCall( db, "CALL apoc.dynamic.stats() YIELD name, entries, hits, misses, hitRate, puts WHERE name = {key} RETURN *",
+                    ImmutableMap.of( "key", key ), row -> {
+                        assertEquals( 1L, row.get( "entries" ) );
+                        assertEquals( 1L, row.get( "hits" ) );
+                        assertEquals( 1L, row.get( "misses" ) );
+                        assertEquals( 0.5, row.get( "hitRate" ) );
+                        assertEquals( 1L, row.get( "puts" ) );
+                    } );
+        }
+        finally
+        {
+            db.execute( "CALL apoc.dynamic.close({key})", ImmutableMap.of( "key", key ) ).close();
+        }
+    }
 }
@@ -83,4 +83,32 @@ public class StaticTest {
         TestUtil.testCall(db, "call apoc.static.set('test2',null)", r -> assertEquals(42L,r.get("value")));
         TestUtil.testCall(db, "call apoc.static.get('test2')", r -> assertEquals(null,r.get("value")));
     }
+
+    @Test
+    public void testSetWithTtl() throws Exception {
+        TestUtil.testCall(db, "call apoc.static.set('ttl',42,{ttl:1})", r -> assertEquals(null,r.get("value")));
+        TestUtil.testCall(db, "return apoc.static.get('ttl') as value", r -> assertEquals(42L,r.get("value")));
+        Thread.sleep(1100);
+        TestUtil.testCall(db, "return apoc.static.get('ttl') as value", r -> assertEquals(null,r.get("value")));
+    }
+
+    @Test
+    public void testBoundedStorage() throws Exception {
+        Static.clear();
+        try {
+            ApocConfiguration.addToConfig(map("cache.static.maxEntries", "10"));
+            db.execute("unwind range(1,21) as i call apoc.static.set('bounded.' + i, i) yield value return count(*)").close();
+            TestUtil.testCall(db, "return size(keys(apoc.static.getAll('bounded'))) as size", r -> assertEquals(9L, r.get("size")));
+            TestUtil.testCall(db, "return apoc.static.get('bounded.21') as value", r -> assertEquals(21L, r.get("value")));
+            TestUtil.testCall(db, "call apoc.static.stats()", r -> {
+                assertEquals("static", r.get("name"));
+                assertEquals(9L, r.get("entries"));
+                assertTrue((long) r.get("evictions") >= 12);
+                assertTrue((long) r.get("estimatedBytes") > 0);
+            });
+        } finally {
+            ApocConfiguration.addToConfig(map("cache.static.maxEntries", "0"));
+            Static.clear();
+        }
+    }
 }
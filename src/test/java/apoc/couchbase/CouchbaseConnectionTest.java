@@ -0,0 +1,35 @@
+package apoc.couchbase;
+
+import com.couchbase.client.java.document.JsonDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static apoc.util.MapUtil.map;
+
+/**
+ * Tests the conversion of the documents of apoc.couchbase.upsertBatch, which doesn't need a running Couchbase Server.
+ */
+public class CouchbaseConnectionTest {
+
+    @Test
+    public void testToJsonDocuments() {
+        List<JsonDocument> documents = CouchbaseConnection.toJsonDocuments(Arrays.asList(
+                map("id", "artist:1", "content", map("lastName", "Van Gogh", "notableWorks", Arrays.asList("Sunflowers"))),
+                map("id", 2, "content", "{\"lastName\":\"Monet\"}")));
+
+        Assert.assertEquals("artist:1", documents.get(0).id());
+        Assert.assertEquals("Van Gogh", documents.get(0).content().getString("lastName"));
+        Assert.assertEquals("Sunflowers", documents.get(0).content().getArray("notableWorks").getString(0));
+        Assert.assertEquals("2", documents.get(1).id());
+        Assert.assertEquals("Monet", documents.get(1).content().getString("lastName"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDocumentWithoutId() {
+        CouchbaseConnection.toJsonDocuments(Collections.singletonList(map("content", map("lastName", "Van Gogh"))));
+    }
+}
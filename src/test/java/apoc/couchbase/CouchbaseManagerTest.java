@@ -106,4 +106,15 @@ public class CouchbaseManagerTest {
     public void testConfig() {
         Assert.assertEquals(CONNECTION_TIMEOUT_CONFIG_VALUE, CouchbaseManager.getConfig(CONNECTION_TIMEOUT_CONFIG_KEY));
     }
+
+    @Test
+    public void testFailedConnectionIsNotPooled() {
+        exceptionRule.expect(RuntimeException.class);
+        exceptionRule.expectMessage("Please check neo4j.conf file 'apoc.couchbase.missing' is missing");
+        try {
+            CouchbaseManager.getConnection("missing", "default");
+        } finally {
+            Assert.assertEquals(0, CouchbaseManager.connections());
+        }
+    }
 }
@@ -133,6 +133,40 @@ public class CypherProceduresTest {
         TestUtil.testCall(db, "return custom.answer(42,3.14,'foo',{a:1},[1],true,date(),datetime(),point({x:1,y:2})) as data", (row) -> assertEquals(9, ((List)row.get("data")).size()));
     }
 
+    @Test
+    public void overrideStatementKeepsCachedPlans() throws Exception {
+        db.execute("call apoc.custom.asFunction('answer','RETURN 42 as answer','long')").close();
+        db.execute("call apoc.custom.asProcedure('answer','RETURN 42 as answer','read',[['answer','long']])").close();
+        TestUtil.testCall(db, "return custom.answer() as answer", (row) -> assertEquals(42L, row.get("answer")));
+        TestUtil.testCall(db, "call custom.answer()", (row) -> assertEquals(42L, row.get("answer")));
+
+        // the same signature only replaces the statement, which the cached plans call
+        db.execute("call apoc.custom.asFunction('answer','RETURN 43 as answer','long')").close();
+        db.execute("call apoc.custom.asProcedure('answer','RETURN 43 as answer','read',[['answer','long']])").close();
+        TestUtil.testCall(db, "return custom.answer() as answer", (row) -> assertEquals(43L, row.get("answer")));
+        TestUtil.testCall(db, "call custom.answer()", (row) -> assertEquals(43L, row.get("answer")));
+    }
+
+    @Test
+    public void overrideSignatureClearsCachedPlans() throws Exception {
+        db.execute("call apoc.custom.asFunction('answer','RETURN 42 as answer','long')").close();
+        TestUtil.testCall(db, "return custom.answer() as answer", (row) -> assertEquals(42L, row.get("answer")));
+
+        db.execute("call apoc.custom.asFunction('answer','RETURN \"42\" as answer','string')").close();
+        TestUtil.testCall(db, "return custom.answer() as answer", (row) -> assertEquals("42", row.get("answer")));
+    }
+
+    @Test
+    public void registerNodeParameterAndListResultFunction() throws Exception {
+        db.execute("CREATE (:Person {name:'Keanu'})-[:KNOWS]->(:Person {name:'Laurence'}), (:Person {name:'Keanu'})-[:KNOWS]->(:Person {name:'Carrie'})").close();
+        db.execute("call apoc.custom.asFunction('friends','MATCH (p)-[:KNOWS]->(f) WHERE p = $person RETURN f.name','list of string',[['person','node']])").close();
+        TestUtil.testResult(db, "MATCH (p:Person {name:'Keanu'}) RETURN custom.friends(p) AS friends ORDER BY friends[0]", (result) -> {
+            assertEquals(asList("Carrie"), result.next().get("friends"));
+            assertEquals(asList("Laurence"), result.next().get("friends"));
+            assertFalse(result.hasNext());
+        });
+    }
+
     @Test
     public void shouldRegisterSimpleStatementWithDescription() throws Exception {
         // given
@@ -0,0 +1,184 @@
+package apoc.cypher;
+
+import apoc.util.TestUtil;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static apoc.util.MapUtil.map;
+import static apoc.util.TestUtil.testCall;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryCacheTest {
+
+    private static GraphDatabaseService db;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        TestUtil.registerProcedure(db, Cypher.class);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        db.shutdown();
+    }
+
+    @After
+    public void clear() {
+        db.execute("MATCH (n) DETACH DELETE n").close();
+        db.execute("CALL apoc.cypher.cacheClear()").close();
+    }
+
+    private static Object cached(String statement, Map<String, Object> params, String column) {
+        return Iterators.single(db.execute("CALL apoc.cypher.cached({statement}, {params}) YIELD value RETURN value",
+                map("statement", statement, "params", params)).<Map<String, Object>>columnAs("value")).get(column);
+    }
+
+    private static Map<String, Object> stats() {
+        return Iterators.single(db.execute("CALL apoc.cypher.cacheStats()"));
+    }
+
+    private static void write(String statement) {
+        db.execute(statement).close();
+    }
+
+    @Test
+    public void testRowsAreCachedUntilALabelTheyReadChanges() throws Exception {
+        write("CREATE (:Person {name: 'Alice'})");
+        String count = "MATCH (p:Person) RETURN count(p) AS count";
+        long hits = (Long) stats().get("hits"), invalidations = (Long) stats().get("invalidations");
+        assertEquals(1L, cached(count, map(), "count"));
+        assertEquals(1L, cached(count, map(), "count"));
+        assertEquals(hits + 1, stats().get("hits"));
+
+        // other labels don't drop the rows
+        write("CREATE (:Company {name: 'Acme'})");
+        assertEquals(1L, cached(count, map(), "count"));
+        assertEquals(hits + 2, stats().get("hits"));
+
+        write("CREATE (:Person {name: 'Bob'})");
+        assertEquals(2L, cached(count, map(), "count"));
+        write("MATCH (p:Person {name: 'Bob'}) REMOVE p:Person");
+        assertEquals(1L, cached(count, map(), "count"));
+        write("MATCH (p {name: 'Bob'}) SET p:Person");
+        assertEquals(2L, cached(count, map(), "count"));
+        write("MATCH (p:Person {name: 'Bob'}) DELETE p");
+        assertEquals(1L, cached(count, map(), "count"));
+        assertEquals(hits + 2, stats().get("hits"));
+        assertEquals(invalidations + 4, stats().get("invalidations"));
+    }
+
+    @Test
+    public void testPropertyChangesDropTheRows() throws Exception {
+        write("CREATE (:Person {name: 'Alice'})-[:KNOWS {since: 2010}]->(:Person {name: 'Bob'})");
+        String names = "MATCH (:Person)-[k:KNOWS]->(f:Person) RETURN f.name AS name, k.since AS since";
+        assertEquals("Bob", cached(names, map(), "name"));
+        write("MATCH (p:Person {name: 'Bob'}) SET p.name = 'Bobby'");
+        assertEquals("Bobby", cached(names, map(), "name"));
+        write("MATCH ()-[k:KNOWS]->() SET k.since = 2012");
+        assertEquals(2012L, cached(names, map(), "since"));
+        write("MATCH ()-[k:KNOWS]->() REMOVE k.since");
+        assertEquals(null, cached(names, map(), "since"));
+    }
+
+    @Test
+    public void testRelationshipChangesDropTheRows() throws Exception {
+        write("CREATE (:Person {name: 'Alice'}), (:Person {name: 'Bob'})");
+        String count = "MATCH (:Person)-[k:KNOWS|:LIKES]->(:Person) RETURN count(k) AS count";
+        assertEquals(0L, cached(count, map(), "count"));
+        write("MATCH (a:Person {name: 'Alice'}), (b:Person {name: 'Bob'}) CREATE (a)-[:LIKES]->(b)");
+        assertEquals(1L, cached(count, map(), "count"));
+        write("MATCH ()-[l:LIKES]->() DELETE l");
+        assertEquals(0L, cached(count, map(), "count"));
+    }
+
+    @Test
+    public void testStatementsWithoutLabelsDropTheRowsOnAnyChange() throws Exception {
+        String count = "MATCH (n) RETURN count(n) AS count";
+        assertEquals(0L, cached(count, map(), "count"));
+        write("CREATE ()");
+        assertEquals(1L, cached(count, map(), "count"));
+        write("CREATE (:Other)");
+        assertEquals(2L, cached(count, map(), "count"));
+    }
+
+    @Test
+    public void testParametersAreTypedKeys() throws Exception {
+        String value = "RETURN {x} AS x";
+        assertEquals(1L, cached(value, map("x", 1L), "x"));
+        assertEquals("1", cached(value, map("x", "1"), "x"));
+        assertEquals(1L, cached(value, map("x", 1L), "x"));
+        assertEquals(2L, stats().get("entries"));
+    }
+
+    @Test
+    public void testChangesOfTheCurrentTransactionAreNotCached() throws Exception {
+        String count = "MATCH (p:Person) RETURN count(p) AS count";
+        assertEquals(0L, cached(count, map(), "count"));
+        try (Transaction tx = db.beginTx()) {
+            write("CREATE (:Person)");
+            assertEquals(1L, cached(count, map(), "count"));
+            tx.failure();
+        }
+        assertEquals(0L, cached(count, map(), "count"));
+    }
+
+    @Test
+    public void testMaxRows() throws Exception {
+        testCall(db, "CALL apoc.cypher.cached('UNWIND range(1, 10) AS i RETURN i', {}, {maxRows: 5}) YIELD value RETURN count(*) AS count",
+                row -> assertEquals(10L, row.get("count")));
+        assertEquals(0L, stats().get("entries"));
+    }
+
+    @Test
+    public void testRowsAreNeverStaleAfterAConcurrentWrite() throws Exception {
+        write("CREATE (:Counter {value: 0})");
+        String value = "MATCH (c:Counter) RETURN c.value AS value";
+        AtomicLong committed = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long i = 1; i <= 200 && running.get(); i++) {
+                write("MATCH (c:Counter) SET c.value = " + i);
+                committed.set(i);
+            }
+        });
+        writer.start();
+        try {
+            while (writer.isAlive()) {
+                long before = committed.get();
+                long read = (Long) cached(value, map(), "value");
+                assertTrue("read " + read + " after " + before + " was committed", read >= before);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        assertEquals(200L, cached(value, map(), "value"));
+    }
+
+    @Test
+    public void testDependencies() throws Exception {
+        QueryCache.Dependencies dependencies = QueryCache.Dependencies.of("MATCH (p:Person)-[:KNOWS|LIKES]->(f:`Best Friend`) WHERE p.name = 'a:b' RETURN count(f)");
+        assertFalse(dependencies.any);
+        assertTrue(dependencies.names.containsAll(Arrays.asList("Person", "KNOWS", "LIKES", "Best Friend")));
+        assertFalse(dependencies.names.contains("b"));
+
+        assertTrue(QueryCache.Dependencies.of("MATCH (p:Person)-->(f) RETURN f").any);
+        assertTrue(QueryCache.Dependencies.of("MATCH (p:Person)-[r]->(f:Person) RETURN r").any);
+        assertTrue(QueryCache.Dependencies.of("MATCH (p:Person), (q) RETURN p, q").any);
+        assertTrue(QueryCache.Dependencies.of("CALL db.labels()").any);
+    }
+}
@@ -0,0 +1,170 @@
+package apoc.es;
+
+import apoc.util.JsonUtil;
+import apoc.util.TestUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static apoc.util.MapUtil.map;
+import static apoc.util.TestUtil.testCall;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the bulk and scroll procedures against a local http stub of the elastic search endpoints.
+ */
+public class ElasticSearchBulkTest {
+
+    private static final int HITS = 25;
+    private static final int PAGE_SIZE = 10;
+
+    private static GraphDatabaseService db;
+    private static HttpServer server;
+    private static String host;
+    private static final List<String> requests = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/_bulk", ElasticSearchBulkTest::bulk);
+        server.createContext("/test/doc/_search", exchange -> {
+            record(exchange);
+            respond(exchange, page("scroll-1", 0));
+        });
+        server.createContext("/_search/scroll", ElasticSearchBulkTest::scroll);
+        server.start();
+        host = "localhost:" + server.getAddress().getPort();
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        TestUtil.registerProcedure(db, ElasticSearch.class);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        server.stop(0);
+        db.shutdown();
+    }
+
+    @Before
+    public void clearRequests() {
+        synchronized (requests) {
+            requests.clear();
+        }
+    }
+
+    private static void bulk(HttpExchange exchange) throws IOException {
+        String body = record(exchange);
+        List<String> lines = asList(body.split("\n"));
+        List<Object> items = new ArrayList<>();
+        boolean errors = false;
+        for (int i = 0; i < lines.size(); i += 2) {
+            Map<String, Object> document = JsonUtil.OBJECT_MAPPER.readValue(lines.get(i + 1), Map.class);
+            if (document.containsKey("invalid")) {
+                errors = true;
+                items.add(map("index", map("status", 400, "error", map("type", "mapper_parsing_exception"))));
+            } else {
+                items.add(map("index", map("status", 201)));
+            }
+        }
+        respond(exchange, map("took", 2, "errors", errors, "items", items));
+    }
+
+    private static void scroll(HttpExchange exchange) throws IOException {
+        String body = record(exchange);
+        if (exchange.getRequestMethod().equals("DELETE")) {
+            respond(exchange, map("succeeded", true));
+            return;
+        }
+        // the scroll id is the number of the page
+        Map<String, Object> request = JsonUtil.OBJECT_MAPPER.readValue(body, Map.class);
+        int page = Integer.parseInt(request.get("scroll_id").toString().substring("scroll-".length()));
+        respond(exchange, page("scroll-" + (page + 1), page * PAGE_SIZE));
+    }
+
+    private static Map<String, Object> page(String scrollId, int from) {
+        List<Object> hits = IntStream.range(from, Math.min(from + PAGE_SIZE, HITS))
+                .mapToObj(i -> map("_id", String.valueOf(i), "_source", map("id", i)))
+                .collect(Collectors.toList());
+        return map("_scroll_id", scrollId, "hits", map("total", HITS, "hits", hits));
+    }
+
+    private static String record(HttpExchange exchange) throws IOException {
+        String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        synchronized (requests) {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " " + body);
+        }
+        return body;
+    }
+
+    private static void respond(HttpExchange exchange, Map<String, Object> response) throws IOException {
+        byte[] bytes = JsonUtil.OBJECT_MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        List<Map<String, Object>> documents = IntStream.range(0, 25).mapToObj(i -> map("id", i, "name", "doc" + i)).collect(Collectors.toList());
+        testCall(db, "CALL apoc.es.bulk({host}, 'test', 'doc', {documents}, {idField: 'id', batchSize: 10})",
+                map("host", host, "documents", documents), row -> {
+                    Map<String, Object> result = (Map<String, Object>) row.get("value");
+                    assertEquals(25L, result.get("count"));
+                    assertEquals(3L, result.get("batches"));
+                    assertEquals(0L, result.get("failed"));
+                    assertEquals(6L, result.get("took"));
+                });
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(0), requests.get(0).startsWith("POST /_bulk {\"index\":{\"_index\":\"test\",\"_type\":\"doc\",\"_id\":\"0\"}}\n{"));
+    }
+
+    @Test
+    public void testBulkReportsFailedDocuments() throws Exception {
+        testCall(db, "CALL apoc.es.bulk({host}, 'test', 'doc', [{name: 'a'}, {invalid: true}, {name: 'b'}])",
+                map("host", host), row -> {
+                    Map<String, Object> result = (Map<String, Object>) row.get("value");
+                    assertEquals(1L, result.get("batches"));
+                    assertEquals(1L, result.get("failed"));
+                    assertEquals(asList(map("type", "mapper_parsing_exception")), result.get("errors"));
+                });
+    }
+
+    @Test
+    public void testScroll() throws Exception {
+        List<Object> ids = db.execute("CALL apoc.es.scroll({host}, 'test', 'doc', null, {query: {match_all: {}}}, {size: 10}) YIELD value " +
+                "RETURN value._source.id AS id", map("host", host)).stream().map(row -> row.get("id")).collect(Collectors.toList());
+        assertEquals(IntStream.range(0, HITS).mapToObj(Long::valueOf).collect(Collectors.toList()), ids);
+        // the first search, two more pages, the empty page and the clear of the scroll
+        assertEquals(requests.toString(), 5, requests.size());
+        assertTrue(requests.get(0), requests.get(0).startsWith("POST /test/doc/_search?scroll=1m {"));
+        assertTrue(requests.get(0), requests.get(0).contains("\"size\":10"));
+        assertTrue(requests.get(4), requests.get(4).startsWith("DELETE /_search/scroll {\"scroll_id\":[\"scroll-4\"]}"));
+    }
+
+    @Test
+    public void testScrollClearedWhenClosedEarly() throws Exception {
+        testCall(db, "CALL apoc.es.scroll({host}, 'test', 'doc', null, null) YIELD value RETURN value._id AS id LIMIT 1",
+                map("host", host), row -> assertEquals("0", row.get("id")));
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1), requests.get(1).startsWith("DELETE /_search/scroll {\"scroll_id\":[\"scroll-1\"]}"));
+    }
+}
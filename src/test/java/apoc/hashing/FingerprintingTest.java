@@ -106,6 +106,51 @@ public class FingerprintingTest {
         compareGraph("CREATE (:Person{name:'ABC', created:timestamp()})", singletonList("created"), true);
     }
 
+    @Test
+    public void fingerprintGraphIsIndependentOfCreationOrder() {
+        db.execute("UNWIND range(1,100) as id CREATE (:Person{id:id})-[:KNOWS{id:id}]->(:City{id:id})").close();
+        String value = Iterators.single(db.execute("return apoc.hashing.fingerprintGraph() as hash").columnAs("hash"));
+        String murmur = Iterators.single(db.execute("return apoc.hashing.fingerprintGraph([], {algorithm:'MURMUR3'}) as hash").columnAs("hash"));
+        assertNotEquals(value, murmur);
+
+        db.execute("match (n) detach delete n").close();
+        db.execute("UNWIND range(100,1,-1) as id CREATE (c:City{id:id}) CREATE (:Person{id:id})-[:KNOWS{id:id}]->(c)").close();
+        assertEquals(value, Iterators.single(db.execute("return apoc.hashing.fingerprintGraph() as hash").columnAs("hash")));
+        assertEquals(murmur, Iterators.single(db.execute("return apoc.hashing.fingerprintGraph([], {algorithm:'MURMUR3'}) as hash").columnAs("hash")));
+
+        db.execute("match (p:Person{id:42})-[r:KNOWS]->(c:City{id:42}) delete r create (p)-[:KNOWS{id:42}]->(c)").close();
+        assertEquals(value, Iterators.single(db.execute("return apoc.hashing.fingerprintGraph() as hash").columnAs("hash")));
+
+        db.execute("match (p:Person{id:42})-[r:KNOWS]->(:City{id:42}) delete r with p match (c:City{id:43}) create (p)-[:KNOWS{id:42}]->(c)").close();
+        assertNotEquals(value, Iterators.single(db.execute("return apoc.hashing.fingerprintGraph() as hash").columnAs("hash")));
+    }
+
+    @Test
+    public void fingerprintGraphSeesChangesOfTheTransaction() {
+        db.execute("UNWIND range(1,10) as id CREATE (:Person{id:id})-[:KNOWS]->(:City{id:id})").close();
+        String inTx = Iterators.single(db.execute("CREATE (:Person{id:11})-[:KNOWS]->(:City{id:11}) RETURN apoc.hashing.fingerprintGraph() as hash").columnAs("hash"));
+        assertEquals(inTx, Iterators.single(db.execute("return apoc.hashing.fingerprintGraph() as hash").columnAs("hash")));
+    }
+
+    @Test
+    public void fingerprintGraphPartitions() {
+        db.execute("UNWIND range(1,10) as id CREATE (:Person{id:id})-[:KNOWS]->(:City{id:id})-[:IN]->(:Country{id:id})").close();
+        List<Map<String, Object>> before = Iterators.asList(db.execute("CALL apoc.hashing.fingerprintGraphPartitions([], {algorithm:'MURMUR3'})"));
+        assertEquals(5, before.size());
+        assertEquals(map("type", "node", "name", "City", "count", 10L), map("type", before.get(0).get("type"), "name", before.get(0).get("name"), "count", before.get(0).get("count")));
+
+        db.execute("MATCH (c:Country{id:5}) SET c.name = 'changed'").close();
+        List<Map<String, Object>> after = Iterators.asList(db.execute("CALL apoc.hashing.fingerprintGraphPartitions([], {algorithm:'MURMUR3'})"));
+        for (int i = 0; i < before.size(); i++) {
+            Object name = before.get(i).get("name");
+            if (name.equals("City") || name.equals("Person") || name.equals("KNOWS")) {
+                assertEquals(before.get(i), after.get(i));
+            } else {
+                assertNotEquals(name.toString(), before.get(i), after.get(i));
+            }
+        }
+    }
+
     private void compareGraph(String cypher, List<String> excludes, boolean shouldBeEqual) {
         Map<String, Object> params = singletonMap("excludes", excludes);
 
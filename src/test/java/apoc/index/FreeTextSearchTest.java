@@ -439,6 +439,35 @@ public class FreeTextSearchTest {
         };
     }
 
+    @Test
+    public void shouldPopulateLargeIndexInParallelPartitions() throws Exception {
+        // given
+        int nodes = FreeTextSearch.PARTITION_SIZE * 2 + 20_000;
+        execute("UNWIND range(0, $nodes - 1) AS i " +
+                "FOREACH (x IN CASE WHEN i % 2 = 0 THEN [1] ELSE [] END | CREATE (:Person {name:'name_' + (i % 1000)})) " +
+                "FOREACH (x IN CASE WHEN i % 2 = 1 THEN [1] ELSE [] END | CREATE (:Other {name:'name_' + (i % 1000)}))",
+                map("nodes", nodes));
+
+        // when
+        Map<String, Object> stats = db.execute("CALL apoc.index.addAllNodes('people', {Person:['name']})").next();
+
+        // then
+        assertEquals(nodes / 2L, stats.get("nodeCount"));
+        Map<String, Object> status = db.execute("CALL apoc.index.addAllNodes.status() YIELD name, state, partitions, completedPartitions, scannedNodes, indexedNodes WHERE name = 'people' RETURN *").next();
+        assertEquals("DONE", status.get("state"));
+        assertEquals(3L, status.get("partitions"));
+        assertEquals(3L, status.get("completedPartitions"));
+        assertEquals((long) nodes, status.get("scannedNodes"));
+        assertEquals(nodes / 2L, status.get("indexedNodes"));
+        Set<Object> found = new HashSet<>();
+        db.execute("CALL apoc.index.search('people', 'Person.name:name_42', -1) YIELD node RETURN id(node) AS id").forEachRemaining(row -> found.add(row.get("id")));
+        Set<Object> expected = new HashSet<>();
+        db.execute("MATCH (n:Person {name:'name_42'}) RETURN id(n) AS id").forEachRemaining(row -> expected.add(row.get("id")));
+        // name_42 is only used for even, that is Person nodes
+        assertEquals(nodes / 1000, expected.size());
+        assertEquals(expected, found);
+    }
+
     private static Matcher<? super PropertyContainer> hasProperty(String key, Object value) {
         return new TypeSafeDiagnosingMatcher<PropertyContainer>() {
             @Override
@@ -9,6 +9,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
@@ -115,4 +118,55 @@ public class IndexUpdateTransactionEventHandlerTest {
         testCallCount(db, "call apoc.index.search('search_index', 'City.name:Made') yield node, weight return node, weight", null, 0);
     }
 
+    @Test
+    public void shouldIndexLatestValueOfRepeatedUpdates() {
+        testCallEmpty(db, "call apoc.index.addAllNodesExtended('search_index',{City:['name']},{autoUpdate:true})", null);
+        testCallEmpty(db, "create (c:City{name:'City 0'})", null);
+        for (int i = 1; i <= 20; i++) {
+            db.execute("match (c:City) set c.name = 'City " + i + "'").close();
+        }
+        indexUpdateTransactionEventHandler.forceTxRollover();
+
+        testCallCount(db, "CALL apoc.index.nodes('search_index','City.name:\"City 20\"')", null, 1);
+        testCallCount(db, "CALL apoc.index.nodes('search_index','City.name:\"City 19\"')", null, 0);
+        testCallCount(db, "call apoc.index.search('search_index', 'City.name:20') yield node return node", null, 1);
+
+        TestUtil.testCall(db, "CALL apoc.index.autoUpdate.status()", row -> {
+            assertEquals(true, row.get("enabled"));
+            assertEquals(asyncIndexUpdates, row.get("async"));
+            if (asyncIndexUpdates) {
+                assertEquals(0L, row.get("queueSize"));
+                assertEquals(0L, row.get("pendingUpdates"));
+                // every update was either applied or superseded by a later one
+                assertEquals((long) row.get("enqueuedUpdates"), (long) row.get("appliedUpdates") + (long) row.get("coalescedUpdates"));
+                assertEquals(0L, row.get("lagMillis"));
+            }
+        });
+    }
+
+    @Test
+    public void shouldCoalesceUpdatesOfTheSameKeyInABatch() {
+        try (Transaction tx = db.beginTx()) {
+            Index<Node> index = db.index().forNodes("batch_index");
+            Node node = db.createNode();
+            Node other = db.createNode();
+            IndexUpdateTransactionEventHandler.Batch batch = new IndexUpdateTransactionEventHandler.Batch(true);
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, node, "City.name", "a", IndexUpdateTransactionEventHandler.UpdateType.ADD));
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, other, "City.name", "x", IndexUpdateTransactionEventHandler.UpdateType.ADD));
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, node, "City.url", "u", IndexUpdateTransactionEventHandler.UpdateType.ADD));
+            // only the value of the same key is replaced, adds don't supersede
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, node, "City.name", "b", IndexUpdateTransactionEventHandler.UpdateType.REPLACE));
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, node, "City.name", "c", IndexUpdateTransactionEventHandler.UpdateType.ADD));
+            assertEquals(5, batch.size());
+            assertEquals(1, batch.coalesced);
+            // removing the node supersedes all of its updates
+            batch.add(new IndexUpdateTransactionEventHandler.IndexUpdate(index, node, null, null, IndexUpdateTransactionEventHandler.UpdateType.REMOVE_NODE));
+            assertEquals(4, batch.coalesced);
+            assertEquals(2, batch.apply());
+
+            assertEquals(other, index.get("City.name", "x").getSingle());
+            assertEquals(null, index.get("City.name", "c").getSingle());
+            tx.success();
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package apoc.index;
 
+import apoc.ApocKernelExtensionFactory;
 import apoc.util.TestUtil;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -10,6 +11,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 import java.util.Collection;
@@ -35,14 +37,13 @@ import static org.junit.Assert.assertTrue;
  * @author mh
  * @since 23.05.16
  */
-@Ignore
-// the access to the internal lucene backed index readers is not easily possible anymore, kinda giving up on this, waiting for index backed order by in 3.5
 public class SchemaIndexTest {
 
     private static GraphDatabaseService db;
     private static List<String> personNames;
     private static List<String> personAddresses;
     private static List<Long> personAges;
+    private static List<Long> distinctPersonAges;
     private static List<Long> personIds;
     private static final int firstPerson = 1;
     private static final int lastPerson = 200;
@@ -68,6 +69,7 @@ public class SchemaIndexTest {
         personNames = IntStream.range(firstPerson, lastPerson+1).mapToObj(Integer::toString).map(i -> "name"+i).sorted().collect(Collectors.toList());
         personAddresses = IntStream.range(firstPerson, lastPerson+1).mapToObj(Integer::toString).map(i -> i+"Main St.").sorted().collect(Collectors.toList());
         personAges = IntStream.range(firstPerson, lastPerson+1).map(i -> i % 100).sorted().mapToObj(Long::new).collect(Collectors.toList());
+        distinctPersonAges = personAges.stream().distinct().collect(Collectors.toList());
 
         try (Transaction tx=db.beginTx()) {
             db.schema().awaitIndexesOnline(2,TimeUnit.SECONDS);
@@ -144,6 +146,7 @@ public class SchemaIndexTest {
         });
     }
 
+    @Ignore("the access to the internal lucene backed index readers is not easily possible anymore, waiting for index backed order by in 3.5")
     @Test
     public void testOrderedRangeText() throws Exception {
         testResult(db, "CALL apoc.index.orderedRange('Person','name','name10','name30',false,10)", r -> {
@@ -155,6 +158,7 @@ public class SchemaIndexTest {
             assertEquals(false, r.hasNext());
         });
     }
+    @Ignore("the access to the internal lucene backed index readers is not easily possible anymore, waiting for index backed order by in 3.5")
     @Test
     public void testOrderByText() throws Exception {
         testResult(db, "CALL apoc.index.orderedByText('Person','name','STARTS WITH','name1',false,10)", r -> {
@@ -224,10 +228,9 @@ public class SchemaIndexTest {
                 map("label",label,"key",""),
                 (result) -> {
                     assertDistinctCountProperties("Person", "address", personAddresses, () -> 1L, result);
+                    assertDistinctCountProperties("Person", "age", distinctPersonAges, () -> 2L, result);
+                    assertDistinctCountProperties("Person", "id", personIds, () -> 1L, result);
                     assertDistinctCountProperties("Person", "name", personNames, () -> 1L, result);
-                    //todo: update when number terms are supported
-                    //assertDistinctCountProperties("Person", "id", personIds, () -> 1L, result);
-                    //assertDistinctCountProperties("Person", "age", personAges, () -> 1L, result);
                     assertFalse(result.hasNext());
                 });
     }
@@ -241,14 +244,78 @@ public class SchemaIndexTest {
                     assertEquals(map("label","Foo","key","bar","value","four","count",2L),result.next());
                     assertEquals(map("label","Foo","key","bar","value","three","count",1L),result.next());
                     assertDistinctCountProperties("Person", "address", personAddresses, () -> 1L, result);
+                    assertDistinctCountProperties("Person", "age", distinctPersonAges, () -> 2L, result);
+                    assertDistinctCountProperties("Person", "id", personIds, () -> 1L, result);
                     assertDistinctCountProperties("Person", "name", personNames, () -> 1L, result);
-                    //todo: update when number terms are supported
-                    //assertDistinctCountProperties("Person", "id", personIds, () -> 1L, result);
-                    //assertDistinctCountProperties("Person", "age", personAges, () -> 1L, result);
                     assertFalse(result.hasNext());
                 });
     }
 
+    @Test
+    public void testDistinctPropertiesWithPrefixAndLimit() throws Exception {
+        testCall(db,"CALL apoc.schema.properties.distinct({label}, {key}, {prefix:'name1', limit:5})",
+                map("label", "Person","key", "name"),
+                (row) -> {
+                    List<String> values = (List<String>) row.get("value");
+                    assertEquals(5, values.size());
+                    assertTrue(values.stream().allMatch(value -> value.startsWith("name1")));
+                }
+        );
+    }
+
+    @Test
+    public void testDistinctCountPropertiesInRange() throws Exception {
+        testResult(db,"CALL apoc.schema.properties.distinctCount({label}, {key}, {min:10, max:19}) YIELD label,key,value,count RETURN * ORDER BY value",
+                map("label","Person","key","age"),
+                (result) -> {
+                    assertDistinctCountProperties("Person", "age", LongStream.rangeClosed(10, 19).boxed().collect(Collectors.toList()), () -> 2L, result);
+                    assertFalse(result.hasNext());
+                });
+    }
+
+    @Test
+    public void testDistinctCountCacheIsInvalidatedByUpdates() throws Exception {
+        GraphDatabaseService db = new TestGraphDatabaseFactory()
+                .newImpermanentDatabaseBuilder()
+                .setConfig("apoc.schema.distinct.cache.enabled", "true")
+                .newGraphDatabase();
+        try {
+            TestUtil.registerProcedure(db, SchemaIndex.class);
+            db.execute("CREATE INDEX ON :Tag(name)").close();
+            db.execute("CREATE (:Tag {name:'a'}), (:Tag {name:'a'}), (:Tag {name:'b'})").close();
+            try (Transaction tx = db.beginTx()) {
+                db.schema().awaitIndexesOnline(2, TimeUnit.SECONDS);
+                tx.success();
+            }
+            DistinctValuesCache cache = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class)
+                    .getDistinctValuesCacheLifeCycle().getCache();
+            String query = "CALL apoc.schema.properties.distinctCount('Tag', 'name') YIELD value, count RETURN value, count ORDER BY value";
+
+            // values that were not all enumerated or filtered are not cached
+            testCall(db, "CALL apoc.schema.properties.distinctCount('Tag', 'name', {limit:1})", (row) -> assertEquals("a", row.get("value")));
+            testCall(db, "CALL apoc.schema.properties.distinctCount('Tag', 'name', {max:'a'})", (row) -> assertEquals("a", row.get("value")));
+            assertTrue(cache.get("Tag", "name") == null);
+
+            testResult(db, query, (result) -> {
+                assertEquals(map("value", "a", "count", 2L), result.next());
+                assertEquals(map("value", "b", "count", 1L), result.next());
+                assertFalse(result.hasNext());
+            });
+            assertTrue(cache.get("Tag", "name") != null);
+
+            db.execute("CREATE (:Tag {name:'c'})").close();
+            assertTrue(cache.get("Tag", "name") == null);
+            testResult(db, query, (result) -> {
+                assertEquals(map("value", "a", "count", 2L), result.next());
+                assertEquals(map("value", "b", "count", 1L), result.next());
+                assertEquals(map("value", "c", "count", 1L), result.next());
+                assertFalse(result.hasNext());
+            });
+        } finally {
+            db.shutdown();
+        }
+    }
+
     private <T> void assertDistinctCountProperties(String label, String key, Collection<T> values, Supplier<Long> counts, Result result) {
         Iterator<T> valueIterator = values.iterator();
 
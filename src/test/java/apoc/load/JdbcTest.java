@@ -1,6 +1,7 @@
 package apoc.load;
 
 import apoc.ApocConfiguration;
+import apoc.load.util.JdbcConnectionPool;
 import apoc.util.TestUtil;
 import apoc.util.Util;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -10,10 +11,13 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.QueryExecutionException;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.sql.*;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
@@ -160,6 +164,98 @@ public class JdbcTest extends AbstractJdbcTest {
                 (row) -> assertEquals(Util.map("count", 1 ), row.get("row")));
     }
 
+    @Test
+    public void testLoadJdbcUpdateBatch() throws Exception {
+        testCall(db, "CALL apoc.load.jdbcUpdateBatch('jdbc:derby:derbyDB','INSERT INTO PERSON (NAME, SURNAME) VALUES (?, ?)', [['Jane','Doe'],['Jim','Doe'],['Joe','Doe']], {batchSize:2})",
+                (row) -> assertEquals(Util.map("count", 3L, "batches", 2L), row.get("row")));
+        ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM PERSON WHERE SURNAME = 'Doe'");
+        rs.next();
+        assertEquals(3, rs.getInt(1));
+        rs.close();
+    }
+
+    @Test
+    public void testLoadJdbcUpdateBatchRollsBackOnError() throws Exception {
+        try {
+            db.execute("CALL apoc.load.jdbcUpdateBatch('jdbc:derby:derbyDB','INSERT INTO PERSON (NAME, HIRE_DATE) VALUES (?, ?)', [['Jane', null],['Jim','not a date']], {batchSize:1})").next();
+            Assert.fail("the invalid date should fail the batch update");
+        } catch (QueryExecutionException e) {
+            // expected
+        }
+        ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM PERSON WHERE NAME IN ('Jane', 'Jim')");
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+    }
+
+    @Test
+    public void testLoadJdbcReusesPooledConnection() throws Exception {
+        JdbcConnectionPool.clear();
+        for (int i = 0; i < 5; i++) {
+            testCall(db, "CALL apoc.load.jdbcUpdate('jdbc:derby:derbyDB','UPDATE PERSON SET SURNAME = ? WHERE NAME = ?', ['DOE', 'John'])",
+                    (row) -> assertEquals(Util.map("count", 1 ), row.get("row")));
+            testCall(db, "CALL apoc.load.jdbc('jdbc:derby:derbyDB','PERSON')", (row) -> {});
+            assertEquals(1, JdbcConnectionPool.idleConnections());
+        }
+        testCall(db, "CALL apoc.load.jdbc('jdbc:derby:derbyDB','PERSON', [], {pool:false})", (row) -> {});
+        assertEquals(1, JdbcConnectionPool.idleConnections());
+    }
+
+    @Test
+    public void testLoadJdbcPartitioned() throws Exception {
+        createItems(10_000);
+        List<String> expected = loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','ITEMS')");
+        assertEquals(10_000, expected.size());
+
+        assertEquals(expected, loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','ITEMS', [], {partitionBy:'ID', partitions:4, fetchSize:100})"));
+        assertEquals(expected, loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','ITEMS', [], {partitionBy:'CREATED', partitions:7})"));
+        assertEquals(expected, loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','ITEMS', [], {partitionBy:'PRICE', partitions:3})"));
+        assertEquals(loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','SELECT * FROM ITEMS WHERE NAME LIKE ?', ['item-1%'])"),
+                loadRows("CALL apoc.load.jdbc('jdbc:derby:derbyDB','SELECT * FROM ITEMS WHERE NAME LIKE ?', ['item-1%'], {partitionBy:'ID', partitions:5})"));
+    }
+
+    @Test
+    public void testLoadJdbcPartitionedWithLimit() throws Exception {
+        createItems(10_000);
+        testResult(db, "CALL apoc.load.jdbc('jdbc:derby:derbyDB','ITEMS', [], {partitionBy:'ID', partitions:4}) YIELD row RETURN row LIMIT 10",
+                (r) -> assertEquals(10, Iterators.count(r)));
+    }
+
+    @Test
+    public void testPartitionBounds() throws Exception {
+        List<Object[]> bounds = Jdbc.partitionBounds(0, 10, 4);
+        assertEquals(4, bounds.size());
+        assertEquals(Arrays.asList(0L, 3L), Arrays.asList(bounds.get(0)));
+        assertEquals(Arrays.asList(9L, 10L), Arrays.asList(bounds.get(3)));
+        assertEquals(1, Jdbc.partitionBounds(5L, 5L, 4).size());
+        assertEquals(1, Jdbc.partitionBounds(1.5, 1.5, 4).size());
+        assertEquals(Arrays.asList(new Date(2501), new Date(5002)), Arrays.asList(Jdbc.partitionBounds(new Date(0), new Date(10000), 4).get(1)));
+        assertEquals(null, Jdbc.partitionBounds("a", "z", 4));
+    }
+
+    private void createItems(int count) throws SQLException {
+        try { conn.createStatement().execute("DROP TABLE ITEMS"); } catch (SQLException se) {/*ignore*/}
+        conn.createStatement().execute("CREATE TABLE ITEMS (ID INT, NAME varchar(50), PRICE DECIMAL(10,2), CREATED DATE)");
+        PreparedStatement ps = conn.prepareStatement("INSERT INTO ITEMS values(?,?,?,?)");
+        for (int i = 0; i < count; i++) {
+            // some rows without an id or date to check that they are read too
+            if (i % 100 == 0) ps.setNull(1, Types.INTEGER); else ps.setInt(1, i);
+            ps.setString(2, "item-" + i);
+            ps.setBigDecimal(3, new java.math.BigDecimal(i % 1000).movePointLeft(1));
+            if (i % 150 == 0) ps.setNull(4, Types.DATE); else ps.setDate(4, new Date(86_400_000L * (i % 3650)));
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        ps.close();
+    }
+
+    private List<String> loadRows(String query) {
+        List<String> rows = new ArrayList<>();
+        testResult(db, query + " YIELD row RETURN row", (r) -> r.forEachRemaining(row -> rows.add(row.get("row").toString())));
+        Collections.sort(rows);
+        return rows;
+    }
+
     @Test
     public void testLoadJdbcWithSpecialCharWithAuthentication() {
         db.execute("CALL apoc.load.jdbc({url}, 'PERSON',[],{credentials:{user:'apoc',password:'Ap0c!#Db'}})", Util.map("url","jdbc:derby:derbyDB")).next();
@@ -12,10 +12,14 @@ import org.neo4j.graphdb.Result;
 import org.neo4j.test.TestGraphDatabaseFactory;
 import org.testcontainers.containers.GenericContainer;
 
+import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static apoc.util.MapUtil.map;
 import static apoc.util.TestUtil.getUrlFileName;
@@ -337,4 +341,55 @@ RETURN m.col_1,m.col_2,m.col_3
         testResult(db, "CALL apoc.load.csv({url}, {quoteChar: '\0'})", map("url",url.toString()),
                 (r) -> assertEquals(16018L, r.stream().count()));
     }
+
+    @Test public void testLoadCsvParallel() throws Exception {
+        File file = createQuotedCsv(20_000);
+        String url = file.toURI().toString();
+        String query = "CALL apoc.load.csv({url},{mapping:{id:{type:'int'}}})";
+        List<Map<String, Object>> expected = loadRows(query, map("url", url));
+        assertEquals(20_000, expected.size());
+        assertEquals(map("id", 2L, "name", "name \"2\"", "text", "line 2\nnext, line\\"), expected.get(2).get("map"));
+
+        String parallel = "CALL apoc.load.csv({url},{mapping:{id:{type:'int'}}, parallel:true, concurrency:4, ordered:{ordered}})";
+        assertEquals(expected, loadRows(parallel, map("url", url, "ordered", true)));
+
+        List<Map<String, Object>> unordered = loadRows(parallel, map("url", url, "ordered", false));
+        unordered.sort(Comparator.comparing(row -> (Long) row.get("lineNo")));
+        assertEquals(expected, unordered);
+    }
+
+    @Test public void testLoadCsvParallelSkipLimit() throws Exception {
+        String url = createQuotedCsv(20_000).toURI().toString();
+        String query = "CALL apoc.load.csv({url},{skip:5003, limit:10007, parallel:{parallel}, concurrency:4})";
+        List<Map<String, Object>> expected = loadRows(query, map("url", url, "parallel", false));
+        assertEquals(10_007, expected.size());
+        assertEquals(5003L, expected.get(0).get("lineNo"));
+        assertEquals(expected, loadRows(query, map("url", url, "parallel", true)));
+    }
+
+    @Test public void testLoadCsvParallelNoHeader() throws Exception {
+        URL url = getUrlFileName("test-no-header.csv");
+        String query = "CALL apoc.load.csv({url},{header:false, parallel:{parallel}})";
+        assertEquals(loadRows(query, map("url", url.toString(), "parallel", false)),
+                loadRows(query, map("url", url.toString(), "parallel", true)));
+    }
+
+    private File createQuotedCsv(int rows) throws IOException {
+        File file = File.createTempFile("quoted", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("id,name,text\n");
+            // quoted fields with separators, escaped and doubled quotes and line breaks, and an unterminated last line
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + ",\"name \"\"" + i + "\"\"\",\"line " + i + "\r\nnext, line\\\\\"" + (i < rows - 1 ? "\n" : ""));
+            }
+        }
+        return file;
+    }
+
+    private List<Map<String, Object>> loadRows(String query, Map<String, Object> params) {
+        return db.execute(query, params).stream()
+                .map(row -> map("lineNo", row.get("lineNo"), "map", row.get("map"), "list", row.get("list")))
+                .collect(Collectors.toList());
+    }
 }
@@ -8,6 +8,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.*;
 import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.values.storable.*;
 
 import java.time.Clock;
@@ -19,10 +20,12 @@ import java.util.Map;
 
 import static apoc.util.MapUtil.map;
 import static apoc.util.TestUtil.testCall;
+import static apoc.util.TestUtil.testResult;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.neo4j.driver.v1.Values.isoDuration;
 import static org.neo4j.graphdb.traversal.Evaluators.toDepth;
 
@@ -633,6 +636,58 @@ public class MetaTest {
                 });
     }
 
+    @Test
+    public void testMetaDataParallel() throws Exception {
+        db.execute("UNWIND range(1,100) as id CREATE (:Person {name:'p'+id})-[:KNOWS {since:id}]->(:City {name:'c'+id, region:'r'})").close();
+        db.execute("CREATE (:Company {name:'Acme'})").close();
+        List<Map<String, Object>> sequential = Iterators.asList(db.execute("CALL apoc.meta.data({sample:-1})"));
+        List<Map<String, Object>> parallel = Iterators.asList(db.execute("CALL apoc.meta.data({sample:-1, parallel:true})"));
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).get("label"), parallel.get(i).get("label"));
+            assertEquals(sequential.get(i).get("property"), parallel.get(i).get("property"));
+            assertEquals(sequential.get(i).get("type"), parallel.get(i).get("type"));
+        }
+    }
+
+    @Test
+    public void testMetaDataWithMaxNodesPerLabel() throws Exception {
+        db.execute("CREATE (:Person {name:'Tom'})").close();
+        db.execute("CREATE (:Person {name:'John', surname:'Brown'})").close();
+        testResult(db, "CALL apoc.meta.data({sample:-1, maxNodesPerLabel:1}) YIELD property RETURN collect(property) as props",
+                (r) -> assertEquals(asList("name"), r.next().get("props")));
+        testResult(db, "CALL apoc.meta.data({sample:-1, maxNodesPerLabel:2}) YIELD property RETURN collect(property) as props",
+                (r) -> assertEquals(asList("name", "surname"), r.next().get("props")));
+    }
+
+    @Test
+    public void testMetaDataSpreadsCappedSamplesOverTheStore() throws Exception {
+        db.execute("UNWIND range(1,10000) as id CREATE (:Person {first:id})").close();
+        db.execute("MATCH (p:Person) WHERE p.first > 5000 REMOVE p.first SET p.second = true").close();
+        // a label scan capped at 2 nodes would only see the first nodes
+        testResult(db, "CALL apoc.meta.data({sample:100, maxNodesPerLabel:2}) YIELD property RETURN collect(property) as props",
+                (r) -> assertEquals(asList("first", "second"), r.next().get("props")));
+    }
+
+    @Test
+    public void testSchemaWithMaxTime() {
+        try (Transaction tx = db.beginTx()) {
+            for (int i = 0; i < 10000; i++) {
+                db.createNode(Label.label("Person")).setProperty("p" + i, i);
+            }
+            tx.success();
+        }
+        testCall(db, "CALL apoc.meta.schema({sample:-1, maxTime:1})",
+                (row) -> {
+                    Map<String, Object> o = (Map<String, Object>) row.get("value");
+                    Map<String, Object> person = (Map<String, Object>) o.get("Person");
+                    assertEquals(10000L, person.get("count"));
+                    // every node has its own property, the sampling stopped before it saw all of them
+                    int properties = ((Map<String, Object>) person.get("properties")).size();
+                    assertTrue(String.valueOf(properties), properties > 0 && properties < 10000);
+                });
+    }
+
     @Test
     public void testMetaGraphExtraRelsWithSample() throws Exception {
         db.execute("CREATE (:S1 {name:'Tom'})").close();
@@ -0,0 +1,54 @@
+package apoc.mongodb;
+
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.List;
+
+import static apoc.util.MapUtil.map;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the conversion of the bulk operations, which doesn't need a running mongodb.
+ */
+public class MongoDBCollTest {
+
+    @Test
+    public void testToWriteModels() {
+        List<WriteModel<Document>> models = MongoDBColl.toWriteModels(asList(
+                map("insertOne", map("document", map("name", "a"))),
+                map("updateOne", map("filter", map("name", "a"), "update", map("$set", map("value", 1)), "upsert", true)),
+                map("replaceOne", map("filter", map("name", "b"), "replacement", map("name", "c"))),
+                map("deleteMany", map("filter", map("name", "c")))));
+        assertEquals(4, models.size());
+
+        assertEquals("a", ((InsertOneModel<Document>) models.get(0)).getDocument().get("name"));
+        UpdateOneModel<Document> update = (UpdateOneModel<Document>) models.get(1);
+        assertEquals(new Document("name", "a"), update.getFilter());
+        assertEquals(new Document("$set", map("value", 1)), update.getUpdate());
+        assertTrue(update.getOptions().isUpsert());
+        ReplaceOneModel<Document> replace = (ReplaceOneModel<Document>) models.get(2);
+        assertEquals("c", replace.getReplacement().get("name"));
+        assertFalse(replace.getOptions().isUpsert());
+        assertEquals(new Document("name", "c"), ((DeleteManyModel<Document>) models.get(3)).getFilter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOperation() {
+        MongoDBColl.toWriteModels(singletonList(map("upsertOne", map("document", map("name", "a")))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingDocument() {
+        MongoDBColl.toWriteModels(singletonList(map("insertOne", map("name", "a"))));
+    }
+}
@@ -102,11 +102,14 @@ public class MongoDBTest {
 
     @Before
     public void before() {
+        MongoDBColl.CLIENTS.clear();
         numConnections = (long) getNumConnections().get("current");
     }
 
     @After
     public void after() {
+        // the clients are pooled, but none of them may be in use anymore, so they are all closed by clear
+        MongoDBColl.CLIENTS.clear();
         // the connections active before must be equal to the connections active after
         long numConnectionsAfter = (long) getNumConnections().get("current");
         assertEquals(numConnections, numConnectionsAfter);
@@ -261,6 +264,38 @@ public class MongoDBTest {
         }, QueryExecutionException.class);
     }
 
+    @Test
+    public void testReuseClient() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            TestUtil.testCall(db, "CALL apoc.mongodb.count({host},{db},{collection},null)", params,
+                    r -> assertEquals(NUM_OF_RECORDS, r.get("value")));
+        }
+        assertEquals(1, MongoDBColl.CLIENTS.size());
+    }
+
+    @Test
+    public void testGetWithBatchSize() throws Exception {
+        TestUtil.testCall(db, "CALL apoc.mongodb.get({host},{db},{collection},null,false,0,0,100) YIELD value RETURN count(*) AS count", params,
+                r -> assertEquals(NUM_OF_RECORDS, r.get("count")));
+    }
+
+    @Test
+    public void testBulkWrite() throws Exception {
+        TestUtil.testCall(db, "CALL apoc.mongodb.bulkWrite({host},{db},'bulk',[" +
+                        "{insertOne:{document:{name:'a', value:1}}}, {insertOne:{document:{name:'b', value:2}}}, " +
+                        "{updateMany:{filter:{}, update:{`$inc`:{value:10}}}}, {replaceOne:{filter:{name:'c'}, replacement:{name:'c', value:3}, upsert:true}}, " +
+                        "{deleteOne:{filter:{name:'a'}}}])", params,
+                r -> {
+                    Map<String, Object> result = (Map<String, Object>) r.get("value");
+                    assertEquals(2L, result.get("insertedCount"));
+                    assertEquals(2L, result.get("matchedCount"));
+                    assertEquals(1L, result.get("upsertedCount"));
+                    assertEquals(1L, result.get("deletedCount"));
+                });
+        TestUtil.testCall(db, "CALL apoc.mongodb.count({host},{db},'bulk',null)", params, r -> assertEquals(2L, r.get("value")));
+        TestUtil.testCall(db, "CALL apoc.mongodb.delete({host},{db},'bulk',{})", params, r -> assertEquals(2L, r.get("value")));
+    }
+
     /**
      * Get the number of active connections that can be used to check if them are managed correctly
      * by invoking:
@@ -6,6 +6,7 @@ import org.neo4j.graphdb.*;
 
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 
 public class NeighborsTest {
@@ -150,4 +151,28 @@ public class NeighborsTest {
                         "RETURN number",
                 (row) -> assertEquals(1L, row.get("number")));
     }
+
+    @Test
+    public void getNeighbors2HopsExcludesStartNode() {
+        TestUtil.testCall(db, "MATCH (n:First) WITH n " +
+                        "CALL apoc.neighbors.tohop(n,'KNOWS>', 2) YIELD node AS neighbor " +
+                        "RETURN COLLECT(labels(neighbor)[0]) AS labels",
+                (row) -> assertEquals(asList("Neighbor", "Neighbor"), row.get("labels")));
+    }
+
+    @Test
+    public void getNeighborsOfLargeFrontier() {
+        db.execute("MATCH (d:Neighbor) WHERE NOT (d)-->() " +
+                "UNWIND range(1,15000) AS id CREATE (d)-[:KNOWS]->(:Leaf {id:id})").close();
+        db.execute("MATCH (l:Leaf) WITH l, l.id % 100 AS hub " +
+                "MERGE (h:Hub {id:hub}) CREATE (l)-[:LIKES]->(h)").close();
+        TestUtil.testCall(db, "MATCH (n:First) WITH n " +
+                        "CALL apoc.neighbors.byhop.count(n,'KNOWS>|LIKES>', 6) YIELD value AS numbers " +
+                        "RETURN numbers",
+                (row) -> assertEquals(asList(1L, 1L, 1L, 15000L, 100L, 0L), row.get("numbers")));
+        TestUtil.testCall(db, "MATCH (n:First) WITH n " +
+                        "CALL apoc.neighbors.tohop.count(n,'>', 6) YIELD value AS number " +
+                        "RETURN number",
+                (row) -> assertEquals(15103L, row.get("number")));
+    }
 }
@@ -200,4 +200,29 @@ public class GroupingTest {
         it.next();
         assertFalse(it.hasNext());
     }
+
+    @Test
+    public void testGroupManyNodesAcrossBatches() throws Exception {
+        db.execute("UNWIND range(0,24999) AS id CREATE (u:User {id:id, group:id % 3}) " +
+                "WITH collect(u) AS users UNWIND range(1, size(users) - 1) AS i " +
+                "WITH users[i - 1] AS prev, users[i] AS next CREATE (prev)-[:NEXT {weight:1}]->(next)").close();
+        Map<String, Object> counts = new java.util.HashMap<>();
+        long rels = 0;
+        long weights = 0;
+        try (Result result = db.execute("CALL apoc.nodes.group(['User'],['group'],[{`*`:'count', id:'max'},{`*`:'count', weight:'sum'}])")) {
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                Node node = (Node) row.get("node");
+                counts.put(node.getProperty("group").toString(), node.getProperty("count_*"));
+                Relationship rel = (Relationship) row.get("relationship");
+                if (rel != null) {
+                    rels += (Long) rel.getProperty("count_*");
+                    weights += (Long) rel.getProperty("sum_weight");
+                }
+            }
+        }
+        assertEquals(map(0L, 8334L, 1L, 8333L, 2L, 8333L), counts);
+        assertEquals(24999L, rels);
+        assertEquals(24999L, weights);
+    }
 }
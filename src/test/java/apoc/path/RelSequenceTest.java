@@ -5,9 +5,17 @@ import apoc.util.Util;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
 import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.helpers.collection.Pair;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 import java.util.ArrayList;
@@ -102,4 +110,32 @@ public class RelSequenceTest {
                     assertTrue(names.containsAll(expectedNames));
                 });
     }
+
+    @Test
+    public void testExpanderKeepsRelationshipOrder() throws Throwable {
+        // more than 50 relationships make the hub a dense node
+        db.execute("CREATE (hub:Hub), (sparse:Hub) WITH hub, sparse UNWIND range(1,40) AS i " +
+                "CREATE (hub)-[:A]->(:Spoke), (hub)<-[:B]-(:Spoke), (sparse)-[:B]->(hub) " +
+                "FOREACH (x IN CASE WHEN i % 10 = 0 THEN [1] ELSE [] END | CREATE (hub)-[:A]->(hub))").close();
+        try (Transaction tx = db.beginTx()) {
+            for (Node node : Iterators.asList(db.findNodes(Label.label("Hub")))) {
+                for (String pattern : Arrays.asList("A>|<B|B", "<A|>", "B", "C|A")) {
+                    List<Relationship> expected = new ArrayList<>();
+                    for (Pair<RelationshipType, Direction> pair : RelationshipTypeAndDirections.parse(pattern)) {
+                        Iterable<Relationship> rels = pair.first() == null ? node.getRelationships(pair.other()) : node.getRelationships(pair.first(), pair.other());
+                        rels.forEach(expected::add);
+                    }
+                    List<Relationship> actual = new ArrayList<>();
+                    db.traversalDescription()
+                            .expand(new RelationshipSequenceExpander(pattern, true))
+                            .uniqueness(Uniqueness.NONE)
+                            .evaluator(Evaluators.atDepth(1))
+                            .traverse(node)
+                            .forEach(path -> actual.add(path.lastRelationship()));
+                    assertEquals(pattern, expected, actual);
+                }
+            }
+            tx.success();
+        }
+    }
 }
@@ -5,16 +5,24 @@ import apoc.result.NodeResult;
 import apoc.result.RelationshipResult;
 import apoc.util.TestUtil;
 import apoc.util.Util;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Uniqueness;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 public class SubgraphTest {
@@ -236,4 +244,53 @@ public class SubgraphTest {
 			assertTrue(subgraph.containsAll(subgraphNodes));
 		});
 	}
+
+	@Test
+	public void testSubgraphAllOnLargeGraphShouldMatchNodeGlobalTraversal() throws Throwable {
+		GraphDatabaseService largeDb = new TestGraphDatabaseFactory().newImpermanentDatabase();
+		try {
+			TestUtil.registerProcedure(largeDb, PathExplorer.class);
+			// a chain of 15000 nodes with chords, self loops and a disconnected part, above the cover batch size
+			largeDb.execute("UNWIND range(0,14999) AS id CREATE (n:Node {id:id}) " +
+					"WITH collect(n) AS nodes UNWIND range(1, size(nodes) - 1) AS i " +
+					"WITH nodes[i - 1] AS prev, nodes[i] AS next, nodes[(i * 31) % size(nodes)] AS jump, i CREATE (prev)-[:NEXT]->(next) " +
+					"FOREACH (_ IN CASE WHEN i % 7 = 0 THEN [1] ELSE [] END | CREATE (next)-[:JUMP]->(jump)) " +
+					"FOREACH (_ IN CASE WHEN i % 101 = 0 THEN [1] ELSE [] END | CREATE (next)-[:SELF]->(next))").close();
+			largeDb.execute("UNWIND range(0,99) AS id CREATE (:Other {id:id})-[:NEXT]->(:Other {id:id})").close();
+
+			try (Transaction tx = largeDb.beginTx()) {
+				Node start = largeDb.findNode(Label.label("Node"), "id", 0);
+				Set<Node> expectedNodes = new HashSet<>();
+				for (Path path : largeDb.traversalDescription().breadthFirst().uniqueness(Uniqueness.NODE_GLOBAL).traverse(start)) {
+					expectedNodes.add(path.endNode());
+				}
+				Set<Relationship> expectedRels = new HashSet<>();
+				for (Node node : expectedNodes) {
+					for (Relationship rel : node.getRelationships(Direction.OUTGOING)) {
+						if (expectedNodes.contains(rel.getEndNode())) expectedRels.add(rel);
+					}
+				}
+				assertEquals(15000, expectedNodes.size());
+
+				TestUtil.testCall(largeDb, "MATCH (n:Node {id:0}) CALL apoc.path.subgraphAll(n, {}) YIELD nodes, relationships RETURN nodes, relationships", (row) -> {
+					List<Node> nodes = (List<Node>) row.get("nodes");
+					List<Relationship> relationships = (List<Relationship>) row.get("relationships");
+					assertEquals(expectedNodes.size(), nodes.size());
+					assertEquals(expectedNodes, new HashSet<>(nodes));
+					assertEquals(expectedRels.size(), relationships.size());
+					assertEquals(expectedRels, new HashSet<>(relationships));
+				});
+
+				TestUtil.testCall(largeDb, "MATCH (n:Node {id:0}) CALL apoc.path.spanningTree(n, {}) YIELD path " +
+						"WITH collect(last(nodes(path))) AS nodes RETURN nodes", (row) -> {
+					List<Node> nodes = (List<Node>) row.get("nodes");
+					assertEquals(expectedNodes.size(), nodes.size());
+					assertEquals(expectedNodes, new HashSet<>(nodes));
+				});
+				tx.success();
+			}
+		} finally {
+			largeDb.shutdown();
+		}
+	}
 }
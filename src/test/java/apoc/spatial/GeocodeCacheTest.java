@@ -0,0 +1,166 @@
+package apoc.spatial;
+
+import apoc.ApocConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static apoc.util.MapUtil.map;
+import static apoc.util.TestUtil.registerProcedure;
+import static apoc.util.TestUtil.testCall;
+import static apoc.util.TestUtil.testCallEmpty;
+import static apoc.util.TestUtil.testResult;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeocodeCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GraphDatabaseService db;
+    private File file;
+
+    /**
+     * A local provider that places an address at the latitude of its length, and counts its requests.
+     */
+    public static class CountingSupplier implements Geocode.GeocodeSupplier {
+        static final AtomicInteger requests = new AtomicInteger();
+
+        public CountingSupplier(Map<String, Object> config) {
+        }
+
+        @Override
+        public Stream<Geocode.GeoCodeResult> geocode(String address, long maxResults) {
+            requests.incrementAndGet();
+            if (address.startsWith("quota")) throw new IllegalStateException("QUOTA_EXCEEDED from geocode API");
+            if (address.startsWith("nowhere")) return Stream.empty();
+            return Stream.of(1, 2, 3).limit(maxResults).map(i -> new Geocode.GeoCodeResult((double) address.length(), (double) i, address + " " + i, map("rank", i)));
+        }
+
+        @Override
+        public Stream<Geocode.GeoCodeResult> reverseGeocode(Double latitude, Double longitude) {
+            requests.incrementAndGet();
+            return Stream.of(new Geocode.GeoCodeResult(latitude, longitude, "somewhere", map()));
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "geocode.cache");
+        CountingSupplier.requests.set(0);
+        startDatabase();
+        db.execute("CALL apoc.spatial.clearGeocodeCache()").close();
+    }
+
+    private void startDatabase() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerProcedure(db, Geocode.class);
+        // after the start, which initializes the config
+        configure(map("provider", CountingSupplier.class.getName(), CountingSupplier.class.getName() + ".throttle", "0",
+                "cache.enabled", "true", "cache.file", file.getPath(), "cache.ttl", "3600"));
+    }
+
+    @After
+    public void tearDown() {
+        db.shutdown();
+        configure(map("provider", "osm", "cache.enabled", "true"));
+    }
+
+    private static void configure(Map<String, Object> config) {
+        config.forEach((key, value) -> ApocConfiguration.addToConfig(map(Geocode.PREFIX + "." + key, value)));
+    }
+
+    @Test
+    public void testRepeatedAddressesAreLookedUpOnce() throws Exception {
+        testCall(db, "CALL apoc.spatial.geocodeOnce('21 rue Paul Bellamy, NANTES')", row -> assertEquals(27d, row.get("latitude")));
+        testCall(db, "CALL apoc.spatial.geocodeOnce(' 21 Rue Paul  Bellamy ,Nantes')", row -> assertEquals(27d, row.get("latitude")));
+        assertEquals(1, CountingSupplier.requests.get());
+        // more results than were cached
+        testResult(db, "CALL apoc.spatial.geocode('21 rue Paul Bellamy, NANTES', 3)", result -> assertEquals(3, Iterators.count(result)));
+        testResult(db, "CALL apoc.spatial.geocode('21 rue Paul Bellamy, NANTES', 2)", result -> assertEquals(2, Iterators.count(result)));
+        assertEquals(2, CountingSupplier.requests.get());
+        // no results are results
+        testCallEmpty(db, "CALL apoc.spatial.geocode('nowhere', 3)", map());
+        testCallEmpty(db, "CALL apoc.spatial.geocode('nowhere', 3)", map());
+        assertEquals(3, CountingSupplier.requests.get());
+    }
+
+    @Test
+    public void testCacheIsPersistent() throws Exception {
+        testCall(db, "CALL apoc.spatial.geocodeOnce('Nantes')", row -> assertEquals("Nantes 1", row.get("description")));
+        db.shutdown();
+        // as after a restart, the cache is read from the file
+        GeocodeCache.close(file);
+        startDatabase();
+        testCall(db, "CALL apoc.spatial.geocodeOnce('Nantes')", row -> assertEquals("Nantes 1", row.get("description")));
+        assertEquals(1, CountingSupplier.requests.get());
+    }
+
+    @Test
+    public void testExpiredEntriesAreLookedUpAgain() throws Exception {
+        testCall(db, "CALL apoc.spatial.geocodeOnce('Nantes')", row -> assertEquals(6d, row.get("latitude")));
+        configure(map("cache.ttl", "1"));
+        Thread.sleep(1100);
+        testCall(db, "CALL apoc.spatial.geocodeOnce('Nantes')", row -> assertEquals(6d, row.get("latitude")));
+        assertEquals(2, CountingSupplier.requests.get());
+    }
+
+    @Test
+    public void testBatchDedupesAddresses() throws Exception {
+        List<String> addresses = Arrays.asList("Nantes", "Paris", "nantes", "Lyon", "PARIS", null, "", "Nantes");
+        testCall(db, "CALL apoc.spatial.geocodeOnce('Lyon')", row -> assertEquals(4d, row.get("latitude")));
+        testResult(db, "CALL apoc.spatial.geocodeBatch({addresses}) YIELD address, latitude RETURN address, latitude", map("addresses", addresses), result -> {
+            List<String> found = result.stream().map(row -> row.get("address") + ":" + row.get("latitude")).collect(Collectors.toList());
+            assertEquals(Arrays.asList("Nantes:6.0", "Paris:5.0", "nantes:6.0", "Lyon:4.0", "PARIS:5.0", "Nantes:6.0"), found);
+        });
+        // Lyon was cached
+        assertEquals(3, CountingSupplier.requests.get());
+        testResult(db, "CALL apoc.spatial.geocodeBatch({addresses}, 2)", map("addresses", addresses), result -> assertEquals(12, Iterators.count(result)));
+        assertEquals(6, CountingSupplier.requests.get());
+    }
+
+    @Test
+    public void testBatchSkipsAddressesOverQuota() throws Exception {
+        testResult(db, "CALL apoc.spatial.geocodeBatch(['Nantes', 'quota'])", result -> assertEquals(1, Iterators.count(result)));
+        testResult(db, "CALL apoc.spatial.geocodeBatch(['Nantes', 'quota'])", result -> assertEquals(1, Iterators.count(result)));
+        // the quota is not cached
+        assertEquals(3, CountingSupplier.requests.get());
+        try {
+            testResult(db, "CALL apoc.spatial.geocodeBatch(['quota'], 1, {quotaException: true})", result -> Iterators.count(result));
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("QUOTA_EXCEEDED"));
+            return;
+        }
+        throw new AssertionError("expected a quota exception");
+    }
+
+    @Test
+    public void testBatchIsThrottled() throws Exception {
+        configure(map(CountingSupplier.class.getName() + ".throttle", "100", CountingSupplier.class.getName() + ".burst", "2", "cache.enabled", "false"));
+        long start = System.currentTimeMillis();
+        testResult(db, "CALL apoc.spatial.geocodeBatch(['a', 'b', 'c', 'd', 'e', 'f'], 1, {concurrency: 6})", result -> assertEquals(6, Iterators.count(result)));
+        long time = System.currentTimeMillis() - start;
+        // two at once, then one per 100 ms
+        assertTrue("took " + time + " ms", time >= 350);
+        assertEquals(6, CountingSupplier.requests.get());
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        assertEquals("21 rue paul bellamy, 44000 nantes", GeocodeCache.normalize("  21 Rue Paul\tBellamy ,44000  NANTES "));
+    }
+}
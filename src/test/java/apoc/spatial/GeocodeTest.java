@@ -132,7 +132,9 @@ public class GeocodeTest {
     private void setupSupplier(String name, long throttle) {
         ApocConfiguration.addToConfig(map(
                 Geocode.PREFIX + "." +Geocode.GEOCODE_PROVIDER_KEY, name,
-                Geocode.PREFIX + "." + name + ".throttle", Long.toString(throttle)));
+                Geocode.PREFIX + "." + name + ".throttle", Long.toString(throttle),
+                // the throttling is measured with requests
+                Geocode.PREFIX + ".cache.enabled", "false"));
     }
 
     private void testGeocodeAddress(Map map, String provider) {
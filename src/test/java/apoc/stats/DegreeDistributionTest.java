@@ -80,4 +80,26 @@ public class DegreeDistributionTest {
         });
     }
 
+
+    @Test
+    public void degreesByLabel() throws Exception {
+        TestUtil.testResult(db, "CALL apoc.stats.degreesByLabel('BAR>') YIELD label, type, direction, total, max, min, mean, p50 RETURN * ORDER BY label", result -> {
+            Map<String, Object> row = result.next();
+            assertEquals("Foo",row.get("label"));
+            assertEquals("BAR",row.get("type"));
+            assertEquals("OUTGOING",row.get("direction"));
+            assertEquals(55L,row.get("total"));
+            assertEquals(10L,row.get("max"));
+            assertEquals(1L,row.get("min"));
+            assertEquals(5.5d,row.get("mean"));
+            assertEquals(5L,row.get("p50"));
+            row = result.next();
+            assertEquals(null,row.get("label"));
+            assertEquals("BAR",row.get("type"));
+            assertEquals(10L,row.get("max"));
+            assertEquals(1L,row.get("min"));
+            assertFalse(result.hasNext());
+        });
+    }
+
 }
@@ -0,0 +1,142 @@
+package apoc.ttl;
+
+import apoc.ApocKernelExtensionFactory;
+import apoc.util.TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.Util.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TTLLifeCycleTest {
+
+    private GraphDatabaseService db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = newDb("3600", "2000");
+    }
+
+    @After
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    private static GraphDatabaseService newDb(String schedule, String limit) throws Exception {
+        GraphDatabaseService db = new TestGraphDatabaseFactory()
+                .newImpermanentDatabaseBuilder()
+                .setConfig("apoc.ttl.enabled", "true")
+                .setConfig("apoc.ttl.schedule", schedule)
+                .setConfig("apoc.ttl.limit", limit)
+                .setConfig("apoc.ttl.batchSize", "500")
+                .newGraphDatabase();
+        TestUtil.registerProcedure(db, TTL.class);
+        db.execute("CREATE INDEX ON :TTL(ttl)").close();
+        try (Transaction tx = db.beginTx()) {
+            db.schema().awaitIndexesOnline(1, TimeUnit.MINUTES);
+            tx.success();
+        }
+        return db;
+    }
+
+    private static TTLLifeCycle ttlLifeCycle(GraphDatabaseService db) {
+        return ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class).getTtlLifeCycle();
+    }
+
+    private static void createExpired(GraphDatabaseService db, int count) {
+        // chains of expired nodes, every third one also linked to a node that stays
+        db.execute("CREATE (k:Keep) WITH k UNWIND range(1, {count}) AS i " +
+                "CREATE (n:Foo:TTL {ttl: timestamp() - 1000 - i}) " +
+                "FOREACH (x IN CASE WHEN i % 3 = 0 THEN [1] ELSE [] END | CREATE (n)-[:KEEP]->(k)) " +
+                "WITH collect(n) AS nodes UNWIND range(0, size(nodes) - 2) AS i " +
+                "WITH nodes[i] AS a, nodes[i + 1] AS b CREATE (a)-[:NEXT]->(b)", map("count", count)).close();
+    }
+
+    private static Map<String, Object> status(GraphDatabaseService db) {
+        return db.execute("CALL apoc.ttl.status()").next();
+    }
+
+    @Test
+    public void testExpireLargeBacklog() throws Exception {
+        createExpired(db, 10_000);
+        db.execute("UNWIND range(1, 100) AS i CREATE (:Bar:TTL {ttl: timestamp() + 3600000})").close();
+        TTLLifeCycle ttl = ttlLifeCycle(db);
+
+        assertEquals(10_000L, status(db).get("backlog"));
+        assertEquals(2000L, ttl.expireNodes(2000));
+        assertEquals(8000L, status(db).get("backlog"));
+        int runs = 1;
+        while (ttl.expireNodes(2000) > 0) runs++;
+
+        assertEquals(5, runs);
+        Map<String, Object> status = status(db);
+        assertEquals(true, status.get("enabled"));
+        assertEquals(0L, status.get("backlog"));
+        assertEquals(10_000L, status.get("expiredNodes"));
+        assertEquals(9999L + 3333L, status.get("expiredRelationships"));
+        try (Transaction tx = db.beginTx()) {
+            assertEquals(0, Iterators.count(db.findNodes(Label.label("Foo"))));
+            assertEquals(100, Iterators.count(db.findNodes(Label.label("Bar"))));
+            assertEquals(0, db.findNodes(Label.label("Keep")).next().getDegree());
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testExpireDenseNodeInChunks() throws Exception {
+        db.execute("CREATE (d:Dense:TTL {ttl: timestamp() - 1000}) WITH d UNWIND range(1, 3000) AS i CREATE (d)-[:LINK]->(:Keep)").close();
+
+        assertEquals(1L, ttlLifeCycle(db).expireNodes(2000));
+
+        Map<String, Object> status = status(db);
+        assertEquals(1L, status.get("expiredNodes"));
+        assertEquals(3000L, status.get("expiredRelationships"));
+        try (Transaction tx = db.beginTx()) {
+            assertEquals(0, Iterators.count(db.findNodes(Label.label("Dense"))));
+            assertEquals(3000, Iterators.count(db.findNodes(Label.label("Keep"))));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testDontExpireExtendedNodes() throws Exception {
+        createExpired(db, 10);
+        db.execute("MATCH (n:Foo) WITH n LIMIT 4 SET n.ttl = timestamp() + 3600000").close();
+
+        assertEquals(6L, ttlLifeCycle(db).expireNodes(2000));
+
+        try (Transaction tx = db.beginTx()) {
+            assertEquals(4, Iterators.count(db.findNodes(Label.label("Foo"))));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testScheduleFollowsBacklog() throws Exception {
+        db.shutdown();
+        // with a fixed schedule the 10 runs would take at least 10s
+        db = newDb("1", "500");
+        createExpired(db, 5000);
+
+        long deadline = System.currentTimeMillis() + 8000;
+        while ((Long) status(db).get("backlog") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        Map<String, Object> status = status(db);
+        assertEquals(0L, status.get("backlog"));
+        assertEquals(5000L, status.get("expiredNodes"));
+        assertTrue((Long) status.get("runs") >= 10);
+    }
+}
@@ -273,6 +273,63 @@ public class UUIDTest {
         }
     }
 
+    @Test
+    public void testUUIDWithManyLabels() {
+        // given
+        for (String label : new String[]{"A", "B", "C", "D"}) {
+            db.execute("CREATE CONSTRAINT ON (n:" + label + ") ASSERT n.uuid IS UNIQUE").close();
+            db.execute("CALL apoc.uuid.install('" + label + "', {addToExistingNodes: false}) YIELD label RETURN label").close();
+        }
+        db.execute("CREATE CONSTRAINT ON (n:E) ASSERT n.id IS UNIQUE").close();
+        db.execute("CALL apoc.uuid.install('E', {addToExistingNodes: false, uuidProperty: 'id'}) YIELD label RETURN label").close();
+        db.execute("CREATE (:Other {name:'existing'})").close();
+
+        // when
+        db.execute("CREATE (:A:C {name:'ac'}), (:E {name:'e'}), (:Other {name:'other'})").close();
+        db.execute("MATCH (n:Other {name:'existing'}) SET n:D").close();
+
+        // then
+        try (Transaction tx = db.beginTx()) {
+            Map<String, Object> row = db.execute("MATCH (ac:A:C), (e:E), (d:D), (other:Other {name:'other'}) RETURN ac.uuid AS ac, e.id AS e, e.uuid AS eUuid, d.uuid AS d, other.uuid AS other").next();
+            assertTrue(row.get("ac").toString().matches(UUID_TEST_REGEXP));
+            assertTrue(row.get("e").toString().matches(UUID_TEST_REGEXP));
+            assertTrue(row.get("d").toString().matches(UUID_TEST_REGEXP));
+            assertEquals(null, row.get("eUuid"));
+            assertEquals(null, row.get("other"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void testTimeOrderedUUID() throws Exception {
+        // given
+        db.shutdown();
+        db = TestUtil.apocGraphDatabaseBuilder()
+                .setConfig("apoc.uuid.enabled", "true")
+                .setConfig("apoc.uuid.generator", "time_ordered")
+                .newGraphDatabase();
+        TestUtil.registerProcedure(db, Uuid.class);
+        db.execute("CREATE CONSTRAINT ON (p:Person) ASSERT p.uuid IS UNIQUE").close();
+        db.execute("CALL apoc.uuid.install('Person', {addToExistingNodes: false}) YIELD label RETURN label").close();
+
+        // when
+        db.execute("CREATE (:Person {name:'first'})").close();
+        Thread.sleep(5);
+        db.execute("CREATE (:Person {name:'second'})").close();
+
+        // then
+        try (Transaction tx = db.beginTx()) {
+            Map<String, Object> row = db.execute("MATCH (first:Person {name:'first'}), (second:Person {name:'second'}) RETURN first.uuid AS first, second.uuid AS second").next();
+            String first = (String) row.get("first");
+            String second = (String) row.get("second");
+            String timeOrdered = "^[0-9a-f]{8}-[0-9a-f]{4}-7[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}$";
+            assertTrue(first.matches(timeOrdered));
+            assertTrue(second.matches(timeOrdered));
+            assertTrue(first.compareTo(second) < 0);
+            tx.success();
+        }
+    }
+
     private void assertResult(Map<String, Object> row, String labels, boolean installed, Map<String, Object> conf) {
         assertEquals(labels, row.get("label"));
         assertEquals(installed, row.get("installed"));
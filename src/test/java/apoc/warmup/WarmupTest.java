@@ -1,13 +1,32 @@
 package apoc.warmup;
 
+import apoc.ApocConfiguration;
 import apoc.util.TestUtil;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.io.File;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static apoc.util.MapUtil.map;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Sascha Peukert
@@ -17,6 +36,9 @@ public class WarmupTest {
 
     private GraphDatabaseService db;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         db = new TestGraphDatabaseFactory().newImpermanentDatabase();
@@ -72,4 +94,112 @@ public class WarmupTest {
             assertEquals(21L, r.get("indexPages"));
         });
     }
+
+    private List<Map<String, Object>> rows(String statement, Map<String, Object> params) {
+        return db.execute(statement, params).stream().collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> byFile(List<Map<String, Object>> rows, String file) {
+        return rows.stream().filter(r -> r.get("file").equals(file)).findFirst().orElseThrow(() -> new AssertionError("no row for " + file + " in " + rows));
+    }
+
+    @Test
+    public void testWarmupStores() throws Exception {
+        List<Map<String, Object>> rows = rows("CALL apoc.warmup.stores(['nodes', 'relationships'])", map());
+        assertEquals(new HashSet<>(asList("neostore.nodestore.db", "neostore.nodestore.db.labels", "neostore.relationshipgroupstore.db", "neostore.relationshipstore.db")),
+                rows.stream().map(r -> r.get("file")).collect(Collectors.toSet()));
+        assertEquals(2L, byFile(rows, "neostore.nodestore.db").get("pages"));
+        assertEquals(2L, byFile(rows, "neostore.relationshipstore.db").get("pages"));
+        for (Map<String, Object> row : rows) {
+            assertFalse((Boolean) row.get("index"));
+            assertTrue((Double) row.get("pagesPerSecond") > 0);
+            double hitRatio = (Double) row.get("hitRatio");
+            assertTrue(hitRatio > 0 && hitRatio <= 1);
+        }
+    }
+
+    @Test
+    public void testWarmupIndex() throws Exception {
+        List<Map<String, Object>> rows = rows("CALL apoc.warmup.stores([':Foo(foo)'], {partitionPages: 1})", map());
+        assertFalse(rows.isEmpty());
+        assertTrue(rows.stream().allMatch(r -> (Boolean) r.get("index")));
+        assertTrue(rows.stream().mapToLong(r -> (Long) r.get("pages")).sum() > 0);
+        try {
+            rows("CALL apoc.warmup.stores([':Foo(bar)'])", map());
+            fail("there is no index on :Foo(bar)");
+        } catch (QueryExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No index"));
+        }
+    }
+
+    @Test(expected = QueryExecutionException.class)
+    public void testWarmupUnknownStore() throws Exception {
+        rows("CALL apoc.warmup.stores(['edges'])", map());
+    }
+
+    @Test
+    public void testWarmupThrottled() throws Exception {
+        long start = System.currentTimeMillis();
+        // 4 ranges of one page at 20 pages per second take 150 ms at least
+        List<Map<String, Object>> rows = rows("CALL apoc.warmup.stores(['nodes', 'relationships'], {partitionPages: 1, pagesPerSecond: 20})", map());
+        long pages = rows.stream().mapToLong(r -> (Long) r.get("pages")).sum();
+        assertTrue(pages >= 4);
+        assertTrue(System.currentTimeMillis() - start >= (pages - 1) * 1000 / 20);
+    }
+
+    @Test
+    public void testSaveAndLoadProfile() throws Exception {
+        File profile = new File(folder.getRoot(), "warmup.profile");
+        ApocConfiguration.addToConfig(map("warmup.profile.file", profile.getPath()));
+        try {
+            rows("CALL apoc.warmup.stores(['nodes'])", map());
+            List<Map<String, Object>> saved = rows("CALL apoc.warmup.saveProfile()", map());
+            assertTrue(profile.exists());
+            assertEquals(profile.getPath(), saved.get(0).get("profile"));
+            assertEquals(2L, byFile(saved, "neostore.nodestore.db").get("pages"));
+
+            List<Map<String, Object>> loaded = rows("CALL apoc.warmup.loadProfile()", map());
+            Map<String, Long> savedPages = new HashMap<>();
+            saved.forEach(r -> savedPages.put((String) r.get("file"), (Long) r.get("pages")));
+            for (Map<String, Object> row : loaded) {
+                assertEquals(row.get("file").toString(), savedPages.get(row.get("file")), row.get("pages"));
+            }
+        } finally {
+            ApocConfiguration.addToConfig(map("warmup.profile.file", null));
+        }
+    }
+
+    @Test
+    public void testLoadProfileOnStart() throws Exception {
+        File storeDir = folder.newFolder("graph.db");
+        File profile = new File(folder.getRoot(), "start.profile");
+        GraphDatabaseService graph = new TestGraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+        try {
+            TestUtil.registerProcedure(graph, Warmup.class);
+            graph.execute("UNWIND range(1, 20000) AS i CREATE (:Node {id: i})").close();
+            ApocConfiguration.addToConfig(map("warmup.profile.file", profile.getPath()));
+            graph.execute("CALL apoc.warmup.stores(['nodes'])").close();
+            graph.execute("CALL apoc.warmup.saveProfile()").close();
+        } finally {
+            graph.shutdown();
+        }
+        graph = new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder(storeDir)
+                .setConfig("apoc.warmup.profile.onStart", "true")
+                .setConfig("apoc.warmup.profile.file", profile.getPath())
+                .newGraphDatabase();
+        try {
+            PageWarmer warmer = new PageWarmer((GraphDatabaseAPI) graph, () -> false);
+            Map<PagedFile, BitSet> expected = warmer.loadProfile(profile);
+            PagedFile nodes = expected.keySet().stream().filter(f -> f.file().getName().equals("neostore.nodestore.db")).findFirst().get();
+            assertTrue(expected.get(nodes).cardinality() > 10);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (warmer.hotPages().get(nodes).cardinality() < expected.get(nodes).cardinality()) {
+                assertTrue("the profile wasn't loaded on start", System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+        } finally {
+            graph.shutdown();
+            ApocConfiguration.addToConfig(map("warmup.profile.file", null));
+        }
+    }
 }